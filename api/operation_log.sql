@@ -30,3 +30,14 @@ CREATE TABLE IF NOT EXISTS operation_log (
 
 -- exerciseテーブルへの外部キー制約（既存のexerciseテーブルがある場合）
 -- ALTER TABLE operation_log ADD CONSTRAINT fk_exercise FOREIGN KEY (exercise_id) REFERENCES exercise(id) ON DELETE CASCADE;
+
+-- operation_log の状態スナップショット（サーバー再起動後の復元用）
+-- エクササイズごとに最新の1件だけを残し、それより後の操作は operation_log から重ねる
+CREATE TABLE IF NOT EXISTS operation_snapshot (
+    exercise_id INT NOT NULL,
+    server_sequence INT NOT NULL,
+    -- テキスト状態 (elementId:partId -> text) のJSON
+    states MEDIUMTEXT NOT NULL,
+    date DATETIME DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (exercise_id, server_sequence)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
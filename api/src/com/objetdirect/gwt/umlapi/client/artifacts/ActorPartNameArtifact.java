@@ -130,6 +130,7 @@ public class ActorPartNameArtifact extends NodePartArtifact {
 
 	public void setActorName(final String actorName) {
 		this.uMLactor.setName(actorName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -291,6 +291,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	public void setCardinalities(final String leftCardinality, final String rightCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -301,6 +302,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -311,6 +313,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftCardinality(final String leftCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -321,6 +324,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftConstraint(final String leftConstraint) {
 		this.relation.setLeftConstraint(leftConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -336,7 +340,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -347,6 +351,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftRole(final String leftRole) {
 		this.relation.setLeftRole(leftRole);
+		this.invalidateURL();
 	}
 
 	/**
@@ -357,6 +362,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -367,6 +373,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	public String getName() {
@@ -381,6 +388,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -391,6 +399,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -401,6 +410,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -411,6 +421,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -426,6 +437,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/**
@@ -436,6 +448,7 @@ public class AssetAndMisUseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightRole(final String rightRole) {
 		this.relation.setRightRole(rightRole);
+		this.invalidateURL();
 	}
 }
 
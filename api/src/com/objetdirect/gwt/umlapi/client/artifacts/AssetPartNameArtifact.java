@@ -163,10 +163,12 @@ public class AssetPartNameArtifact extends NodePartArtifact{
 
 	public void setStereotype(final String stereotype) {
 		this.stereotype = stereotype;
+		this.invalidateNodeURL();
 	}
 
 	public void setAssetName(final String assetName) {
 		this.uMLasset.setName(assetName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
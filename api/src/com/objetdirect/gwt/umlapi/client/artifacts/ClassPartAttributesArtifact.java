@@ -72,6 +72,7 @@ public class ClassPartAttributesArtifact extends NodePartArtifact {
 	 */
 	public void add(final UMLClassAttribute attribute) {
 		this.attributes.add(attribute);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -300,6 +301,7 @@ public class ClassPartAttributesArtifact extends NodePartArtifact {
 	 */
 	public void remove(final UMLClassAttribute attribute) {
 		this.attributes.remove(attribute);
+		this.invalidateNodeURL();
 		ClassArtifact classArtifact = (ClassArtifact) (this.getNodeArtifact() );
 
 		if(!attribute.toString().equals("")){ //初期値の空白でなければRemoveイベントを記録
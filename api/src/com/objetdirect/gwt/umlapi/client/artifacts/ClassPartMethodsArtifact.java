@@ -75,6 +75,7 @@ public class ClassPartMethodsArtifact extends NodePartArtifact {
 	 */
 	public void add(final UMLClassMethod method) {
 		this.methods.add(method);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -383,6 +384,7 @@ public class ClassPartMethodsArtifact extends NodePartArtifact {
 	public void remove(final UMLClassMethod method) {
 		String defaultString="+method(parameter1 : String) : void";
 		this.methods.remove(method);
+		this.invalidateNodeURL();
 		ClassArtifact classArtifact = (ClassArtifact) (this.getNodeArtifact() );
 
 		if(!defaultString.equals(method.toString())){
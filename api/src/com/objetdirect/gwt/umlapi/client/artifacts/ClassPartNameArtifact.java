@@ -269,6 +269,7 @@ public class ClassPartNameArtifact extends NodePartArtifact {
 	 */
 	public void setClassName(final String className) {
 		this.uMLclass.setName(className);
+		this.invalidateNodeURL();
 	}
 
 	/**
@@ -277,6 +278,7 @@ public class ClassPartNameArtifact extends NodePartArtifact {
 	 */
 	public void setStereotype(final String stereotype) {
 		this.stereotype = stereotype;
+		this.invalidateNodeURL();
 	}
 
 	/*
@@ -150,6 +150,7 @@ public class LifeLineArtifact extends BoxArtifact {
 	 */
 	public void setInstance(final String instance) {
 		this.uMLLifeLine.setInstance(instance);
+		this.invalidateURL();
 	}
 
 	/**
@@ -160,6 +161,7 @@ public class LifeLineArtifact extends BoxArtifact {
 	 */
 	public void setName(final String content) {
 		this.uMLLifeLine.setName(content);
+		this.invalidateURL();
 	}
 
 	/*
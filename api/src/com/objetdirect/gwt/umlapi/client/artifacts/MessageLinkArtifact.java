@@ -138,6 +138,7 @@ public class MessageLinkArtifact extends LinkArtifact {
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.message.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -148,6 +149,7 @@ public class MessageLinkArtifact extends LinkArtifact {
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.message.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -158,6 +160,7 @@ public class MessageLinkArtifact extends LinkArtifact {
 	 */
 	public void setMessageKind(final LinkKind messageKind) {
 		this.message.setLinkKind(messageKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -168,6 +171,7 @@ public class MessageLinkArtifact extends LinkArtifact {
 	 */
 	public void setName(final String name) {
 		this.message.setName(name);
+		this.invalidateURL();
 	}
 
 	/**
@@ -178,6 +182,7 @@ public class MessageLinkArtifact extends LinkArtifact {
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.message.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/*
@@ -133,6 +133,7 @@ public class MisActorPartNameArtifact extends NodePartArtifact {
 
 	public void setMisActorName(final String misactorName) {
 		this.uMLmisactor.setName(misactorName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
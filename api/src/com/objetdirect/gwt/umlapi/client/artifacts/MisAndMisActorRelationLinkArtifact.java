@@ -218,6 +218,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	public void setCardinalities(final String leftCardinality, final String rightCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -228,6 +229,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -238,6 +240,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftCardinality(final String leftCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -248,6 +251,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftConstraint(final String leftConstraint) {
 		this.relation.setLeftConstraint(leftConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -263,7 +267,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -274,6 +278,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftRole(final String leftRole) {
 		this.relation.setLeftRole(leftRole);
+		this.invalidateURL();
 	}
 
 	/**
@@ -284,6 +289,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -294,6 +300,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	public String getName() {
@@ -308,6 +315,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -318,6 +326,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -328,6 +337,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -338,6 +348,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -353,6 +364,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/**
@@ -363,6 +375,7 @@ public class MisAndMisActorRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightRole(final String rightRole) {
 		this.relation.setRightRole(rightRole);
+		this.invalidateURL();
 	}
 }
 
@@ -242,6 +242,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	public void setCardinalities(final String leftCardinality, final String rightCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -252,6 +253,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -262,6 +264,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftCardinality(final String leftCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -272,6 +275,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftConstraint(final String leftConstraint) {
 		this.relation.setLeftConstraint(leftConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -287,7 +291,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -298,6 +302,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftRole(final String leftRole) {
 		this.relation.setLeftRole(leftRole);
+		this.invalidateURL();
 	}
 
 	/**
@@ -308,6 +313,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -318,6 +324,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	public String getName() {
@@ -332,6 +339,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -342,6 +350,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -352,6 +361,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -362,6 +372,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -377,6 +388,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/**
@@ -387,6 +399,7 @@ public class MisAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightRole(final String rightRole) {
 		this.relation.setRightRole(rightRole);
+		this.invalidateURL();
 	}
 
 
@@ -156,10 +156,12 @@ public class MisUseCasePartNameArtifact extends NodePartArtifact{
 
 	public void setStereotype(final String stereotype) {
 		this.stereotype = stereotype;
+		this.invalidateNodeURL();
 	}
 
 	public void setMisUseCaseName(final String misusecaseName) {
 		this.uMLmisusecase.setName(misusecaseName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -188,6 +188,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	public void setCardinalities(final String leftCardinality, final String rightCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -198,6 +199,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -208,6 +210,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftCardinality(final String leftCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -218,6 +221,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftConstraint(final String leftConstraint) {
 		this.relation.setLeftConstraint(leftConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -233,7 +237,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -244,6 +248,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftRole(final String leftRole) {
 		this.relation.setLeftRole(leftRole);
+		this.invalidateURL();
 	}
 
 	/**
@@ -254,6 +259,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -264,6 +270,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	public String getName() {
@@ -278,6 +285,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -288,6 +296,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -298,6 +307,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -308,6 +318,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -323,6 +334,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/**
@@ -333,6 +345,7 @@ public class MisUseCaseRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightRole(final String rightRole) {
 		this.relation.setRightRole(rightRole);
+		this.invalidateURL();
 	}
 	@Override
 	public void unselect() {
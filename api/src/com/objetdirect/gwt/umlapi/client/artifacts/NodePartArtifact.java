@@ -84,6 +84,16 @@ public abstract class NodePartArtifact extends BoxArtifact {
 
 	abstract void setNodeWidth(int width);
 
+	/**
+	 * Discard the cached url fragment of the node owning this part <br>
+	 * It must be called by every setter changing something returned by the node {@link UMLArtifact#toURL()}, before the canvas url is read again
+	 */
+	protected void invalidateNodeURL() {
+		if (this.nodeArtifact != null) {
+			this.nodeArtifact.invalidateURL();
+		}
+	}
+
 	// add Yamazaki
 	//クラスを生成した時の色
 	protected void setStroke_BLACK(GfxObject element,GfxObject beforeGfxObject)
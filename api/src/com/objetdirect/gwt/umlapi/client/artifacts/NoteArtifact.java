@@ -128,6 +128,7 @@ public class NoteArtifact extends BoxArtifact {
 	 */
 	public void setContent(final String content) {
 		this.note.setText(content);
+		this.invalidateURL();
 	}
 
 	/*
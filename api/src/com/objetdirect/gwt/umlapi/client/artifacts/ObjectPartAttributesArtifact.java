@@ -67,6 +67,7 @@ public class ObjectPartAttributesArtifact extends NodePartArtifact {
 	 */
 	public void add(final UMLObjectAttribute attribute) {
 		this.attributes.add(attribute);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -201,6 +202,7 @@ public class ObjectPartAttributesArtifact extends NodePartArtifact {
 	 */
 	public void remove(final UMLObjectAttribute attribute) {
 		this.attributes.remove(attribute);
+		this.invalidateNodeURL();
 	}
 
 	/*
@@ -260,6 +260,7 @@ public class ObjectPartNameArtifact extends NodePartArtifact {
 	 */
 	public void setInstanceName(final String instanceName) {
 		this.uMLObject.setInstanceName(instanceName);
+		this.invalidateNodeURL();
 	}
 
 	/**
@@ -270,6 +271,7 @@ public class ObjectPartNameArtifact extends NodePartArtifact {
 	 */
 	public void setObjectName(final String objectName) {
 		this.uMLObject.setObjectName(objectName);
+		this.invalidateNodeURL();
 	}
 
 	/**
@@ -278,6 +280,7 @@ public class ObjectPartNameArtifact extends NodePartArtifact {
 	 */
 	public void setStereotype(final String stereotype) {
 		this.stereotype = stereotype;
+		this.invalidateNodeURL();
 	}
 
 	/*
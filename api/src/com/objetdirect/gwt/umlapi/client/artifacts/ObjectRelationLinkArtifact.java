@@ -257,6 +257,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -272,7 +273,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -283,6 +284,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -293,6 +295,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	/**
@@ -303,6 +306,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -313,6 +317,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -323,6 +328,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -333,6 +339,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -348,6 +355,7 @@ public class ObjectRelationLinkArtifact extends RelationLinkArtifact {
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/*
@@ -378,6 +378,7 @@ public abstract class RelationLinkArtifact extends LinkArtifact {
 	 */
 	public void setPartContent(final RelationLinkArtifactPart part, final String newContent) {
 		part.setText(this.relation, newContent);
+		this.invalidateURL();
 	}
 
 	public String getPartContent(final RelationLinkArtifactPart part) {
@@ -164,10 +164,12 @@ public class SecurityUseCasePartNameArtifact extends NodePartArtifact{
 
 	public void setStereotype(final String stereotype) {
 		this.stereotype = stereotype;
+		this.invalidateNodeURL();
 	}
 
 	public void setSecurityUseCaseName(final String securityusecaseName) {
 		this.uMLsecurityusecase.setName(securityusecaseName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
@@ -33,6 +33,7 @@ import com.objetdirect.gwt.umlapi.client.gfx.GfxObject;
 import com.objetdirect.gwt.umlapi.client.helpers.GWTUMLDrawerHelper;
 import com.objetdirect.gwt.umlapi.client.helpers.MenuBarAndTitle;
 import com.objetdirect.gwt.umlapi.client.helpers.QualityLevel;
+import com.objetdirect.gwt.umlapi.client.helpers.SpatialGrid;
 import com.objetdirect.gwt.umlapi.client.helpers.UMLCanvas;
 
 /**
@@ -46,6 +47,17 @@ public abstract class UMLArtifact {
 	protected boolean								isSelected		= false;
 	private static int								idCount			= 0;
 	private static TreeMap<Integer, UMLArtifact>	artifactById	= new TreeMap<Integer, UMLArtifact>();
+	private static int								urlRevision		= 0;
+
+	/**
+	 * Static getter of the url revision <br>
+	 * It is incremented each time an artifact is added, removed or invalidated, so a canvas url built at the same revision is still up to date
+	 *
+	 * @return the current url revision
+	 */
+	public static int getURLRevision() {
+		return UMLArtifact.urlRevision;
+	}
 
 	/**
 	 * Static getter of an {@link UMLArtifact} from its id
@@ -76,6 +88,7 @@ public abstract class UMLArtifact {
 	 */
 	public static void removeArtifactById(final Integer idToRemove) {
 		UMLArtifact.artifactById.remove(idToRemove);
+		UMLArtifact.urlRevision++;
 
 	}
 
@@ -93,6 +106,8 @@ public abstract class UMLArtifact {
 	private final HashMap<LinkArtifact, UMLArtifact>	dependentUMLArtifacts	= new HashMap<LinkArtifact, UMLArtifact>();
 	private boolean										isBuilt					= false;
 	private Point										location				= Point.getOrigin();
+	private String										urlFragment				= null;
+	private SpatialGrid<UMLArtifact>					spatialGrid				= null;
 
 	/**
 	 * Constructor of UMLArtifact <br>
@@ -106,6 +121,7 @@ public abstract class UMLArtifact {
 		if (toBeAdded) {
 			this.id = UMLArtifact.idCount++;
 			UMLArtifact.artifactById.put(this.id, this);
+			UMLArtifact.urlRevision++;
 		}
 	}
 
@@ -286,6 +302,8 @@ public abstract class UMLArtifact {
 		if (!this.isALink()) {
 			GfxManager.getPlatform().translate(this.getGfxObject(), Point.substract(newLocation, this.getLocation()));
 			this.location = newLocation;
+			this.invalidateURL();
+			this.updateSpatialGrid();
 		} else {
 			Logger.getGlobal().severe("Can't move a line ! (moveTo called on " + this + ")");
 		}
@@ -299,6 +317,8 @@ public abstract class UMLArtifact {
 	 */
 	public void rebuildGfxObject() {
 		final long t = System.currentTimeMillis();
+		// 見た目を作り直すのは内容が変わった時なので、URLの断片も作り直す
+		this.invalidateURL();
 		GfxManager.getPlatform().clearVirtualGroup(this.gfxObject);
 		this.buildGfxObjectWithAnimation();
 		if (this.isSelected) {
@@ -330,6 +350,7 @@ public abstract class UMLArtifact {
 	 */
 	public void removeDependency(final LinkArtifact dependentUMLArtifact) {
 		Logger.getGlobal().info(this + "removing depency with" + dependentUMLArtifact);
+		this.invalidateURL();
 		this.dependentUMLArtifacts.remove(dependentUMLArtifact);
 		this.upDependencies.remove(dependentUMLArtifact);
 		this.downDependencies.remove(dependentUMLArtifact);
@@ -376,6 +397,7 @@ public abstract class UMLArtifact {
 		this.id = id;
 		UMLArtifact.idCount = Math.max(this.id + 1, UMLArtifact.idCount);
 		UMLArtifact.artifactById.put(this.id, this);
+		this.invalidateURL();
 	}
 
 	/**
@@ -387,6 +409,57 @@ public abstract class UMLArtifact {
 	 */
 	public void setLocation(final Point location) {
 		this.location = location;
+		this.invalidateURL();
+		this.updateSpatialGrid();
+	}
+
+	/**
+	 * Setter for the spatial index of the canvas this artifact is on <br>
+	 * The artifact keeps its bounds up to date in this index whenever it is moved or rebuilt
+	 *
+	 * @param spatialGrid
+	 *            The index of the canvas, or null when the artifact leaves the canvas
+	 */
+	public void setSpatialGrid(final SpatialGrid<UMLArtifact> spatialGrid) {
+		if ((this.spatialGrid != null) && (this.spatialGrid != spatialGrid)) {
+			this.spatialGrid.remove(this);
+		}
+		this.spatialGrid = spatialGrid;
+		this.updateSpatialGrid();
+	}
+
+	/**
+	 * Put the current bounds of this artifact into the spatial index of its canvas
+	 */
+	private void updateSpatialGrid() {
+		if (this.spatialGrid != null) {
+			this.spatialGrid.put(this, this.location.getX(), this.location.getY(), this.getWidth(), this.getHeight());
+		}
+	}
+
+	/**
+	 * Getter of the cached {@link UMLArtifact#toURL()} result <br>
+	 * The fragment is computed again only after {@link UMLArtifact#invalidateURL()}
+	 *
+	 * @return The String containing the parameters
+	 */
+	public String getURLFragment() {
+		if (this.urlFragment == null) {
+			this.urlFragment = this.toURL();
+		}
+		return this.urlFragment;
+	}
+
+	/**
+	 * Discard the cached url fragment of this artifact and of the links depending on it. <br>
+	 * It must be called whenever something returned by {@link UMLArtifact#toURL()} changes
+	 */
+	public void invalidateURL() {
+		this.urlFragment = null;
+		for (final LinkArtifact dependentLink : this.dependentUMLArtifacts.keySet()) {
+			((UMLArtifact) dependentLink).urlFragment = null;
+		}
+		UMLArtifact.urlRevision++;
 	}
 
 	/*
@@ -429,6 +502,7 @@ public abstract class UMLArtifact {
 	void addDependency(final LinkArtifact dependentUMLArtifact, final UMLArtifact linkedUMLArtifact) {
 		Logger.getGlobal().info(this + "adding depency with" + dependentUMLArtifact + " - " + linkedUMLArtifact);
 		this.dependentUMLArtifacts.put(dependentUMLArtifact, linkedUMLArtifact);
+		this.invalidateURL();
 	}
 
 	void buildGfxObjectWithAnimation() {
@@ -437,6 +511,8 @@ public abstract class UMLArtifact {
 		}
 
 		this.buildGfxObject();
+		// 作り直すと大きさが変わる
+		this.updateSpatialGrid();
 		if (QualityLevel.IsAlmost(QualityLevel.VERY_HIGH)) {
 			for (int i = 25; i < 256; i += 25) {
 				final int j = i;
@@ -392,6 +392,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	public void setCardinalities(final String leftCardinality, final String rightCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -402,6 +403,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftAdornment(final LinkAdornment leftAdornment) {
 		this.relation.setLeftAdornment(leftAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -412,6 +414,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftCardinality(final String leftCardinality) {
 		this.relation.setLeftCardinality(leftCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -422,6 +425,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftConstraint(final String leftConstraint) {
 		this.relation.setLeftConstraint(leftConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -437,7 +441,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 		if (this.relation.getLeftAdornment().isNavigabilityAdornment()) {
 			this.relation.setLeftAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
-
+		this.invalidateURL();
 	}
 
 	/**
@@ -448,6 +452,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLeftRole(final String leftRole) {
 		this.relation.setLeftRole(leftRole);
+		this.invalidateURL();
 	}
 
 	/**
@@ -458,6 +463,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setLinkStyle(final LinkStyle linkStyle) {
 		this.relation.setLinkStyle(linkStyle);
+		this.invalidateURL();
 	}
 
 	/**
@@ -468,6 +474,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setName(final String name) {
 		this.relation.setName(name);
+		this.invalidateURL();
 	}
 
 	public String getName() {
@@ -482,6 +489,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRelationKind(final LinkKind relationKind) {
 		this.relation.setLinkKind(relationKind);
+		this.invalidateURL();
 	}
 
 	/**
@@ -492,6 +500,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightAdornment(final LinkAdornment rightAdornment) {
 		this.relation.setRightAdornment(rightAdornment);
+		this.invalidateURL();
 	}
 
 	/**
@@ -502,6 +511,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightCardinality(final String rightCardinality) {
 		this.relation.setRightCardinality(rightCardinality);
+		this.invalidateURL();
 	}
 
 	/**
@@ -512,6 +522,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightConstraint(final String rightConstraint) {
 		this.relation.setRightConstraint(rightConstraint);
+		this.invalidateURL();
 	}
 
 	/**
@@ -527,6 +538,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 		if (this.relation.getRightAdornment().isNavigabilityAdornment()) {
 			this.relation.setRightAdornment(isNavigable ? LinkAdornment.WIRE_ARROW : LinkAdornment.WIRE_CROSS);
 		}
+		this.invalidateURL();
 	}
 
 	/**
@@ -537,6 +549,7 @@ public class UseAndSecurityUseRelationLinkArtifact extends RelationLinkArtifact
 	 */
 	public void setRightRole(final String rightRole) {
 		this.relation.setRightRole(rightRole);
+		this.invalidateURL();
 	}
 
 }
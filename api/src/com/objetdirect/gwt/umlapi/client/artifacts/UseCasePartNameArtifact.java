@@ -117,6 +117,7 @@ public class UseCasePartNameArtifact extends NodePartArtifact{
 
 	public void setUseCaseName(final String usecaseName) {
 		this.uMLusecase.setName(usecaseName);
+		this.invalidateNodeURL();
 	}
 
 	@Override
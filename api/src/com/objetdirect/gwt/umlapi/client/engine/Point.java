@@ -103,11 +103,33 @@ public class Point {
 	 * @return A new {@link Point} containing the coordinates read from the String or the origin if there is a problem
 	 */
 	public static Point parse(final String pointString) {
-		if (pointString.matches("\\(\\-?[0-9]+,\\-?[0-9]+\\)")) {
-			final String[] coordinates = pointString.replaceAll("[\\(\\)]", "").split(",");
-			return new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+		// "(-?[0-9]+,-?[0-9]+)" の形かどうかを、正規表現を使わずに確かめる（キャンバスURLの読み込みで成果物ごとに呼ばれる）
+		final int length = pointString.length();
+		if ((length < 5) || (pointString.charAt(0) != '(') || (pointString.charAt(length - 1) != ')')) {
+			return Point.getOrigin();
 		}
-		return Point.getOrigin();
+		final int comma = pointString.indexOf(',');
+		if (!isInteger(pointString, 1, comma) || !isInteger(pointString, comma + 1, length - 1)) {
+			return Point.getOrigin();
+		}
+		return new Point(Integer.parseInt(pointString.substring(1, comma)), Integer.parseInt(pointString.substring(comma + 1, length - 1)));
+	}
+
+	/** start から end までが -?[0-9]+ か */
+	private static boolean isInteger(final String s, int start, final int end) {
+		if ((start >= 0) && (start < end) && (s.charAt(start) == '-')) {
+			start++;
+		}
+		if ((start < 0) || (start >= end)) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			final char c = s.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -0,0 +1,53 @@
+package com.objetdirect.gwt.umlapi.client.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+
+/**
+ * キャンバスの成果物単位の差分。
+ * 追加・変更された成果物は {@link UMLArtifact#toURL()} の文字列（断片）を、
+ * 削除された成果物はIDだけを持つ。
+ */
+public class CanvasDelta {
+
+	/** 追加された成果物 (ID -> 断片) */
+	private final TreeMap<Integer, String> added = new TreeMap<Integer, String>();
+
+	/** 変更された成果物 (ID -> 断片) */
+	private final TreeMap<Integer, String> changed = new TreeMap<Integer, String>();
+
+	/** 削除された成果物のID */
+	private final List<Integer> removed = new ArrayList<Integer>();
+
+	public void putAdded(final int id, final String fragment) {
+		this.added.put(id, fragment);
+	}
+
+	public void putChanged(final int id, final String fragment) {
+		this.changed.put(id, fragment);
+	}
+
+	public void addRemoved(final int id) {
+		this.removed.add(id);
+	}
+
+	public Map<Integer, String> getAdded() {
+		return this.added;
+	}
+
+	public Map<Integer, String> getChanged() {
+		return this.changed;
+	}
+
+	public List<Integer> getRemoved() {
+		return this.removed;
+	}
+
+	public boolean isEmpty() {
+		return this.added.isEmpty() && this.changed.isEmpty() && this.removed.isEmpty();
+	}
+}
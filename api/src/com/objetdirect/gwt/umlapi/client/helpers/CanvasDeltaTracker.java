@@ -0,0 +1,156 @@
+package com.objetdirect.gwt.umlapi.client.helpers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+
+/**
+ * 他のクライアントと共有しているキャンバスの状態を成果物単位で覚えておき、
+ * 送信用の差分（{@link CanvasDelta}）の作成と、受信した差分の適用を行う。
+ *
+ * キャンバス全体のURLを送る代わりに差分だけを送ることで、
+ * 通信量と再描画の量が図の大きさではなく変更の大きさに比例するようにする。
+ * version はサーバーが差分ごとに振る通し番号で、取りこぼしの検知に使う。
+ */
+public class CanvasDeltaTracker {
+
+	/** 最後に送受信した時点の成果物 (ID -> 断片) */
+	private final Map<Integer, String> fragments = new HashMap<Integer, String>();
+
+	/** 最後に受け取った差分の通し番号 */
+	private int version = 0;
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * 通し番号を合わせる（部屋に参加した時に、サーバーの現在の番号を受け取って呼ぶ）
+	 */
+	public void setVersion(final int version) {
+		this.version = version;
+	}
+
+	/**
+	 * 通し番号を更新する
+	 *
+	 * @return 取りこぼしが無ければtrue（受け取った番号が直前の番号の次）
+	 */
+	public boolean advanceTo(final int newVersion) {
+		final boolean inOrder = newVersion == this.version + 1;
+		this.version = newVersion;
+		return inOrder;
+	}
+
+	/**
+	 * 現在のキャンバスの状態を共有済みの状態として覚え直す（全体同期の後に呼ぶ）
+	 */
+	public void reset() {
+		this.fragments.clear();
+		this.fragments.putAll(currentFragments());
+	}
+
+	/**
+	 * 他のクライアントから届いた移動を適用した成果物を、共有済みの状態として覚え直す。
+	 * 受け取った移動を次の差分で送り返さないようにする。
+	 * 共有済みの断片が移動前の断片と違う（まだ送っていない手元の変更がある）場合は覚え直さず、次の差分で送る。
+	 *
+	 * @param artifact 移動を適用した成果物
+	 * @param previousFragment 移動を適用する前の断片
+	 */
+	public void markSynced(final UMLArtifact artifact, final String previousFragment) {
+		final String fragment = artifact.getURLFragment();
+		if ((fragment == null) || fragment.equals("")) {
+			return;
+		}
+		final String shared = this.fragments.get(artifact.getId());
+		if ((shared != null) && shared.equals(previousFragment)) {
+			this.fragments.put(artifact.getId(), fragment);
+		}
+	}
+
+	/**
+	 * 前回から変化した成果物を差分にまとめ、共有済みの状態を更新する
+	 *
+	 * @return 差分（変化が無ければ空）
+	 */
+	public CanvasDelta computeDelta() {
+		final CanvasDelta delta = new CanvasDelta();
+		final Map<Integer, String> current = currentFragments();
+		for (final Entry<Integer, String> entry : current.entrySet()) {
+			final String previous = this.fragments.get(entry.getKey());
+			if (previous == null) {
+				delta.putAdded(entry.getKey(), entry.getValue());
+			} else if (!previous.equals(entry.getValue())) {
+				delta.putChanged(entry.getKey(), entry.getValue());
+			}
+		}
+		for (final Integer id : this.fragments.keySet()) {
+			if (!current.containsKey(id)) {
+				delta.addRemoved(id);
+			}
+		}
+		this.fragments.clear();
+		this.fragments.putAll(current);
+		return delta;
+	}
+
+	/**
+	 * 受信した差分をキャンバスに適用する。
+	 * 削除・変更された成果物を取り除いた後、あるべき状態にあるのにキャンバスに無い成果物
+	 * （変更された成果物と、その削除に巻き込まれたリンク）をID順に作り直す。
+	 * 変化していない成果物と、まだ送信していない手元の変更には触れない。
+	 */
+	public void apply(final CanvasDelta delta, final UMLCanvas canvas) {
+		// 適用後にキャンバスにあるべき成果物 (ID -> 断片)
+		final TreeMap<Integer, String> target = new TreeMap<Integer, String>(currentFragments());
+		for (final Integer id : delta.getRemoved()) {
+			this.fragments.remove(id);
+			target.remove(id);
+			removeArtifact(id, canvas);
+		}
+		for (final Entry<Integer, String> entry : delta.getChanged().entrySet()) {
+			this.fragments.put(entry.getKey(), entry.getValue());
+			target.put(entry.getKey(), entry.getValue());
+			removeArtifact(entry.getKey(), canvas);
+		}
+		this.fragments.putAll(delta.getAdded());
+		target.putAll(delta.getAdded());
+
+		// リンクが両端の成果物より後に作られるよう、ID順に並べる
+		final StringBuilder url = new StringBuilder();
+		for (final Entry<Integer, String> entry : target.entrySet()) {
+			if (UMLArtifact.getArtifactById(entry.getKey()) == null) {
+				url.append("<");
+				url.append(entry.getKey());
+				url.append(">]");
+				url.append(entry.getValue());
+				url.append(";");
+			}
+		}
+		if (url.length() > 0) {
+			canvas.fromURL(GWTUMLDrawerHelper.encodeBase64(url.toString()), false);
+		}
+	}
+
+	private static Map<Integer, String> currentFragments() {
+		final Map<Integer, String> current = new HashMap<Integer, String>();
+		for (final Entry<Integer, UMLArtifact> entry : UMLArtifact.getArtifactList().entrySet()) {
+			final String fragment = entry.getValue().getURLFragment();
+			if ((fragment != null) && !fragment.equals("")) {
+				current.put(entry.getKey(), fragment);
+			}
+		}
+		return current;
+	}
+
+	private static void removeArtifact(final Integer id, final UMLCanvas canvas) {
+		final UMLArtifact artifact = UMLArtifact.getArtifactById(id);
+		if (artifact != null) {
+			canvas.removeSilent(artifact);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.objetdirect.gwt.umlapi.client.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+
+/**
+ * {@link UMLCanvas#toUrl()} の結果を保持し、変化した部分だけを作り直すキャッシュ。
+ *
+ * 各成果物の断片は {@link UMLArtifact#getURLFragment()} でキャッシュされ、
+ * 成果物が変わった時だけ作り直される。キャンバスURLは断片をID順に連結したものの
+ * base64（UTF-8）なので、最初に変化した断片より前の部分は、3バイト境界までの
+ * エンコード結果をそのまま使い、そこから後ろだけをエンコードし直す。
+ */
+class CanvasUrlCache {
+
+	/** 空のキャンバスを表す値（従来の toUrl() と同じ） */
+	private static final String EMPTY_CANVAS = "AA==";
+
+	/** キャッシュを作った時点の {@link UMLArtifact#getURLRevision()} */
+	private int revision = -1;
+
+	/** エンコード済みのキャンバスURL */
+	private String encoded = null;
+
+	/** 連結した断片（エンコード前） */
+	private String raw = "";
+
+	/** raw のUTF-8でのバイト数 */
+	private int rawBytes = 0;
+
+	/** 連結に含めた成果物のID */
+	private List<Integer> ids = new ArrayList<Integer>();
+
+	/** 連結に含めた断片 */
+	private List<String> fragments = new ArrayList<String>();
+
+	/** 各断片の raw 上の開始位置（文字単位） */
+	private List<Integer> charStarts = new ArrayList<Integer>();
+
+	/** 各断片の raw 上の開始位置（UTF-8のバイト単位） */
+	private List<Integer> byteStarts = new ArrayList<Integer>();
+
+	String toUrl() {
+		if ((this.encoded != null) && (this.revision == UMLArtifact.getURLRevision())) {
+			return this.encoded;
+		}
+		this.revision = UMLArtifact.getURLRevision();
+
+		final List<Integer> newIds = new ArrayList<Integer>();
+		final List<String> newFragments = new ArrayList<String>();
+		for (final Entry<Integer, UMLArtifact> entry : UMLArtifact.getArtifactList().entrySet()) {
+			final String fragment = entry.getValue().getURLFragment();
+			if ((fragment != null) && !fragment.equals("")) {
+				newIds.add(entry.getKey());
+				newFragments.add(fragment);
+			}
+		}
+		if (newIds.isEmpty()) {
+			clear();
+			this.encoded = GWTUMLDrawerHelper.encodeBase64(EMPTY_CANVAS);
+			return this.encoded;
+		}
+
+		// 先頭から変化していない断片の数（断片はキャッシュされた同じ文字列なので参照で比べられる）
+		int unchanged = 0;
+		final int common = Math.min(this.ids.size(), newIds.size());
+		while ((unchanged < common) && this.ids.get(unchanged).equals(newIds.get(unchanged))
+				&& ((this.fragments.get(unchanged) == newFragments.get(unchanged)) || this.fragments.get(unchanged).equals(newFragments.get(unchanged)))) {
+			unchanged++;
+		}
+		if ((this.encoded != null) && (unchanged == this.ids.size()) && (unchanged == newIds.size())) {
+			return this.encoded;
+		}
+		if ((this.encoded == null) || (unchanged == 0)) {
+			rebuild(newIds, newFragments, 0);
+			this.encoded = GWTUMLDrawerHelper.encodeBase64(this.raw);
+			return this.encoded;
+		}
+
+		final String previousEncoded = this.encoded;
+		rebuild(newIds, newFragments, unchanged);
+
+		// 変化した断片の直前から、バイト位置が3の倍数になる文字境界まで戻る
+		int charPosition = charStartOf(unchanged);
+		int bytePosition = byteStartOf(unchanged);
+		while ((bytePosition % 3) != 0) {
+			final char c = this.raw.charAt(charPosition - 1);
+			if (Character.isLowSurrogate(c) && (charPosition >= 2) && Character.isHighSurrogate(this.raw.charAt(charPosition - 2))) {
+				charPosition -= 2;
+				bytePosition -= 4;
+			} else {
+				charPosition--;
+				bytePosition -= utf8Length(c);
+			}
+		}
+		final String prefix = previousEncoded.substring(0, (bytePosition / 3) * 4);
+		this.encoded = charPosition < this.raw.length()
+				? prefix + GWTUMLDrawerHelper.encodeBase64(this.raw.substring(charPosition))
+				: prefix;
+		return this.encoded;
+	}
+
+	/**
+	 * from 番目以降の断片で raw と各位置を作り直す（それより前は変化していない）
+	 */
+	private void rebuild(final List<Integer> newIds, final List<String> newFragments, final int from) {
+		final List<Integer> newCharStarts = new ArrayList<Integer>(this.charStarts.subList(0, from));
+		final List<Integer> newByteStarts = new ArrayList<Integer>(this.byteStarts.subList(0, from));
+		final StringBuilder url = new StringBuilder(this.raw.length() + 64);
+		int bytes = 0;
+		if (from > 0) {
+			url.append(this.raw, 0, charStartOf(from));
+			bytes = byteStartOf(from);
+		}
+		for (int i = from; i < newIds.size(); i++) {
+			newCharStarts.add(url.length());
+			newByteStarts.add(bytes);
+			final int start = url.length();
+			url.append("<");
+			url.append(newIds.get(i));
+			url.append(">]");
+			url.append(newFragments.get(i));
+			url.append(";");
+			for (int j = start; j < url.length(); j++) {
+				final char c = url.charAt(j);
+				if (Character.isHighSurrogate(c) && ((j + 1) < url.length()) && Character.isLowSurrogate(url.charAt(j + 1))) {
+					bytes += 4;
+					j++;
+				} else {
+					bytes += utf8Length(c);
+				}
+			}
+		}
+		this.raw = url.toString();
+		this.rawBytes = bytes;
+		this.ids = newIds;
+		this.fragments = newFragments;
+		this.charStarts = newCharStarts;
+		this.byteStarts = newByteStarts;
+	}
+
+	/** index 番目の断片の開始位置（末尾の次なら raw の長さ） */
+	private int charStartOf(final int index) {
+		return index < this.charStarts.size() ? this.charStarts.get(index) : this.raw.length();
+	}
+
+	private int byteStartOf(final int index) {
+		return index < this.byteStarts.size() ? this.byteStarts.get(index) : this.rawBytes;
+	}
+
+	private void clear() {
+		this.raw = "";
+		this.rawBytes = 0;
+		this.ids = new ArrayList<Integer>();
+		this.fragments = new ArrayList<String>();
+		this.charStarts = new ArrayList<Integer>();
+		this.byteStarts = new ArrayList<Integer>();
+	}
+
+	private static int utf8Length(final char c) {
+		if (c < 0x80) {
+			return 1;
+		}
+		return c < 0x800 ? 2 : 3;
+	}
+}
@@ -0,0 +1,220 @@
+package com.objetdirect.gwt.umlapi.client.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * デコード済みのキャンバスURL（{@code <id>]種類$引数!引数!...;} の並び）を先頭から1回だけ走査して、成果物ごとに読み出す。
+ *
+ * 以前の fromURL は {@code ;}、{@code $}、{@code ]}、{@code !} の順に String.split を重ね、IDは replaceAll で
+ * {@code <>} を取り除いてから読んでいた。ここでは区切り文字の位置を indexOf で探すだけで、正規表現は使わない。
+ * 区切り方は以前と同じ:
+ * <ul>
+ * <li>最後の {@code ;} より後ろは読まない。空の成果物は飛ばす</li>
+ * <li>引数は最初の {@code $} から次の {@code $}（無ければ末尾）まで。{@code $} より後ろが {@code $} だけなら成果物ごと飛ばす</li>
+ * <li>種類は最初の {@code ]} から次の {@code ]} まで</li>
+ * <li>引数は {@code !} で区切り、末尾の空の引数も残す</li>
+ * </ul>
+ * {@link #next()} で次の成果物に進み、{@link #getType()}、{@link #getParameters()} などで中身を読む。
+ */
+public class CanvasUrlReader {
+
+	private final String diagram;
+	/** 最後の ; の位置。ここから後ろは読まない */
+	private final int end;
+	/** 次に読む成果物の先頭 */
+	private int cursor = 0;
+
+	private int entryStart;
+	private int entryEnd;
+	private int idEnd;
+	private String type;
+	private String[] parameters;
+
+	public CanvasUrlReader(final String diagram) {
+		this.diagram = diagram;
+		this.end = diagram.lastIndexOf(';');
+	}
+
+	/**
+	 * 次の成果物に進む
+	 *
+	 * @return 成果物が残っていなければ false
+	 */
+	public boolean next() {
+		while (this.cursor < this.end) {
+			final int start = this.cursor;
+			int stop = this.diagram.indexOf(';', start);
+			if ((stop < 0) || (stop > this.end)) {
+				stop = this.end;
+			}
+			this.cursor = stop + 1;
+			if (read(start, stop)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** start から stop までの成果物を読む。以前の split で飛ばしていた形なら false */
+	private boolean read(final int start, final int stop) {
+		if (start == stop) {
+			return false;
+		}
+		final int dollar = indexOf('$', start, stop);
+		if (dollar < 0) {
+			return false;
+		}
+		if (!hasOtherThan('$', dollar + 1, stop)) {
+			// "種類$" や "種類$$" のように $ の後ろが空
+			return false;
+		}
+		int parametersEnd = indexOf('$', dollar + 1, stop);
+		if (parametersEnd < 0) {
+			parametersEnd = stop;
+		}
+		final int bracket = indexOf(']', start, dollar);
+		if (bracket < 0) {
+			return false;
+		}
+		int typeEnd = indexOf(']', bracket + 1, dollar);
+		if (typeEnd < 0) {
+			typeEnd = dollar;
+		}
+		this.entryStart = start;
+		this.entryEnd = stop;
+		this.idEnd = bracket;
+		this.type = this.diagram.substring(bracket + 1, typeEnd);
+		this.parameters = split(this.diagram, '!', dollar + 1, parametersEnd);
+		return true;
+	}
+
+	/**
+	 * 成果物のID（{@code <12>} の数字）
+	 *
+	 * @throws NumberFormatException IDが数字でない時
+	 */
+	public int getId() {
+		return parseId(this.diagram, this.entryStart, this.idEnd);
+	}
+
+	/** 成果物の種類（Class、ClassRelationLink など） */
+	public String getType() {
+		return this.type;
+	}
+
+	/** {@code !} で区切った引数 */
+	public String[] getParameters() {
+		return this.parameters;
+	}
+
+	/** 今の成果物の文字列全体（ログ用） */
+	public String getEntry() {
+		return this.diagram.substring(this.entryStart, this.entryEnd);
+	}
+
+	/**
+	 * {@code <12>} のようなIDを読む（{@code <} と {@code >} は無視する）
+	 *
+	 * @throws NumberFormatException IDが数字でない時
+	 */
+	public static int parseId(final String idString) {
+		return parseId(idString, 0, idString.length());
+	}
+
+	private static int parseId(final String s, final int start, final int stop) {
+		int from = start;
+		int to = stop;
+		while ((from < to) && (s.charAt(from) == '<')) {
+			from++;
+		}
+		while ((to > from) && (s.charAt(to - 1) == '>')) {
+			to--;
+		}
+		StringBuilder id = null;
+		for (int i = from; i < to; i++) {
+			final char c = s.charAt(i);
+			if ((c == '<') || (c == '>')) {
+				// 途中にも < > があれば、以前と同じく全部取り除く
+				if (id == null) {
+					id = new StringBuilder(s.substring(from, i));
+				}
+			}
+			else if (id != null) {
+				id.append(c);
+			}
+		}
+		return Integer.parseInt(id == null ? s.substring(from, to) : id.toString());
+	}
+
+	/**
+	 * {@code %} で終わる項目の並び（属性・操作）を分ける。以前の
+	 * {@code list.substring(0, list.lastIndexOf("%")).split("%")} と同じ結果になる
+	 */
+	public static List<String> splitList(final String list) {
+		int stop = list.lastIndexOf('%');
+		if (stop < 0) {
+			stop = list.length();
+		}
+		final List<String> items = new ArrayList<String>();
+		if (stop == 0) {
+			items.add("");
+			return items;
+		}
+		int start = 0;
+		int nonEmpty = 0;
+		while (true) {
+			int sep = list.indexOf('%', start);
+			if ((sep < 0) || (sep > stop)) {
+				sep = stop;
+			}
+			final String item = list.substring(start, sep);
+			items.add(item);
+			if (item.length() > 0) {
+				nonEmpty = items.size();
+			}
+			if (sep == stop) {
+				break;
+			}
+			start = sep + 1;
+		}
+		// split と同じく末尾の空の項目は捨てる
+		while (items.size() > nonEmpty) {
+			items.remove(items.size() - 1);
+		}
+		return items;
+	}
+
+	/** limit を付けない split（末尾の空の要素も残す） */
+	private static String[] split(final String s, final char separator, final int start, final int stop) {
+		int count = 1;
+		for (int i = start; i < stop; i++) {
+			if (s.charAt(i) == separator) {
+				count++;
+			}
+		}
+		final String[] parts = new String[count];
+		int from = start;
+		for (int k = 0; k < count - 1; k++) {
+			final int sep = s.indexOf(separator, from);
+			parts[k] = s.substring(from, sep);
+			from = sep + 1;
+		}
+		parts[count - 1] = s.substring(from, stop);
+		return parts;
+	}
+
+	private int indexOf(final char c, final int start, final int stop) {
+		final int i = this.diagram.indexOf(c, start);
+		return (i >= 0) && (i < stop) ? i : -1;
+	}
+
+	private boolean hasOtherThan(final char c, final int start, final int stop) {
+		for (int i = start; i < stop; i++) {
+			if (this.diagram.charAt(i) != c) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,203 @@
+package com.objetdirect.gwt.umlapi.client.helpers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 矩形を持つ要素を、一定の大きさのセルに分けて引く空間索引（一様グリッド）。
+ *
+ * 要素は矩形が掛かる全てのセルに登録し、点や矩形の問い合わせでは掛かるセルの要素だけを調べる。
+ * 問い合わせの手間は図全体の要素数ではなく、調べるセルの数とそこにある要素の数で決まる。
+ * 矩形が変わったら {@link #put} で登録し直す（同じセルの範囲に収まっていればセルは触らない）。
+ *
+ * 矩形は端を含む（x &lt;= 点 &lt;= x + width）。{@link UMLCanvas} の当たり判定と同じ。
+ *
+ * @param <T> 要素の型
+ */
+public class SpatialGrid<T> {
+
+	/** セルの一辺（256ピクセル）の2の対数 */
+	private static final int	CELL_SHIFT	= 8;
+
+	/** セル -> そのセルに掛かる要素 */
+	private final HashMap<Integer, ArrayList<Entry<T>>>	cells	= new HashMap<Integer, ArrayList<Entry<T>>>();
+
+	/** 要素 -> 登録した矩形 */
+	private final HashMap<T, Entry<T>>					entries	= new HashMap<T, Entry<T>>();
+
+	/**
+	 * 要素を登録する。登録済みなら矩形を置き換える
+	 */
+	public void put(final T item, final int x, final int y, final int width, final int height) {
+		Entry<T> entry = this.entries.get(item);
+		if (entry == null) {
+			entry = new Entry<T>(item);
+			this.entries.put(item, entry);
+		} else {
+			final int oldMinCellX = entry.minCellX();
+			final int oldMinCellY = entry.minCellY();
+			final int oldMaxCellX = entry.maxCellX();
+			final int oldMaxCellY = entry.maxCellY();
+			entry.set(x, y, width, height);
+			if ((oldMinCellX == entry.minCellX()) && (oldMinCellY == entry.minCellY()) && (oldMaxCellX == entry.maxCellX())
+					&& (oldMaxCellY == entry.maxCellY())) {
+				return;
+			}
+			this.removeFromCells(entry, oldMinCellX, oldMinCellY, oldMaxCellX, oldMaxCellY);
+			this.addToCells(entry);
+			return;
+		}
+		entry.set(x, y, width, height);
+		this.addToCells(entry);
+	}
+
+	/**
+	 * 要素の登録を外す
+	 *
+	 * @return 登録されていれば true
+	 */
+	public boolean remove(final T item) {
+		final Entry<T> entry = this.entries.remove(item);
+		if (entry == null) {
+			return false;
+		}
+		this.removeFromCells(entry, entry.minCellX(), entry.minCellY(), entry.maxCellX(), entry.maxCellY());
+		return true;
+	}
+
+	public boolean contains(final T item) {
+		return this.entries.containsKey(item);
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	public void clear() {
+		this.cells.clear();
+		this.entries.clear();
+	}
+
+	/**
+	 * 点を含む要素を1つ返す
+	 *
+	 * @return 点を含む要素（無ければ null）
+	 */
+	public T findAt(final int x, final int y) {
+		final ArrayList<Entry<T>> cell = this.cells.get(key(x >> CELL_SHIFT, y >> CELL_SHIFT));
+		if (cell != null) {
+			for (final Entry<T> entry : cell) {
+				if (entry.intersects(x, y, x, y)) {
+					return entry.item;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 矩形 (minX, minY)-(maxX, maxY) に掛かる要素を返す
+	 */
+	public List<T> findIn(final int minX, final int minY, final int maxX, final int maxY) {
+		final List<T> found = new ArrayList<T>();
+		final int minCellX = minX >> CELL_SHIFT;
+		final int minCellY = minY >> CELL_SHIFT;
+		final int maxCellX = maxX >> CELL_SHIFT;
+		final int maxCellY = maxY >> CELL_SHIFT;
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+				final ArrayList<Entry<T>> cell = this.cells.get(key(cellX, cellY));
+				if (cell == null) {
+					continue;
+				}
+				for (final Entry<T> entry : cell) {
+					// 複数のセルに掛かる要素は、問い合わせの範囲で一番左上のセルでだけ数える
+					if ((Math.max(entry.minCellX(), minCellX) == cellX) && (Math.max(entry.minCellY(), minCellY) == cellY)
+							&& entry.intersects(minX, minY, maxX, maxY)) {
+						found.add(entry.item);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	private void addToCells(final Entry<T> entry) {
+		for (int cellX = entry.minCellX(); cellX <= entry.maxCellX(); cellX++) {
+			for (int cellY = entry.minCellY(); cellY <= entry.maxCellY(); cellY++) {
+				final Integer key = key(cellX, cellY);
+				ArrayList<Entry<T>> cell = this.cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Entry<T>>();
+					this.cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	private void removeFromCells(final Entry<T> entry, final int minCellX, final int minCellY, final int maxCellX, final int maxCellY) {
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+				final Integer key = key(cellX, cellY);
+				final ArrayList<Entry<T>> cell = this.cells.get(key);
+				if (cell != null) {
+					cell.remove(entry);
+					if (cell.isEmpty()) {
+						this.cells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * セルの番号（離れたセルが同じ番号になっても、矩形で確かめるので結果は変わらない）
+	 */
+	private static Integer key(final int cellX, final int cellY) {
+		return Integer.valueOf((cellX << 16) ^ (cellY & 0xFFFF));
+	}
+
+	/**
+	 * 登録した要素と矩形
+	 */
+	private static class Entry<T> {
+		final T	item;
+		int		minX;
+		int		minY;
+		int		maxX;
+		int		maxY;
+
+		Entry(final T item) {
+			this.item = item;
+		}
+
+		void set(final int x, final int y, final int width, final int height) {
+			this.minX = Math.min(x, x + width);
+			this.minY = Math.min(y, y + height);
+			this.maxX = Math.max(x, x + width);
+			this.maxY = Math.max(y, y + height);
+		}
+
+		boolean intersects(final int otherMinX, final int otherMinY, final int otherMaxX, final int otherMaxY) {
+			return (otherMaxX >= this.minX) && (otherMaxY >= this.minY) && (this.maxX >= otherMinX) && (this.maxY >= otherMinY);
+		}
+
+		int minCellX() {
+			return this.minX >> CELL_SHIFT;
+		}
+
+		int minCellY() {
+			return this.minY >> CELL_SHIFT;
+		}
+
+		int maxCellX() {
+			return this.maxX >> CELL_SHIFT;
+		}
+
+		int maxCellY() {
+			return this.maxY >> CELL_SHIFT;
+		}
+	}
+}
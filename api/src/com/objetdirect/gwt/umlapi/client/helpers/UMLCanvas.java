@@ -17,8 +17,10 @@ package com.objetdirect.gwt.umlapi.client.helpers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -113,7 +115,12 @@ public class UMLCanvas extends AbsolutePanel {
 	private static long										objectCount						= 1;
 	private static long										lifeLineCount					= 1;
 	private String											copyBuffer 						= "";
+	// toUrl() の結果のキャッシュ（変化した成果物の分だけ作り直す）
+	private final CanvasUrlCache								urlCache						= new CanvasUrlCache();
 	public static WebSocketSender webSocketSender;
+	// ドラッグ中の位置を送る最短の間隔（ミリ秒）と、最後に送った時刻
+	private static final int								LIVE_DRAG_INTERVAL_MS			= 50;
+	private long											lastLiveDragTime				= 0;
 	private long											noteCount;
 	private LinkKind										activeLinking;
 	private Point											selectBoxStartPoint;
@@ -205,6 +212,11 @@ public class UMLCanvas extends AbsolutePanel {
 	// Graphical objects
 	// (group)
 
+	private final SpatialGrid<UMLArtifact>					artifactGrid					= new SpatialGrid<UMLArtifact>();	// Bounds of the
+	// artifacts on this
+	// canvas (links are
+	// not indexed)
+
 	private final Set<UMLArtifact>							objectsToBeAddedWhenAttached	= new LinkedHashSet<UMLArtifact>();
 
 	private final HashMap<UMLArtifact, ArrayList<Point>>	selectedArtifacts				= new HashMap<UMLArtifact, ArrayList<Point>>(); // Represent the
@@ -300,6 +312,7 @@ public class UMLCanvas extends AbsolutePanel {
 
 			GfxManager.getPlatform().translate(artifact.getGfxObject(), artifact.getLocation());
 			this.objects.put(artifact.getGfxObject(), artifact);
+			this.indexArtifact(artifact);
 			
 			Logger.getGlobal().info("([" + (System.currentTimeMillis() - t) + "ms]) to add " + artifact);
 			System.out.println("add artifact into canvas");
@@ -780,16 +793,28 @@ public class UMLCanvas extends AbsolutePanel {
 	 * @return The first artifact found at the specified location or null if there is no artifact there
 	 */
 	public GfxObject getArtifactAt(final Point location) {
-		for (final UMLArtifact artifact : this.objects.values()) {
-			if (this.isIn(artifact.getLocation(), Point.add(artifact.getLocation(), new Point(artifact.getWidth(), artifact.getHeight())), location, location)) {
-				Logger.getGlobal().info("Artifact : " + artifact + " found");
-				return artifact.getGfxObject();
-			}
+		final UMLArtifact artifact = this.artifactGrid.findAt(location.getX(), location.getY());
+		if (artifact != null) {
+			Logger.getGlobal().info("Artifact : " + artifact + " found");
+			return artifact.getGfxObject();
 		}
 		Logger.getGlobal().info("No Artifact Found !");
 		return null;
 	}
 
+	/**
+	 * Index an artifact which has just been added on this canvas so that it can be found by location <br>
+	 * Links have no box of their own and are not indexed
+	 *
+	 * @param artifact
+	 *            The added artifact
+	 */
+	private void indexArtifact(final UMLArtifact artifact) {
+		if (!artifact.isALink()) {
+			artifact.setSpatialGrid(this.artifactGrid);
+		}
+	}
+
 	/**
 	 * Getter for the canvasOffset
 	 *
@@ -909,6 +934,7 @@ public class UMLCanvas extends AbsolutePanel {
 		GfxManager.getPlatform().removeFromVirtualGroup(this.allObjects, element.getGfxObject(), false);
 		
 		this.objects.remove(element.getGfxObject());
+		element.setSpatialGrid(null);
 		UMLArtifact.removeArtifactById(element.getId());
 		element.setCanvas(null);
 		this.selectedArtifacts.remove(element);
@@ -992,30 +1018,13 @@ public class UMLCanvas extends AbsolutePanel {
 	}
 
 	/**
-	 * This method calls {@link UMLArtifact#toURL()} on all artifacts of this canvas and concatenate it in a String separated by a semicolon
+	 * This method concatenates {@link UMLArtifact#getURLFragment()} of all artifacts of this canvas in a String separated by a semicolon. <br>
+	 * Only the fragments of the artifacts changed since the last call are computed again (see {@link CanvasUrlCache})
 	 *
 	 * @return The concatenated String from all {@link UMLArtifact#toURL()}
 	 */
 	public String toUrl() {
-		
-		final StringBuilder url = new StringBuilder();
-		if (UMLArtifact.getArtifactList().isEmpty()){
-			url.append("AA==");
-		}
-		else{
-			for (final Entry<Integer, UMLArtifact> uMLArtifactEntry : UMLArtifact.getArtifactList().entrySet()) {
-				final String artifactString = uMLArtifactEntry.getValue().toURL();
-				if ((artifactString != null) && !artifactString.equals("")) {
-					url.append("<");
-					url.append(uMLArtifactEntry.getKey());
-					url.append(">]");
-					url.append(artifactString);
-					url.append(";");
-				}
-			}
-		}
-
-		return GWTUMLDrawerHelper.encodeBase64(url.toString());
+		return this.urlCache.toUrl();
 	}
 
 	/**
@@ -1842,6 +1851,7 @@ public class UMLCanvas extends AbsolutePanel {
 			GfxManager.getPlatform().translate(elementNotAdded.getGfxObject(), elementNotAdded.getLocation());
 			
 			this.objects.put(elementNotAdded.getGfxObject(), elementNotAdded);
+			this.indexArtifact(elementNotAdded);
 			Logger.getGlobal().info("([" + (System.currentTimeMillis() - t) + "ms]) to add queued " + elementNotAdded);
 		}
 		
@@ -1898,13 +1908,19 @@ public class UMLCanvas extends AbsolutePanel {
 		final Point min = Point.substract(Point.min(startPoint, location), this.canvasOffset);
 		final Point max = Point.substract(Point.max(startPoint, location), this.canvasOffset);
 
-		for (final UMLArtifact artifact : this.objects.values()) {
+		// 枠に掛かる成果物は索引で引き、枠の外では選択状態が変わり得るもの（選択中か、枠を引く前に選択していたもの）だけを見る
+		final List<UMLArtifact> inBox = this.artifactGrid.findIn(min.getX(), min.getY(), max.getX(), max.getY());
+		final Set<UMLArtifact> inBoxSet = new HashSet<UMLArtifact>(inBox);
+		final Set<UMLArtifact> outOfBox = new LinkedHashSet<UMLArtifact>(this.selectedArtifacts.keySet());
+		outOfBox.addAll(this.previouslySelectedArtifacts.keySet());
+		for (final UMLArtifact artifact : inBox) {
 			if (artifact.isDraggable()) {
-				if (this.isIn(artifact.getLocation(), Point.add(artifact.getLocation(), new Point(artifact.getWidth(), artifact.getHeight())), min, max)) {
-					this.boxSelect(artifact, !(this.previouslySelectedArtifacts.containsKey(artifact) && isCtrlDown));
-				} else {
-					this.boxSelect(artifact, (isShiftDown || isCtrlDown) && this.previouslySelectedArtifacts.containsKey(artifact));
-				}
+				this.boxSelect(artifact, !(this.previouslySelectedArtifacts.containsKey(artifact) && isCtrlDown));
+			}
+		}
+		for (final UMLArtifact artifact : outOfBox) {
+			if (artifact.isDraggable() && !inBoxSet.contains(artifact)) {
+				this.boxSelect(artifact, (isShiftDown || isCtrlDown) && this.previouslySelectedArtifacts.containsKey(artifact));
 			}
 		}
 	}
@@ -1986,6 +2002,29 @@ public class UMLCanvas extends AbsolutePanel {
 		}
 		GfxManager.getPlatform().translate(this.outlines, shift);
 		this.dragOffset = location.clonePoint();
+		this.sendLiveDrag();
+	}
+
+	/**
+	 * ドラッグ中の位置を他のクライアントに送る。mousemove ごとには送らず、LIVE_DRAG_INTERVAL_MS に1回だけ送る。
+	 * 最後の位置は drop() で移動操作として送られる
+	 */
+	private void sendLiveDrag() {
+		if (UMLCanvas.webSocketSender == null) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - this.lastLiveDragTime < LIVE_DRAG_INTERVAL_MS) {
+			return;
+		}
+		this.lastLiveDragTime = now;
+		for (final UMLArtifact selectedArtifact : this.selectedArtifacts.keySet()) {
+			if (selectedArtifact.isDraggable()) {
+				// drop() で移動する先と同じ位置
+				final Point dragLocation = Point.substract(Point.add(selectedArtifact.getLocation(), this.totalDragShift), this.duringDragOffset);
+				UMLCanvas.webSocketSender.sendLiveMove("element-" + selectedArtifact.getId(), dragLocation.getX(), dragLocation.getY());
+			}
+		}
 	}
 
 	private void drop(final Point location) {
@@ -2031,6 +2070,7 @@ public class UMLCanvas extends AbsolutePanel {
 		}
 		this.totalDragShift = Point.getOrigin();
 		this.duringDragOffset = Point.getOrigin();
+		this.lastLiveDragTime = 0;
 		GfxManager.getPlatform().clearVirtualGroup(this.outlines);
 		GfxManager.getPlatform().clearVirtualGroup(this.movingOutlineDependencies);
 
@@ -2111,10 +2151,6 @@ public class UMLCanvas extends AbsolutePanel {
 		Logger.getGlobal().info("Init canvas done");
 	}
 
-	private boolean isIn(final Point artifactMin, final Point artifactMax, final Point selectMin, final Point selectMax) {
-		return (selectMax.isSuperiorTo(artifactMin) && artifactMax.isSuperiorTo(selectMin));
-	}
-
 	private void linkingModeOff() {
 		this.activeLinking = null;
 		GfxManager.getPlatform().clearVirtualGroup(this.movingLines);
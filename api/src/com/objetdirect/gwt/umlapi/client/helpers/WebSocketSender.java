@@ -35,4 +35,12 @@ public interface WebSocketSender {
      * @param newY 移動後Y座標
      */
     void sendMoveWithAbsolutePosition(String elementId, int oldX, int oldY, int newX, int newY);
+    
+    /**
+     * ドラッグ中の位置を送信（保存はされず、サーバーが間引いて他のクライアントに配信する）
+     * @param elementId 要素ID
+     * @param x ドラッグ中のX座標
+     * @param y ドラッグ中のY座標
+     */
+    void sendLiveMove(String elementId, int x, int y);
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.objetdirect.gwt.umlapi.client.mylogger;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * まとめて送信するための編集イベント1件分（{@link MyLoggerService#registEditEvents} の要素）
+ *
+ * イベントはバッファで待ったり送り直されたりしてからサーバーに届くので、操作した時刻をクライアントで記録しておく。
+ * クライアントの時計はずれていることがあるため、サーバーは送信時刻との差（届くまでに待った時間）だけを使い、
+ * 受け取った時刻からその分を引いた時刻を edit_datetime にする（{@link #getEditTime(long)}）。
+ */
+public class EditEventLog implements IsSerializable {
+	String studentId;
+	int exercisesId;
+	int preEventId;
+	String editEvent;
+	String eventType;
+	String targetType;
+	int targetId;
+	String linkKind;
+	int rightObjectId;
+	int leftObjectId;
+	String targetPart;
+	String beforeEdit;
+	String afterEdit;
+	String canvasUrl;
+	int umlArtifactId;
+	/** 操作した時刻（クライアントの時計, ms） */
+	long editTime;
+	/** このイベントを含むバッチを送った時刻（クライアントの時計, ms） */
+	long sendTime;
+
+	public EditEventLog() {
+	}
+
+	public EditEventLog(String studentId, int exercisesId, int preEventId, String editEvent, String eventType,
+			String targetType, int targetId, String linkKind, int rightObjectId, int leftObjectId,
+			String targetPart, String beforeEdit, String afterEdit, String canvasUrl, int umlArtifactId) {
+		this.studentId = studentId;
+		this.exercisesId = exercisesId;
+		this.preEventId = preEventId;
+		this.editEvent = editEvent;
+		this.eventType = eventType;
+		this.targetType = targetType;
+		this.targetId = targetId;
+		this.linkKind = linkKind;
+		this.rightObjectId = rightObjectId;
+		this.leftObjectId = leftObjectId;
+		this.targetPart = targetPart;
+		this.beforeEdit = beforeEdit;
+		this.afterEdit = afterEdit;
+		this.canvasUrl = canvasUrl;
+		this.umlArtifactId = umlArtifactId;
+		this.editTime = System.currentTimeMillis();
+	}
+
+	public String getStudentId() {
+		return studentId;
+	}
+
+	public int getExercisesId() {
+		return exercisesId;
+	}
+
+	public int getPreEventId() {
+		return preEventId;
+	}
+
+	public String getEditEvent() {
+		return editEvent;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public String getTargetType() {
+		return targetType;
+	}
+
+	public int getTargetId() {
+		return targetId;
+	}
+
+	public String getLinkKind() {
+		return linkKind;
+	}
+
+	public int getRightObjectId() {
+		return rightObjectId;
+	}
+
+	public int getLeftObjectId() {
+		return leftObjectId;
+	}
+
+	public String getTargetPart() {
+		return targetPart;
+	}
+
+	public String getBeforeEdit() {
+		return beforeEdit;
+	}
+
+	public String getAfterEdit() {
+		return afterEdit;
+	}
+
+	public String getCanvasUrl() {
+		return canvasUrl;
+	}
+
+	public int getUmlArtifactId() {
+		return umlArtifactId;
+	}
+
+	public long getEditTime() {
+		return editTime;
+	}
+
+	public long getSendTime() {
+		return sendTime;
+	}
+
+	/**
+	 * 送信する直前に呼ぶ（送り直す時も呼び直す）
+	 */
+	public void setSendTime(long sendTime) {
+		this.sendTime = sendTime;
+	}
+
+	/**
+	 * サーバーの時計での操作時刻
+	 *
+	 * @param receivedTime サーバーがバッチを受け取った時刻
+	 * @return 受け取った時刻から、クライアントで送るまでに待った時間を引いた時刻（送信時刻が無ければ受け取った時刻）
+	 */
+	public long getEditTime(long receivedTime) {
+		if (sendTime <= 0 || editTime <= 0 || editTime > sendTime) {
+			return receivedTime;
+		}
+		return receivedTime - (sendTime - editTime);
+	}
+}
@@ -1,15 +1,76 @@
 package com.objetdirect.gwt.umlapi.client.mylogger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Window;
+import com.google.gwt.user.client.Window.ClosingEvent;
+import com.google.gwt.user.client.Window.ClosingHandler;
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.rpc.RpcRequestBuilder;
 import com.google.gwt.user.client.rpc.ServiceDefTarget;
 import com.objetdirect.gwt.umlapi.client.helpers.Session;
 
+/**
+ * 編集イベントの記録。
+ *
+ * キャンバスの編集（作成・削除・移動・編集など）は1件ずつRPCを送らず、バッファに溜めて
+ * 一定時間ごと、または一定件数ごとに {@link MyLoggerService#registEditEvents} でまとめて送る。
+ * それ以外のイベント（保存・Undo・ログインなど）は溜まっているものと一緒にすぐ送る。
+ * 送信中のバッチは常に1つだけにして、サーバーに届く順番を守る。
+ * 送れなかったバッチはバッファの先頭に戻し、少し待ってから（または次の送信の時に）送り直す。
+ * ページを閉じる時は、ページが消えても送信が続く keepalive 付きの fetch で送る。
+ */
 public class MyLoggerExecute {
 	public static String preEditEventType = "";
 	static boolean isSendingFinished = false;
 
+	/** バッファに溜めたイベントを送るまでの時間 (ms) */
+	private static final int FLUSH_DELAY_MS = 500;
+
+	/** この件数が溜まったら時間を待たずに送る */
+	private static final int FLUSH_SIZE = 20;
+
+	/** 送れなかった時に、送り直すまで待つ時間 (ms) */
+	private static final int RETRY_DELAY_MS = 5000;
+
+	/** 送れないまま溜めておくイベントの上限（超えたら古いものから捨てる） */
+	private static final int MAX_PENDING = 1000;
+
+	/** keepalive 付きの fetch で送れる本文の大きさの上限 (byte) */
+	private static final int KEEPALIVE_MAX_BYTES = 60000;
+
+	/** バッファに溜めてよいイベントの種類（それ以外はすぐ送る） */
+	private static final String[] BUFFERED_EVENT_TYPES = { "Create", "Remove", "RemoveArtifacts", "Place", "Edit", "Copy", "Paste" };
+
+	private static MyLoggerServiceAsync service;
+
+	/** ページを閉じる時の送信用（keepalive 付きの fetch で送る） */
+	private static MyLoggerServiceAsync unloadService;
+
+	/** まだ送っていないイベント */
+	private static List<EditEventLog> pendingEvents = new ArrayList<EditEventLog>();
+
+	/** 送信中のバッチがあるか */
+	private static boolean sending = false;
+
+	/** 送信中のバッチ（ページを閉じる時の送信に引き渡したらnull） */
+	private static List<EditEventLog> sendingBatch;
+
+	/** 続けて送信に失敗した回数 */
+	private static int failureCount = 0;
+
+	/** バッファが空になった後に実行する処理 */
+	private static List<Command> afterFlush = new ArrayList<Command>();
+
+	private static Timer flushTimer;
+
 	public static void registEditEvent(int preEventId, String editEvent, String eventType,
 			String targetType, int targetId, String linkKind, int rightObjectId, int leftObjectId,
 			String targetPart, String beforeEdit, String afterEdit, String canvasUrl, int umlArtifactId ){
@@ -19,24 +80,14 @@ public class MyLoggerExecute {
 
 		if( ( Session.getMode() ).equals("drawer") || ( Session.getMode() ).equals("login")){
 			if( !(preEditEventType.equals("Check") && eventType.equals("Check") ) ){
-				MyLoggerServiceAsync async = (MyLoggerServiceAsync)GWT.create(MyLoggerService.class);
-				ServiceDefTarget entryPoint = (ServiceDefTarget) async;
-				String entryURL = GWT.getModuleBaseURL() + "registEditEvent";
-				entryPoint.setServiceEntryPoint(entryURL);
-
-				@SuppressWarnings("rawtypes")
-				AsyncCallback callback = new AsyncCallback(){
-					public void onSuccess(Object result){
-
-					}
-					public void onFailure(Throwable caught){
-						Window.alert("Connect Error");
-					}
-				};
-
-				async.registEditEvent( studentId, exerciseId, preEventId, editEvent, eventType, targetType, targetId,
+				pendingEvents.add(new EditEventLog( studentId, exerciseId, preEventId, editEvent, eventType, targetType, targetId,
 						linkKind,  rightObjectId, leftObjectId, targetPart,  beforeEdit,
-						afterEdit, canvasUrl, umlArtifactId, callback);
+						afterEdit, canvasUrl, umlArtifactId));
+				if (!isBuffered(eventType) || pendingEvents.size() >= FLUSH_SIZE) {
+					flush();
+				} else if (!getFlushTimer().isRunning()) {
+					getFlushTimer().schedule(FLUSH_DELAY_MS);
+				}
 			}
 		}
 		else{
@@ -45,6 +96,208 @@ public class MyLoggerExecute {
 		preEditEventType = eventType;
 	}
 
+	/**
+	 * 溜まっているイベントを送る
+	 */
+	public static void flush() {
+		if (flushTimer != null) {
+			flushTimer.cancel();
+		}
+		if (sending || pendingEvents.isEmpty()) {
+			// 送信中なら、そのバッチの完了後に続けて送る
+			if (!sending) {
+				runAfterFlush();
+			}
+			return;
+		}
+		final List<EditEventLog> batch = pendingEvents;
+		pendingEvents = new ArrayList<EditEventLog>();
+		sending = true;
+		sendingBatch = batch;
+		stampSendTime(batch);
+		getService().registEditEvents(batch, new AsyncCallback<Boolean>() {
+			public void onSuccess(Boolean result) {
+				sending = false;
+				sendingBatch = null;
+				failureCount = 0;
+				flush();
+			}
+			public void onFailure(Throwable caught) {
+				sending = false;
+				// 送れなかったバッチは、その後に溜まったイベントより前に戻して送り直す
+				// （ページを閉じる時の送信に引き渡し済みなら、そちらで送っている）
+				if (sendingBatch == batch) {
+					requeue(batch);
+				}
+				sendingBatch = null;
+				if (failureCount++ == 0) {
+					Window.alert("Connect Error");
+				}
+				// 書き込みを待っている処理は、送り直しを待たせずに実行する（以前は失敗したバッチを捨てて実行していた）
+				runAfterFlush();
+				getFlushTimer().schedule(RETRY_DELAY_MS);
+			}
+		});
+	}
+
+	/**
+	 * 送れなかったバッチをバッファの先頭に戻す。上限を超えた分は古いものから捨てる
+	 */
+	private static void requeue(List<EditEventLog> batch) {
+		batch.addAll(pendingEvents);
+		pendingEvents = batch;
+		int overflow = pendingEvents.size() - MAX_PENDING;
+		if (overflow > 0) {
+			pendingEvents.subList(0, overflow).clear();
+			Logger.getGlobal().warning("送れない編集イベントが上限を超えたため、古い " + overflow + " 件を捨てました");
+		}
+	}
+
+	private static void stampSendTime(List<EditEventLog> batch) {
+		long now = System.currentTimeMillis();
+		for (EditEventLog event : batch) {
+			event.setSendTime(now);
+		}
+	}
+
+	/**
+	 * ページを閉じる時に、溜まっているイベントを keepalive 付きの fetch で送る。
+	 * 通常の非同期RPCはページと一緒に打ち切られるが、keepalive の送信はページが消えた後も続く。
+	 * 応答は受け取れないので、送ったイベントは送れたものとして扱う。
+	 * 送信中のバッチも先頭に含める。ページと一緒に打ち切られた時に、後のイベントだけが先に書き込まれて順番が崩れないようにするため
+	 * （打ち切られる前にサーバーに届いていた場合は、そのバッチの行が二重に書き込まれる）。
+	 */
+	private static void flushOnUnload() {
+		if (flushTimer != null) {
+			flushTimer.cancel();
+		}
+		final List<EditEventLog> batch = new ArrayList<EditEventLog>();
+		if (sendingBatch != null) {
+			batch.addAll(sendingBatch);
+			sendingBatch = null;
+		}
+		batch.addAll(pendingEvents);
+		pendingEvents = new ArrayList<EditEventLog>();
+		if (batch.isEmpty()) {
+			return;
+		}
+		stampSendTime(batch);
+		getUnloadService().registEditEvents(batch, new AsyncCallback<Boolean>() {
+			public void onSuccess(Boolean result) {
+			}
+			public void onFailure(Throwable caught) {
+			}
+		});
+	}
+
+	/**
+	 * 溜まっているイベントを送り、サーバーに書き込まれた後に command を実行する。
+	 * 編集イベントを読むサーバー処理（Undoなど）の前に呼ぶ。
+	 */
+	public static void flush(Command command) {
+		afterFlush.add(command);
+		flush();
+	}
+
+	private static void runAfterFlush() {
+		if (afterFlush.isEmpty()) {
+			return;
+		}
+		final List<Command> commands = afterFlush;
+		afterFlush = new ArrayList<Command>();
+		for (Command command : commands) {
+			command.execute();
+		}
+	}
+
+	private static boolean isBuffered(String eventType) {
+		for (String type : BUFFERED_EVENT_TYPES) {
+			if (type.equals(eventType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Timer getFlushTimer() {
+		if (flushTimer == null) {
+			flushTimer = new Timer() {
+				@Override
+				public void run() {
+					flush();
+				}
+			};
+			// ページを閉じる時に溜まっているイベントを送る
+			Window.addWindowClosingHandler(new ClosingHandler() {
+				public void onWindowClosing(ClosingEvent event) {
+					flushOnUnload();
+				}
+			});
+		}
+		return flushTimer;
+	}
+
+	private static MyLoggerServiceAsync getService() {
+		if (service == null) {
+			service = (MyLoggerServiceAsync)GWT.create(MyLoggerService.class);
+			ServiceDefTarget entryPoint = (ServiceDefTarget) service;
+			entryPoint.setServiceEntryPoint(GWT.getModuleBaseURL() + "registEditEvent");
+		}
+		return service;
+	}
+
+	private static MyLoggerServiceAsync getUnloadService() {
+		if (unloadService == null) {
+			unloadService = (MyLoggerServiceAsync)GWT.create(MyLoggerService.class);
+			ServiceDefTarget entryPoint = (ServiceDefTarget) unloadService;
+			entryPoint.setServiceEntryPoint(GWT.getModuleBaseURL() + "registEditEvent");
+			entryPoint.setRpcRequestBuilder(new KeepaliveRpcRequestBuilder());
+		}
+		return unloadService;
+	}
+
+	/**
+	 * RPCの要求を XMLHttpRequest ではなく keepalive 付きの fetch で送る。
+	 * navigator.sendBeacon はヘッダーを付けられず、RemoteServiceServlet が確かめる
+	 * X-GWT-Permutation を送れないため fetch を使う。
+	 */
+	private static class KeepaliveRpcRequestBuilder extends RpcRequestBuilder {
+		@Override
+		protected RequestBuilder doCreate(String serviceEntryPoint) {
+			return new RequestBuilder(RequestBuilder.POST, serviceEntryPoint) {
+				@Override
+				public Request send() {
+					sendKeepalive(getUrl(), getRequestData(), getHeader("Content-Type"),
+							getHeader(RpcRequestBuilder.STRONG_NAME_HEADER), getHeader(RpcRequestBuilder.MODULE_BASE_HEADER));
+					return null;
+				}
+			};
+		}
+	}
+
+	/**
+	 * 本文が keepalive の上限を超える場合は、keepalive なしの fetch で送る（ページが消えるまでに送れた分だけ届く）
+	 */
+	private static native void sendKeepalive(String url, String data, String contentType, String strongName, String moduleBase) /*-{
+		var headers = { "Content-Type": contentType };
+		if (strongName != null) {
+			headers["X-GWT-Permutation"] = strongName;
+		}
+		if (moduleBase != null) {
+			headers["X-GWT-Module-Base"] = moduleBase;
+		}
+		var body = new $wnd.Blob([ data ]);
+		$wnd.fetch(url, {
+			method : "POST",
+			headers : headers,
+			body : body,
+			credentials : "same-origin",
+			keepalive : body.size <= @com.objetdirect.gwt.umlapi.client.mylogger.MyLoggerExecute::KEEPALIVE_MAX_BYTES
+		})["catch"](function() {
+			// ページを閉じた後なので、送れなくても知らせる先が無い
+		});
+	}-*/;
+
 	public static String getPreEditEventType() {
 		return preEditEventType;
 	}
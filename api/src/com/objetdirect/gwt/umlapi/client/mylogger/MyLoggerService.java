@@ -1,5 +1,7 @@
 package com.objetdirect.gwt.umlapi.client.mylogger;
 
+import java.util.List;
+
 import com.google.gwt.user.client.rpc.RemoteService;
 
 
@@ -11,4 +13,9 @@ public interface MyLoggerService extends RemoteService{
 			String targetType, int targetId, String linkKind, int rightObjectId, int leftObjectId,
 			String targetPart, String beforeEdit, String afterEdit, String canvasUrl, int umlArtifactId) ;
 
+	/**
+	 * 編集イベントをまとめて登録する（順番どおりに1回のバッチで書き込む）
+	 */
+	public boolean registEditEvents(List<EditEventLog> events);
+
 }
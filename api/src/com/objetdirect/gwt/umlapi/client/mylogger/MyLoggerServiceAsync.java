@@ -1,5 +1,7 @@
 package com.objetdirect.gwt.umlapi.client.mylogger;
 
+import java.util.List;
+
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
 public interface MyLoggerServiceAsync {
@@ -8,4 +10,6 @@ public interface MyLoggerServiceAsync {
 	public void registEditEvent(String studentId, int exercisesId, int preEventId, String editEvent, String eventType,
 											String targetType, int targetId, String linkKind, int rightObjectId, int leftObjectId,
 											String targetPart, String beforeEdit, String afterEdit, String canvasUrl, int umlArtifactId, AsyncCallback callback) ;
+
+	public void registEditEvents(List<EditEventLog> events, AsyncCallback<Boolean> callback);
 }
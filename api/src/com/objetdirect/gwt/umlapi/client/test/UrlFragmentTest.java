@@ -0,0 +1,95 @@
+package com.objetdirect.gwt.umlapi.client.test;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.ClassArtifact;
+import com.objetdirect.gwt.umlapi.client.artifacts.ClassRelationLinkArtifact;
+import com.objetdirect.gwt.umlapi.client.artifacts.NoteArtifact;
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClassAttribute;
+import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLLink.LinkKind;
+import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLVisibility;
+
+/**
+ * 部品を編集した直後に、キャッシュしたURLの断片が作り直されることを確かめる。
+ *
+ * UMLCanvas.toUrl() は {@link UMLArtifact#getURLRevision()} が変わらない間は前の結果を返し、
+ * 変わったら各成果物の {@link UMLArtifact#getURLFragment()} から作り直す。
+ * 編集のたびに版が進み、断片が {@link UMLArtifact#toURL()} と同じになっていれば、
+ * 編集の直後に読んだ toUrl() にも編集が入っている。
+ */
+public class UrlFragmentTest {
+
+	public static void main(String[] args) {
+		partNameTest();
+		relationTest();
+		noteTest();
+		System.out.println("UrlFragmentTest end");
+	}
+
+	public static boolean partNameTest() {
+		ClassArtifact classArtifact = new ClassArtifact("Order");
+		check("クラスを作った時", classArtifact, "Order");
+
+		int revision = UMLArtifact.getURLRevision();
+		classArtifact.getClassPartNameArtifact().setClassName("Customer");
+		checkChanged("クラス名を変えた時", revision);
+		check("クラス名を変えた時", classArtifact, "Customer");
+
+		revision = UMLArtifact.getURLRevision();
+		classArtifact.getClassPartNameArtifact().setStereotype("«entity»");
+		checkChanged("ステレオタイプを変えた時", revision);
+		check("ステレオタイプを変えた時", classArtifact, "entity");
+
+		revision = UMLArtifact.getURLRevision();
+		UMLClassAttribute attribute = new UMLClassAttribute(UMLVisibility.PRIVATE, "String", "address");
+		classArtifact.addAttribute(attribute);
+		checkChanged("属性を足した時", revision);
+		check("属性を足した時", classArtifact, "address");
+		return true;
+	}
+
+	public static boolean relationTest() {
+		ClassArtifact left = new ClassArtifact("Order");
+		ClassArtifact right = new ClassArtifact("Item");
+		ClassRelationLinkArtifact relation = new ClassRelationLinkArtifact(left, right, LinkKind.ASSOCIATION_RELATION);
+		check("関連を作った時", relation, "");
+
+		int revision = UMLArtifact.getURLRevision();
+		relation.setName("contains");
+		checkChanged("関連名を変えた時", revision);
+		check("関連名を変えた時", relation, "contains");
+
+		revision = UMLArtifact.getURLRevision();
+		relation.setRightCardinality("3..5");
+		checkChanged("多重度を変えた時", revision);
+		check("多重度を変えた時", relation, "3..5");
+		return true;
+	}
+
+	public static boolean noteTest() {
+		NoteArtifact note = new NoteArtifact("memo");
+		check("ノートを作った時", note, "memo");
+
+		int revision = UMLArtifact.getURLRevision();
+		note.setContent("updated memo");
+		checkChanged("ノートを変えた時", revision);
+		check("ノートを変えた時", note, "updated memo");
+		return true;
+	}
+
+	/**
+	 * キャッシュした断片が、その場で作った断片と同じで、編集した内容を含むことを確かめる
+	 */
+	private static void check(String when, UMLArtifact artifact, String expected) {
+		String fragment = artifact.getURLFragment();
+		if (!fragment.equals(artifact.toURL()) || (fragment.indexOf(expected) < 0)) {
+			throw new IllegalStateException(when + ": URLの断片が古いままです: " + fragment);
+		}
+		System.out.println(when + ": " + fragment);
+	}
+
+	private static void checkChanged(String when, int revision) {
+		if (UMLArtifact.getURLRevision() == revision) {
+			throw new IllegalStateException(when + ": URLの版が進んでいません");
+		}
+	}
+}
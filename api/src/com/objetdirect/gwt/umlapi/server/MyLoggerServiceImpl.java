@@ -1,6 +1,9 @@
 package com.objetdirect.gwt.umlapi.server;
 
+import java.util.List;
+
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
+import com.objetdirect.gwt.umlapi.client.mylogger.EditEventLog;
 import com.objetdirect.gwt.umlapi.client.mylogger.MyLoggerService;
 import com.objetdirect.gwt.umlapi.server.dao.Dao;
 
@@ -53,6 +56,21 @@ public class MyLoggerServiceImpl extends RemoteServiceServlet implements MyLogge
 			return false;
 		}
 	}
+
+	public boolean registEditEvents(List<EditEventLog> events) {
+		Dao dao = new Dao();
+
+		int defaultDifficulty = 1;
+		int canvasId=1;
+
+		if( dao.registEditEvents(events, canvasId, defaultDifficulty) ){
+			System.out.println("DB is OK (" + events.size() + " events)");
+			return true;
+		}else {
+			System.out.println("DB is NG");
+			return false;
+		}
+	}
 }
 
 		/*
@@ -0,0 +1,150 @@
+package com.objetdirect.gwt.umlapi.server.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 既存の edit_event.canvas_url を、キーフレーム＋差分の形式（{@link CanvasHistoryStore}）に書き換える移行ツール。
+ *
+ * 学生×演習ごとに edit_event_id の順で行を読み、{@link CanvasHistoryStore} と同じ規則で
+ * キーフレームを残し、それ以外の行を差分に置き換える。既に差分になっている行と、
+ * 差分から参照されているキーフレームには触れないので、何度実行してもよい。
+ * サーバーを止めた状態で実行すること。
+ *
+ * 使い方: java CanvasHistoryMigration [--dry-run]
+ */
+public class CanvasHistoryMigration extends DriverAccessor {
+
+	/** 一度にまとめて更新する行数 */
+	private static final int BATCH_SIZE = 500;
+
+	private final boolean dryRun;
+
+	private long rows = 0;
+	private long deltaRows = 0;
+	private long bytesBefore = 0;
+	private long bytesAfter = 0;
+
+	public CanvasHistoryMigration(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
+
+	public static void main(String[] args) throws SQLException {
+		boolean dryRun = args.length > 0 && args[0].equals("--dry-run");
+		CanvasHistoryMigration migration = new CanvasHistoryMigration(dryRun);
+		long start = System.currentTimeMillis();
+		migration.run();
+		System.out.println((dryRun ? "[dry-run] " : "") + "rows=" + migration.rows + ", delta rows=" + migration.deltaRows
+				+ ", canvas_url bytes " + migration.bytesBefore + " -> " + migration.bytesAfter
+				+ " (" + (System.currentTimeMillis() - start) + " ms)");
+	}
+
+	public void run() throws SQLException {
+		Connection connection = this.createConnection();
+		try {
+			List<String[]> chains = new ArrayList<String[]>();
+			try (PreparedStatement stmt = connection.prepareStatement(
+					"select distinct student_id, exercises_id from edit_event where canvas_url is not null");
+					ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					chains.add(new String[] { rs.getString(1), String.valueOf(rs.getInt(2)) });
+				}
+			}
+			for (String[] chain : chains) {
+				migrate(connection, chain[0], Integer.parseInt(chain[1]));
+			}
+		} finally {
+			this.closeConnection(connection);
+		}
+	}
+
+	/**
+	 * 1人の学生の1つの演習の行を書き換える
+	 */
+	private void migrate(Connection connection, String studentId, int exercisesId) throws SQLException {
+		List<Integer> ids = new ArrayList<Integer>();
+		List<String> urls = new ArrayList<String>();
+		Set<Integer> referencedKeyframes = new HashSet<Integer>();
+		try (PreparedStatement stmt = connection.prepareStatement(
+				"select edit_event_id, canvas_url from edit_event where student_id = ? and exercises_id = ? and canvas_url is not null order by edit_event_id")) {
+			stmt.setString(1, studentId);
+			stmt.setInt(2, exercisesId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					String stored = rs.getString(2);
+					ids.add(rs.getInt(1));
+					urls.add(stored);
+					if (CanvasHistoryStore.isDelta(stored)) {
+						referencedKeyframes.add(CanvasHistoryStore.keyframeIdOf(stored));
+					}
+				}
+			}
+		}
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (PreparedStatement update = connection.prepareStatement("update edit_event set canvas_url = ? where edit_event_id = ?")) {
+			int keyframeId = 0;
+			TreeMap<Integer, String> keyframe = null;
+			int rowsSinceKeyframe = 0;
+			int pending = 0;
+			for (int i = 0; i < ids.size(); i++) {
+				String canvasUrl = urls.get(i);
+				this.rows++;
+				this.bytesBefore += canvasUrl.length();
+				if (CanvasHistoryStore.isDelta(canvasUrl)) {
+					this.bytesAfter += canvasUrl.length();
+					continue;
+				}
+				TreeMap<Integer, String> artifacts = CanvasHistoryStore.parse(canvasUrl);
+				String delta = null;
+				if (artifacts != null && keyframeId > 0 && rowsSinceKeyframe < CanvasHistoryStore.KEYFRAME_INTERVAL
+						&& !referencedKeyframes.contains(ids.get(i))) {
+					delta = CanvasHistoryStore.toDelta(keyframeId, keyframe, canvasUrl, artifacts);
+				}
+				if (delta == null) {
+					// キーフレームとして残す
+					keyframeId = artifacts != null ? ids.get(i) : 0;
+					keyframe = artifacts;
+					rowsSinceKeyframe = 0;
+					this.bytesAfter += canvasUrl.length();
+					continue;
+				}
+				rowsSinceKeyframe++;
+				this.deltaRows++;
+				this.bytesAfter += delta.length();
+				update.setString(1, delta);
+				update.setInt(2, ids.get(i));
+				update.addBatch();
+				if (++pending == BATCH_SIZE) {
+					flush(connection, update);
+					pending = 0;
+				}
+			}
+			if (pending > 0) {
+				flush(connection, update);
+			}
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private void flush(Connection connection, PreparedStatement update) throws SQLException {
+		if (this.dryRun) {
+			update.clearBatch();
+			return;
+		}
+		update.executeBatch();
+		connection.commit();
+	}
+}
@@ -0,0 +1,322 @@
+package com.objetdirect.gwt.umlapi.server.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * edit_event.canvas_url をキーフレーム＋差分で保存するための変換。
+ *
+ * キーフレームの行には従来どおりキャンバスURL（base64）をそのまま入れ、
+ * それ以外の行には直前のキーフレームからの成果物単位の差分だけを
+ * 「@d:キーフレームのedit_event_id:差分(base64)」の形で入れる。
+ * 差分はキーフレームに対する累積なので、どの行もキーフレーム1件と自分の行だけで復元できる
+ * （途中の行が検索条件で間引かれていても復元できる）。
+ *
+ * 差分の中身は「&lt;ID&gt;]断片;」（追加・変更）と「&lt;ID&gt;];」（削除）の並び。
+ * 復元したURLが元のURLと一致しない場合は、その行をキーフレームとして保存する。
+ */
+public class CanvasHistoryStore {
+
+	/** 差分行の接頭辞（base64には現れない文字で始める） */
+	static final String DELTA_PREFIX = "@d:";
+
+	/** キーフレームを入れ直すまでの最大行数 */
+	static final int KEYFRAME_INTERVAL = 50;
+
+	/** 差分がキャンバスURLのこの割合を超えたらキーフレームを入れ直す */
+	static final int MAX_DELTA_RATIO_PERCENT = 25;
+
+	/** 復元したキーフレームを保持する件数 */
+	private static final int KEYFRAME_CACHE_SIZE = 64;
+
+	/** 復元したキャンバスURLを保持する件数 */
+	private static final int CANVAS_CACHE_SIZE = 256;
+
+	/** 空のキャンバス（クライアントの UMLCanvas.toUrl() と同じ） */
+	private static final String EMPTY_CANVAS = "AA==";
+
+	private static CanvasHistoryStore instance;
+
+	/** 学生×演習ごとの、直近のキーフレームの状態 (studentId:exercisesId -> 状態) */
+	private final Map<String, Chain> chains = new ConcurrentHashMap<String, Chain>();
+
+	/** 復元したキーフレーム (edit_event_id -> 成果物) */
+	private final Map<Integer, TreeMap<Integer, String>> keyframeCache = Collections.synchronizedMap(new LruMap<Integer, TreeMap<Integer, String>>(KEYFRAME_CACHE_SIZE));
+
+	/** 復元したキャンバスURL (保存値 -> キャンバスURL) */
+	private final Map<String, String> canvasCache = Collections.synchronizedMap(new LruMap<String, String>(CANVAS_CACHE_SIZE));
+
+	private CanvasHistoryStore() {
+	}
+
+	public static synchronized CanvasHistoryStore getInstance() {
+		if (instance == null) {
+			instance = new CanvasHistoryStore();
+		}
+		return instance;
+	}
+
+	/**
+	 * 1行を書き込む処理。保存するcanvas_urlを受け取り、採番されたedit_event_idを返す（取得できなければ0）。
+	 * IDが必要なのはキーフレームの行だけで、差分の行はバッチに積んで0を返してもよい。
+	 */
+	public interface RowWriter {
+		int insert(String storedCanvasUrl) throws SQLException;
+	}
+
+	/**
+	 * キャンバスURLを保存形式に変換して書き込む。
+	 * 同じ学生・演習の書き込みは直列化し、差分の基準となるキーフレームが前後しないようにする。
+	 *
+	 * @return 採番されたedit_event_id（取得できなければ0）
+	 */
+	public int write(String studentId, int exercisesId, String canvasUrl, RowWriter writer) throws SQLException {
+		if (canvasUrl == null || canvasUrl.isEmpty()) {
+			return writer.insert(canvasUrl);
+		}
+		Chain chain = chains.computeIfAbsent(chainKey(studentId, exercisesId), key -> new Chain());
+		synchronized (chain) {
+			TreeMap<Integer, String> artifacts = parse(canvasUrl);
+			String stored = canvasUrl;
+			if (artifacts != null && chain.keyframeId > 0 && chain.rowsSinceKeyframe < KEYFRAME_INTERVAL) {
+				String delta = toDelta(chain.keyframeId, chain.keyframe, canvasUrl, artifacts);
+				if (delta != null) {
+					stored = delta;
+				}
+			}
+
+			int editEventId = writer.insert(stored);
+			if (stored == canvasUrl) {
+				if (artifacts != null && editEventId > 0) {
+					chain.keyframeId = editEventId;
+					chain.keyframe = artifacts;
+					chain.rowsSinceKeyframe = 0;
+					keyframeCache.put(editEventId, artifacts);
+				} else {
+					// 成果物に分解できないURLと、IDが分からない行は差分の基準にしない
+					chain.keyframeId = 0;
+				}
+			} else {
+				chain.rowsSinceKeyframe++;
+				canvasCache.put(stored, canvasUrl);
+			}
+			return editEventId;
+		}
+	}
+
+	/**
+	 * 書き込みを取り消した（ロールバックした）時に呼ぶ。次の行はキーフレームから始め直す。
+	 */
+	public void forget(String studentId, int exercisesId) {
+		Chain chain = chains.get(chainKey(studentId, exercisesId));
+		if (chain != null) {
+			synchronized (chain) {
+				chain.keyframeId = 0;
+			}
+		}
+	}
+
+	/**
+	 * 保存されたcanvas_urlからキャンバスURLを復元する（キーフレームの行はそのまま返す）
+	 */
+	public String resolve(Connection connection, String stored) throws SQLException {
+		if (!isDelta(stored)) {
+			return stored;
+		}
+		String cached = canvasCache.get(stored);
+		if (cached != null) {
+			return cached;
+		}
+		int keyframeId = keyframeIdOf(stored);
+		TreeMap<Integer, String> keyframe = loadKeyframe(connection, keyframeId);
+		if (keyframe == null) {
+			throw new SQLException("キーフレームが見つかりません。edit_event_id: " + keyframeId);
+		}
+		String canvasUrl = toCanvasUrl(applyDelta(keyframe, stored));
+		canvasCache.put(stored, canvasUrl);
+		return canvasUrl;
+	}
+
+	public static boolean isDelta(String stored) {
+		return stored != null && stored.startsWith(DELTA_PREFIX);
+	}
+
+	/**
+	 * 差分行が基準にしているキーフレームのedit_event_id
+	 */
+	static int keyframeIdOf(String stored) {
+		return Integer.parseInt(stored.substring(DELTA_PREFIX.length(), stored.indexOf(':', DELTA_PREFIX.length())));
+	}
+
+	private TreeMap<Integer, String> loadKeyframe(Connection connection, int keyframeId) throws SQLException {
+		TreeMap<Integer, String> keyframe = keyframeCache.get(keyframeId);
+		if (keyframe != null) {
+			return keyframe;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement("select canvas_url from edit_event where edit_event_id = ?")) {
+			stmt.setInt(1, keyframeId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next() || isDelta(rs.getString(1))) {
+					return null;
+				}
+				keyframe = parse(rs.getString(1));
+			}
+		}
+		if (keyframe != null) {
+			keyframeCache.put(keyframeId, keyframe);
+		}
+		return keyframe;
+	}
+
+	/**
+	 * キャンバスURLを成果物ごとの断片に分解する
+	 *
+	 * @return ID -> 断片（形式が想定と違う場合はnull）
+	 */
+	static TreeMap<Integer, String> parse(String canvasUrl) {
+		String diagram;
+		try {
+			diagram = new String(Base64.getDecoder().decode(canvasUrl), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		TreeMap<Integer, String> artifacts = new TreeMap<Integer, String>();
+		if (diagram.equals(EMPTY_CANVAS)) {
+			return artifacts;
+		}
+		parseEntries(diagram, artifacts);
+		return artifacts.isEmpty() ? null : artifacts;
+	}
+
+	/**
+	 * 「&lt;ID&gt;]断片;」の並びを読む。断片が空のものは null として入れる（差分の削除）。
+	 */
+	private static void parseEntries(String text, Map<Integer, String> into) {
+		int position = 0;
+		while (position < text.length()) {
+			int end = text.indexOf(';', position);
+			int idEnd = text.indexOf(">]", position);
+			if (end < 0 || text.charAt(position) != '<' || idEnd < 0 || idEnd > end) {
+				into.clear();
+				return;
+			}
+			int id;
+			try {
+				id = Integer.parseInt(text.substring(position + 1, idEnd));
+			} catch (NumberFormatException e) {
+				into.clear();
+				return;
+			}
+			String fragment = text.substring(idEnd + 2, end);
+			into.put(id, fragment.isEmpty() ? null : fragment);
+			position = end + 1;
+		}
+	}
+
+	/**
+	 * 成果物ごとの断片からキャンバスURLを組み立てる（UMLCanvas.toUrl() と同じ形式）
+	 */
+	static String toCanvasUrl(TreeMap<Integer, String> artifacts) {
+		StringBuilder url = new StringBuilder();
+		if (artifacts.isEmpty()) {
+			url.append(EMPTY_CANVAS);
+		}
+		for (Map.Entry<Integer, String> entry : artifacts.entrySet()) {
+			url.append('<').append(entry.getKey()).append(">]").append(entry.getValue()).append(';');
+		}
+		return Base64.getEncoder().encodeToString(url.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * キーフレームからの差分を保存形式で返す。
+	 * 差分が大きすぎる場合と、差分から元のURLを復元できない場合はnull（キーフレームとして保存する）。
+	 */
+	static String toDelta(int keyframeId, TreeMap<Integer, String> keyframe, String canvasUrl, TreeMap<Integer, String> artifacts) {
+		String delta = encodeDelta(keyframe, artifacts, keyframeId);
+		if (delta.length() * 100 > canvasUrl.length() * MAX_DELTA_RATIO_PERCENT) {
+			return null;
+		}
+		return canvasUrl.equals(toCanvasUrl(applyDelta(keyframe, delta))) ? delta : null;
+	}
+
+	/**
+	 * キーフレームから見た差分を保存形式で作る
+	 */
+	static String encodeDelta(TreeMap<Integer, String> keyframe, TreeMap<Integer, String> artifacts, int keyframeId) {
+		StringBuilder delta = new StringBuilder();
+		for (Map.Entry<Integer, String> entry : artifacts.entrySet()) {
+			if (!entry.getValue().equals(keyframe.get(entry.getKey()))) {
+				delta.append('<').append(entry.getKey()).append(">]").append(entry.getValue()).append(';');
+			}
+		}
+		for (Integer id : keyframe.keySet()) {
+			if (!artifacts.containsKey(id)) {
+				delta.append('<').append(id).append(">];");
+			}
+		}
+		return DELTA_PREFIX + keyframeId + ":"
+				+ Base64.getEncoder().encodeToString(delta.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * キーフレームに差分を当てた成果物の集合を返す（キーフレームは変更しない）
+	 */
+	static TreeMap<Integer, String> applyDelta(TreeMap<Integer, String> keyframe, String stored) {
+		String encoded = stored.substring(stored.indexOf(':', DELTA_PREFIX.length()) + 1);
+		String delta = new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8);
+		Map<Integer, String> changes = new LinkedHashMap<Integer, String>();
+		parseEntries(delta, changes);
+		TreeMap<Integer, String> artifacts = new TreeMap<Integer, String>(keyframe);
+		for (Map.Entry<Integer, String> change : changes.entrySet()) {
+			if (change.getValue() == null) {
+				artifacts.remove(change.getKey());
+			} else {
+				artifacts.put(change.getKey(), change.getValue());
+			}
+		}
+		return artifacts;
+	}
+
+	private static String chainKey(String studentId, int exercisesId) {
+		return studentId + ":" + exercisesId;
+	}
+
+	/**
+	 * 学生×演習ごとの差分の基準
+	 */
+	private static class Chain {
+		/** 直近のキーフレームのedit_event_id（0なら未定で、次の行はキーフレームになる） */
+		int keyframeId;
+		/** 直近のキーフレームの成果物 */
+		TreeMap<Integer, String> keyframe;
+		/** キーフレームの後に差分で保存した行数 */
+		int rowsSinceKeyframe;
+	}
+
+	/**
+	 * 件数上限付きの、最近使ったものを残すマップ
+	 */
+	private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		LruMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+}
@@ -2,8 +2,13 @@ package com.objetdirect.gwt.umlapi.server.dao;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
 
+import com.objetdirect.gwt.umlapi.client.mylogger.EditEventLog;
 import com.objetdirect.gwt.umlapi.server.yamazaki.thread.ThreadAcceptfromUMLDS;
 
 
@@ -54,30 +59,39 @@ public class Dao extends DriverAccessor{
 			String sql = "insert into edit_event ( student_id ,exercises_id, pre_event_id, edit_event, event_type, target_type, target_id, linkkind, right_object_id, left_object_id, target_part, before_edit, after_edit, canvas_id, canvas_url, difficulty, edit_datetime, umlartifact_id )values(?, ?, ?, ?, ?,  ?, ?, ?, ?, ?,   ?, ?, ?, ?, ?,  ?, now(), ?)";
 //			student_id ,exercises_id, pre_event_id, edit_event, event_type, target_type, target_id, linkkind, right_object_id, left_object_id, target_part, before_edit, after_edit, canvas_id, canvas_url, difficulty, edit_datetime datetime);
 
-			PreparedStatement stmt = this.connection.prepareStatement(sql);
-
-			stmt.setString(1, studentId);
-			stmt.setInt(2, exercisesId);
-			stmt.setInt(3,  preEventId);
-			stmt.setString(4, editEvent);
-			stmt.setString(5, eventType);
-
-			stmt.setString(6, targetType);
-			stmt.setInt(7, targetId);
-			stmt.setString(8, linkKind);
-			stmt.setInt(9, rightObjectId);
-			stmt.setInt(10, leftObjectId);
-
-			stmt.setString(11, targetPart);
-			stmt.setString(12, beforeEdit);
-			stmt.setString(13, afterEdit);
-			stmt.setInt(14, canvasId);
-			stmt.setString(15, canvasUrl);
-
-			stmt.setInt(16, defaultDifficulty);
-			stmt.setInt(17, umlArtifactId);
-
-			stmt.executeUpdate();
+			// canvas_url はキーフレームか、キーフレームからの差分として保存する
+			CanvasHistoryStore.getInstance().write(studentId, exercisesId, canvasUrl, storedCanvasUrl -> {
+				PreparedStatement stmt = this.connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+				stmt.setString(1, studentId);
+				stmt.setInt(2, exercisesId);
+				stmt.setInt(3,  preEventId);
+				stmt.setString(4, editEvent);
+				stmt.setString(5, eventType);
+
+				stmt.setString(6, targetType);
+				stmt.setInt(7, targetId);
+				stmt.setString(8, linkKind);
+				stmt.setInt(9, rightObjectId);
+				stmt.setInt(10, leftObjectId);
+
+				stmt.setString(11, targetPart);
+				stmt.setString(12, beforeEdit);
+				stmt.setString(13, afterEdit);
+				stmt.setInt(14, canvasId);
+				stmt.setString(15, storedCanvasUrl);
+
+				stmt.setInt(16, defaultDifficulty);
+				stmt.setInt(17, umlArtifactId);
+
+				stmt.executeUpdate();
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					// キーが返らない場合も挿入自体は成功している
+					return keys.next() ? keys.getInt(1) : 0;
+				} finally {
+					stmt.close();
+				}
+			});
 
 		}catch(SQLException e){
 			this.closeConnection(connection);
@@ -89,8 +103,90 @@ public class Dao extends DriverAccessor{
 		this.closeConnection(connection);
 		return true;
 	}
-	
-	
+
+	/**
+	 * 編集イベントをまとめて登録する。
+	 * 全件を1つのトランザクションの1回のバッチで書き込み、途中で失敗したら全件取り消す。
+	 * キーフレームの行はIDが必要なので、そこまでに積んだ行と一緒にその場で書き込む。
+	 */
+	public boolean registEditEvents(List<EditEventLog> events, int canvasId, int defaultDifficulty) {
+		if (events.isEmpty()) {
+			return true;
+		}
+		CanvasHistoryStore store = CanvasHistoryStore.getInstance();
+		this.connection = this.createConnection();
+		String sql = "insert into edit_event ( student_id ,exercises_id, pre_event_id, edit_event, event_type, target_type, target_id, linkkind, right_object_id, left_object_id, target_part, before_edit, after_edit, canvas_id, canvas_url, difficulty, edit_datetime, umlartifact_id )values(?, ?, ?, ?, ?,  ?, ?, ?, ?, ?,   ?, ?, ?, ?, ?,  ?, ?, ?)";
+		// バッチの行が全て同じ時刻にならないよう、now() ではなく操作した時刻を書く
+		long receivedTime = System.currentTimeMillis();
+		try (PreparedStatement stmt = this.connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+			this.connection.setAutoCommit(false);
+			int[] pending = { 0 };
+			for (EditEventLog event : events) {
+				store.write(event.getStudentId(), event.getExercisesId(), event.getCanvasUrl(), storedCanvasUrl -> {
+					stmt.setString(1, event.getStudentId());
+					stmt.setInt(2, event.getExercisesId());
+					stmt.setInt(3, event.getPreEventId());
+					stmt.setString(4, event.getEditEvent());
+					stmt.setString(5, event.getEventType());
+
+					stmt.setString(6, event.getTargetType());
+					stmt.setInt(7, event.getTargetId());
+					stmt.setString(8, event.getLinkKind());
+					stmt.setInt(9, event.getRightObjectId());
+					stmt.setInt(10, event.getLeftObjectId());
+
+					stmt.setString(11, event.getTargetPart());
+					stmt.setString(12, event.getBeforeEdit());
+					stmt.setString(13, event.getAfterEdit());
+					stmt.setInt(14, canvasId);
+					stmt.setString(15, storedCanvasUrl);
+
+					stmt.setInt(16, defaultDifficulty);
+					stmt.setTimestamp(17, new Timestamp(event.getEditTime(receivedTime)));
+					stmt.setInt(18, event.getUmlArtifactId());
+					stmt.addBatch();
+					pending[0]++;
+					if (storedCanvasUrl == null || CanvasHistoryStore.isDelta(storedCanvasUrl)) {
+						return 0;
+					}
+					// キーフレームはこの行までを書き込み、最後に採番されたIDを返す
+					stmt.executeBatch();
+					pending[0] = 0;
+					int editEventId = 0;
+					try (ResultSet keys = stmt.getGeneratedKeys()) {
+						while (keys.next()) {
+							editEventId = keys.getInt(1);
+						}
+					}
+					return editEventId;
+				});
+			}
+			if (pending[0] > 0) {
+				stmt.executeBatch();
+			}
+			this.connection.commit();
+		} catch (SQLException e) {
+			try {
+				this.connection.rollback();
+			} catch (SQLException rollbackError) {
+				rollbackError.printStackTrace();
+			}
+			// 取り消したキーフレームを差分の基準に使わないようにする
+			for (EditEventLog event : events) {
+				store.forget(event.getStudentId(), event.getExercisesId());
+			}
+			e.printStackTrace();
+			return false;
+		} finally {
+			try {
+				this.connection.setAutoCommit(true);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+			this.closeConnection(connection);
+		}
+		return true;
+	}
 }
 
 
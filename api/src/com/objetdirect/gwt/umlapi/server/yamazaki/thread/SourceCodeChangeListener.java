@@ -0,0 +1,16 @@
+package com.objetdirect.gwt.umlapi.server.yamazaki.thread;
+
+/**
+ * UMLDSからソースコードの変更を受け取ったときに呼ばれる
+ */
+public interface SourceCodeChangeListener {
+
+	/**
+	 * ソースコードの変更を受け取った。
+	 * UMLDSの受付スレッドから呼ばれるので、重い処理は別のスレッドで行う
+	 *
+	 * @param message UMLDSから届いた本文
+	 * @param changeCount この変更を含めた、変更を受け取った回数
+	 */
+	void sourceCodeChanged(String message, long changeCount);
+}
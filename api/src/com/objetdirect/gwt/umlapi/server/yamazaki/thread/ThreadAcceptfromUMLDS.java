@@ -1,18 +1,35 @@
 package com.objetdirect.gwt.umlapi.server.yamazaki.thread;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.zeromq.SocketType;
 import org.zeromq.ZContext;
 import org.zeromq.ZMQ;
 
+/**
+ * UMLDSからソースコードの変更を受け取るスレッド。
+ * 受け取ったらすぐに返事をして、登録された {@link SourceCodeChangeListener} に知らせる。
+ * まとめて知らせる（連続した変更を1回にする）のはリスナー側で行う
+ */
 public class ThreadAcceptfromUMLDS extends Thread {
 
+	/** UMLDSからの通知を受ける口 */
+	public static final String ENDPOINT = "tcp://localhost:5555";
+
+	/** UMLDSへの返事 */
+	public static final String REPLY = "world";
+
 	private static ThreadAcceptfromUMLDS singleton_ = new ThreadAcceptfromUMLDS("UMLDS受付用Thread");
 	private boolean changedCodeState_ = false;
+	/** UMLDSからソースコードの変更を受け取った回数（changedCodeState_ と違いクライアントの確認では戻さない） */
+	private long changeCount_ = 0;
+	/** 変更を受け取るたびに知らせる先 */
+	private final CopyOnWriteArrayList<SourceCodeChangeListener> listeners_ = new CopyOnWriteArrayList<SourceCodeChangeListener>();
 
 
 	private ThreadAcceptfromUMLDS(String threadName) {
-		// TODO 自動生成されたコンストラクター・スタブ
 		super(threadName);
+		this.setDaemon(true);
 		this.start();
 	}
 	public static ThreadAcceptfromUMLDS getInstance()
@@ -22,33 +39,38 @@ public class ThreadAcceptfromUMLDS extends Thread {
 
 	public void run()
 	{
-		// TODO 自動生成されたメソッド・スタブ
 		try (ZContext context = new ZContext()) {
 		      //  Socket to talk to clients
 			ZMQ.Socket socket = context.createSocket(SocketType.REP);
-			socket.bind("tcp://localhost:5555");
-			System.out.println("ZContext try野中");
+			socket.bind(ENDPOINT);
 			while(!Thread.currentThread().isInterrupted()) {
-				byte[] reply = socket.recv(0);
-				System.out.println("Received " + ": [" + new String(reply, ZMQ.CHARSET) + "]");
-				String response = "world";
-				socket.send(response.getBytes(ZMQ.CHARSET), 0);
-
-				changedCodeState_True();
-
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					// TODO 自動生成された catch ブロック
-					e.printStackTrace();
+				byte[] request = socket.recv(0);
+				if(request == null)
+				{
+					break;
+				}
+				String message = new String(request, ZMQ.CHARSET);
+				// UMLDSを待たせないよう、先に返事をする
+				socket.send(REPLY.getBytes(ZMQ.CHARSET), 0);
+
+				long changeCount = changedCodeState_True();
+				for(SourceCodeChangeListener listener : listeners_)
+				{
+					try {
+						listener.sourceCodeChanged(message, changeCount);
+					} catch (RuntimeException e) {
+						// 1つのリスナーの失敗で受付を止めない
+						e.printStackTrace();
+					}
 				}
 			}
 		}
 	}
 
-	private synchronized void changedCodeState_True()
+	private synchronized long changedCodeState_True()
 	{
 		this.changedCodeState_ = true;
+		return ++this.changeCount_;
 	}
 
 	public synchronized void changedCodeState_False()
@@ -60,4 +82,25 @@ public class ThreadAcceptfromUMLDS extends Thread {
 	{
 		return this.changedCodeState_;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * ソースコードの変更を受け取った回数。UMLDSから読んだ内容のキャッシュが古くなったかを調べるのに使う
+	 */
+	public synchronized long getChangeCount()
+	{
+		return this.changeCount_;
+	}
+
+	/**
+	 * ソースコードの変更を受け取るたびに知らせる先を登録する
+	 */
+	public void addSourceCodeChangeListener(SourceCodeChangeListener listener)
+	{
+		listeners_.addIfAbsent(listener);
+	}
+
+	public void removeSourceCodeChangeListener(SourceCodeChangeListener listener)
+	{
+		listeners_.remove(listener);
+	}
+}
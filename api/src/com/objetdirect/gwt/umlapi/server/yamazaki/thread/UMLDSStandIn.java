@@ -0,0 +1,88 @@
+package com.objetdirect.gwt.umlapi.server.yamazaki.thread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+/**
+ * UMLDSの代わりに、ソースコードの変更を {@link ThreadAcceptfromUMLDS#ENDPOINT} へ送る（UMLDSが無い環境での確認用）。
+ * UMLDSと同じく REQ ソケットで送り、返事が来るまで待つ。
+ *
+ * 使い方: java UMLDSStandIn [回数] [間隔（ミリ秒）] [本文] [--self]
+ * 本文の内容は使われず、受け取るたびに接続している全ての図に知らせる。
+ * --self を付けると、同じプロセスで ThreadAcceptfromUMLDS を起動し、リスナーに届くまでの時間も表示する
+ */
+public class UMLDSStandIn {
+
+	private static final long REPLY_TIMEOUT_MS = 5000;
+
+	public static void main(String[] args) throws InterruptedException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long interval = args.length > 1 ? Long.parseLong(args[1]) : 100;
+		String message = args.length > 2 ? args[2] : "changed";
+		boolean self = args.length > 3 && "--self".equals(args[3]);
+
+		final CountDownLatch received = new CountDownLatch(count);
+		final long[] receivedAt = new long[count];
+		if(self)
+		{
+			ThreadAcceptfromUMLDS.getInstance().addSourceCodeChangeListener(new SourceCodeChangeListener() {
+				private int index = 0;
+
+				@Override
+				public void sourceCodeChanged(String body, long changeCount) {
+					if(index < receivedAt.length)
+					{
+						receivedAt[index++] = System.nanoTime();
+					}
+					received.countDown();
+				}
+			});
+		}
+
+		long[] sentAt = new long[count];
+		long maxRoundTrip = 0;
+		long start = System.nanoTime();
+		try (ZContext context = new ZContext()) {
+			ZMQ.Socket socket = context.createSocket(SocketType.REQ);
+			socket.setReceiveTimeOut((int) REPLY_TIMEOUT_MS);
+			socket.connect(ThreadAcceptfromUMLDS.ENDPOINT);
+			for(int i = 0; i < count; i++)
+			{
+				sentAt[i] = System.nanoTime();
+				socket.send(message.getBytes(ZMQ.CHARSET), 0);
+				byte[] reply = socket.recv(0);
+				if(reply == null)
+				{
+					System.out.println("返事がありません: " + ThreadAcceptfromUMLDS.ENDPOINT);
+					return;
+				}
+				maxRoundTrip = Math.max(maxRoundTrip, System.nanoTime() - sentAt[i]);
+				if(interval > 0 && i + 1 < count)
+				{
+					Thread.sleep(interval);
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%d 件送信: %.1f ms（返事まで最大 %.2f ms）%n", count, elapsed / 1e6, maxRoundTrip / 1e6);
+
+		if(self)
+		{
+			if(!received.await(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+			{
+				System.out.println("リスナーに届いていない変更があります: " + received.getCount() + " 件");
+				return;
+			}
+			long maxDelivery = 0;
+			for(int i = 0; i < count; i++)
+			{
+				maxDelivery = Math.max(maxDelivery, receivedAt[i] - sentAt[i]);
+			}
+			System.out.printf("リスナーに届くまで最大 %.2f ms%n", maxDelivery / 1e6);
+		}
+	}
+}
@@ -0,0 +1,4 @@
+-- edit_event をリプレイ用にページ単位で読むための索引
+-- Dao.getEditEventPageForReplay は student_id, exercises_id で絞り込み、edit_event_id の範囲で次のページを読む
+
+ALTER TABLE edit_event ADD INDEX idx_student_exercise_event (student_id, exercises_id, edit_event_id);
@@ -7,6 +7,7 @@ import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
 //add saito
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
 //import java.util.Timer;
 import com.google.gwt.user.client.Window;
@@ -24,6 +25,8 @@ import com.google.gwt.user.client.ui.TextBox;
 import com.google.gwt.user.client.ui.VerticalPanel;
 import com.google.gwt.view.client.SingleSelectionModel;
 import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasDelta;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasDeltaTracker;
 import com.objetdirect.gwt.umlapi.client.helpers.Session;
 import com.objetdirect.gwt.umlapi.client.helpers.UMLCanvas;
 import com.objetdirect.gwt.umlapi.client.mylogger.MyLoggerExecute;
@@ -38,6 +41,7 @@ import com.objetdirect.gwt.umldrawer.client.canvas.CanvasServiceAsync;
 import com.objetdirect.gwt.umldrawer.client.drawerparts.yamazaki.DiffReplacePanel;
 import com.objetdirect.gwt.umldrawer.client.exercise.ExerciseService;
 import com.objetdirect.gwt.umldrawer.client.exercise.ExerciseServiceAsync;
+import com.objetdirect.gwt.umldrawer.client.helpers.CanvasDeltaMessage;
 import com.objetdirect.gwt.umldrawer.client.helpers.DrawerSession;
 import com.objetdirect.gwt.umldrawer.client.helpers.WebSocketClient;
 import com.objetdirect.gwt.umldrawer.client.saito.SimService;
@@ -61,7 +65,10 @@ public class DrawerBase extends DockPanel implements IDrawerBaseConectThread{
 
 	private WebSocketClient webSocketClient;
 	private Timer syncTimer;
-	private String lastCanvasUrl = "";
+	// 他のクライアントと共有済みのキャンバス状態（成果物単位の差分同期に使う）
+	private CanvasDeltaTracker canvasDeltaTracker = new CanvasDeltaTracker();
+	/** 全体同期を頼んで、まだ届いていない間はtrue（届いた差分は適用しない） */
+	private boolean resyncPending = false;
 	private boolean isUpdating = false;
 	private SingleSelectionModel<String> selectionModel	= new SingleSelectionModel<String>();
 
@@ -218,7 +225,12 @@ public class DrawerBase extends DockPanel implements IDrawerBaseConectThread{
 					}
 				};
 
-				async.undo(Session.studentId, Session.exerciseId, callback);
+				// 溜まっている編集イベントが書き込まれてから戻す
+				MyLoggerExecute.flush(new Command() {
+					public void execute() {
+						async.undo(Session.studentId, Session.exerciseId, callback);
+					}
+				});
 			}
 		});
 		leftSideBar.add(undo);
@@ -859,16 +871,10 @@ public class DrawerBase extends DockPanel implements IDrawerBaseConectThread{
 		    public void run() {
 		        // もし他の人からの更新を反映している最中じゃなければ、監視を実行する
 		        if (!isUpdating && Session.getActiveCanvas() != null) {
-		            String currentUrl = Session.getActiveCanvas().toUrl();
-		            // 前回の状態と比べて、変化があったか？
-		            if (!currentUrl.equals(lastCanvasUrl)) {
-		                // 変化があったら、その情報を"荷物"として全員に送る！
-		                String message = "{\"action\":\"sync\", \"url\":\"" + currentUrl + "\"}";
-		                if(webSocketClient != null){
-		                	webSocketClient.send(message);
-		                }
-		                // 今の状態を記憶しておく
-		                lastCanvasUrl = currentUrl;
+		            // 前回から変化した成果物だけを差分として全員に送る！
+		            CanvasDelta delta = canvasDeltaTracker.computeDelta();
+		            if (!delta.isEmpty() && webSocketClient != null) {
+		                webSocketClient.send(CanvasDeltaMessage.encode(delta));
 		            }
 		        }
 		    }
@@ -905,6 +911,13 @@ public class DrawerBase extends DockPanel implements IDrawerBaseConectThread{
 		            drawerPanel.sendMoveWithAbsolutePosition(elementId, oldX, oldY, newX, newY);
 		        }
 		    }
+		    
+		    public void sendLiveMove(String elementId, int x, int y) {
+		        // ドラッグ中の位置を送信
+		        if (drawerPanel != null) {
+		            drawerPanel.sendLiveMove(elementId, x, y);
+		        }
+		    }
 		};
 
 mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
@@ -933,7 +946,8 @@ mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
 
 	    // OT方式のための専用WebSocket接続URL
 		// ★★★ IPアドレスは君の環境に合わせてくれよな！ "localhost" か "192.168..." の方だ！ ★★★
-	    String webSocketURL = "ws://192.168.1.241:8080/KIfU4/collaboration";
+	    // 演習ごとの部屋に参加するため、URLの末尾に演習IDを付ける
+	    String webSocketURL = "ws://192.168.1.241:8080/KIfU4/collaboration/" + exerciseId;
 	    System.out.println("OT接続先URL: " + webSocketURL); // デバッグ用にコンソールに出力するぞ
 
 	    // 新しいWebSocketクライアントを作成し、接続を開始する
@@ -957,7 +971,7 @@ mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
 	    // OT方式では操作単位で同期するため、定期的な全体同期は不要
 	    /*
 	    // "監視塔"作戦をリセットして、新しい演習の監視を開始する
-	    this.lastCanvasUrl = ""; // 前回の状態をリセット
+	    this.canvasDeltaTracker = new CanvasDeltaTracker(); // 前回の状態をリセット
 	    if (this.syncTimer != null) {
 	    	this.syncTimer.cancel(); // 念のため一度止めてから
 	        this.syncTimer.scheduleRepeating(500); // タイマーを再開
@@ -1027,10 +1041,21 @@ mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
 	 * ここまで山崎
 	 */
 
+	/*
+	 * UMLDSからソースコードの変更が届いた（WebSocketでサーバーから知らされる）
+	 * 変更の有無を問い合わせ続けず、知らされた時だけ差分を取り直す
+	 */
+	public void onSourceCodeChanged()
+	{
+		setDiffButtonDisplayedSentence("変更が加わったよ");
+		DetectionBetweenDiagramCode();
+	}
+
 	@Override
 	public void setDiffButtonDisplayedSentence(String stateCodeChange) {
-		// TODO 自動生成されたメソッド・スタブ
-		this.diff_button_.setText(stateCodeChange);
+		// 差分ボタンを置いていない画面もある
+		if(this.diff_button_ != null)
+			this.diff_button_.setText(stateCodeChange);
 	}
 
 
@@ -1632,8 +1657,9 @@ mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
 	        Session.getActiveCanvas().clearCanvas();
 	        Session.getActiveCanvas().fromURL(url, false);
 	        // 自分の世界の状態も、受け取った最新の状態に更新しておく
-	        lastCanvasUrl = url;
+	        canvasDeltaTracker.reset();
 	    }
+	    resyncPending = false;
 
 	    // 1秒後に、再び"監視"を再開するためのタイマーをセットする
 	    new Timer() {
@@ -1644,4 +1670,68 @@ mainPanel.showWidget(0);		this.add(mainPanel, DockPanel.CENTER);
 	        }
 	    }.schedule(1000);
 	}
+
+	/**
+	 * 他のクライアントから成果物単位の差分が届いた時に呼び出される。
+	 * 変化した成果物だけを作り直し、キャンバス全体は作り直さない。
+	 * 通し番号に抜けがあれば、取りこぼしを埋めるため全体同期を頼む。
+	 * 全体同期が届くまでの差分は、抜けのあるキャンバスに重ねないよう番号だけ進めて適用しない。
+	 */
+	public void applyCanvasDeltaFromServer(int version, CanvasDelta delta) {
+	    if (!canvasDeltaTracker.advanceTo(version)) {
+	        requestFullSync();
+	    }
+	    if (resyncPending) {
+	        return;
+	    }
+	    if (Session.getActiveCanvas() != null) {
+	        canvasDeltaTracker.apply(delta, Session.getActiveCanvas());
+	    }
+	}
+
+	/**
+	 * 部屋の差分の現在の通し番号が届いた時に呼び出される。
+	 * 参加時は、サーバーが部屋を閉じても残している番号に合わせ、次の差分を抜けと見なさないようにする。
+	 * 全体同期に応えられる人がいなかった時にも届くので、同期待ちも終える
+	 */
+	public void onCanvasVersion(int version) {
+	    canvasDeltaTracker.setVersion(version);
+	    resyncPending = false;
+	}
+
+	/**
+	 * 他のクライアントの移動を成果物に適用した時に呼び出される。
+	 * 受け取った位置を共有済みとして覚え、次の差分で送り返さない
+	 */
+	public void markCanvasSynced(UMLArtifact artifact, String previousFragment) {
+	    canvasDeltaTracker.markSynced(artifact, previousFragment);
+	}
+
+	/**
+	 * 自分が送った差分にサーバーが通し番号を振った時に呼び出される
+	 */
+	public void onCanvasDeltaAck(int version) {
+	    if (!canvasDeltaTracker.advanceTo(version)) {
+	        requestFullSync();
+	    }
+	}
+
+	/**
+	 * 他のクライアントから全体同期を頼まれた時に、キャンバス全体を送る
+	 */
+	public void sendFullCanvas() {
+	    if (Session.getActiveCanvas() != null && webSocketClient != null) {
+	        webSocketClient.send("{\"action\":\"sync\", \"url\":\"" + Session.getActiveCanvas().toUrl() + "\"}");
+	    }
+	}
+
+	private void requestFullSync() {
+	    if (resyncPending) {
+	        return;
+	    }
+	    if (webSocketClient != null) {
+	        resyncPending = true;
+	        webSocketClient.send("{\"action\":\"syncRequest\"}");
+	    }
+	}
 }
\ No newline at end of file
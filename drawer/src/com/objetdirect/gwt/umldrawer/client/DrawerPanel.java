@@ -1,6 +1,7 @@
 package com.objetdirect.gwt.umldrawer.client;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.logging.Logger;
 
@@ -62,6 +63,7 @@ public class DrawerPanel extends AbsolutePanel {
 	private int clientSequence = 0; // クライアント側のシーケンス番号
 	private int lastServerSequence = 0; // 最後に受信したサーバーシーケンス番号
 	private OperationTransformHelper otHelper; // OT操作送受信ヘルパー
+	private final HashSet<String> liveMovedElements = new HashSet<String>(); // ドラッグ中の位置だけ適用し、線を作り直していない要素
 
 	FocusPanel topLeft = new FocusPanel();
 	FocusPanel top = new FocusPanel();
@@ -506,6 +508,15 @@ public class DrawerPanel extends AbsolutePanel {
 	    }
 	}
 	
+	/**
+	 * ドラッグ中の位置を送信
+	 */
+	public void sendLiveMove(String elementId, int x, int y) {
+	    if (otHelper != null) {
+	        otHelper.sendLiveMove(elementId, x, y);
+	    }
+	}
+	
 	/**
 	 * サーバーからのOT操作を適用
 	 * WebSocketClientから呼び出される
@@ -526,6 +537,16 @@ public class DrawerPanel extends AbsolutePanel {
 	    updateArtifactText(elementId, partId, afterText);
 	}
 	
+	/**
+	 * サーバーから現在状態を送り直された時に、サーバーシーケンスをその時点に合わせる
+	 * WebSocketClientから呼び出される
+	 */
+	public void resyncServerSequence(int serverSequence) {
+	    if (otHelper != null) {
+	        otHelper.setLastServerSequence(serverSequence);
+	    }
+	}
+	
 	/**
 	 * サーバーからのOT移動操作を適用
 	 * WebSocketClientから呼び出される
@@ -558,8 +579,10 @@ public class DrawerPanel extends AbsolutePanel {
 	            Point newLocation = new Point(newX, newY);
 	            
 	            // アーティファクトを新しい位置に移動
+	            String previousFragment = artifact.getURLFragment();
 	            artifact.moveTo(newLocation);
 	            artifact.rebuildGfxObject();
+	            markRemoteMoveSynced(artifact, previousFragment);
 	            
 	            System.out.println("OT移動適用: " + elementId + " delta(" + deltaX + "," + deltaY + ") " +
 	                             currentLocation + " → " + newLocation);
@@ -571,9 +594,13 @@ public class DrawerPanel extends AbsolutePanel {
 	}
 	
 	/**
-	 * 絶対座標方式で移動操作を適用（タイムスタンプベースのLWW）
+	 * 絶対座標方式で移動操作を適用（ハイブリッド論理時計によるLWW）
+	 * この要素で最後に採用した移動より古ければ捨て、位置が変わらなければ作り直さない
 	 */
-	public void applyMoveOperationAbsolute(String elementId, int newX, int newY, long timestamp, String clientId) {
+	public void applyMoveOperationAbsolute(String elementId, int newX, int newY, long timestamp, int counter, String clientId) {
+	    if (otHelper != null && !otHelper.acceptMoveOperationAbsolute(elementId, timestamp, counter, clientId)) {
+	        return;
+	    }
 	    try {
 	        int id = Integer.parseInt(elementId.substring("element-".length()));
 	        UMLArtifact artifact = UMLArtifact.getArtifactById(id);
@@ -581,16 +608,52 @@ public class DrawerPanel extends AbsolutePanel {
 	        if (artifact != null && artifact.isDraggable()) {
 	            // 絶対座標で位置を設定
 	            Point newLocation = new Point(newX, newY);
+	            boolean liveMoved = liveMovedElements.remove(elementId);
+	            if (!liveMoved && newLocation.equals(artifact.getLocation())) {
+	                return;
+	            }
+	            String previousFragment = artifact.getURLFragment();
 	            artifact.moveTo(newLocation);
 	            artifact.rebuildGfxObject();
+	            markRemoteMoveSynced(artifact, previousFragment);
 	            
-	            System.out.println("絶対座標移動適用: " + elementId + " → (" + newX + "," + newY + ") timestamp=" + timestamp);
+	            System.out.println("絶対座標移動適用: " + elementId + " → (" + newX + "," + newY + ") timestamp=" + timestamp + "." + counter);
 	        }
 	    } catch (Exception e) {
 	        System.err.println("絶対座標移動適用エラー: " + e.getMessage());
 	    }
 	}
 	
+	/**
+	 * 他のクライアントがドラッグ中の位置を適用
+	 * 箱を動かすだけで線は作り直さない（ドロップ時の移動操作で作り直される）
+	 */
+	public void applyLiveMove(String elementId, int x, int y) {
+	    try {
+	        int id = Integer.parseInt(elementId.substring("element-".length()));
+	        UMLArtifact artifact = UMLArtifact.getArtifactById(id);
+	        
+	        if (artifact != null && artifact.isDraggable()) {
+	            String previousFragment = artifact.getURLFragment();
+	            artifact.moveTo(new Point(x, y));
+	            liveMovedElements.add(elementId);
+	            markRemoteMoveSynced(artifact, previousFragment);
+	        }
+	    } catch (Exception e) {
+	        System.err.println("ドラッグ中の移動適用エラー: " + e.getMessage());
+	    }
+	}
+	
+	/**
+	 * 他のクライアントの移動を、キャンバス差分の共有済みの状態にも反映する
+	 * （反映しないと、次の差分で受け取った移動を自分の変更として送り返してしまう）
+	 */
+	private void markRemoteMoveSynced(UMLArtifact artifact, String previousFragment) {
+	    if (drawerBase != null) {
+	        drawerBase.markCanvasSynced(artifact, previousFragment);
+	    }
+	}
+	
 	/**
 	 * OTヘルパーを取得(テスト用)
 	 */
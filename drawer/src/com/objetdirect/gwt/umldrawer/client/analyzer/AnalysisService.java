@@ -1,7 +1,8 @@
 package com.objetdirect.gwt.umldrawer.client.analyzer;
 
 import com.google.gwt.user.client.rpc.RemoteService;
+import com.objetdirect.gwt.umldrawer.client.beans.AnalysisReport;
 
 public interface AnalysisService extends RemoteService{
-	boolean analyze(String studentId, int exerciseId);
+	AnalysisReport analyze(String studentId, int exerciseId);
 }
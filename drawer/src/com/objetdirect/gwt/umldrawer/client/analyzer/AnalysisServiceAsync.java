@@ -1,8 +1,9 @@
 package com.objetdirect.gwt.umldrawer.client.analyzer;
 
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.objetdirect.gwt.umldrawer.client.beans.AnalysisReport;
 
 public interface AnalysisServiceAsync{
-	void analyze(String student, int exercizeId, AsyncCallback callback);
+	void analyze(String student, int exercizeId, AsyncCallback<AnalysisReport> callback);
 
 }
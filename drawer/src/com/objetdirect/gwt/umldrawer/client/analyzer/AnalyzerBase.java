@@ -14,6 +14,7 @@ import com.google.gwt.user.client.ui.SimplePanel;
 import com.google.gwt.user.client.ui.VerticalPanel;
 import com.google.gwt.view.client.SelectionChangeEvent;
 import com.google.gwt.view.client.SingleSelectionModel;
+import com.objetdirect.gwt.umldrawer.client.beans.AnalysisReport;
 import com.objetdirect.gwt.umldrawer.client.user.GetUserService;
 import com.objetdirect.gwt.umldrawer.client.user.GetUserServiceAsync;
 
@@ -89,12 +90,11 @@ public class AnalyzerBase extends DockPanel {
 		ServiceDefTarget entryPoint = (ServiceDefTarget) async;
 		String entryURL = GWT.getModuleBaseURL() + "analyze";
 		entryPoint.setServiceEntryPoint(entryURL);
-		@SuppressWarnings("rawtypes")
-		AsyncCallback callback = new AsyncCallback() {
+		AsyncCallback<AnalysisReport> callback = new AsyncCallback<AnalysisReport>() {
 
 			@Override
-			public void onSuccess(Object result) {
-				Window.alert("分析完了");
+			public void onSuccess(AnalysisReport result) {
+				Window.alert("分析完了（" + result.getRows().size() + "人, " + result.getElapsedMillis() + "ms）");
 			}
 
 			@Override
@@ -0,0 +1,70 @@
+package com.objetdirect.gwt.umldrawer.client.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * 演習1つ分のクラス全体の分析結果。
+ * 以前は標準出力に書いていたCSVと同じ内容を {@link #toCsv()} で取り出せる。
+ */
+public class AnalysisReport implements IsSerializable{
+	private int exerciseId;
+	private List<StudentAnalysis> rows = new ArrayList<StudentAnalysis>();
+	/** 完成した図が無い、または読み込みに失敗したため結果に含めなかった学生 */
+	private List<String> skippedStudentIds = new ArrayList<String>();
+	/** 分析にかかった時間(ミリ秒) */
+	private long elapsedMillis;
+
+	public AnalysisReport(){
+
+	}
+
+	public AnalysisReport(int exerciseId){
+		this.exerciseId = exerciseId;
+	}
+
+	public int getExerciseId() {
+		return exerciseId;
+	}
+
+	public List<StudentAnalysis> getRows() {
+		return rows;
+	}
+
+	public void addRow(StudentAnalysis row) {
+		row.setNo(rows.size());
+		rows.add(row);
+	}
+
+	public List<String> getSkippedStudentIds() {
+		return skippedStudentIds;
+	}
+
+	public void addSkippedStudentId(String studentId) {
+		skippedStudentIds.add(studentId);
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public String toCsv() {
+		StringBuilder csv = new StringBuilder();
+		csv.append("No.,学生ID,Edit数,クラス名または属性に対する上書きEdit数,Place数,総編集時間(秒)\n");
+		for(StudentAnalysis row : rows){
+			csv.append(row.getNo()).append(',')
+				.append(row.getStudentId()).append(',')
+				.append(row.getEditEventNum()).append(',')
+				.append(row.getUpdateEditEventNum()).append(',')
+				.append(row.getPlaceEventNum()).append(',')
+				.append(row.getEditTime()).append('\n');
+		}
+		return csv.toString();
+	}
+}
@@ -24,6 +24,8 @@ public class EditEvent implements IsSerializable{
 	int difficulty;
 	Timestamp editDatetime;
 	int umlArtifactId;
+	/** canvas_url があるか（ページ単位の取得では canvasUrl を後から読むので、有無だけを持つ） */
+	boolean hasCanvasUrl;
 
 
 	public EditEvent(){
@@ -219,6 +221,20 @@ public class EditEvent implements IsSerializable{
 		this.umlArtifactId = umlArtifactId;
 	}
 
+	/**
+	 * @return hasCanvasUrl
+	 */
+	public boolean hasCanvasUrl() {
+		return hasCanvasUrl || canvasUrl != null;
+	}
+
+	/**
+	 * @param hasCanvasUrl セットする hasCanvasUrl
+	 */
+	public void setHasCanvasUrl(boolean hasCanvasUrl) {
+		this.hasCanvasUrl = hasCanvasUrl;
+	}
+
 
 
 }
@@ -0,0 +1,40 @@
+package com.objetdirect.gwt.umldrawer.client.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * リプレイ用の編集イベントを edit_event_id 順に区切って返す1ページ分。
+ * 次のページは {@link #getNextCursor()} を afterEditEventId に渡して取得する。
+ */
+public class EditEventPage implements IsSerializable{
+	List<EditEvent> events = new ArrayList<EditEvent>();
+	/** このページの最後の edit_event_id（次のページの開始位置） */
+	int nextCursor;
+	/** 続きのページがあるか */
+	boolean hasMore;
+
+	public EditEventPage() {
+
+	}
+
+	public EditEventPage(List<EditEvent> events, int nextCursor, boolean hasMore) {
+		this.events = events;
+		this.nextCursor = nextCursor;
+		this.hasMore = hasMore;
+	}
+
+	public List<EditEvent> getEvents() {
+		return events;
+	}
+
+	public int getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean hasMore() {
+		return hasMore;
+	}
+}
@@ -40,9 +40,12 @@ public class EditOperation implements Serializable {
     /** 操作後のテキスト（検証用） */
     private String afterText;
     
-    /** 操作のタイムスタンプ */
+    /** 操作のタイムスタンプ（絶対座標の移動ではハイブリッド論理時計の物理時刻部分） */
     private long timestamp;
     
+    /** 絶対座標の移動用: ハイブリッド論理時計の論理カウンタ部分（同じ timestamp の中での順序） */
+    private int counter;
+    
     /** この操作が依存する直前のサーバーシーケンス番号 */
     private int basedOnServerSequence;
     
@@ -164,6 +167,14 @@ public class EditOperation implements Serializable {
         this.timestamp = timestamp;
     }
     
+    public int getCounter() {
+        return counter;
+    }
+    
+    public void setCounter(int counter) {
+        this.counter = counter;
+    }
+    
     public int getBasedOnServerSequence() {
         return basedOnServerSequence;
     }
@@ -0,0 +1,82 @@
+package com.objetdirect.gwt.umldrawer.client.beans;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * 1人の学生の、解答に対する類似度の推移（進捗グラフ用）。
+ * サーバーで編集イベントごとに求めたクラス類似度(CS)・関連類似度(RS)と、最後の図の要約を持つ。
+ */
+public class SimilarityTimeline implements IsSerializable{
+	private String studentId;
+	private List<Date> dateList = new ArrayList<Date>();
+	private List<Double> classSimilarityList = new ArrayList<Double>();
+	private List<Double> relationSimilarityList = new ArrayList<Double>();
+	/** リプレイ対象の編集イベント数 */
+	private int eventNum;
+	/** 最後の図のクラス数 */
+	private int classNum;
+	/** 最後の図の関連数 */
+	private int relationNum;
+
+	public SimilarityTimeline(){
+
+	}
+
+	public SimilarityTimeline(String studentId){
+		this.studentId = studentId;
+	}
+
+	public void add(Date date, double classSimilarity, double relationSimilarity){
+		dateList.add(date);
+		classSimilarityList.add(classSimilarity);
+		relationSimilarityList.add(relationSimilarity);
+	}
+
+	public int size(){
+		return dateList.size();
+	}
+
+	public String getStudentId() {
+		return studentId;
+	}
+
+	public List<Date> getDateList() {
+		return dateList;
+	}
+
+	public List<Double> getClassSimilarityList() {
+		return classSimilarityList;
+	}
+
+	public List<Double> getRelationSimilarityList() {
+		return relationSimilarityList;
+	}
+
+	public int getEventNum() {
+		return eventNum;
+	}
+
+	public void setEventNum(int eventNum) {
+		this.eventNum = eventNum;
+	}
+
+	public int getClassNum() {
+		return classNum;
+	}
+
+	public void setClassNum(int classNum) {
+		this.classNum = classNum;
+	}
+
+	public int getRelationNum() {
+		return relationNum;
+	}
+
+	public void setRelationNum(int relationNum) {
+		this.relationNum = relationNum;
+	}
+}
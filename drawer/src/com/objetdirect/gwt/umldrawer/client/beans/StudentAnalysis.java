@@ -0,0 +1,59 @@
+package com.objetdirect.gwt.umldrawer.client.beans;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * 1人の学生の分析結果（{@link AnalysisReport} の1行）
+ */
+public class StudentAnalysis implements IsSerializable{
+	private int no;
+	private String studentId;
+	/** Editのイベント数 */
+	private int editEventNum;
+	/** クラス名または属性に対する上書きEdit数（最終的な図の要素数あたり） */
+	private double updateEditEventNum;
+	/** Placeのイベント数 */
+	private int placeEventNum;
+	/** 総編集時間(秒) */
+	private double editTime;
+
+	public StudentAnalysis(){
+
+	}
+
+	public StudentAnalysis(String studentId, int editEventNum, double updateEditEventNum, int placeEventNum, double editTime){
+		this.studentId = studentId;
+		this.editEventNum = editEventNum;
+		this.updateEditEventNum = updateEditEventNum;
+		this.placeEventNum = placeEventNum;
+		this.editTime = editTime;
+	}
+
+	public int getNo() {
+		return no;
+	}
+
+	public void setNo(int no) {
+		this.no = no;
+	}
+
+	public String getStudentId() {
+		return studentId;
+	}
+
+	public int getEditEventNum() {
+		return editEventNum;
+	}
+
+	public double getUpdateEditEventNum() {
+		return updateEditEventNum;
+	}
+
+	public int getPlaceEventNum() {
+		return placeEventNum;
+	}
+
+	public double getEditTime() {
+		return editTime;
+	}
+}
@@ -17,7 +17,7 @@ public interface CanvasService extends RemoteService{
 	
 	// --- マージ機能のために追加するメソッド ---
 		/**
-		 * AIマージサーバーを呼び出し、マージ結果の文字列（Base64）を取得します。
+		 * 2つの図をサーバー上でマージし、マージ結果の文字列（Base64）を取得します。
 		 * @param myUrl 自分のUMLデータ
 		 * @param opponentUrl 相手のUMLデータ
 		 * @return マージされたUMLデータ
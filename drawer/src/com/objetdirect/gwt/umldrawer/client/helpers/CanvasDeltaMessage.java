@@ -0,0 +1,67 @@
+package com.objetdirect.gwt.umldrawer.client.helpers;
+
+import java.util.Map;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.json.client.JSONValue;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasDelta;
+
+/**
+ * キャンバス差分（canvasDelta）メッセージの変換。
+ *
+ * 送信: {"action":"canvasDelta","added":{id:断片},"changed":{id:断片},"removed":[id]}
+ * 受信: {"action":"canvasDelta","version":n,"delta":{上の送信内容}}
+ * version はサーバーが部屋ごとに振る通し番号。
+ */
+public class CanvasDeltaMessage {
+
+    private CanvasDeltaMessage() {
+    }
+
+    /**
+     * 差分を送信用のJSON文字列にする
+     */
+    public static String encode(CanvasDelta delta) {
+        JSONObject json = new JSONObject();
+        json.put("action", new JSONString("canvasDelta"));
+        json.put("added", toJson(delta.getAdded()));
+        json.put("changed", toJson(delta.getChanged()));
+        JSONArray removed = new JSONArray();
+        for (Integer id : delta.getRemoved()) {
+            removed.set(removed.size(), new JSONNumber(id));
+        }
+        json.put("removed", removed);
+        return json.toString();
+    }
+
+    /**
+     * 受信したメッセージの delta 部分から差分を復元する
+     */
+    public static CanvasDelta decode(JSONObject json) {
+        CanvasDelta delta = new CanvasDelta();
+        JSONObject added = json.get("added").isObject();
+        for (String key : added.keySet()) {
+            delta.putAdded(Integer.parseInt(key), added.get(key).isString().stringValue());
+        }
+        JSONObject changed = json.get("changed").isObject();
+        for (String key : changed.keySet()) {
+            delta.putChanged(Integer.parseInt(key), changed.get(key).isString().stringValue());
+        }
+        JSONArray removed = json.get("removed").isArray();
+        for (int i = 0; i < removed.size(); i++) {
+            delta.addRemoved((int) removed.get(i).isNumber().doubleValue());
+        }
+        return delta;
+    }
+
+    private static JSONValue toJson(Map<Integer, String> fragments) {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<Integer, String> entry : fragments.entrySet()) {
+            json.put(String.valueOf(entry.getKey()), new JSONString(entry.getValue()));
+        }
+        return json;
+    }
+}
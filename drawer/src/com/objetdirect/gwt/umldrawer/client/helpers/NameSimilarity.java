@@ -0,0 +1,94 @@
+package com.objetdirect.gwt.umldrawer.client.helpers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * クラス名・属性名の類似度（LCS長 × 2 / 2つの名前の長さの和）を求める。
+ *
+ * LCS表は2行分だけを持ち、作業用の配列はインスタンスごとに使い回す。
+ * 同じ名前の組は学生をまたいで何度も比べられるので、結果を全インスタンス共通のLRUキャッシュに残す。
+ * キャッシュはサーバー側で複数のスレッドから使われるため synchronized で守る（クライアントでは影響なし）。
+ * 作業用の配列を持つので、1つのインスタンスを複数のスレッドで同時に使わないこと。
+ */
+public class NameSimilarity {
+
+	/** キャッシュに残す名前の組の数 */
+	private static final int CACHE_SIZE = 4096;
+
+	private static final Map<String, Double> cache = new LinkedHashMap<String, Double>(CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/** キャッシュを空にする（計測用） */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private int[] previousRow = new int[16];
+	private int[] currentRow = new int[16];
+
+	public double sim(String name1, String name2) {
+		if (name1.length() == 0 || name2.length() == 0) {
+			return 0.0;
+		}
+		// 類似度は名前の順序によらないので、順序をそろえて1つのエントリにする
+		if (name1.compareTo(name2) > 0) {
+			String tmp = name1;
+			name1 = name2;
+			name2 = tmp;
+		}
+		String key = name1.length() + ":" + name1 + name2;
+		Double cached;
+		synchronized (cache) {
+			cached = cache.get(key);
+		}
+		if (cached != null) {
+			return cached;
+		}
+		int lcs = lcsLength(name1, name2);
+		double sim = (lcs * 2.0) / (double) (name1.length() + name2.length());
+		synchronized (cache) {
+			cache.put(key, sim);
+		}
+		return sim;
+	}
+
+	/**
+	 * 最長共通部分列の長さ。短い方の名前を列にして、2行分の表だけで求める
+	 */
+	int lcsLength(String name1, String name2) {
+		String rows = name1.length() >= name2.length() ? name1 : name2;
+		String cols = rows == name1 ? name2 : name1;
+		int n = cols.length();
+		if (previousRow.length < n + 1) {
+			previousRow = new int[n + 1];
+			currentRow = new int[n + 1];
+		}
+		int[] prev = previousRow;
+		int[] curr = currentRow;
+		for (int j = 0; j <= n; j++) {
+			prev[j] = 0;
+		}
+		curr[0] = 0;
+		for (int i = 0; i < rows.length(); i++) {
+			char c = rows.charAt(i);
+			for (int j = 1; j <= n; j++) {
+				if (c == cols.charAt(j - 1)) {
+					curr[j] = prev[j - 1] + 1;
+				} else {
+					curr[j] = Math.max(prev[j], curr[j - 1]);
+				}
+			}
+			int[] tmp = prev;
+			prev = curr;
+			curr = tmp;
+		}
+		return prev[n];
+	}
+}
@@ -1,5 +1,8 @@
 package com.objetdirect.gwt.umldrawer.client.helpers;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
@@ -17,10 +20,23 @@ public class OperationTransformHelper {
     private String userId;
     private int exerciseId;
     
+    /** このクライアントの識別子（接続中は変えない。時計が同じ移動の順序づけに使う） */
+    private final String clientId;
+    
+    /** ハイブリッド論理時計の物理時刻部分（ミリ秒） */
+    private long clockTime = 0;
+    
+    /** ハイブリッド論理時計の論理カウンタ部分 */
+    private int clockCounter = 0;
+    
+    /** 要素ごとの、最後に採用した絶対座標の移動の時計 (elementId -> 時計) */
+    private final Map<String, MoveStamp> moveStamps = new HashMap<String, MoveStamp>();
+    
     public OperationTransformHelper(WebSocketClient webSocketClient, String userId, int exerciseId) {
         this.webSocketClient = webSocketClient;
         this.userId = userId;
         this.exerciseId = exerciseId;
+        this.clientId = userId + "_" + System.currentTimeMillis();
     }
     
     /**
@@ -97,17 +113,27 @@ public class OperationTransformHelper {
     }
     
     /**
-     * 絶対座標方式で移動操作を送信（タイムスタンプベースのLWW）
+     * 絶対座標方式で移動操作を送信（ハイブリッド論理時計によるLWW）
      */
     public void sendMoveOperationAbsolute(String elementId, int oldX, int oldY, int newX, int newY) {
         clientSequence++;
         
+        // 受け取ったどの移動よりも後の時計を振る（端末の時計が遅れていても、見た移動には勝つ）
+        long now = System.currentTimeMillis();
+        if (now > clockTime) {
+            clockTime = now;
+            clockCounter = 0;
+        } else {
+            clockCounter++;
+        }
+        moveStamps.put(elementId, new MoveStamp(clockTime, clockCounter, clientId));
+        
         // JSONメッセージを構築
         JSONObject message = new JSONObject();
         message.put("action", new JSONString("moveOperation"));
         message.put("clientSequence", new JSONNumber(clientSequence));
         message.put("userId", new JSONString(userId));
-        message.put("clientId", new JSONString(userId + "_" + System.currentTimeMillis()));
+        message.put("clientId", new JSONString(clientId));
         message.put("elementId", new JSONString(elementId));
         message.put("operationType", new JSONString("move_absolute"));
         message.put("oldX", new JSONNumber(oldX));
@@ -115,7 +141,8 @@ public class OperationTransformHelper {
         message.put("newX", new JSONNumber(newX));
         message.put("newY", new JSONNumber(newY));
         message.put("exerciseId", new JSONNumber(exerciseId));
-        message.put("timestamp", new JSONNumber(System.currentTimeMillis()));
+        message.put("timestamp", new JSONNumber(clockTime));
+        message.put("counter", new JSONNumber(clockCounter));
         
         // WebSocket経由で送信
         if (webSocketClient != null && webSocketClient.isOpen()) {
@@ -123,6 +150,46 @@ public class OperationTransformHelper {
         }
     }
     
+    /**
+     * サーバーから受け取った絶対座標の移動を、この要素で最後に採用した移動と比べる。
+     * 古い移動でなければ記録してtrueを返す（同じ移動の送り直しは、ドラッグ中の位置を戻すために受け取る）。
+     * 時計は受け取った値まで進める
+     */
+    public boolean acceptMoveOperationAbsolute(String elementId, long timestamp, int counter, String moveClientId) {
+        if (timestamp > clockTime) {
+            clockTime = timestamp;
+            clockCounter = counter;
+        } else if (timestamp == clockTime && counter > clockCounter) {
+            clockCounter = counter;
+        }
+        
+        MoveStamp stamp = new MoveStamp(timestamp, counter, moveClientId);
+        MoveStamp last = moveStamps.get(elementId);
+        if (last != null && last.isAfter(stamp)) {
+            return false;
+        }
+        moveStamps.put(elementId, stamp);
+        return true;
+    }
+    
+    /**
+     * ドラッグ中の位置を送信する。
+     * 保存も採番もされないので、clientSequence は進めない
+     */
+    public void sendLiveMove(String elementId, int x, int y) {
+        JSONObject message = new JSONObject();
+        message.put("action", new JSONString("liveMove"));
+        message.put("userId", new JSONString(userId));
+        message.put("elementId", new JSONString(elementId));
+        message.put("newX", new JSONNumber(x));
+        message.put("newY", new JSONNumber(y));
+        message.put("exerciseId", new JSONNumber(exerciseId));
+        
+        if (webSocketClient != null && webSocketClient.isOpen()) {
+            webSocketClient.send(message.toString());
+        }
+    }
+    
     /**
      * サーバーから受信した操作を適用
      * * @param operation サーバーから受信した操作
@@ -170,4 +237,29 @@ public class OperationTransformHelper {
     public void resetClientSequence() {
         this.clientSequence = 0;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 絶対座標の移動の時計（サーバーの位置表と同じ順序で比べる）
+     */
+    private static class MoveStamp {
+        private final long timestamp;
+        private final int counter;
+        private final String clientId;
+        
+        MoveStamp(long timestamp, int counter, String clientId) {
+            this.timestamp = timestamp;
+            this.counter = counter;
+            this.clientId = clientId != null ? clientId : "";
+        }
+        
+        boolean isAfter(MoveStamp other) {
+            if (timestamp != other.timestamp) {
+                return timestamp > other.timestamp;
+            }
+            if (counter != other.counter) {
+                return counter > other.counter;
+            }
+            return clientId.compareTo(other.clientId) > 0;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.objetdirect.gwt.umldrawer.client.helpers;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,9 +12,8 @@ import com.google.gwt.visualization.client.DataTable;
 import com.objetdirect.gwt.umlapi.client.artifacts.ClassArtifact;
 import com.objetdirect.gwt.umlapi.client.artifacts.ClassRelationLinkArtifact;
 import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
-import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlManager;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClassAttribute;
-import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
 
 public class SimilarityManager {
 
@@ -31,6 +29,7 @@ public class SimilarityManager {
 	private int missingRelationNum;
 //	private final double NAME_SIM_T = 0.6;   //もとの値
 	private final double NAME_SIM_T = 0.4;   //saito
+	private final NameSimilarity nameSimilarity = new NameSimilarity();
 
 
 
@@ -81,48 +80,11 @@ public class SimilarityManager {
 		return (getClassSimilarity(snapShot,  answer) + getRelationSimilarity(snapShot,  answer) )/2.0;
 	}
 
+	/**
+	 * 名前の類似度（LCS長 × 2 / 2つの名前の長さの和）。計算とキャッシュは {@link NameSimilarity} で行う
+	 */
 	public double nameSim(String name1, String name2){
-		double sim = 0;
-		int len1 = name1.length(), len2 = name2.length();
-		
-		if (len1 == 0 || len2 == 0) {
-	        return 0.0;
-	    }
-		
-		int[][] lcs_table = new int[len1][len2]; // LCS長を格納した表
-
-//		for (int i = 0; i < len1; i++) {
-//			for (int j = 0; j < len2; j++) {
-//				if (name1.charAt(i) == name2.charAt(j))
-//					lcs_table[i][j] = ((i == 0 || j == 0) ? 0 : lcs_table[i-1][j-1]) + 1;
-//				else if (name1.charAt(i) != name2.charAt(j))
-//					lcs_table[i][j] = Math.max(
-//							i == 0 ? 0 : lcs_table[i-1][j],
-//									j == 0 ? 0 : lcs_table[i][j-1]);
-//			}
-//		}
-		
-		for (int i = 0; i < len1; i++) {
-			for (int j = 0; j < len2; j++) {
-				if (name1.charAt(i) == name2.charAt(j)) {
-					lcs_table[i][j] = (i > 0 && j > 0) ? lcs_table[i-1][j-1] + 1 : 1;
-				} else {
-					lcs_table[i][j] = Math.max(i > 0 ? lcs_table[i-1][j] : 0, j > 0 ? lcs_table[i][j-1] : 0);
-				}
-			}
-		}
-
-
-		// LCS表の表示
-		//		for (int i = 0; i < len1; i++) {
-		//			for (int j = 0; j < len2; j++)
-		//				System.out.print(lcs_table[i][j] + " ");
-		//			System.out.println();
-		//		}
-
-		// LCS表の最も右下にLCS長が格納されている
-		sim = ( ( lcs_table[len1-1][len2-1] )*2.0 ) / (double)( len1 + len2);
-		return sim;
+		return this.nameSimilarity.sim(name1, name2);
 	}
 
 	private void makeClassPairList( List<UMLArtifact> diagram1, List<UMLArtifact> diagram2){
@@ -581,29 +543,19 @@ public class SimilarityManager {
 
 		return cardSimMap;
 	}
-	public DataTable createDataForGraph(List<EditEvent> eventList, List<UMLArtifact> answer){
-		ArrayList<Date> dateList = new ArrayList<Date>();
-		ArrayList<Double> simularityList = new ArrayList<Double>();
+	/**
+	 * 進捗グラフ用のデータ。類似度はサーバーで編集イベントごとに計算したもの（{@link SimilarityTimeline}）を使う
+	 */
+	public DataTable createDataForGraph(SimilarityTimeline timeline){
 		DataTable data = DataTable.create();
 		data.addColumn(ColumnType.DATETIME, "Date Time");
 		data.addColumn(ColumnType.NUMBER, "Similarity");
 
-
-		for(EditEvent ev : eventList){
-			if(ev.getEventType().equals("Start")) continue;
-
-			SimilarityManager sm = new SimilarityManager();
-			CanvasUrlManager cum = new CanvasUrlManager();
-			dateList.add( ev.getEditDatetime() );
-			//simularityList.add( sm.getClassSimilarity( cum.fromURL(ev.getCanvasUrl(), false), answer) );
-			simularityList.add( sm.getRelationSimilarity( cum.fromURL(ev.getCanvasUrl(), false), answer) );
-		}
-		System.out.println("CreateData");
-		data.addRows(dateList.size());
-		for(int i = 0 ; i<dateList.size() ; i++ ){
-			System.out.println(dateList.get(i)+", "+simularityList.get(i));
-			data.setValue( i ,0, dateList.get(i));
-			data.setValue( i ,1, simularityList.get(i));
+		data.addRows(timeline.size());
+		for(int i = 0 ; i<timeline.size() ; i++ ){
+			data.setValue( i ,0, timeline.getDateList().get(i));
+			//data.setValue( i ,1, timeline.getClassSimilarityList().get(i));
+			data.setValue( i ,1, timeline.getRelationSimilarityList().get(i));
 		}
 
 		return data;
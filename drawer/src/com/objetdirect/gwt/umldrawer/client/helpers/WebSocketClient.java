@@ -1,6 +1,7 @@
 package com.objetdirect.gwt.umldrawer.client.helpers;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONValue;
@@ -77,6 +78,34 @@ public class WebSocketClient implements WebSocketSender {
                          drawerPanel.getDrawerBaseInstance() .syncCanvasFromServer(url);
                     }
                 }
+                else if ("canvasDelta".equals(action)) {
+                    // 成果物単位のキャンバス差分
+                    int version = (int) jsonObject.get("version").isNumber().doubleValue();
+                    JSONObject delta = jsonObject.get("delta").isObject();
+                    if (drawerPanel != null && drawerPanel.getDrawerBaseInstance() != null) {
+                        drawerPanel.getDrawerBaseInstance().applyCanvasDeltaFromServer(version, CanvasDeltaMessage.decode(delta));
+                    }
+                }
+                else if ("canvasDeltaAck".equals(action)) {
+                    // 自分が送った差分に振られた通し番号
+                    int version = (int) jsonObject.get("version").isNumber().doubleValue();
+                    if (drawerPanel != null && drawerPanel.getDrawerBaseInstance() != null) {
+                        drawerPanel.getDrawerBaseInstance().onCanvasDeltaAck(version);
+                    }
+                }
+                else if ("canvasVersion".equals(action)) {
+                    // 参加時（または全体同期に応えられる人がいない時）に届く、部屋の差分の現在の通し番号
+                    int version = (int) jsonObject.get("version").isNumber().doubleValue();
+                    if (drawerPanel != null && drawerPanel.getDrawerBaseInstance() != null) {
+                        drawerPanel.getDrawerBaseInstance().onCanvasVersion(version);
+                    }
+                }
+                else if ("syncRequest".equals(action)) {
+                    // 差分を取りこぼしたクライアントから全体同期を頼まれた
+                    if (drawerPanel != null && drawerPanel.getDrawerBaseInstance() != null) {
+                        drawerPanel.getDrawerBaseInstance().sendFullCanvas();
+                    }
+                }
                 else if ("textUpdate".equals(action)) {
                     // "textUpdate"の荷物が届いたら、中身を取り出す
                     String elementId = jsonObject.get("elementId").isString().stringValue();
@@ -115,20 +144,66 @@ public class WebSocketClient implements WebSocketSender {
                         drawerPanel.applyOTOperation(serverSequence, elementId, partId, afterText, userId, isOwnOperation);
                     }
                 }
+                else if ("textSync".equals(action)) {
+                    // サーバーのテキストの現在状態: [elementId, partId, text] の配列
+                    // （送った編集が履歴の保持範囲より古くて断られた時と、途中参加した時に届く）
+                    int serverSequence = (int) jsonObject.get("serverSequence").isNumber().doubleValue();
+                    JSONArray states = jsonObject.get("states").isArray();
+                    if (drawerPanel != null) {
+                        for (int i = 0; i < states.size(); i++) {
+                            JSONArray state = states.get(i).isArray();
+                            drawerPanel.updateArtifactText(
+                                    state.get(0).isString().stringValue(),
+                                    state.get(1).isString().stringValue(),
+                                    state.get(2).isString().stringValue());
+                        }
+                        drawerPanel.resyncServerSequence(serverSequence);
+                    }
+                }
                 else if ("moveOperationResponse".equals(action)) {
-                    // 絶対座標方式の移動操作レスポンス（タイムスタンプベースのLWW）
+                    // 絶対座標方式の移動操作レスポンス（サーバーの位置表で採用された位置）
                     String elementId = jsonObject.get("elementId").isString().stringValue();
-                    int oldX = (int) jsonObject.get("oldX").isNumber().doubleValue();
-                    int oldY = (int) jsonObject.get("oldY").isNumber().doubleValue();
                     int newX = (int) jsonObject.get("newX").isNumber().doubleValue();
                     int newY = (int) jsonObject.get("newY").isNumber().doubleValue();
                     long timestamp = (long) jsonObject.get("timestamp").isNumber().doubleValue();
-                    String userId = jsonObject.get("userId").isString().stringValue();
+                    int counter = (int) jsonObject.get("counter").isNumber().doubleValue();
                     String clientId = jsonObject.get("clientId").isString().stringValue();
                     
                     if (drawerPanel != null) {
                         // DrawerPanelを通じて絶対座標で移動を適用
-                        drawerPanel.applyMoveOperationAbsolute(elementId, newX, newY, timestamp, clientId);
+                        drawerPanel.applyMoveOperationAbsolute(elementId, newX, newY, timestamp, counter, clientId);
+                    }
+                }
+                else if ("positionSnapshot".equals(action)) {
+                    // 途中参加時に届く位置表: [elementId, x, y, timestamp, counter, clientId] の配列
+                    JSONArray positions = jsonObject.get("positions").isArray();
+                    if (drawerPanel != null) {
+                        for (int i = 0; i < positions.size(); i++) {
+                            JSONArray position = positions.get(i).isArray();
+                            drawerPanel.applyMoveOperationAbsolute(
+                                    position.get(0).isString().stringValue(),
+                                    (int) position.get(1).isNumber().doubleValue(),
+                                    (int) position.get(2).isNumber().doubleValue(),
+                                    (long) position.get(3).isNumber().doubleValue(),
+                                    (int) position.get(4).isNumber().doubleValue(),
+                                    position.get(5).isString().stringValue());
+                        }
+                    }
+                }
+                else if ("sourceCodeChanged".equals(action)) {
+                    // UMLDSからソースコードの変更が届いた（サーバーがまとめて知らせる）: 自分の図の差分を取り直す
+                    if (drawerPanel != null && drawerPanel.getDrawerBaseInstance() != null) {
+                        drawerPanel.getDrawerBaseInstance().onSourceCodeChanged();
+                    }
+                }
+                else if ("liveMoveResponse".equals(action)) {
+                    // 他のクライアントがドラッグ中の位置（サーバーが要素ごとに最新の位置だけを配信する）
+                    String elementId = jsonObject.get("elementId").isString().stringValue();
+                    int newX = (int) jsonObject.get("newX").isNumber().doubleValue();
+                    int newY = (int) jsonObject.get("newY").isNumber().doubleValue();
+                    
+                    if (drawerPanel != null) {
+                        drawerPanel.applyLiveMove(elementId, newX, newY);
                     }
                 }
             }
@@ -169,4 +244,15 @@ public class WebSocketClient implements WebSocketSender {
             drawerPanel.sendMoveWithAbsolutePosition(elementId, oldX, oldY, newX, newY);
         }
     }
+    
+    /**
+     * ドラッグ中の位置を送信
+     * WebSocketSenderインターフェースの実装
+     */
+    @Override
+    public void sendLiveMove(String elementId, int x, int y) {
+        if (drawerPanel != null && drawerPanel.getOTHelper() != null) {
+            drawerPanel.sendLiveMove(elementId, x, y);
+        }
+    }
 }
\ No newline at end of file
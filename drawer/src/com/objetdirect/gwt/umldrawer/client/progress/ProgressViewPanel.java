@@ -6,17 +6,12 @@ import java.util.List;
 import java.util.Map;
 
 import com.google.gwt.core.client.GWT;
-import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.rpc.ServiceDefTarget;
 import com.google.gwt.user.client.ui.HorizontalPanel;
 import com.google.gwt.user.client.ui.VerticalPanel;
-import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
-import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlManager;
 import com.objetdirect.gwt.umlapi.client.helpers.Session;
-import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
-import com.objetdirect.gwt.umldrawer.client.canvas.CanvasService;
-import com.objetdirect.gwt.umldrawer.client.canvas.CanvasServiceAsync;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
 import com.objetdirect.gwt.umldrawer.client.user.GetUserService;
 import com.objetdirect.gwt.umldrawer.client.user.GetUserServiceAsync;
 import com.objetdirect.gwt.umldrawer.client.viewer.LogViewerService;
@@ -25,39 +20,18 @@ import com.objetdirect.gwt.umldrawer.client.viewer.LogViewerServiceAsync;
 public class ProgressViewPanel extends VerticalPanel{
 	private List<ProgressPanel> progressPanelList;
 	private int pageNum = 3; //FIX ME
-	private List<UMLArtifact>answer;
 	private List<String> studentIdList;
-	private Map<String, List<EditEvent>> editEventListMap;
+	private Map<String, SimilarityTimeline> timelineMap;
 
 
 	public ProgressViewPanel(){
-		editEventListMap = new HashMap<String, List<EditEvent>>();
+		timelineMap = new HashMap<String, SimilarityTimeline>();
 		init();
 	}
 
 	public void init(){
-		getAnswer(Session.exerciseId);
+		getStudentIdList();
 	}
-	public void getAnswer(int exerciseId) {
-		CanvasServiceAsync async = (CanvasServiceAsync)GWT.create(CanvasService.class);
-		ServiceDefTarget entryPoint = (ServiceDefTarget) async;
-		String entryURL = GWT.getModuleBaseURL() + "getAnswer";
-		entryPoint.setServiceEntryPoint(entryURL);
-		@SuppressWarnings("rawtypes")
-		AsyncCallback callback = new AsyncCallback(){
-			public void onSuccess(Object result){
-				CanvasUrlManager cum = new CanvasUrlManager();
-				answer = cum.fromURL( (String)result, false);
-				getStudentIdList();
-			}
-			public void onFailure(Throwable caught){
-				Window.alert( caught.toString());
-			}
-		};
-		async.getAnswer( exerciseId, callback);
-
-	}
-
 	public void getStudentIdList(){
 		GetUserServiceAsync async = (GetUserServiceAsync)GWT.create(GetUserService.class);
 		ServiceDefTarget entryPoint = (ServiceDefTarget) async;
@@ -77,31 +51,31 @@ public class ProgressViewPanel extends VerticalPanel{
 				studentIdList = (List<String>) result;
 				Collections.sort(studentIdList);
 				for(String studentId: studentIdList){
-					getEditEventList(studentId);
+					getSimilarityTimeline(studentId);
 				}
 			}
 		};
 		async.getUserList(callback);
 	}
 
-	private void getEditEventList(final String studentId){
+	//類似度の推移はサーバーで計算する（各イベントの図は受け取らない）
+	private void getSimilarityTimeline(final String studentId){
 		LogViewerServiceAsync async = (LogViewerServiceAsync)GWT.create(LogViewerService.class);
 		ServiceDefTarget entryPoint = (ServiceDefTarget) async;
-		String entryURL = GWT.getModuleBaseURL() + "getEditEventListForReplay";
+		String entryURL = GWT.getModuleBaseURL() + "getSimilarityTimeline";
 		entryPoint.setServiceEntryPoint(entryURL);
-		@SuppressWarnings("rawtypes")
-		AsyncCallback callback = new AsyncCallback(){
-			public void onSuccess(Object result){
-				if( (List<EditEvent>) result != null && ( (List<EditEvent>)result ).size() !=0 ){
-					editEventListMap.put( studentId, (List<EditEvent>) result );
-					ProgressPanel pp = new ProgressPanel(studentId, editEventListMap.get(studentId), answer);
+		AsyncCallback<SimilarityTimeline> callback = new AsyncCallback<SimilarityTimeline>(){
+			public void onSuccess(SimilarityTimeline result){
+				if( result != null && result.getEventNum() !=0 ){
+					timelineMap.put( studentId, result );
+					ProgressPanel pp = new ProgressPanel(studentId, result);
 					add(pp);
 				}
 			}
 			public void onFailure(Throwable caught){
 			}
 		};
-		async.getEditEventListForReplay( studentId, Session.exerciseId, callback);
+		async.getSimilarityTimeline( studentId, Session.exerciseId, callback);
 	}
 
 	private void createProgressView(){
@@ -112,11 +86,11 @@ public class ProgressViewPanel extends VerticalPanel{
 			if(i % pageNum == 0){
 				if(i !=0) this.add(hp);
 				hp = new HorizontalPanel();
-				ProgressPanel pp = new ProgressPanel(studentId, editEventListMap.get(studentId), answer);
+				ProgressPanel pp = new ProgressPanel(studentId, timelineMap.get(studentId));
 				hp.add(pp);
 			}
 			else{
-				ProgressPanel pp = new ProgressPanel(studentId, editEventListMap.get(studentId), answer);
+				ProgressPanel pp = new ProgressPanel(studentId, timelineMap.get(studentId));
 				hp.add(pp);
 				if(i == studentIdList.size())  this.add(hp);
 			}
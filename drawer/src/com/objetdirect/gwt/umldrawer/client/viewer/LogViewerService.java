@@ -4,6 +4,8 @@ import java.util.List;
 
 import com.google.gwt.user.client.rpc.RemoteService;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEventPage;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
 
 
 
@@ -21,6 +23,19 @@ public interface LogViewerService extends RemoteService{
 	public List<EditEvent> getAllEditEventList();
 	//@gwt.typeArgs <com.objetdirect.gwt.umldrawer.client.beans.EditEvent[]>
 	public List<EditEvent> getEditEventListForReplay(String studentId, int exercisesId);
+	/**
+	 * リプレイ用のイベントを afterEditEventId より後から pageSize 件ずつ返す。
+	 * withCanvasUrl が false の時は canvasUrl を含めない（{@link #getCanvasAt(int)} で個別に取得する）。
+	 */
+	public EditEventPage getEditEventPageForReplay(String studentId, int exercisesId, int afterEditEventId, int pageSize, boolean withCanvasUrl);
+	/**
+	 * 指定した編集イベント時点のキャンバスURLを返す
+	 */
+	public String getCanvasAt(int editEventId);
+	/**
+	 * 解答に対する類似度の推移（リプレイ対象の編集イベントごと）をサーバーで計算して返す
+	 */
+	public SimilarityTimeline getSimilarityTimeline(String studentId, int exercisesId);
 
 
 }
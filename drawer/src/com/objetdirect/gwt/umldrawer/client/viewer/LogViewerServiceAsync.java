@@ -1,6 +1,8 @@
 package com.objetdirect.gwt.umldrawer.client.viewer;
 
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEventPage;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
 
 public interface LogViewerServiceAsync {
 	@SuppressWarnings("rawtypes")
@@ -10,4 +12,7 @@ public interface LogViewerServiceAsync {
 	public void getAllEditEventList(String studentId, int exercisesId, AsyncCallback callback);
 	public void getAllEditEventList(AsyncCallback callback);
 	public void getEditEventListForReplay(String studentId, int exercisesId, AsyncCallback callback);
+	public void getEditEventPageForReplay(String studentId, int exercisesId, int afterEditEventId, int pageSize, boolean withCanvasUrl, AsyncCallback<EditEventPage> callback);
+	public void getCanvasAt(int editEventId, AsyncCallback<String> callback);
+	public void getSimilarityTimeline(String studentId, int exercisesId, AsyncCallback<SimilarityTimeline> callback);
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import com.objetdirect.gwt.umldrawer.client.DrawerPanel;
 //import com.objetdirect.gwt.umldrawer.client.analyzer.GraphTestPanel;
 import com.objetdirect.gwt.umldrawer.client.beans.Comment;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEventPage;
 import com.objetdirect.gwt.umldrawer.client.canvas.CanvasService;
 import com.objetdirect.gwt.umldrawer.client.canvas.CanvasServiceAsync;
 import com.objetdirect.gwt.umldrawer.client.comment.CommentService;
@@ -80,6 +81,17 @@ public class ViewerBase extends DockPanel {
 	private Button updateCommentButton;
 
 	private List<UMLArtifact> answer;
+
+	//Replay
+	/** リプレイ用イベントを1回に読み込む件数 */
+	private static final int REPLAY_PAGE_SIZE = 200;
+	private LogViewerServiceAsync logViewerService;
+	/** 読み込み中の学生（別の学生に切り替えた後に届いたページは捨てる） */
+	private String replayStudentId;
+	/** 全ページを読み込む前に利用者がイベントを移動したか */
+	private boolean navigated;
+	/** 矢印キーで移動して選択したイベント（一覧の選択の通知で表示し直さない） */
+	private EditEvent navigatedEvent;
 	//For DEMO
 	private Map<String, String> maskedId;
 
@@ -126,11 +138,11 @@ public class ViewerBase extends DockPanel {
 				//Window.alert("No."+ViewerBase.this.idxOfeditEventList);
 				//forEventCellList.setVerticalScrollPosition(idxOfeditEventList);
 				EditEvent EV = ViewerBase.this.editEventList.get(ViewerBase.this.idxOfeditEventList);
-				String url = EV.getCanvasUrl();
+				ViewerBase.this.navigated = true;
 				setDifficultyPanel(EV.getDifficulty());
+				ViewerBase.this.navigatedEvent = EV;
 				selectionModelForEditEventCellList.setSelected(EV, true);
-				ViewerBase.this.drawerPanel.clearCanvas();
-				ViewerBase.this.drawerPanel.fromURL(url, false);
+				showCanvas(EV, false);
 				if(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId())!=null){
 					commentArea.setText(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId()).getComment());
 				}else{
@@ -153,11 +165,11 @@ public class ViewerBase extends DockPanel {
 					}
 				}
 
-				String url = EV.getCanvasUrl();
+				ViewerBase.this.navigated = true;
 				setDifficultyPanel(EV.getDifficulty());
+				ViewerBase.this.navigatedEvent = EV;
 				selectionModelForEditEventCellList.setSelected(EV, true);
-				ViewerBase.this.drawerPanel.clearCanvas();
-				ViewerBase.this.drawerPanel.fromURL(url, false);
+				showCanvas(EV, false);
 				if(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId())!=null){
 					commentArea.setText(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId()).getComment());
 				}else{
@@ -174,12 +186,12 @@ public class ViewerBase extends DockPanel {
 					ViewerBase.this.idxOfeditEventList = ViewerBase.this.idxOfeditEventList-1;
 				}
 				EditEvent EV = ViewerBase.this.editEventList.get(ViewerBase.this.idxOfeditEventList);
-				String url = EV.getCanvasUrl();
+				ViewerBase.this.navigated = true;
 				setDifficultyPanel(EV.getDifficulty());
+				ViewerBase.this.navigatedEvent = EV;
 				selectionModelForEditEventCellList.setSelected(EV, true);
 				System.out.println(ViewerBase.this.idxOfeditEventList);
-				ViewerBase.this.drawerPanel.clearCanvas();
-				ViewerBase.this.drawerPanel.fromURL(url, false);
+				showCanvas(EV, false);
 				if(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId())!=null){
 					commentArea.setText(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId()).getComment());
 				}else{
@@ -202,12 +214,12 @@ public class ViewerBase extends DockPanel {
 					}
 
 				}
-				String url = EV.getCanvasUrl();
+				ViewerBase.this.navigated = true;
 				setDifficultyPanel(EV.getDifficulty());
+				ViewerBase.this.navigatedEvent = EV;
 				selectionModelForEditEventCellList.setSelected(EV, true);
 				System.out.println(ViewerBase.this.idxOfeditEventList);
-				ViewerBase.this.drawerPanel.clearCanvas();
-				ViewerBase.this.drawerPanel.fromURL(url, false);
+				showCanvas(EV, false);
 				if(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId())!=null){
 					commentArea.setText(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId()).getComment());
 				}else{
@@ -281,17 +293,17 @@ public class ViewerBase extends DockPanel {
 
 			@Override
 			public void onSelectionChange(SelectionChangeEvent event) {
-				ViewerBase.this.drawerPanel.clearCanvas();
 				EditEvent EV = selectionModelForEditEventCellList.getSelectedObject();
-				String url = EV.getCanvasUrl();
+				// 矢印キーで移動した時の選択は、移動側で表示済みなので描き直さない（類似度も計算しない）
+				if (EV == ViewerBase.this.navigatedEvent) {
+					ViewerBase.this.navigatedEvent = null;
+					return;
+				}
+				ViewerBase.this.navigatedEvent = null;
 				setDifficultyPanel(EV.getDifficulty());
 				ViewerBase.this.idxOfeditEventList = ViewerBase.this.editEventList.indexOf(EV);
-				ViewerBase.this.drawerPanel.fromURL(url,false);
-				CanvasUrlManager cum = new CanvasUrlManager();
-				SimilarityManager similarityManager = new SimilarityManager();
-				if(answer != null){
-					ViewerBase.this.similarityBox.setText( similarityManager.getClassSimilarity(cum.fromURL(url, false), answer)+"");
-				}
+				ViewerBase.this.navigated = true;
+				showCanvas(EV, true);
 				if(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId())!=null){
 					commentArea.setText(commentMap.get(editEventList.get(idxOfeditEventList).getEditEventId()).getComment());
 				}else{
@@ -317,41 +329,15 @@ public class ViewerBase extends DockPanel {
 				ViewerBase.this.selectionModelForUserCellList.addSelectionChangeHandler(new SelectionChangeEvent.Handler() {
 					@Override
 					public void onSelectionChange(SelectionChangeEvent event) {
-						LogViewerServiceAsync async = (LogViewerServiceAsync)GWT.create(LogViewerService.class);
-						ServiceDefTarget entryPoint = (ServiceDefTarget) async;
-						String entryURL = GWT.getModuleBaseURL() + "getEditEventListForReplay";
-						entryPoint.setServiceEntryPoint(entryURL);
-						@SuppressWarnings("rawtypes")
-						AsyncCallback callback = new AsyncCallback(){
-							public void onSuccess(Object result){
-								System.out.println((List<EditEvent>) result);
-								//GraphTest
-								if(Session.diagramType == UMLDiagram.Type.CLASS){
-									SimilarityManager sm = new SimilarityManager();
-									ViewerBase.this.southBar.clear();
-									if(answer != null){
-										//ViewerBase.this.southBar.add(new GraphTestPanel(sm.createDataForGraph( (List<EditEvent>) result, answer), ViewerBase.this));
-									}
-								}
-								ViewerBase.this.editEventList = (List<EditEvent>) result;
-								ViewerBase.this.drawerPanel.clearCanvas();
-
-								//
-								int idx = getLastSubmitEventIdx(editEventList);
-								ViewerBase.this.drawerPanel.fromURL(ViewerBase.this.editEventList.get(idx).getCanvasUrl(),false);
-								ViewerBase.this.idxOfeditEventList = idx;
-								ViewerBase.this.editEventCellList.setRowData( (List<EditEvent>)result);
-								forEventCellList.clear();
-								forEventCellList.add(editEventCellList);
-								forEventCellList.setSize("230px", drawerPanel.getHeight()+"px");
-								ViewerBase.this.rightSideBar.add(forEventCellList);
-
-
-							}
-							public void onFailure(Throwable caught){
-							}
-						};
-						async.getEditEventListForReplay( selectionModelForUserCellList.getSelectedObject() , Session.exerciseId, callback);
+						//GraphTest
+						if(Session.diagramType == UMLDiagram.Type.CLASS){
+							ViewerBase.this.southBar.clear();
+						}
+						ViewerBase.this.replayStudentId = selectionModelForUserCellList.getSelectedObject();
+						ViewerBase.this.editEventList = new ArrayList<EditEvent>();
+						ViewerBase.this.idxOfeditEventList = -1;
+						ViewerBase.this.navigated = false;
+						loadReplayPage(ViewerBase.this.replayStudentId, 0);
 						createCommentMap(selectionModelForUserCellList.getSelectedObject(), Session.exerciseId);
 					}
 				});
@@ -370,6 +356,84 @@ public class ViewerBase extends DockPanel {
 		async.getUserList(callback);
 	}
 
+	private LogViewerServiceAsync getLogViewerService() {
+		if (this.logViewerService == null) {
+			this.logViewerService = (LogViewerServiceAsync)GWT.create(LogViewerService.class);
+			((ServiceDefTarget) this.logViewerService).setServiceEntryPoint(GWT.getModuleBaseURL() + "getEditEventPageForReplay");
+		}
+		return this.logViewerService;
+	}
+
+	/**
+	 * リプレイ用のイベントを afterEditEventId の後から1ページ読み込む。
+	 * 最初のページが届いた時点で表示を始め、残りのページは続けて読み込んで一覧に追加する。
+	 * キャンバスURLはここでは読まず、表示する時に {@link #showCanvas(EditEvent, boolean)} で取得する。
+	 */
+	private void loadReplayPage(final String studentId, final int afterEditEventId) {
+		getLogViewerService().getEditEventPageForReplay(studentId, Session.exerciseId, afterEditEventId, REPLAY_PAGE_SIZE, false, new AsyncCallback<EditEventPage>() {
+			public void onSuccess(EditEventPage page) {
+				if (!studentId.equals(ViewerBase.this.replayStudentId)) {
+					return;
+				}
+				ViewerBase.this.editEventList.addAll(page.getEvents());
+				ViewerBase.this.editEventCellList.setRowData(ViewerBase.this.editEventList);
+				if (afterEditEventId == 0) {
+					forEventCellList.clear();
+					forEventCellList.add(editEventCellList);
+					forEventCellList.setSize("230px", drawerPanel.getHeight()+"px");
+					ViewerBase.this.rightSideBar.add(forEventCellList);
+				}
+				if (page.hasMore()) {
+					loadReplayPage(studentId, page.getNextCursor());
+				}
+				// 最初のページで表示を始め、全部読み込んだら最後の提出に移る（途中で移動していなければ）
+				if ((afterEditEventId == 0 || !page.hasMore()) && !ViewerBase.this.navigated && !ViewerBase.this.editEventList.isEmpty()) {
+					int idx = getLastSubmitEventIdx(editEventList);
+					ViewerBase.this.idxOfeditEventList = idx;
+					showCanvas(ViewerBase.this.editEventList.get(idx), false);
+				}
+			}
+			public void onFailure(Throwable caught){
+			}
+		});
+	}
+
+	/**
+	 * イベント時点の図を表示する。キャンバスURLをまだ読んでいなければ、サーバーから取得してから表示する。
+	 * 類似度は図を解析し直すので、一覧で選んだ時（withSimilarity）だけ計算し、矢印キーでの移動では計算しない。
+	 */
+	private void showCanvas(final EditEvent EV, final boolean withSimilarity) {
+		if (EV.getCanvasUrl() != null || !EV.hasCanvasUrl()) {
+			drawCanvas(EV, withSimilarity);
+			return;
+		}
+		getLogViewerService().getCanvasAt(EV.getEditEventId(), new AsyncCallback<String>() {
+			public void onSuccess(String url) {
+				EV.setCanvasUrl(url);
+				// 取得中に別のイベントに移っていたら表示しない
+				if (idxOfeditEventList >= 0 && idxOfeditEventList < editEventList.size() && editEventList.get(idxOfeditEventList) == EV) {
+					drawCanvas(EV, withSimilarity);
+				}
+			}
+			public void onFailure(Throwable caught){
+			}
+		});
+	}
+
+	private void drawCanvas(EditEvent EV, boolean withSimilarity) {
+		String url = EV.getCanvasUrl();
+		ViewerBase.this.drawerPanel.clearCanvas();
+		ViewerBase.this.drawerPanel.fromURL(url, false);
+		if(withSimilarity && answer != null && url != null){
+			CanvasUrlManager cum = new CanvasUrlManager();
+			SimilarityManager similarityManager = new SimilarityManager();
+			ViewerBase.this.similarityBox.setText( similarityManager.getClassSimilarity(cum.fromURL(url, false), answer)+"");
+		}else{
+			// 前に選んだイベントの類似度を残さない
+			ViewerBase.this.similarityBox.setText("");
+		}
+	}
+
 	private int getLastSubmitEventIdx(List<EditEvent> eventList){
 		int idx = 0;
 		for( idx = eventList.size()-1 ;  idx >= 0 ; idx--){
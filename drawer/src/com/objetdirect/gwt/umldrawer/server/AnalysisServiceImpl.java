@@ -12,6 +12,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
@@ -29,6 +34,7 @@ import com.objetdirect.gwt.umlapi.client.artifacts.ObjectArtifact;
 import com.objetdirect.gwt.umlapi.client.artifacts.ObjectRelationLinkArtifact;
 import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
 import com.objetdirect.gwt.umlapi.client.engine.Point;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlReader;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClass;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClassAttribute;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClassMethod;
@@ -37,7 +43,9 @@ import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLLink.LinkKind;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLObject;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLObjectAttribute;
 import com.objetdirect.gwt.umldrawer.client.analyzer.AnalysisService;
+import com.objetdirect.gwt.umldrawer.client.beans.AnalysisReport;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.StudentAnalysis;
 import com.objetdirect.gwt.umldrawer.server.dao.Dao;
 
 public class AnalysisServiceImpl extends RemoteServiceServlet implements AnalysisService{
@@ -46,157 +54,119 @@ public class AnalysisServiceImpl extends RemoteServiceServlet implements Analysi
 
 	}
 
+	/** 学生ごとの分析を同時に行う数（コネクションプールを使い切らない程度にする） */
+	private static final int ANALYSIS_PARALLELISM = 8;
+
+	private static final Logger LOGGER = Logger.getLogger(AnalysisServiceImpl.class.getName());
+
+	/**
+	 * 対象の学生全員を分析する。学生ごとの処理（イベントの読み込みと集計）は並列に行い、
+	 * 結果は学生リストの順に並べて返す。
+	 */
 	@Override
-	public boolean analyze(String studentId, int exerciseId) {
-		Map<String, Integer>  DAVNum = new  HashMap<String , Integer>();
+	public AnalysisReport analyze(String studentId, final int exerciseId) {
+		long start = System.currentTimeMillis();
+		final Map<String, Integer>  DAVNum = new  HashMap<String , Integer>();
 
 		//individualAnalysis(studentId, exerciseId);
-		Dao dao = new Dao();
 		List<String> studentIdList = new ArrayList<String>();
 		makeStudentList(studentIdList, DAVNum );
 
-		System.out.print("No.,");
-		System.out.print("学生ID,");
-		System.out.print("Edit数,");
-		System.out.print("クラス名または属性に対する上書きEdit数,");
-		System.out.print("Place数,");
-		System.out.print("総編集時間(秒)");
-		System.out.println();
-		int i=0;
-		for( String id : studentIdList ){
-			List<EditEvent> data = null;
-			try {
-				data = dao.getAllEditEventListDecoded(id, exerciseId);
-			} catch (UnsupportedEncodingException e) {
-				// TODO 自動生成された catch ブロック
-				e.printStackTrace();
-			}
-
-			//有効データだけを抽出
-			for( EditEvent ev : data){
-				if(ev!=null && (ev.getEditEventId() < DAVNum.get(id)) ){
-					ev = null;
-				}
-			}
-			data.removeAll(Collections.singleton(null));
-//			//editTargetRetioByEventNum(id, 1);
-//				try {
-//					trialAndErrorNum(id,1);
-//				} catch (UnsupportedEncodingException e) {
-//					// TODO 自動生成された catch ブロック
-//					e.printStackTrace();
-//				}
-
-
-			//Editのイベント数
-			int editEventNum = 0;
-			for(EditEvent ev : data){
-				if(ev.getEventType().equals("Edit"))
-					editEventNum++;
-			}
-
-			//クラス名または属性に対する上書きEdit数（NULLにする＝削除 も含む）
-			double updateEditEventNum = 0;
-			for(EditEvent ev : data){
-				if( ev.getEventType().equals("Edit") &&
-						( ev.getEditEvent().equals("ClassName") || ev.getEditEvent().equals("Attribute"))&&
-						!(ev.getBeforeEdit().equals("#attribute : String") || ev.getBeforeEdit().startsWith("Class")) )
-					updateEditEventNum++;
-
-				if( ev.getEventType().equals("Edit") )
-					updateEditEventNum++;
+		AnalysisReport report = new AnalysisReport(exerciseId);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(ANALYSIS_PARALLELISM, studentIdList.size())));
+		try {
+			List<Future<StudentAnalysis>> results = new ArrayList<Future<StudentAnalysis>>();
+			for( final String id : studentIdList ){
+				results.add(executor.submit(() -> analyzeStudent(id, exerciseId, DAVNum.get(id))));
 			}
-
-			//LastEventを探す
-			int classNum = 0;
-			EditEvent lastEvent = null;
-			for(int j = data.size()-1 ; j >= 0 ; j--){
-				if(data.get(j).getCanvasUrl()!=null){
-					lastEvent = data.get(j);
+			for(int i = 0 ; i < studentIdList.size() ; i++){
+				String id = studentIdList.get(i);
+				StudentAnalysis row = null;
+				try {
+					row = results.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
 					break;
+				} catch (ExecutionException e) {
+					LOGGER.log(Level.WARNING, "分析に失敗: " + id, e.getCause());
 				}
-			}
-			if(lastEvent==null) continue;
-
-			String canvas = lastEvent.getCanvasUrl();
-			List<UMLArtifact> artifactList = fromURL(canvas);
-
-//			for(UMLArtifact artifact : artifactList){
-//				if( artifact!=null ){
-//					Class<? extends UMLArtifact> artifactClass = artifact.getClass();
-//					String artifactClassName = artifactClass.getSimpleName();
-//
-//					//print(artifactClassName);
-//					if(artifactClassName.equals("ClassArtifact")){
-//						classNum++;
-//					}
-//				}
-//			}
-			updateEditEventNum/=artifactList.size();
-
-
-			//Placeのイベント数
-			int PlaceEventNum = 0;
-			for(EditEvent ev : data){
-				if(ev.getEditEvent()==null){
+				if(row==null){
+					report.addSkippedStudentId(id);
 				}
 				else{
-					if(ev.getEditEvent().equals("PlaceArtifacts"))
-						PlaceEventNum++;
-				}
-			}
-
-			//EditTime
-			double editTime = 0;
-			if(data.size()!=0){
-
-				EditEvent firstEvent;
-				//EditEvent lastEvent;
-				int j=0;
-				while(data.get(j).getEditEvent()==null){
-					j++;
-					if( j > data.size()-1 ){
-						j=0;
-						break;
-					}
+					report.addRow(row);
 				}
-				firstEvent = data.get(j);
-
-				j=data.size()-1;
-				while(data.get(j).getEditEvent()==null){
-					j--;
-					if( j < 0 ){
-						j=0;
-						break;
-					}
-				}
-				lastEvent = data.get(j);
-
-				editTime = ( lastEvent.getEditDatetime().getTime() - firstEvent.getEditDatetime().getTime() )/1000;
 			}
-
-
-			System.out.print(i);
-			System.out.print(",");
-			System.out.print(id);
-			System.out.print(",");
-			System.out.print(editEventNum);
-			System.out.print(",");
-			System.out.print(updateEditEventNum);
-			System.out.print(",");
-			System.out.print(PlaceEventNum);
-			System.out.print(",");
-			System.out.print(editTime);
-			System.out.println();
-
-			i++;
+		} finally {
+			executor.shutdownNow();
 		}
+		report.setElapsedMillis(System.currentTimeMillis() - start);
+		LOGGER.info("exercise " + exerciseId + ": " + report.getRows().size() + "人を分析 (" + report.getElapsedMillis() + " ms)");
 
+		return report;
+	}
 
+	/**
+	 * 1人分の分析。イベントを1回だけ読みながら全ての指標を集計する。
+	 * 完成した図（canvas_url を持つイベント）が無い学生はnullを返す。
+	 */
+	private StudentAnalysis analyzeStudent(String studentId, int exerciseId, int fromEditEventId) {
+		StudentMetrics metrics = new StudentMetrics();
+		//有効データ（edit_event_id が fromEditEventId 以上）だけを読む
+		String canvas = new Dao().forEachEditEventForAnalysis(studentId, exerciseId, fromEditEventId, metrics);
+		if(canvas==null) return null;
+
+		//最後の図は学生ごとに1回しか使わないので、キャッシュを通さずに解析する
+		int artifactNum = fromURL(canvas).size();
+		return metrics.toAnalysis(studentId, artifactNum);
+	}
 
-		//********************************************************************************************************
+	/**
+	 * 1人分のイベントを順に受け取って集計する
+	 */
+	private static class StudentMetrics implements Dao.EditEventHandler {
+		//Editのイベント数
+		private int editEventNum = 0;
+		//クラス名または属性に対する上書きEdit数（NULLにする＝削除 も含む）
+		private double updateEditEventNum = 0;
+		//Placeのイベント数
+		private int placeEventNum = 0;
+		//EditTime の計算に使う、edit_event を持つ最初と最後のイベント
+		private EditEvent firstEvent = null;
+		private EditEvent lastEvent = null;
+		//edit_event を持つイベントが1つも無い時に使う
+		private EditEvent headEvent = null;
+
+		@Override
+		public void handle(EditEvent ev) {
+			if(headEvent==null){
+				headEvent = ev;
+			}
+			if("Edit".equals(ev.getEventType())){
+				editEventNum++;
+				if( ( "ClassName".equals(ev.getEditEvent()) || "Attribute".equals(ev.getEditEvent()) ) &&
+						!( "#attribute : String".equals(ev.getBeforeEdit()) || ( ev.getBeforeEdit()!=null && ev.getBeforeEdit().startsWith("Class") ) ) )
+					updateEditEventNum++;
+				updateEditEventNum++;
+			}
+			if(ev.getEditEvent()!=null){
+				if(ev.getEditEvent().equals("PlaceArtifacts"))
+					placeEventNum++;
+				if(firstEvent==null)
+					firstEvent = ev;
+				lastEvent = ev;
+			}
+		}
 
-		return true;
+		StudentAnalysis toAnalysis(String studentId, int artifactNum) {
+			double editTime = 0;
+			if(headEvent!=null){
+				EditEvent first = firstEvent!=null ? firstEvent : headEvent;
+				EditEvent last = lastEvent!=null ? lastEvent : headEvent;
+				editTime = ( last.getEditDatetime().getTime() - first.getEditDatetime().getTime() )/1000;
+			}
+			return new StudentAnalysis(studentId, editEventNum, updateEditEventNum/artifactNum, placeEventNum, editTime);
+		}
 	}
 
 
@@ -489,7 +459,17 @@ public class AnalysisServiceImpl extends RemoteServiceServlet implements Analysi
 	}
 
 
+	/**
+	 * 図のURL（デコード済み）から要素のリストを復元する。
+	 * UMLArtifact は生成時に static な表へ登録されるので、全ての呼び出しをここで直列にする
+	 */
 	public List<UMLArtifact> fromURL(final String decodedUrl) {
+		synchronized (UMLArtifact.class) {
+			return parseArtifacts(decodedUrl);
+		}
+	}
+
+	private List<UMLArtifact> parseArtifacts(final String decodedUrl) {
 
 		List<UMLArtifact> artifactList = new ArrayList<UMLArtifact>();
 		//try {
@@ -497,154 +477,144 @@ public class AnalysisServiceImpl extends RemoteServiceServlet implements Analysi
 			String diagram = decodedUrl;
 			Point pasteShift = Point.getOrigin();
 
-			diagram = diagram.substring(0, diagram.lastIndexOf(";"));
-			final String[] diagramArtifacts = diagram.split(";");
-
-			for (final String artifactWithParameters : diagramArtifacts) {
-				if (!artifactWithParameters.equals("")) {
-					final String[] artifactAndParameters = artifactWithParameters.split("\\$");
-					if (artifactAndParameters.length > 1) {
-						final String[] artifactAndId = artifactAndParameters[0].split("]");
-						final String[] parameters = artifactAndParameters[1].split("!", -1);
-						final String artifact = artifactAndId[1];
-						int id = 0;
-						try {
-							id = Integer.parseInt(artifactAndId[0].replaceAll("[<>]", ""));
-						} catch (final Exception ex) {
-							Logger.getGlobal().severe("Parsing url, artifact id is NaN : " + artifactWithParameters + " : " + ex);
+			final CanvasUrlReader reader = new CanvasUrlReader(diagram);
+			while (reader.next()) {
+				final String[] parameters = reader.getParameters();
+				final String artifact = reader.getType();
+				int id = 0;
+				try {
+					id = reader.getId();
+				} catch (final Exception ex) {
+					Logger.getGlobal().severe("Parsing url, artifact id is NaN : " + reader.getEntry() + " : " + ex);
+				}
+				UMLArtifact newArtifact = null;
+				if (artifact.equals("Class")) {
+					newArtifact = new ClassArtifact(("") +UMLClass.parseNameOrStereotype(parameters[1]), UMLClass.parseNameOrStereotype(parameters[2]));
+					newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
+					if (parameters[3].length() > 1) {
+						for (final String attribute : CanvasUrlReader.splitList(parameters[3])) {
+							((ClassArtifact) newArtifact).addAttribute(UMLClassAttribute.parseAttribute(attribute));
 						}
-						UMLArtifact newArtifact = null;
-						if (artifact.equals("Class")) {
-							newArtifact = new ClassArtifact(("") +UMLClass.parseNameOrStereotype(parameters[1]), UMLClass.parseNameOrStereotype(parameters[2]));
-							newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
-							if (parameters[3].length() > 1) {
-								final String[] classAttributes = parameters[3].substring(0, parameters[3].lastIndexOf("%")).split("%");
-								for (final String attribute : classAttributes) {
-									((ClassArtifact) newArtifact).addAttribute(UMLClassAttribute.parseAttribute(attribute));
-								}
-							}
-							if (parameters[4].length() > 1) {
-								final String[] classMethods = parameters[4].substring(0, parameters[4].lastIndexOf("%")).split("%");
-								for (final String method : classMethods) {
-									((ClassArtifact) newArtifact).addMethod(UMLClassMethod.parseMethod(method));
-								}
-							}
-
-						} else if (artifact.equals("Object")) {
-							newArtifact = new ObjectArtifact(UMLObject.parseName(parameters[1]).get(0), ("") + UMLObject.parseName(parameters[1]).get(1),
-									UMLObject.parseStereotype(parameters[2]));
-							newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
-							if (parameters[3].length() > 1) {
-								final String[] objectAttributes = parameters[3].substring(0, parameters[3].lastIndexOf("%")).split("%");
-								for (final String attribute : objectAttributes) {
-									((ObjectArtifact) newArtifact).addAttribute(UMLObjectAttribute.parseAttribute(attribute));
-								}
-							}
-
-						} else if (artifact.equals("LifeLine")) {
-							newArtifact = new LifeLineArtifact(("") + UMLLifeLine.parseName(parameters[1]).get(1), UMLLifeLine.parseName(parameters[1]).get(0));
-							newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
-
-						} else if (artifact.equals("Note")) {
-							newArtifact = new NoteArtifact(parameters[1]);
-							newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
-
-						} else if (artifact.equals("LinkNote")) {
-							Integer noteId = 0;
-							Integer targetId = 0;
-							try {
-								noteId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								targetId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new LinkNoteArtifact((NoteArtifact) getArtifactById(artifactList, noteId), getArtifactById(artifactList, targetId));
-
-						} else if (artifact.equals("LinkClassRelation")) {
-							Integer classId = 0;
-							Integer relationId = 0;
-							try {
-								classId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								relationId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new LinkClassRelationArtifact((ClassArtifact) getArtifactById(artifactList, classId),
-									(ClassRelationLinkArtifact) getArtifactById(artifactList, relationId));
-
-						} else if (artifact.equals("ClassRelationLink")) {
-							Integer classLeftId = 0;
-							Integer classRigthId = 0;
-							try {
-								classLeftId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								classRigthId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new ClassRelationLinkArtifact((ClassArtifact) getArtifactById(artifactList, classLeftId),
-									(ClassArtifact) getArtifactById(artifactList, classRigthId), LinkKind.getRelationKindFromName(parameters[2]));
-							((ClassRelationLinkArtifact) newArtifact).setName(("") + parameters[3]);
-							((ClassRelationLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
-							((ClassRelationLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
-							((ClassRelationLinkArtifact) newArtifact).setLeftCardinality(parameters[6]);
-							((ClassRelationLinkArtifact) newArtifact).setLeftConstraint(parameters[7]);
-							((ClassRelationLinkArtifact) newArtifact).setLeftRole(parameters[8]);
-							((ClassRelationLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[9]));
-							((ClassRelationLinkArtifact) newArtifact).setRightCardinality(parameters[10]);
-							((ClassRelationLinkArtifact) newArtifact).setRightConstraint(parameters[11]);
-							((ClassRelationLinkArtifact) newArtifact).setRightRole(parameters[12]);
-
-						} else if (artifact.equals("ObjectRelationLink")) {
-							Integer objectLeftId = 0;
-							Integer objectRigthId = 0;
-							try {
-								objectLeftId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								objectRigthId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new ObjectRelationLinkArtifact((ObjectArtifact) getArtifactById(artifactList, objectLeftId),
-									(ObjectArtifact) getArtifactById(artifactList, objectRigthId), LinkKind.getRelationKindFromName(parameters[2]));
-							((ObjectRelationLinkArtifact) newArtifact).setName(("") + parameters[3]);
-							((ObjectRelationLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
-							((ObjectRelationLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
-							((ObjectRelationLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[6]));
-
-						} else if (artifact.equals("MessageLink")) {
-							Integer lifeLineLeftId = 0;
-							Integer lifeLineRigthId = 0;
-							try {
-								lifeLineLeftId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								lifeLineRigthId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new MessageLinkArtifact((LifeLineArtifact) getArtifactById(artifactList, lifeLineLeftId),
-									(LifeLineArtifact) getArtifactById(artifactList, lifeLineRigthId), LinkKind.getRelationKindFromName(parameters[2]));
-							((MessageLinkArtifact) newArtifact).setName(("") + parameters[3]);
-							((MessageLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
-							((MessageLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
-							((MessageLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[6]));
-
-						} else if (artifact.equals("InstantiationRelationLink")) {
-							Integer classId = 0;
-							Integer objectId = 0;
-							try {
-								classId = Integer.parseInt(parameters[0].replaceAll("[<>]", ""));
-								objectId = Integer.parseInt(parameters[1].replaceAll("[<>]", ""));
-							} catch (final Exception ex) {
-								Logger.getGlobal().severe("Parsing url, id is NaN : " + artifactWithParameters + " : " + ex);
-							}
-							newArtifact = new InstantiationRelationLinkArtifact((ClassArtifact) getArtifactById(artifactList, classId),
-									(ObjectArtifact) getArtifactById(artifactList, objectId), LinkKind.INSTANTIATION);
+					}
+					if (parameters[4].length() > 1) {
+						for (final String method : CanvasUrlReader.splitList(parameters[4])) {
+							((ClassArtifact) newArtifact).addMethod(UMLClassMethod.parseMethod(method));
 						}
-						if (newArtifact != null) {
-							newArtifact.setId(id);
-							artifactList.add(newArtifact);
+					}
+
+				} else if (artifact.equals("Object")) {
+					newArtifact = new ObjectArtifact(UMLObject.parseName(parameters[1]).get(0), ("") + UMLObject.parseName(parameters[1]).get(1),
+							UMLObject.parseStereotype(parameters[2]));
+					newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
+					if (parameters[3].length() > 1) {
+						for (final String attribute : CanvasUrlReader.splitList(parameters[3])) {
+							((ObjectArtifact) newArtifact).addAttribute(UMLObjectAttribute.parseAttribute(attribute));
 						}
+					}
 
+				} else if (artifact.equals("LifeLine")) {
+					newArtifact = new LifeLineArtifact(("") + UMLLifeLine.parseName(parameters[1]).get(1), UMLLifeLine.parseName(parameters[1]).get(0));
+					newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
+
+				} else if (artifact.equals("Note")) {
+					newArtifact = new NoteArtifact(parameters[1]);
+					newArtifact.setLocation(Point.add(Point.parse(parameters[0]), pasteShift));
+
+				} else if (artifact.equals("LinkNote")) {
+					Integer noteId = 0;
+					Integer targetId = 0;
+					try {
+						noteId = CanvasUrlReader.parseId(parameters[0]);
+						targetId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
+					}
+					newArtifact = new LinkNoteArtifact((NoteArtifact) getArtifactById(artifactList, noteId), getArtifactById(artifactList, targetId));
+
+				} else if (artifact.equals("LinkClassRelation")) {
+					Integer classId = 0;
+					Integer relationId = 0;
+					try {
+						classId = CanvasUrlReader.parseId(parameters[0]);
+						relationId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
 					}
+					newArtifact = new LinkClassRelationArtifact((ClassArtifact) getArtifactById(artifactList, classId),
+							(ClassRelationLinkArtifact) getArtifactById(artifactList, relationId));
+
+				} else if (artifact.equals("ClassRelationLink")) {
+					Integer classLeftId = 0;
+					Integer classRigthId = 0;
+					try {
+						classLeftId = CanvasUrlReader.parseId(parameters[0]);
+						classRigthId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
+					}
+					newArtifact = new ClassRelationLinkArtifact((ClassArtifact) getArtifactById(artifactList, classLeftId),
+							(ClassArtifact) getArtifactById(artifactList, classRigthId), LinkKind.getRelationKindFromName(parameters[2]));
+					((ClassRelationLinkArtifact) newArtifact).setName(("") + parameters[3]);
+					((ClassRelationLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
+					((ClassRelationLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
+					((ClassRelationLinkArtifact) newArtifact).setLeftCardinality(parameters[6]);
+					((ClassRelationLinkArtifact) newArtifact).setLeftConstraint(parameters[7]);
+					((ClassRelationLinkArtifact) newArtifact).setLeftRole(parameters[8]);
+					((ClassRelationLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[9]));
+					((ClassRelationLinkArtifact) newArtifact).setRightCardinality(parameters[10]);
+					((ClassRelationLinkArtifact) newArtifact).setRightConstraint(parameters[11]);
+					((ClassRelationLinkArtifact) newArtifact).setRightRole(parameters[12]);
+
+				} else if (artifact.equals("ObjectRelationLink")) {
+					Integer objectLeftId = 0;
+					Integer objectRigthId = 0;
+					try {
+						objectLeftId = CanvasUrlReader.parseId(parameters[0]);
+						objectRigthId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
+					}
+					newArtifact = new ObjectRelationLinkArtifact((ObjectArtifact) getArtifactById(artifactList, objectLeftId),
+							(ObjectArtifact) getArtifactById(artifactList, objectRigthId), LinkKind.getRelationKindFromName(parameters[2]));
+					((ObjectRelationLinkArtifact) newArtifact).setName(("") + parameters[3]);
+					((ObjectRelationLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
+					((ObjectRelationLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
+					((ObjectRelationLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[6]));
+
+				} else if (artifact.equals("MessageLink")) {
+					Integer lifeLineLeftId = 0;
+					Integer lifeLineRigthId = 0;
+					try {
+						lifeLineLeftId = CanvasUrlReader.parseId(parameters[0]);
+						lifeLineRigthId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
+					}
+					newArtifact = new MessageLinkArtifact((LifeLineArtifact) getArtifactById(artifactList, lifeLineLeftId),
+							(LifeLineArtifact) getArtifactById(artifactList, lifeLineRigthId), LinkKind.getRelationKindFromName(parameters[2]));
+					((MessageLinkArtifact) newArtifact).setName(("") + parameters[3]);
+					((MessageLinkArtifact) newArtifact).setLinkStyle(LinkStyle.getLinkStyleFromName(parameters[4]));
+					((MessageLinkArtifact) newArtifact).setLeftAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[5]));
+					((MessageLinkArtifact) newArtifact).setRightAdornment(LinkAdornment.getLinkAdornmentFromName(parameters[6]));
+
+				} else if (artifact.equals("InstantiationRelationLink")) {
+					Integer classId = 0;
+					Integer objectId = 0;
+					try {
+						classId = CanvasUrlReader.parseId(parameters[0]);
+						objectId = CanvasUrlReader.parseId(parameters[1]);
+					} catch (final Exception ex) {
+						Logger.getGlobal().severe("Parsing url, id is NaN : " + reader.getEntry() + " : " + ex);
+					}
+					newArtifact = new InstantiationRelationLinkArtifact((ClassArtifact) getArtifactById(artifactList, classId),
+							(ObjectArtifact) getArtifactById(artifactList, objectId), LinkKind.INSTANTIATION);
 				}
+				if (newArtifact != null) {
+					newArtifact.setId(id);
+					artifactList.add(newArtifact);
+				}
+
+
 			}
 		}
 		//} catch (final Exception ex) {
@@ -0,0 +1,375 @@
+package com.objetdirect.gwt.umldrawer.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umlapi.client.engine.Point;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlReader;
+import com.objetdirect.gwt.umldrawer.client.helpers.NameSimilarity;
+
+/**
+ * 自分の図と相手の図（どちらもデコード済みのキャンバスURL）を1つの図にまとめる。
+ *
+ * 自分の図をもとにして、相手の図の成果物を次のように足していく。
+ * <ul>
+ * <li>クラスなどの要素は、同じIDで同じ種類・似た名前なら同じものとみなす。残りは同じ種類の中で名前が最も似ているもの
+ * （類似度 NAME_THRESHOLD 以上）とみなす。どれとも対応しなければ新しいIDで追加する</li>
+ * <li>同じものとみなした要素は、属性・操作をそれぞれ集合として合わせる。位置は自分の図のものを使い、
+ * 自分の側が空の引数（ステレオタイプなど）だけ相手の値で埋める</li>
+ * <li>追加した要素が既にある要素と重なる時は、重ならなくなるまで下へずらす</li>
+ * <li>関連などの線は、両端を対応付け後のIDに付け替えて足す。同じ両端・同じ種類の線が既にあれば足さない。
+ * 端の要素が無くなった線は捨てる</li>
+ * </ul>
+ * 出力では要素を線より前に並べる（fromURL は線の両端が先に読まれていることを前提にしている）。
+ *
+ * NameSimilarity の作業用配列を持つので、1回のマージごとに作ること。
+ */
+public class CanvasMerger {
+
+	private static final Logger LOGGER = Logger.getLogger(CanvasMerger.class.getName());
+
+	/** 名前がこれ以上似ていれば同じ要素とみなす */
+	static final double NAME_THRESHOLD = 0.8;
+
+	/** 要素どうしがこの幅・高さより近ければ重なっているとみなす */
+	private static final int OVERLAP_X = 150;
+	private static final int OVERLAP_Y = 100;
+	/** 重なった時に下へずらす量と、ずらす回数の上限 */
+	private static final int SHIFT_Y = 120;
+	private static final int MAX_SHIFT = 50;
+
+	/** 1つの成果物（{@code <id>]種類$引数!引数...}） */
+	private static class Entry {
+		final int id;
+		final String type;
+		final String[] parameters;
+
+		Entry(int id, String type, String[] parameters) {
+			this.id = id;
+			this.type = type;
+			this.parameters = parameters;
+		}
+
+		/** 位置を持つ要素（最初の引数が座標）か。そうでなければ線 */
+		boolean isNode() {
+			return parameters.length > 0 && parameters[0].startsWith("(");
+		}
+
+		String getName() {
+			return parameters.length > 1 ? parameters[1] : "";
+		}
+	}
+
+	private final NameSimilarity similarity = new NameSimilarity();
+
+	private final List<Point> occupied = new ArrayList<Point>();
+
+	private int matchedNum = 0;
+	private int addedNum = 0;
+	private int linkAddedNum = 0;
+	private int linkDroppedNum = 0;
+
+	/**
+	 * @param myDiagram 自分の図（デコード済み）
+	 * @param opponentDiagram 相手の図（デコード済み）
+	 * @return まとめた図（デコード済み）。どちらも空なら空文字列
+	 */
+	public String merge(String myDiagram, String opponentDiagram) {
+		List<Entry> mine = read(myDiagram);
+		List<Entry> opponent = read(opponentDiagram);
+
+		List<Entry> nodes = new ArrayList<Entry>();
+		List<Entry> links = new ArrayList<Entry>();
+		Map<Integer, Entry> mineById = new HashMap<Integer, Entry>();
+		int nextId = 0;
+		for (Entry entry : mine) {
+			if (entry.isNode()) {
+				nodes.add(entry);
+				occupied.add(Point.parse(entry.parameters[0]));
+			}
+			else {
+				links.add(entry);
+			}
+			mineById.put(entry.id, entry);
+			nextId = Math.max(nextId, entry.id + 1);
+		}
+		List<Entry> mineNodes = new ArrayList<Entry>(nodes);
+
+		// 相手のID → まとめた図でのID
+		Map<Integer, Integer> idMap = new HashMap<Integer, Integer>();
+		Set<Entry> matched = new HashSet<Entry>();
+
+		// 要素: まずIDで、残りを名前の類似度で対応付ける
+		List<Entry> unmatched = new ArrayList<Entry>();
+		for (Entry theirs : opponent) {
+			if (!theirs.isNode()) {
+				continue;
+			}
+			Entry ours = mineById.get(theirs.id);
+			if (ours != null && ours.isNode() && !matched.contains(ours) && ours.type.equals(theirs.type)
+					&& nameSim(ours.getName(), theirs.getName()) >= NAME_THRESHOLD) {
+				mergeNode(ours, theirs);
+				matched.add(ours);
+				idMap.put(theirs.id, ours.id);
+			}
+			else {
+				unmatched.add(theirs);
+			}
+		}
+		// 同じ種類・同じ名前の要素は類似度を求めずに引けるようにしておく
+		Map<String, List<Entry>> mineByName = new HashMap<String, List<Entry>>();
+		for (Entry ours : mineNodes) {
+			String key = ours.type + "!" + ours.getName();
+			List<Entry> sameName = mineByName.get(key);
+			if (sameName == null) {
+				sameName = new ArrayList<Entry>();
+				mineByName.put(key, sameName);
+			}
+			sameName.add(ours);
+		}
+		for (Entry theirs : unmatched) {
+			Entry best = null;
+			double bestSim = -1;
+			List<Entry> sameName = mineByName.get(theirs.type + "!" + theirs.getName());
+			if (sameName != null) {
+				for (Entry ours : sameName) {
+					if (!matched.contains(ours)) {
+						best = ours;
+						break;
+					}
+				}
+			}
+			for (int i = 0; best == null && i < mineNodes.size(); i++) {
+				Entry ours = mineNodes.get(i);
+				if (matched.contains(ours) || !ours.type.equals(theirs.type)) {
+					continue;
+				}
+				double sim = nameSim(ours.getName(), theirs.getName());
+				if (sim >= NAME_THRESHOLD && sim > bestSim) {
+					best = ours;
+					bestSim = sim;
+				}
+			}
+			if (best != null) {
+				mergeNode(best, theirs);
+				matched.add(best);
+				idMap.put(theirs.id, best.id);
+			}
+			else {
+				String[] parameters = theirs.parameters.clone();
+				parameters[0] = place(parameters[0]);
+				Entry added = new Entry(nextId++, theirs.type, parameters);
+				nodes.add(added);
+				idMap.put(theirs.id, added.id);
+				addedNum++;
+			}
+		}
+
+		// 線: 両端を付け替えて、同じ線が無ければ足す
+		Map<String, Entry> linkByKey = new HashMap<String, Entry>();
+		for (Entry ours : links) {
+			String key = linkKey(ours.type, ours.parameters);
+			if (key != null) {
+				linkByKey.put(key, ours);
+			}
+		}
+		for (Entry theirs : opponent) {
+			if (theirs.isNode()) {
+				continue;
+			}
+			Integer left = mappedId(idMap, theirs, 0);
+			Integer right = mappedId(idMap, theirs, 1);
+			if (left == null || right == null) {
+				linkDroppedNum++;
+				continue;
+			}
+			String[] parameters = theirs.parameters.clone();
+			parameters[0] = "<" + left + ">";
+			parameters[1] = "<" + right + ">";
+			String key = linkKey(theirs.type, parameters);
+			Entry ours = linkByKey.get(key);
+			if (ours != null) {
+				fillEmpty(ours.parameters, parameters, 2);
+				idMap.put(theirs.id, ours.id);
+			}
+			else {
+				Entry added = new Entry(nextId++, theirs.type, parameters);
+				links.add(added);
+				linkByKey.put(key, added);
+				idMap.put(theirs.id, added.id);
+				linkAddedNum++;
+			}
+		}
+
+		StringBuilder merged = new StringBuilder();
+		write(nodes, merged);
+		write(links, merged);
+		return merged.toString();
+	}
+
+	/** 相手の要素と対応付けた要素の数 */
+	public int getMatchedNum() {
+		return matchedNum;
+	}
+
+	/** 相手の図から追加した要素の数 */
+	public int getAddedNum() {
+		return addedNum;
+	}
+
+	/** 相手の図から追加した線の数 */
+	public int getLinkAddedNum() {
+		return linkAddedNum;
+	}
+
+	/** 端の要素が見つからずに捨てた相手の線の数 */
+	public int getLinkDroppedNum() {
+		return linkDroppedNum;
+	}
+
+	private static List<Entry> read(String diagram) {
+		List<Entry> entries = new ArrayList<Entry>();
+		if (diagram == null) {
+			return entries;
+		}
+		CanvasUrlReader reader = new CanvasUrlReader(diagram);
+		while (reader.next()) {
+			try {
+				entries.add(new Entry(reader.getId(), reader.getType(), reader.getParameters()));
+			} catch (NumberFormatException e) {
+				// IDが読めない成果物は、まとめた図に含めない
+				LOGGER.warning("IDが読めない成果物を読み飛ばします: " + reader.getEntry());
+			}
+		}
+		return entries;
+	}
+
+	private static void write(List<Entry> entries, StringBuilder merged) {
+		for (Entry entry : entries) {
+			merged.append('<').append(entry.id).append(">]").append(entry.type).append('$');
+			for (int i = 0; i < entry.parameters.length; i++) {
+				if (i > 0) {
+					merged.append('!');
+				}
+				merged.append(entry.parameters[i]);
+			}
+			merged.append(';');
+		}
+	}
+
+	private double nameSim(String name1, String name2) {
+		if (name1.equals(name2)) {
+			return 1.0;
+		}
+		return similarity.sim(name1, name2);
+	}
+
+	/** 相手の要素 theirs を、対応付けた自分の要素 ours に合わせる */
+	private void mergeNode(Entry ours, Entry theirs) {
+		matchedNum++;
+		int length = Math.min(ours.parameters.length, theirs.parameters.length);
+		Set<Integer> lists = listParameters(ours.type);
+		for (int i = 1; i < length; i++) {
+			if (lists.contains(i)) {
+				ours.parameters[i] = union(ours.parameters[i], theirs.parameters[i]);
+			}
+		}
+		fillEmpty(ours.parameters, theirs.parameters, 2);
+		// 位置は自分の図を優先する。自分の側が原点（位置が読めなかった）の時だけ相手の位置を使う
+		if (Point.parse(ours.parameters[0]).isOrigin() && !Point.parse(theirs.parameters[0]).isOrigin()) {
+			ours.parameters[0] = theirs.parameters[0];
+		}
+	}
+
+	/** 属性・操作の並び（% 区切り）を持つ引数の位置 */
+	private static Set<Integer> listParameters(String type) {
+		Set<Integer> lists = new HashSet<Integer>();
+		if (type.equals("Class")) {
+			lists.add(3);
+			lists.add(4);
+		}
+		else if (type.equals("Object")) {
+			lists.add(3);
+		}
+		return lists;
+	}
+
+	/** 2つの並びを、順序を保った集合として合わせる */
+	private static String union(String ours, String theirs) {
+		// fromURL は1文字以下の並びを空として扱う
+		if (theirs.length() <= 1) {
+			return ours;
+		}
+		if (ours.length() <= 1) {
+			return theirs;
+		}
+		Set<String> items = new LinkedHashSet<String>(CanvasUrlReader.splitList(ours));
+		items.addAll(CanvasUrlReader.splitList(theirs));
+		StringBuilder list = new StringBuilder();
+		for (String item : items) {
+			list.append(item).append('%');
+		}
+		return list.toString();
+	}
+
+	/** from 番目以降の引数で、自分の側が空のものだけ相手の値で埋める */
+	private static void fillEmpty(String[] ours, String[] theirs, int from) {
+		int length = Math.min(ours.length, theirs.length);
+		for (int i = from; i < length; i++) {
+			if (ours[i].length() == 0 && theirs[i].length() > 0) {
+				ours[i] = theirs[i];
+			}
+		}
+	}
+
+	/** 追加する要素の位置。既にある要素と重なる間は下へずらす */
+	private String place(String position) {
+		Point point = Point.parse(position);
+		for (int i = 0; i < MAX_SHIFT && overlaps(point); i++) {
+			point.translate(0, SHIFT_Y);
+		}
+		occupied.add(point);
+		return point.toString();
+	}
+
+	private boolean overlaps(Point point) {
+		for (Point other : occupied) {
+			if (Math.abs(point.getX() - other.getX()) < OVERLAP_X && Math.abs(point.getY() - other.getY()) < OVERLAP_Y) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** 相手の線の index 番目の端を、まとめた図でのIDにする。読めない・対応が無ければ null */
+	private static Integer mappedId(Map<Integer, Integer> idMap, Entry link, int index) {
+		if (link.parameters.length <= index) {
+			return null;
+		}
+		try {
+			return idMap.get(CanvasUrlReader.parseId(link.parameters[index]));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/** 同じ線かどうかの判定に使うキー（種類・両端・関連の種類）。両端が読めなければ null */
+	private static String linkKey(String type, String[] parameters) {
+		if (parameters.length < 2) {
+			return null;
+		}
+		try {
+			int left = CanvasUrlReader.parseId(parameters[0]);
+			int right = CanvasUrlReader.parseId(parameters[1]);
+			return type + "!" + left + "!" + right + "!" + (parameters.length > 2 ? parameters[2] : "");
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
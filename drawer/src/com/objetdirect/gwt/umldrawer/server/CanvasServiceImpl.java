@@ -1,12 +1,8 @@
 package com.objetdirect.gwt.umldrawer.server;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.logging.Logger;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
@@ -16,6 +12,8 @@ import com.objetdirect.gwt.umldrawer.server.dao.Dao;
 
 public class CanvasServiceImpl extends RemoteServiceServlet implements CanvasService {
 
+	private static final Logger LOGGER = Logger.getLogger(CanvasServiceImpl.class.getName());
+
 	@Override
 	public void saveCanvas(String studentId, int exerciseId, String canvasUrl) {
 		Dao dao = new Dao();
@@ -83,88 +81,33 @@ public class CanvasServiceImpl extends RemoteServiceServlet implements CanvasSer
 //		return dao.getRecentSaveEvents(exerciseId, currentStudentId, limit);
 //	}
 
+	/**
+	 * 2つの図を CanvasMerger でまとめる（以前は外部のマージサーバーへHTTPで送っていた）
+	 */
 	@Override
 	public String mergeCanvas(String myUrl, String opponentUrl) {
-		HttpURLConnection connection = null;
 		try {
-			byte[] decodedMyBytes = Base64.getDecoder().decode(myUrl);
-			byte[] decodedOpponentBytes = Base64.getDecoder().decode(opponentUrl);
-			String decodedMyUrl = new String(decodedMyBytes, StandardCharsets.UTF_8);
-			String decodedOpponentUrl = new String(decodedOpponentBytes, StandardCharsets.UTF_8);
-
-			String pythonApiUrl = "http://host.docker.internal:8000/merge"; // Docker対応済み
-			String jsonInput = "{\"dataA\": \"" + escapeJson(decodedMyUrl) + "\", \"dataB\": \"" + escapeJson(decodedOpponentUrl) + "\"}";
-
-            // ▼▼▼ デバッグログ追加 (1/2) ▼▼▼
-            System.out.println("--- [CanvasServiceImpl] Python API Request ---");
-            System.out.println("MyData Length: " + decodedMyUrl.length());
-            System.out.println("OpponentData Length: " + decodedOpponentUrl.length());
-         // 「全データプレビューor先頭200文字」
-            System.out.println("MyData : " + decodedMyUrl);
-            System.out.println("OpponentData : " + decodedOpponentUrl);
-//            System.out.println("MyData (Preview): " + (decodedMyUrl.length() > 200 ? decodedMyUrl.substring(0, 200) : decodedMyUrl));
-//            System.out.println("OpponentData (Preview): " + (decodedOpponentUrl.length() > 200 ? decodedOpponentUrl.substring(0, 200) : decodedOpponentUrl));
-            System.out.println("----------------------------------------------");
-            // ▲▲▲ デバッグログ追加 ▲▲▲
-
-            URL url = new URL(pythonApiUrl);
-            connection = (HttpURLConnection) url.openConnection();
-
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json; utf-8");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(30000);
-
-            connection.setDoOutput(true);
-
-            try (OutputStream os = connection.getOutputStream()) {
-            	byte[] input = jsonInput.getBytes(StandardCharsets.UTF_8);
-            	os.write(input, 0, input.length);
-            	}
-
-            int responseCode = connection.getResponseCode();
-			if (responseCode != HttpURLConnection.HTTP_OK) {
-				String errorResponse = "";
-				try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-					String responseLine;
-					while ((responseLine = br.readLine()) != null) { errorResponse += responseLine.trim(); }
-				} catch (Exception readEx) { /* ignore */ }
-				throw new RuntimeException("Python API Error: HTTP " + responseCode + " - " + errorResponse);
+			String decodedMyUrl = new String(Base64.getDecoder().decode(myUrl), StandardCharsets.UTF_8);
+			String decodedOpponentUrl = new String(Base64.getDecoder().decode(opponentUrl), StandardCharsets.UTF_8);
+
+			long start = System.nanoTime();
+			CanvasMerger merger = new CanvasMerger();
+			String mergedPlainText = merger.merge(decodedMyUrl, decodedOpponentUrl);
+			LOGGER.fine("merged " + decodedMyUrl.length() + " + " + decodedOpponentUrl.length()
+					+ " chars -> " + mergedPlainText.length() + " chars in " + (System.nanoTime() - start) / 1000 + " us ("
+					+ merger.getMatchedNum() + " matched, " + merger.getAddedNum() + " added, "
+					+ merger.getLinkAddedNum() + " links added, " + merger.getLinkDroppedNum() + " links dropped)");
+
+			if (mergedPlainText.isEmpty()) {
+				return "AA==";
 			}
-
-
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-            	String responseLine = null;
-            	while ((responseLine = br.readLine()) != null) { response.append(responseLine.trim()); }
-            	}
-
-            String mergedPlainText = response.toString();
-
-            // ▼▼▼ デバッグログ追加 (2/2) ▼▼▼
-            System.out.println("--- [CanvasServiceImpl] Python API Response ---");
-            System.out.println("MergedData Length: " + mergedPlainText.length());
-            System.out.println("MergedData : " + mergedPlainText);
-//            System.out.println("MergedData Length: " + mergedPlainText.length());
-//            System.out.println("MergedData (Preview): " + (mergedPlainText.length() > 200 ? mergedPlainText.substring(0, 200) : mergedPlainText));
-            System.out.println("-----------------------------------------------");
-            // ▲▲▲ デバッグログ追加 ▲▲▲
-
-            return Base64.getEncoder().encodeToString(mergedPlainText.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(mergedPlainText.getBytes(StandardCharsets.UTF_8));
 
 		} catch (Exception e) {
 			System.err.println("!!! Exception in mergeCanvas !!!");
 			e.printStackTrace();
-			throw new RuntimeException("Failed to call or process Python merge service.", e);
-	        } finally {
-          if (connection != null) {
-              connection.disconnect();
-          }
-      }
-	}
-	private String escapeJson(String str) {
-	    if (str == null) { return ""; }
-	    return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t").replace("\f", "\\f").replace("\b", "\\b");
+			throw new RuntimeException("Failed to merge canvases.", e);
+		}
 	}
 
 }
@@ -11,6 +11,8 @@ import javax.servlet.http.HttpSession;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEventPage;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
 import com.objetdirect.gwt.umldrawer.client.viewer.LogViewerService;
 import com.objetdirect.gwt.umldrawer.server.dao.Dao;
 
@@ -89,5 +91,22 @@ public class LogViewerServiceImpl extends RemoteServiceServlet implements LogVie
 		return editEventList;
 	}
 
+	@Override
+	public EditEventPage getEditEventPageForReplay(String studentId, int exercisesId, int afterEditEventId, int pageSize, boolean withCanvasUrl) {
+		Dao dao = new Dao();
+		return dao.getEditEventPageForReplay(studentId, exercisesId, afterEditEventId, pageSize, withCanvasUrl);
+	}
+
+	@Override
+	public String getCanvasAt(int editEventId) {
+		Dao dao = new Dao();
+		return dao.getCanvasAt(editEventId);
+	}
+
+	@Override
+	public SimilarityTimeline getSimilarityTimeline(String studentId, int exercisesId) {
+		return SimilarityTimelineBuilder.build(studentId, exercisesId);
+	}
+
 }
 
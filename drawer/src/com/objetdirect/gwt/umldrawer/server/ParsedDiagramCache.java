@@ -0,0 +1,199 @@
+package com.objetdirect.gwt.umldrawer.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+import com.objetdirect.gwt.umldrawer.server.saito.AnswerElements;
+import com.objetdirect.gwt.umldrawer.server.saito.StudentElements;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.Dao_kifu6;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.SaveKIfUElements;
+
+/**
+ * 図のURL（デコード済み）を解析した結果を、URLの内容のハッシュ（SHA-256）ごとに覚えておく。
+ *
+ * 類似度・差分・分析の各サービスは同じ学生の図や解答を何度も解析しているので、ここを通して一度だけ解析する。
+ * 1回しか使わない図（リプレイ中の途中の図など）はここを通さず、AnalysisServiceImpl.fromURL で直接解析する。
+ * 1つの図について UMLArtifact のリストと、StudentElements / AnswerElements / SaveKIfUElements を
+ * 必要になった時に作って持つ。図の数は CACHE_SIZE までで、超えたら最も長く使われていない図から捨てる。
+ *
+ * UMLArtifact のリストは複数のリクエストで共有されるので、呼び出し側で書き換えないこと。
+ * 要素（StudentElements など）はチェックの中でフラグが書き換わるので、解析済みのものの複製を返す。
+ */
+public class ParsedDiagramCache {
+
+	private static final Logger LOGGER = Logger.getLogger(ParsedDiagramCache.class.getName());
+
+	/** 覚えておく図の数 */
+	private static final int CACHE_SIZE = 256;
+	/** 何回の取得ごとにヒット率をログに出すか */
+	private static final int LOG_INTERVAL = 1000;
+
+	private static final ParsedDiagramCache instance = new ParsedDiagramCache();
+
+	public static ParsedDiagramCache getInstance() {
+		return instance;
+	}
+
+	/** 1つの図の解析結果。どれも最初に要求された時に作る */
+	private static class ParsedDiagram {
+		List<UMLArtifact> artifacts;
+		StudentElements studentElements;
+		AnswerElements answerElements;
+		SaveKIfUElements kifuElements;
+	}
+
+	private final Map<String, ParsedDiagram> diagrams = new LinkedHashMap<String, ParsedDiagram>(CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ParsedDiagram> eldest) {
+			if (size() > CACHE_SIZE) {
+				evictionNum++;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private long hitNum = 0;
+	private long missNum = 0;
+	private long evictionNum = 0;
+
+	private ParsedDiagramCache() {
+	}
+
+	/**
+	 * 図の要素のリスト（AnalysisServiceImpl.fromURL と同じもの）。空の図なら空のリスト
+	 */
+	public List<UMLArtifact> getArtifacts(String decodedUrl) {
+		if (decodedUrl == null) {
+			return new AnalysisServiceImpl().fromURL(decodedUrl);
+		}
+		ParsedDiagram diagram = diagramOf(decodedUrl);
+		synchronized (diagram) {
+			if (record(diagram.artifacts != null)) {
+				return diagram.artifacts;
+			}
+			List<UMLArtifact> artifacts;
+			if (decodedUrl.indexOf(';') < 0) {
+				// 空の図
+				artifacts = new ArrayList<UMLArtifact>();
+			}
+			else {
+				artifacts = new AnalysisServiceImpl().fromURL(decodedUrl);
+			}
+			diagram.artifacts = Collections.unmodifiableList(artifacts);
+			return diagram.artifacts;
+		}
+	}
+
+	public StudentElements getStudentElements(String decodedUrl) {
+		if (decodedUrl == null) {
+			return new StudentElements(decodedUrl);
+		}
+		ParsedDiagram diagram = diagramOf(decodedUrl);
+		synchronized (diagram) {
+			if (!record(diagram.studentElements != null)) {
+				diagram.studentElements = new StudentElements(decodedUrl);
+			}
+			return new StudentElements(diagram.studentElements);
+		}
+	}
+
+	public AnswerElements getAnswerElements(String decodedUrl) {
+		if (decodedUrl == null) {
+			return new AnswerElements(decodedUrl);
+		}
+		ParsedDiagram diagram = diagramOf(decodedUrl);
+		synchronized (diagram) {
+			if (!record(diagram.answerElements != null)) {
+				diagram.answerElements = new AnswerElements(decodedUrl);
+			}
+			return new AnswerElements(diagram.answerElements);
+		}
+	}
+
+	/**
+	 * 差分チェック用の要素。分割には dao の分割メソッドを使う（どの学生の dao でも結果は同じ）
+	 */
+	public SaveKIfUElements getKifuElements(String decodedUrl, Dao_kifu6 dao) {
+		if (decodedUrl == null) {
+			return new SaveKIfUElements(dao, decodedUrl);
+		}
+		ParsedDiagram diagram = diagramOf(decodedUrl);
+		synchronized (diagram) {
+			if (!record(diagram.kifuElements != null)) {
+				diagram.kifuElements = new SaveKIfUElements(dao, decodedUrl);
+			}
+			return new SaveKIfUElements(diagram.kifuElements);
+		}
+	}
+
+	public synchronized long getHitNum() {
+		return hitNum;
+	}
+
+	public synchronized long getMissNum() {
+		return missNum;
+	}
+
+	public synchronized long getEvictionNum() {
+		return evictionNum;
+	}
+
+	public synchronized int size() {
+		return diagrams.size();
+	}
+
+	/** 全ての図を捨てる（ヒット数などはそのまま） */
+	public synchronized void clear() {
+		diagrams.clear();
+	}
+
+	private synchronized ParsedDiagram diagramOf(String decodedUrl) {
+		String key = hash(decodedUrl);
+		ParsedDiagram diagram = diagrams.get(key);
+		if (diagram == null) {
+			diagram = new ParsedDiagram();
+			diagrams.put(key, diagram);
+		}
+		return diagram;
+	}
+
+	/** ヒットかミスかを数え、ヒットなら true を返す */
+	private synchronized boolean record(boolean hit) {
+		if (hit) {
+			hitNum++;
+		}
+		else {
+			missNum++;
+		}
+		long total = hitNum + missNum;
+		if (total % LOG_INTERVAL == 0) {
+			LOGGER.info("parsed diagram cache: " + hitNum + " hits, " + missNum + " misses ("
+					+ (hitNum * 100 / total) + "%), " + diagrams.size() + " diagrams, " + evictionNum + " evicted");
+		}
+		return hit;
+	}
+
+	private static String hash(String decodedUrl) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] bytes = digest.digest(decodedUrl.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(bytes.length * 2);
+			for (byte b : bytes) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 はどのJVMにもある
+			throw new IllegalStateException(e);
+		}
+	}
+}
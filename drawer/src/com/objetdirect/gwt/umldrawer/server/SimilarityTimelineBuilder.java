@@ -0,0 +1,160 @@
+package com.objetdirect.gwt.umldrawer.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEventPage;
+import com.objetdirect.gwt.umldrawer.client.beans.SimilarityTimeline;
+import com.objetdirect.gwt.umldrawer.client.helpers.SimilarityManager;
+import com.objetdirect.gwt.umldrawer.server.dao.Dao;
+
+/**
+ * 編集イベントを順に受け取り、解答に対する類似度(CS, RS)の推移を作る。
+ *
+ * 類似度に関わるのはクラス（名前・属性・操作）と関連だけなので、図からその部分だけを取り出した
+ * 「構造」を前のイベントと比べ、変わっていなければ前の値をそのまま使う（位置だけが変わる Place など）。
+ * 構造が変わった時だけ図を復元して SimilarityManager で計算し直す。
+ * Undo や消して作り直した時のように以前と同じ構造に戻ることも多いので、構造ごとの結果を少し覚えておく。
+ */
+public class SimilarityTimelineBuilder {
+
+	private static final Logger LOGGER = Logger.getLogger(SimilarityTimelineBuilder.class.getName());
+
+	/** 構造ごとの類似度を覚えておく数 */
+	private static final int MEMO_SIZE = 64;
+
+	private final Dao dao;
+	private final List<UMLArtifact> answer;
+	private final SimilarityTimeline timeline;
+
+	private final Map<String, double[]> memo = new LinkedHashMap<String, double[]>(MEMO_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+			return size() > MEMO_SIZE;
+		}
+	};
+
+	private String lastCanvasUrl = null;
+	private String lastStructure = null;
+	/** 今の図の { CS, RS } */
+	private double[] scores = null;
+	private int eventNum = 0;
+	private int recomputeNum = 0;
+
+	public SimilarityTimelineBuilder(String studentId, List<UMLArtifact> answer, Dao dao) {
+		this.timeline = new SimilarityTimeline(studentId);
+		this.answer = answer;
+		this.dao = dao;
+	}
+
+	/**
+	 * 学生のリプレイ対象のイベントを edit_event_id 順にページ単位で読みながら推移を作る
+	 */
+	public static SimilarityTimeline build(String studentId, int exercisesId) {
+		Dao dao = new Dao();
+		List<UMLArtifact> answer = new ArrayList<UMLArtifact>();
+		String answerUrl = dao.base64ToString(dao.getAnswer(exercisesId));
+		if (answerUrl != null) {
+			// 解答は同じ課題の学生ごとに使うのでキャッシュを通す
+			answer = ParsedDiagramCache.getInstance().getArtifacts(answerUrl);
+		}
+		SimilarityTimelineBuilder builder = new SimilarityTimelineBuilder(studentId, answer, dao);
+		int cursor = 0;
+		EditEventPage page;
+		do {
+			page = dao.getEditEventPageForReplay(studentId, exercisesId, cursor, Dao.MAX_REPLAY_PAGE_SIZE, true);
+			for (EditEvent ev : page.getEvents()) {
+				builder.add(ev);
+			}
+			cursor = page.getNextCursor();
+		} while (page.hasMore());
+		return builder.getTimeline();
+	}
+
+	public void add(EditEvent ev) {
+		eventNum++;
+		// canvas_url を持たないイベントでは図は変わらない
+		if (ev.getCanvasUrl() != null && !ev.getCanvasUrl().equals(lastCanvasUrl)) {
+			lastCanvasUrl = ev.getCanvasUrl();
+			update(dao.base64ToString(lastCanvasUrl));
+		}
+		if ("Start".equals(ev.getEventType())) {
+			return;
+		}
+		if (scores == null) {
+			update("");
+		}
+		timeline.add(ev.getEditDatetime(), scores[0], scores[1]);
+	}
+
+	public SimilarityTimeline getTimeline() {
+		timeline.setEventNum(eventNum);
+		LOGGER.fine(timeline.getStudentId() + ": " + eventNum + " events, " + recomputeNum + " recomputed");
+		return timeline;
+	}
+
+	private void update(String decodedUrl) {
+		String structure = structureOf(decodedUrl);
+		if (structure.equals(lastStructure)) {
+			return;
+		}
+		lastStructure = structure;
+		double[] memoized = memo.get(structure);
+		if (memoized == null) {
+			List<UMLArtifact> diagram = parse(decodedUrl);
+			memoized = new double[] {
+					new SimilarityManager().getClassSimilarity(diagram, answer),
+					new SimilarityManager().getRelationSimilarity(diagram, answer) };
+			memo.put(structure, memoized);
+			recomputeNum++;
+		}
+		scores = memoized;
+	}
+
+	/**
+	 * 図のURL（デコード済み）から、類似度に関わる部分だけを取り出す。
+	 * クラスは位置を除いた名前・属性・操作、関連は全体を残し、それ以外の要素は捨てる。
+	 * あわせて、最後の図のクラス数と関連数を timeline に入れる。
+	 */
+	private String structureOf(String decodedUrl) {
+		StringBuilder structure = new StringBuilder();
+		int classNum = 0;
+		int relationNum = 0;
+		int start = 0;
+		int end;
+		while ((end = decodedUrl.indexOf(';', start)) >= 0) {
+			int typeStart = decodedUrl.indexOf(']', start) + 1;
+			int typeEnd = decodedUrl.indexOf('$', start);
+			if (typeStart > 0 && typeEnd > typeStart && typeEnd < end) {
+				if (decodedUrl.startsWith("Class$", typeStart)) {
+					// 位置（最初の!まで）を除く
+					int location = decodedUrl.indexOf('!', typeEnd);
+					if (location >= 0 && location < end) {
+						structure.append(decodedUrl, start, typeEnd + 1).append(decodedUrl, location, end).append(';');
+						classNum++;
+					}
+				}
+				else if (decodedUrl.startsWith("ClassRelationLink$", typeStart)) {
+					structure.append(decodedUrl, start, end).append(';');
+					relationNum++;
+				}
+			}
+			start = end + 1;
+		}
+		timeline.setClassNum(classNum);
+		timeline.setRelationNum(relationNum);
+		return structure.toString();
+	}
+
+	/**
+	 * 途中の図は1回しか解析しないので、キャッシュを通さずに解析する（キャッシュに入れると解答などを追い出してしまう）
+	 */
+	private static List<UMLArtifact> parse(String decodedUrl) {
+		return new AnalysisServiceImpl().fromURL(decodedUrl);
+	}
+}
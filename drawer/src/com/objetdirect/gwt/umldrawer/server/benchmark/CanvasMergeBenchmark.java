@@ -0,0 +1,121 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlReader;
+import com.objetdirect.gwt.umldrawer.server.CanvasMerger;
+
+/**
+ * {@link CanvasMerger} の計測。
+ * 自分の図と、それを少し変えた相手の図（IDをずらし、一部のクラス名・属性を変え、クラスと関連を足したもの）をまとめる時間を測る。
+ * まとめた図について、IDが重複していないこと、線の両端が線より前にあること、対応するクラスが二重になっていないことも確かめる。
+ *
+ * 使い方: java CanvasMergeBenchmark [自分の canvas_url のファイル 相手の canvas_url のファイル]（base64 でもデコード済みでもよい）
+ * ファイルを渡さなければ、クラス100個・500個・2000個の図を作って計測する。
+ */
+public class CanvasMergeBenchmark {
+
+	private static final int ROUNDS = 50;
+
+	public static void main(String[] args) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<String[]> pairs = new ArrayList<String[]>();
+		if (args.length >= 2) {
+			names.add(args[0] + " + " + args[1]);
+			pairs.add(new String[] { readFile(args[0]), readFile(args[1]) });
+		}
+		else {
+			for (int classNum : new int[] { 100, 500, 2000 }) {
+				Random random = new Random(classNum);
+				names.add(classNum + " classes");
+				pairs.add(new String[] { makeDiagram(classNum, 0, false, random), makeDiagram(classNum, 10000, true, random) });
+			}
+		}
+
+		for (int i = 0; i < names.size(); i++) {
+			String mine = pairs.get(i)[0];
+			String opponent = pairs.get(i)[1];
+			CanvasMerger merger = new CanvasMerger();
+			String merged = merger.merge(mine, opponent);
+			check(names.get(i), merged);
+
+			// JIT を温めてから計測する
+			for (int r = 0; r < ROUNDS; r++) {
+				new CanvasMerger().merge(mine, opponent);
+			}
+			long start = System.nanoTime();
+			for (int r = 0; r < ROUNDS; r++) {
+				new CanvasMerger().merge(mine, opponent);
+			}
+			long elapsed = System.nanoTime() - start;
+
+			System.out.printf("%s: %d + %d chars -> %d chars%n", names.get(i), mine.length(), opponent.length(), merged.length());
+			System.out.printf("  %d matched, %d added, %d links added, %d links dropped%n", merger.getMatchedNum(), merger.getAddedNum(),
+					merger.getLinkAddedNum(), merger.getLinkDroppedNum());
+			System.out.printf("  merge: %8.3f ms per call%n", elapsed / 1e6 / ROUNDS);
+		}
+	}
+
+	private static String readFile(String file) throws IOException {
+		String content = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8).trim();
+		if (content.indexOf(';') < 0) {
+			content = new String(Base64.getDecoder().decode(content), StandardCharsets.UTF_8);
+		}
+		return content;
+	}
+
+	private static void check(String name, String merged) {
+		Set<Integer> ids = new HashSet<Integer>();
+		Set<String> classNames = new HashSet<String>();
+		CanvasUrlReader reader = new CanvasUrlReader(merged);
+		while (reader.next()) {
+			String[] parameters = reader.getParameters();
+			if (!ids.add(reader.getId())) {
+				throw new IllegalStateException(name + ": IDが重複しています: " + reader.getEntry());
+			}
+			if (reader.getType().equals("Class") && !classNames.add(parameters[1])) {
+				throw new IllegalStateException(name + ": クラスが二重になっています: " + reader.getEntry());
+			}
+			if (!parameters[0].startsWith("(")
+					&& !(ids.contains(CanvasUrlReader.parseId(parameters[0])) && ids.contains(CanvasUrlReader.parseId(parameters[1])))) {
+				throw new IllegalStateException(name + ": 線の端が見つかりません: " + reader.getEntry());
+			}
+		}
+	}
+
+	/**
+	 * クラスと関連からなる図（デコード済みのURL）。
+	 * variant なら、IDを idOffset だけずらし、10個に1個のクラス名の末尾に s を付け、属性を1つ足し、クラスを1割足す
+	 */
+	private static String makeDiagram(int classNum, int idOffset, boolean variant, Random random) {
+		StringBuilder url = new StringBuilder();
+		int total = variant ? classNum + classNum / 10 : classNum;
+		for (int c = 0; c < total; c++) {
+			String className = (c < classNum ? "Class" : "Extra") + c + (variant && c % 10 == 3 ? "s" : "");
+			url.append('<').append(idOffset + c).append(">]Class$(").append((c % 20) * 200).append(',').append((c / 20) * 150).append(")!")
+					.append(className).append("!!");
+			for (int a = 0; a < 3; a++) {
+				url.append("-attribute").append(a).append(" : String%");
+			}
+			if (variant) {
+				url.append("-added : int%");
+			}
+			url.append("!+method0(value : int) : void%;");
+		}
+		int id = idOffset + total;
+		for (int r = 0; r < total; r++) {
+			url.append('<').append(id++).append(">]ClassRelationLink$<").append(idOffset + r).append(">!<").append(idOffset + (r * 7 + 1) % total)
+					.append(">!Association!!SOLID!NONE!1!!!NONE!0..*!!").append(random.nextBoolean() ? "role" : "").append(';');
+		}
+		return url.toString();
+	}
+}
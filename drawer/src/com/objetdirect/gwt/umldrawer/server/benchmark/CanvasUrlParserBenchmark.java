@@ -0,0 +1,186 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import com.objetdirect.gwt.umlapi.client.engine.Point;
+import com.objetdirect.gwt.umlapi.client.helpers.CanvasUrlReader;
+
+/**
+ * キャンバスURLの読み込みの計測。
+ * 以前の fromURL の読み方（; $ ] ! % での split、replaceAll でのID、matches での座標）と、
+ * {@link CanvasUrlReader} と {@link Point#parse(String)} での読み方で、大きな図を読む時間を比べる。
+ * 成果物の生成（UMLArtifact の new）は両方で同じなので、ここでは文字列の分解までを比べる。
+ * 読み出した種類・ID・引数・座標・属性/操作の並びが両方で一致することも確かめる。
+ *
+ * 使い方: java CanvasUrlParserBenchmark [記録した canvas_url のファイル（base64 でもデコード済みでもよい）...]
+ * ファイルを渡さなければ、クラス100個と500個の図を作って計測する。
+ */
+public class CanvasUrlParserBenchmark {
+
+	private static final int ROUNDS = 200;
+
+	public static void main(String[] args) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<String> diagrams = new ArrayList<String>();
+		if (args.length == 0) {
+			for (int classNum : new int[] { 100, 500 }) {
+				names.add(classNum + " classes");
+				diagrams.add(makeDiagram(classNum, new Random(classNum)));
+			}
+		}
+		for (String file : args) {
+			String content = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8).trim();
+			if (content.indexOf(';') < 0) {
+				content = new String(Base64.getDecoder().decode(content), StandardCharsets.UTF_8);
+			}
+			names.add(file);
+			diagrams.add(content);
+		}
+
+		for (int i = 0; i < names.size(); i++) {
+			String diagram = diagrams.get(i);
+			List<String> expected = new ArrayList<String>();
+			List<String> actual = new ArrayList<String>();
+			readWithSplit(diagram, expected);
+			readWithReader(diagram, actual);
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException(names.get(i) + ": 読み出した内容が一致しません");
+			}
+
+			// JIT を温めてから計測する
+			for (int r = 0; r < ROUNDS; r++) {
+				readWithSplit(diagram, null);
+				readWithReader(diagram, null);
+			}
+			long start = System.nanoTime();
+			for (int r = 0; r < ROUNDS; r++) {
+				readWithSplit(diagram, null);
+			}
+			long split = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < ROUNDS; r++) {
+				readWithReader(diagram, null);
+			}
+			long reader = System.nanoTime() - start;
+
+			System.out.printf("%s: %d chars, %d tokens%n", names.get(i), diagram.length(), expected.size());
+			System.out.printf("  split / regex     : %8.3f ms per canvas%n", split / 1e6 / ROUNDS);
+			System.out.printf("  CanvasUrlReader   : %8.3f ms per canvas (x%.1f)%n", reader / 1e6 / ROUNDS, (double) split / reader);
+		}
+	}
+
+	/** 以前の fromURL と同じ分け方。tokens が null でなければ読み出した内容を入れる */
+	private static int readWithSplit(String diagram, List<String> tokens) {
+		int count = 0;
+		diagram = diagram.substring(0, diagram.lastIndexOf(";"));
+		final String[] diagramArtifacts = diagram.split(";");
+		for (final String artifactWithParameters : diagramArtifacts) {
+			if (!artifactWithParameters.equals("")) {
+				final String[] artifactAndParameters = artifactWithParameters.split("\\$");
+				if (artifactAndParameters.length > 1) {
+					final String[] artifactAndId = artifactAndParameters[0].split("]");
+					final String[] parameters = artifactAndParameters[1].split("!", -1);
+					final String artifact = artifactAndId[1];
+					int id = Integer.parseInt(artifactAndId[0].replaceAll("[<>]", ""));
+					count += add(tokens, artifact + "#" + id);
+					if (artifact.equals("Class")) {
+						count += add(tokens, oldParsePoint(parameters[0]).toString());
+						for (int p = 3; p <= 4; p++) {
+							if (parameters[p].length() > 1) {
+								for (String item : parameters[p].substring(0, parameters[p].lastIndexOf("%")).split("%")) {
+									count += add(tokens, item);
+								}
+							}
+						}
+					}
+					else if (artifact.endsWith("Link")) {
+						count += add(tokens, Integer.parseInt(parameters[0].replaceAll("[<>]", "")) + ">" + Integer.parseInt(parameters[1].replaceAll("[<>]", "")));
+					}
+					for (String parameter : parameters) {
+						count += add(tokens, parameter);
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int readWithReader(String diagram, List<String> tokens) {
+		int count = 0;
+		final CanvasUrlReader reader = new CanvasUrlReader(diagram);
+		while (reader.next()) {
+			final String[] parameters = reader.getParameters();
+			final String artifact = reader.getType();
+			count += add(tokens, artifact + "#" + reader.getId());
+			if (artifact.equals("Class")) {
+				count += add(tokens, Point.parse(parameters[0]).toString());
+				for (int p = 3; p <= 4; p++) {
+					if (parameters[p].length() > 1) {
+						for (String item : CanvasUrlReader.splitList(parameters[p])) {
+							count += add(tokens, item);
+						}
+					}
+				}
+			}
+			else if (artifact.endsWith("Link")) {
+				count += add(tokens, CanvasUrlReader.parseId(parameters[0]) + ">" + CanvasUrlReader.parseId(parameters[1]));
+			}
+			for (String parameter : parameters) {
+				count += add(tokens, parameter);
+			}
+		}
+		return count;
+	}
+
+	private static int add(List<String> tokens, String token) {
+		if (tokens != null) {
+			tokens.add(token);
+		}
+		return token.length();
+	}
+
+	/** 以前の Point.parse */
+	private static Point oldParsePoint(final String pointString) {
+		if (pointString.matches("\\(\\-?[0-9]+,\\-?[0-9]+\\)")) {
+			final String[] coordinates = pointString.replaceAll("[\\(\\)]", "").split(",");
+			return new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+		}
+		return Point.getOrigin();
+	}
+
+	/** クラス（属性・操作つき）、関連、ノートからなる図（デコード済みのURL） */
+	private static String makeDiagram(int classNum, Random random) {
+		StringBuilder url = new StringBuilder();
+		int id = 0;
+		for (int c = 0; c < classNum; c++) {
+			url.append('<').append(id++).append(">]Class$(").append(random.nextInt(2000)).append(',').append(random.nextInt(2000)).append(")!Class").append(c).append("!!");
+			int attributeNum = random.nextInt(6);
+			for (int a = 0; a < attributeNum; a++) {
+				url.append("-attribute").append(a).append(" : String%");
+			}
+			url.append('!');
+			int methodNum = random.nextInt(4);
+			for (int m = 0; m < methodNum; m++) {
+				url.append("+method").append(m).append("(value : int) : void%");
+			}
+			url.append(';');
+		}
+		for (int r = 0; r < classNum * 3 / 2; r++) {
+			url.append('<').append(id++).append(">]ClassRelationLink$<").append(random.nextInt(classNum)).append(">!<").append(random.nextInt(classNum))
+					.append(">!Association!relation").append(r).append("!SOLID!NONE!1!!!NONE!0..*!!role").append(r).append(';');
+		}
+		for (int n = 0; n < classNum / 10; n++) {
+			url.append('<').append(id++).append(">]Note$(").append(random.nextInt(2000)).append(',').append(random.nextInt(2000)).append(")!メモ").append(n).append(';');
+		}
+		// 以前の split が読み飛ばしていた形（空の成果物、引数の無い成果物、最後の ; より後ろ）
+		url.append(';').append('<').append(id++).append(">]Removed$;").append('<').append(id++).append(">]Removed$$;<").append(id).append(">]Class$(0,0)");
+		return url.toString();
+	}
+}
@@ -0,0 +1,214 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+
+import com.google.gson.JsonObject;
+import com.objetdirect.gwt.umldrawer.server.collaboration.CollaborationWebSocket;
+import com.objetdirect.gwt.umldrawer.server.collaboration.OperationManager;
+
+/**
+ * CollaborationWebSocket の負荷計測ハーネス。
+ * N個のエクササイズに対して同時にテキスト編集操作を onMessage へ流し込み、
+ * スループット(ops/sec)と p99 レイテンシを標準出力へ表示する。
+ *
+ * DBは切り離し、送信はダミーのSessionに対して行う（ネットワークI/Oは含まない）。
+ *
+ * 使い方: java CollaborationLoadHarness [エクササイズ数] [エクササイズあたりのクライアント数] [クライアントあたりの操作数]
+ */
+public class CollaborationLoadHarness {
+
+    private static final AtomicInteger sessionIds = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int exercises = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int clientsPerExercise = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int opsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        Logger.getLogger(CollaborationWebSocket.class.getPackage().getName()).setLevel(Level.WARNING);
+        CollaborationWebSocket.persistOperations = false;
+        OperationManager.recoverFromLog = false;
+        CollaborationWebSocket.notifySourceCodeChanges = false;
+
+        // ウォームアップ
+        run(exercises, clientsPerExercise, Math.max(1, opsPerClient / 4), 100000, false);
+        run(exercises, clientsPerExercise, opsPerClient, 200000, true);
+    }
+
+    private static void run(int exercises, int clientsPerExercise, int opsPerClient,
+                            int exerciseIdBase, boolean report) throws InterruptedException {
+        final CollaborationWebSocket endpoint = new CollaborationWebSocket();
+        int clients = exercises * clientsPerExercise;
+        final long[][] latencies = new long[clients][];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(clients);
+        List<Thread> threads = new ArrayList<>();
+        // エクササイズごとの送信済み操作数（クライアントの既読シーケンスの近似に使う）
+        final AtomicInteger[] sent = new AtomicInteger[exercises];
+
+        for (int e = 0; e < exercises; e++) {
+            for (int c = 0; c < clientsPerExercise; c++) {
+                if (sent[e] == null) {
+                    sent[e] = new AtomicInteger();
+                }
+                final AtomicInteger exerciseSent = sent[e];
+                final int exerciseId = exerciseIdBase + e;
+                final int clientIndex = e * clientsPerExercise + c;
+                final Session session = createSession(exerciseId);
+                endpoint.onOpen(session, String.valueOf(exerciseId));
+                final long[] samples = new long[opsPerClient];
+                latencies[clientIndex] = samples;
+
+                Thread t = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < samples.length; i++) {
+                            // 他クライアントの直近の操作はまだ受信していない想定
+                            int basedOn = Math.max(0, exerciseSent.getAndIncrement() - clientsPerExercise);
+                            String message = createEditMessage(exerciseId, clientIndex, i, basedOn);
+                            long begin = System.nanoTime();
+                            endpoint.onMessage(message, session);
+                            samples[i] = System.nanoTime() - begin;
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "harness-client-" + clientIndex);
+                threads.add(t);
+                t.start();
+            }
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        if (!report) {
+            return;
+        }
+
+        long[] all = new long[clients * opsPerClient];
+        int pos = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 0, all, pos, samples.length);
+            pos += samples.length;
+        }
+        Arrays.sort(all);
+
+        double opsPerSec = all.length / (elapsed / 1e9);
+        System.out.println("exercises=" + exercises
+                + " clients/exercise=" + clientsPerExercise
+                + " ops/client=" + opsPerClient);
+        System.out.println(String.format("throughput: %.0f ops/sec", opsPerSec));
+        System.out.println(String.format("latency p50: %.1f us, p99: %.1f us, max: %.1f us",
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String createEditMessage(int exerciseId, int clientIndex, int seq, int basedOn) {
+        JsonObject json = new JsonObject();
+        json.addProperty("action", "editOperation");
+        json.addProperty("clientSequence", seq + 1);
+        json.addProperty("basedOnServerSequence", basedOn);
+        json.addProperty("userId", "user" + clientIndex);
+        // クライアントごとに別の要素名の末尾へ1文字ずつ追記する
+        String beforeText = "class" + seq;
+        String afterText = "class" + (seq + 1);
+        json.addProperty("elementId", "element-" + clientIndex);
+        json.addProperty("partId", "name");
+        json.addProperty("operationType", "text_update");
+        json.addProperty("patchText", patchText(beforeText, afterText));
+        json.addProperty("beforeText", beforeText);
+        json.addProperty("afterText", afterText);
+        json.addProperty("exerciseId", exerciseId);
+        json.addProperty("timestamp", System.currentTimeMillis());
+        return json.toString();
+    }
+
+    private static String patchText(String beforeText, String afterText) {
+        DiffMatchPatch dmp = new DiffMatchPatch();
+        return dmp.patchToText(dmp.patchMake(beforeText, afterText));
+    }
+
+    /**
+     * 送信内容を捨てるダミーのSessionを生成
+     */
+    static Session createSession(int exerciseId) {
+        final String id = "harness-" + sessionIds.incrementAndGet();
+        final Map<String, Object> userProperties = new HashMap<>();
+        final Map<String, String> pathParameters = new HashMap<>();
+        pathParameters.put("exerciseId", String.valueOf(exerciseId));
+
+        final RemoteEndpoint.Basic basic = (RemoteEndpoint.Basic) Proxy.newProxyInstance(
+                CollaborationLoadHarness.class.getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Basic.class },
+                (proxy, method, args) -> defaultValue(method.getReturnType()));
+
+        final RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                CollaborationLoadHarness.class.getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class },
+                (proxy, method, args) -> {
+                    if (args != null) {
+                        for (Object arg : args) {
+                            if (arg instanceof SendHandler) {
+                                ((SendHandler) arg).onResult(new SendResult());
+                                return null;
+                            }
+                        }
+                    }
+                    if (method.getReturnType() == java.util.concurrent.Future.class) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId": return id;
+                case "isOpen": return true;
+                case "getBasicRemote": return basic;
+                case "getAsyncRemote": return async;
+                case "getUserProperties": return userProperties;
+                case "getPathParameters": return pathParameters;
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return id;
+                default: return defaultValue(method.getReturnType());
+            }
+        };
+        return (Session) Proxy.newProxyInstance(
+                CollaborationLoadHarness.class.getClassLoader(),
+                new Class<?>[] { Session.class }, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import com.objetdirect.gwt.umldrawer.server.evaluater.GreedyMatcher;
+
+/**
+ * {@link GreedyMatcher} が、DiagramEvaluater の以前のループ（行列全体から最大の組を探して対応させ、
+ * その行と列を -1 で消す、をしきい値を下回るまで繰り返す）と同じ組を選ぶことを、ランダムな行列で確かめる。
+ *
+ * 以前のループは LinkedHashMap を行、列の順に見て「より大きい」組だけを取り直すので、
+ * 同じスコアなら行、列の番号が小さい組が先に選ばれる。同点を多く作るため、スコアの多くは 0.1 刻みにする。
+ *
+ * 使い方: java GreedyMatcherTest [行列の数] [シード]
+ */
+public class GreedyMatcherTest {
+
+	/** DiagramEvaluater で使っているしきい値（クラスの対応 0.4、属性の対応 0.3） */
+	private static final double[] THRESHOLDS = { 0.4, 0.3 };
+
+	public static void main(String[] args) {
+		int matrices = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 12345L;
+		Random random = new Random(seed);
+
+		int tieNum = 0;
+		int matchedNum = 0;
+		for (int n = 0; n < matrices; n++) {
+			// 大半は図のクラス数・属性数くらいの大きさ、時々大きな行列も混ぜる
+			int rows = random.nextInt(50) == 0 ? 20 + random.nextInt(40) : random.nextInt(13);
+			int cols = random.nextInt(50) == 0 ? 20 + random.nextInt(40) : random.nextInt(13);
+			double[][] score = randomMatrix(random, rows, cols);
+			double threshold = THRESHOLDS[random.nextInt(THRESHOLDS.length)];
+
+			int[] expected = oldLoop(score, threshold);
+			int[] actual = GreedyMatcher.match(score, threshold);
+			if (!Arrays.equals(expected, actual)) {
+				throw new IllegalStateException("行列 " + n + " (" + rows + "x" + cols + ", しきい値 " + threshold + "): 以前のループ "
+						+ Arrays.toString(expected) + ", GreedyMatcher " + Arrays.toString(actual) + "\n" + Arrays.deepToString(score));
+			}
+			if (hasTie(score, threshold)) {
+				tieNum++;
+			}
+			for (int col : actual) {
+				if (col >= 0) {
+					matchedNum++;
+				}
+			}
+		}
+		System.out.println(matrices + " matrices compared (" + tieNum + " with tied scores), " + matchedNum + " pairs matched");
+		System.out.println("GreedyMatcherTest end");
+	}
+
+	private static double[][] randomMatrix(Random random, int rows, int cols) {
+		double[][] score = new double[rows][cols];
+		boolean discrete = random.nextInt(4) != 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				int kind = random.nextInt(100);
+				if (kind == 0) {
+					// 属性の無いクラスでは割り算が NaN になりうる
+					score[i][j] = Double.NaN;
+				}
+				else if (discrete) {
+					score[i][j] = random.nextInt(11) / 10.0;
+				}
+				else {
+					score[i][j] = random.nextDouble();
+				}
+			}
+		}
+		return score;
+	}
+
+	/** しきい値以上で同じスコアの組があるか */
+	private static boolean hasTie(double[][] score, double threshold) {
+		Set<Double> seen = new HashSet<Double>();
+		for (double[] row : score) {
+			for (double value : row) {
+				if (value >= threshold && !seen.add(value)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * DiagramEvaluater.getCorrespondElement / compareClass の以前の対応付けをそのまま写したもの
+	 */
+	private static int[] oldLoop(double[][] score, double t) {
+		Map<Integer, Map<Integer, Double>> scoreMap = new LinkedHashMap<Integer, Map<Integer, Double>>();
+		for (int i = 0; i < score.length; i++) {
+			scoreMap.put(i, new LinkedHashMap<Integer, Double>());
+			for (int j = 0; j < score[i].length; j++) {
+				scoreMap.get(i).put(j, score[i][j]);
+			}
+		}
+		int[] rowToCol = new int[score.length];
+		Arrays.fill(rowToCol, -1);
+
+		int maxIdx1 = -1, maxIdx2 = -1;
+		double maxVal = 10;
+		while (maxVal >= t) {
+			maxVal = 0;
+			for (Entry<Integer, Map<Integer, Double>> e1 : scoreMap.entrySet()) {
+				for (Entry<Integer, Double> e2 : scoreMap.get(e1.getKey()).entrySet()) {
+					if (e2.getValue() > maxVal) {
+						maxVal = e2.getValue();
+						maxIdx1 = e1.getKey();
+						maxIdx2 = e2.getKey();
+					}
+				}
+			}
+			if (maxVal >= t) {
+				rowToCol[maxIdx1] = maxIdx2;
+				for (Entry<Integer, Map<Integer, Double>> e1 : scoreMap.entrySet()) {
+					for (Entry<Integer, Double> e2 : e1.getValue().entrySet()) {
+						if (e1.getKey() == maxIdx1 || e2.getKey() == maxIdx2) {
+							e2.setValue(-1.0);
+						}
+					}
+				}
+			}
+		}
+		return rowToCol;
+	}
+}
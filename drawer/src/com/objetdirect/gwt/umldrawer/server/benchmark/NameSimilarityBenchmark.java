@@ -0,0 +1,147 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.objetdirect.gwt.umldrawer.client.helpers.NameSimilarity;
+
+/**
+ * {@link NameSimilarity} の計測。
+ * 解答の図と、それを少しずつ書き換えた学生の図（クラス数・属性数は実際の演習程度）を作り、
+ * SimilarityManager と同じく クラス×クラス、属性×属性 の全組の名前類似度を求める時間を比べる。
+ * 比較対象は以前の nameSim（len1×len2 のLCS表を毎回作る）で、結果が一致することも確かめる。
+ *
+ * 使い方: java NameSimilarityBenchmark [学生数]
+ */
+public class NameSimilarityBenchmark {
+
+	private static final String[][] ANSWER = {
+			{ "学生", "学籍番号", "氏名", "学年", "所属学科" },
+			{ "講義", "講義コード", "講義名", "単位数", "開講曜日", "開講時限" },
+			{ "教員", "教員番号", "氏名", "研究室" },
+			{ "履修", "履修年度", "成績" },
+			{ "教室", "教室番号", "収容人数", "建物名" },
+			{ "学科", "学科名", "学部名" },
+			{ "Student", "studentId", "name", "grade" },
+			{ "Lecture", "lectureCode", "title", "credits" },
+	};
+
+	private static final String[] SUFFIXES = { "", "", "", "情報", "データ", "Info", "s", "名", "2" };
+
+	public static void main(String[] args) {
+		int students = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		Random random = new Random(1);
+		List<String[][]> cohort = new ArrayList<String[][]>();
+		for (int i = 0; i < students; i++) {
+			cohort.add(makeStudentDiagram(random));
+		}
+
+		// JIT を温めてから計測する
+		for (int i = 0; i < 3; i++) {
+			runFullTable(cohort);
+			runKernel(cohort, new NameSimilarity());
+		}
+		long start = System.nanoTime();
+		double expected = runFullTable(cohort);
+		long fullTable = System.nanoTime() - start;
+
+		// キャッシュが空の状態（初めての学生群）と、既に同じ名前を比べた後の状態
+		NameSimilarity.clearCache();
+		start = System.nanoTime();
+		double actual = runKernel(cohort, new NameSimilarity());
+		long cold = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		runKernel(cohort, new NameSimilarity());
+		long warm = System.nanoTime() - start;
+
+		if (expected != actual) {
+			throw new IllegalStateException("類似度が一致しません: " + expected + " / " + actual);
+		}
+		System.out.printf("students=%d, comparisons=%d%n", students, countComparisons(cohort));
+		System.out.printf("full LCS table          : %8.2f ms%n", fullTable / 1e6);
+		System.out.printf("NameSimilarity (cold)   : %8.2f ms (x%.1f)%n", cold / 1e6, (double) fullTable / cold);
+		System.out.printf("NameSimilarity (warm)   : %8.2f ms (x%.1f)%n", warm / 1e6, (double) fullTable / warm);
+	}
+
+	/** 解答のクラス名・属性名に、語尾の追加や文字の欠落を加えた学生の図 */
+	private static String[][] makeStudentDiagram(Random random) {
+		String[][] diagram = new String[ANSWER.length][];
+		for (int c = 0; c < ANSWER.length; c++) {
+			diagram[c] = new String[ANSWER[c].length];
+			for (int a = 0; a < ANSWER[c].length; a++) {
+				String name = ANSWER[c][a] + SUFFIXES[random.nextInt(SUFFIXES.length)];
+				if (name.length() > 2 && random.nextInt(5) == 0) {
+					int drop = random.nextInt(name.length());
+					name = name.substring(0, drop) + name.substring(drop + 1);
+				}
+				diagram[c][a] = name;
+			}
+		}
+		return diagram;
+	}
+
+	private static double runKernel(List<String[][]> cohort, NameSimilarity kernel) {
+		double total = 0;
+		for (String[][] student : cohort) {
+			for (String[] answerClass : ANSWER) {
+				for (String[] studentClass : student) {
+					for (String answerName : answerClass) {
+						for (String studentName : studentClass) {
+							total += kernel.sim(studentName, answerName);
+						}
+					}
+				}
+			}
+		}
+		return total;
+	}
+
+	private static double runFullTable(List<String[][]> cohort) {
+		double total = 0;
+		for (String[][] student : cohort) {
+			for (String[] answerClass : ANSWER) {
+				for (String[] studentClass : student) {
+					for (String answerName : answerClass) {
+						for (String studentName : studentClass) {
+							total += fullTableSim(studentName, answerName);
+						}
+					}
+				}
+			}
+		}
+		return total;
+	}
+
+	private static long countComparisons(List<String[][]> cohort) {
+		long count = 0;
+		for (String[][] student : cohort) {
+			for (String[] answerClass : ANSWER) {
+				for (String[] studentClass : student) {
+					count += (long) answerClass.length * studentClass.length;
+				}
+			}
+		}
+		return count;
+	}
+
+	/** 以前の SimilarityManager.nameSim */
+	private static double fullTableSim(String name1, String name2) {
+		int len1 = name1.length(), len2 = name2.length();
+		if (len1 == 0 || len2 == 0) {
+			return 0.0;
+		}
+		int[][] lcs_table = new int[len1][len2];
+		for (int i = 0; i < len1; i++) {
+			for (int j = 0; j < len2; j++) {
+				if (name1.charAt(i) == name2.charAt(j)) {
+					lcs_table[i][j] = (i > 0 && j > 0) ? lcs_table[i-1][j-1] + 1 : 1;
+				} else {
+					lcs_table[i][j] = Math.max(i > 0 ? lcs_table[i-1][j] : 0, j > 0 ? lcs_table[i][j-1] : 0);
+				}
+			}
+		}
+		return ( ( lcs_table[len1-1][len2-1] )*2.0 ) / (double)( len1 + len2);
+	}
+}
@@ -0,0 +1,217 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.objetdirect.gwt.umlapi.client.engine.Point;
+import com.objetdirect.gwt.umlapi.client.helpers.SpatialGrid;
+
+/**
+ * UMLCanvas の当たり判定と枠選択に使う {@link SpatialGrid} の計測。
+ * クラス500個・2000個を並べた図を作り、全ての成果物を順に調べるやり方（これまでの UMLCanvas）と、
+ * SpatialGrid で引くやり方とで、点の当たり判定・枠選択（ドラッグ中のマウス移動ごとの問い合わせ）・
+ * 成果物の移動（索引の更新）にかかる時間を比べる。両方のやり方で同じ結果になることも確かめる。
+ *
+ * 使い方: java SpatialGridBenchmark
+ */
+public class SpatialGridBenchmark {
+
+	private static final int	ROUNDS			= 20;
+
+	private static final int	POINT_QUERIES	= 10000;
+
+	/** 1回の枠選択で、マウスが動くたびに問い合わせる回数 */
+	private static final int	DRAG_STEPS		= 60;
+
+	private static final int	BOX_DRAGS		= 200;
+
+	public static void main(String[] args) {
+		for (int classNum : new int[] { 500, 2000 }) {
+			Random random = new Random(classNum);
+			List<Box> boxes = makeDiagram(classNum, random);
+			SpatialGrid<Box> grid = new SpatialGrid<Box>();
+			for (Box box : boxes) {
+				grid.put(box, box.x, box.y, box.width, box.height);
+			}
+			int width = 0;
+			int height = 0;
+			for (Box box : boxes) {
+				width = Math.max(width, box.x + box.width);
+				height = Math.max(height, box.y + box.height);
+			}
+			int[][] points = new int[POINT_QUERIES][];
+			for (int i = 0; i < POINT_QUERIES; i++) {
+				points[i] = new int[] { random.nextInt(width), random.nextInt(height) };
+			}
+			int[][] drags = new int[BOX_DRAGS][];
+			for (int i = 0; i < BOX_DRAGS; i++) {
+				drags[i] = new int[] { random.nextInt(width), random.nextInt(height), 100 + random.nextInt(900), 100 + random.nextInt(600) };
+			}
+
+			check(classNum, boxes, grid, points, drags);
+
+			System.out.printf("%d classes (%d x %d px)%n", classNum, width, height);
+			// JIT を温めてから計測する
+			for (int pass = 0; pass < 2; pass++) {
+				long linearPoint = 0;
+				long gridPoint = 0;
+				long linearBox = 0;
+				long gridBox = 0;
+				long sink = 0;
+				for (int r = 0; r < ROUNDS; r++) {
+					long start = System.nanoTime();
+					for (int[] point : points) {
+						sink += linearFindAt(boxes, point[0], point[1]) != null ? 1 : 0;
+					}
+					linearPoint += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					for (int[] point : points) {
+						sink += grid.findAt(point[0], point[1]) != null ? 1 : 0;
+					}
+					gridPoint += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					for (int[] drag : drags) {
+						for (int step = 1; step <= DRAG_STEPS; step++) {
+							sink += linearFindIn(boxes, drag[0], drag[1], drag[0] + drag[2] * step / DRAG_STEPS, drag[1] + drag[3] * step / DRAG_STEPS).size();
+						}
+					}
+					linearBox += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					for (int[] drag : drags) {
+						for (int step = 1; step <= DRAG_STEPS; step++) {
+							sink += grid.findIn(drag[0], drag[1], drag[0] + drag[2] * step / DRAG_STEPS, drag[1] + drag[3] * step / DRAG_STEPS).size();
+						}
+					}
+					gridBox += System.nanoTime() - start;
+				}
+				if (pass == 0) {
+					continue;
+				}
+				long queries = (long) ROUNDS * POINT_QUERIES;
+				long boxQueries = (long) ROUNDS * BOX_DRAGS * DRAG_STEPS;
+				System.out.printf("  hit-test   : linear %8.2f us/query, grid %6.3f us/query (x%.0f)%n", linearPoint / 1e3 / queries, gridPoint / 1e3 / queries,
+						(double) linearPoint / gridPoint);
+				System.out.printf("  box select : linear %8.2f us/move,  grid %6.3f us/move  (x%.0f) [%d]%n", linearBox / 1e3 / boxQueries, gridBox / 1e3 / boxQueries,
+						(double) linearBox / gridBox, sink % 10);
+			}
+
+			// ドラッグで成果物を動かしたときの索引の更新
+			long start = System.nanoTime();
+			int moves = 0;
+			for (int r = 0; r < ROUNDS; r++) {
+				for (Box box : boxes) {
+					box.x += 3 - random.nextInt(7);
+					box.y += 3 - random.nextInt(7);
+					grid.put(box, box.x, box.y, box.width, box.height);
+					moves++;
+				}
+			}
+			long elapsed = System.nanoTime() - start;
+			check(classNum, boxes, grid, points, drags);
+			System.out.printf("  move       : grid update %6.3f us/move%n", elapsed / 1e3 / moves);
+		}
+	}
+
+	/**
+	 * クラス図のように、大きさの違う箱を格子状に並べる
+	 */
+	private static List<Box> makeDiagram(int classNum, Random random) {
+		List<Box> boxes = new ArrayList<Box>();
+		int columns = (int) Math.ceil(Math.sqrt(classNum));
+		for (int i = 0; i < classNum; i++) {
+			int x = (i % columns) * 220 + random.nextInt(40);
+			int y = (i / columns) * 180 + random.nextInt(40);
+			boxes.add(new Box(i, x, y, 100 + random.nextInt(100), 60 + random.nextInt(100)));
+		}
+		return boxes;
+	}
+
+	/**
+	 * これまでの UMLCanvas.getArtifactAt と同じく、全ての成果物を順に調べる
+	 */
+	private static Box linearFindAt(List<Box> boxes, int x, int y) {
+		Point location = new Point(x, y);
+		for (Box box : boxes) {
+			if (isIn(box.getLocation(), Point.add(box.getLocation(), new Point(box.width, box.height)), location, location)) {
+				return box;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * これまでの UMLCanvas.boxSelector と同じく、全ての成果物を順に調べる
+	 */
+	private static List<Box> linearFindIn(List<Box> boxes, int minX, int minY, int maxX, int maxY) {
+		Point min = new Point(minX, minY);
+		Point max = new Point(maxX, maxY);
+		List<Box> found = new ArrayList<Box>();
+		for (Box box : boxes) {
+			if (isIn(box.getLocation(), Point.add(box.getLocation(), new Point(box.width, box.height)), min, max)) {
+				found.add(box);
+			}
+		}
+		return found;
+	}
+
+	private static boolean isIn(Point artifactMin, Point artifactMax, Point selectMin, Point selectMax) {
+		return (selectMax.isSuperiorTo(artifactMin) && artifactMax.isSuperiorTo(selectMin));
+	}
+
+	private static void check(int classNum, List<Box> boxes, SpatialGrid<Box> grid, int[][] points, int[][] drags) {
+		if (grid.size() != boxes.size()) {
+			throw new IllegalStateException(classNum + ": 索引の成果物の数が違います: " + grid.size());
+		}
+		for (int[] point : points) {
+			Box expected = linearFindAt(boxes, point[0], point[1]);
+			Box actual = grid.findAt(point[0], point[1]);
+			// 重なった箱ではどれを返すかは決めていないので、見つかったかどうかと、見つかった箱が点を含むかを確かめる
+			if ((expected == null) != (actual == null)
+					|| (actual != null && linearFindIn(Collections.singletonList(actual), point[0], point[1], point[0], point[1]).isEmpty())) {
+				throw new IllegalStateException(classNum + ": 当たり判定が違います: " + point[0] + "," + point[1]);
+			}
+		}
+		for (int[] drag : drags) {
+			int maxX = drag[0] + drag[2];
+			int maxY = drag[1] + drag[3];
+			Set<Box> expected = new HashSet<Box>(linearFindIn(boxes, drag[0], drag[1], maxX, maxY));
+			List<Box> actual = grid.findIn(drag[0], drag[1], maxX, maxY);
+			if (actual.size() != expected.size() || !expected.equals(new HashSet<Box>(actual))) {
+				throw new IllegalStateException(classNum + ": 枠選択が違います: " + expected.size() + " / " + actual.size());
+			}
+		}
+	}
+
+	/** 成果物の代わりの箱 */
+	private static class Box {
+		final int	id;
+		int			x;
+		int			y;
+		final int	width;
+		final int	height;
+
+		Box(int id, int x, int y, int width, int height) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		Point getLocation() {
+			return new Point(this.x, this.y);
+		}
+
+		@Override
+		public String toString() {
+			return "Box" + this.id;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.util.Random;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+
+import com.objetdirect.gwt.umldrawer.server.collaboration.TextOperation;
+
+/**
+ * TextOperation.transform と、パッチテキストからの操作の生成（fromEdit / fromPatches）を確かめる。
+ *
+ * 同じテキストに対する op と prior を、prior → transform(op, prior) の順と
+ * op → transformPrior(prior, op) の順の両方で適用し、同じテキストになることを見る。
+ * 決まった場合（同じ位置への挿入、削除の重なり、削除された範囲への編集、start1 のずれ）に加えて、ランダムな編集でも比べる。
+ * パッチはクライアント（DiffMatchPatchGwtExtended）と同じく patchMake(変更前, 変更後) から作る。
+ *
+ * 使い方: java TextOperationTest [ランダムな組の数] [シード]
+ */
+public class TextOperationTest {
+
+    private static final DiffMatchPatch dmp = new DiffMatchPatch();
+
+    public static void main(String[] args) {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 12345L;
+
+        // 同じ位置への挿入は prior を先に置く
+        check("same position insert", "abc",
+                new TextOperation().retain(1).insert("X").retain(2),
+                new TextOperation().retain(1).insert("Y").retain(2),
+                "aYXbc");
+        check("same position insert at start", "abc",
+                new TextOperation().insert("X").retain(3),
+                new TextOperation().insert("Y").retain(3),
+                "YXabc");
+        check("same position insert at end", "abc",
+                new TextOperation().retain(3).insert("X"),
+                new TextOperation().retain(3).insert("Y"),
+                "abcYX");
+        check("same position insert after delete", "abcd",
+                new TextOperation().retain(1).delete(2).insert("X").retain(1),
+                new TextOperation().retain(1).delete(1).insert("Y").retain(2),
+                "aYXd");
+
+        // delete/delete: 両方で消した部分は1回だけ消える
+        check("overlapping deletes", "abcdef",
+                new TextOperation().retain(1).delete(3).retain(2),
+                new TextOperation().retain(2).delete(3).retain(1),
+                "af");
+        check("same delete", "abcdef",
+                new TextOperation().retain(2).delete(2).retain(2),
+                new TextOperation().retain(2).delete(2).retain(2),
+                "abef");
+        check("nested deletes", "abcdef",
+                new TextOperation().retain(2).delete(1).retain(3),
+                new TextOperation().retain(1).delete(4).retain(1),
+                "af");
+
+        // retain/delete: prior が消した範囲の中への挿入は残り、範囲をまたぐ削除は残った部分だけを消す
+        check("insert inside deleted range", "abcdef",
+                new TextOperation().retain(3).insert("X").retain(3),
+                new TextOperation().retain(1).delete(4).retain(1),
+                "aXf");
+        check("delete across deleted range", "abcdef",
+                new TextOperation().retain(3).delete(2).retain(1),
+                new TextOperation().retain(1).delete(3).retain(2),
+                "af");
+        check("delete next to insert", "abcdef",
+                new TextOperation().retain(2).delete(2).retain(2),
+                new TextOperation().retain(2).insert("XY").retain(4),
+                "abXYef");
+
+        // 後続パッチの start1 は先行パッチ適用後の座標（先行パッチで伸びる場合と縮む場合）
+        String before = "public class Foo {\n    private int count;\n    private String name;\n    void run() {}\n}";
+        checkPatch("start1 after growing patch", before,
+                before.replace("Foo", "FooBarBaz").replace("void run", "void runAll"), 2);
+        checkPatch("start1 after shrinking patch", before,
+                before.replace("private int count", "int c").replace("void run", "void go"), 2);
+        checkPatch("start1 over three patches", before,
+                before.replace("public ", "").replace("String name", "String fullName").replace("{}", "{ count++; }"), 3);
+
+        Random random = new Random(seed);
+        for (int n = 0; n < pairs; n++) {
+            String base = randomText(random, random.nextInt(40));
+            String opText = randomEdit(random, base);
+            String priorText = randomEdit(random, base);
+            // サーバーで受け取る操作と同じく、パッチテキストから作る（半分は差分から）
+            TextOperation op = random.nextBoolean() ? fromPatch(base, opText) : TextOperation.fromDiff(base, opText);
+            TextOperation prior = random.nextBoolean() ? fromPatch(base, priorText) : TextOperation.fromDiff(base, priorText);
+            expect("random pair " + n + " op", opText, op.apply(base));
+            expect("random pair " + n + " prior", priorText, prior.apply(base));
+            check("random pair " + n + " (" + quote(base) + ", " + quote(opText) + ", " + quote(priorText) + ")",
+                    base, op, prior, null);
+        }
+
+        System.out.println(pairs + " random pairs converged in both orders");
+        System.out.println("TextOperationTest end");
+    }
+
+    /**
+     * op と prior を両方の順で適用して同じテキストになるかを見る
+     *
+     * @param expected 期待するテキスト（nullなら両方の順が同じであることだけを見る）
+     */
+    private static void check(String name, String base, TextOperation op, TextOperation prior, String expected) {
+        String priorFirst = TextOperation.transform(op, prior).apply(prior.apply(base));
+        String opFirst = TextOperation.transformPrior(prior, op).apply(op.apply(base));
+        if (!priorFirst.equals(opFirst)) {
+            throw new IllegalStateException(name + ": prior を先に適用すると " + quote(priorFirst)
+                    + "、op を先に適用すると " + quote(opFirst) + " になります");
+        }
+        if (expected != null) {
+            expect(name, expected, priorFirst);
+        }
+    }
+
+    /**
+     * 離れた位置の編集が複数のパッチになり、パッチテキストから作った操作が変更後のテキストを作ることを見る。
+     * あわせて、その操作を同じテキストへの別の編集に対して両方の順で適用する。
+     */
+    private static void checkPatch(String name, String before, String after, int patchNum) {
+        String patchText = dmp.patchToText(dmp.patchMake(before, after));
+        int actualPatchNum = dmp.patchFromText(patchText).size();
+        if (actualPatchNum != patchNum) {
+            throw new IllegalStateException(name + ": パッチが " + patchNum + " 個になる前提ですが " + actualPatchNum + " 個です");
+        }
+        TextOperation op = fromPatch(before, after);
+        expect(name, after, op.apply(before));
+
+        // 最後の行への別の編集と合わせる
+        int lastLine = before.lastIndexOf('\n') + 1;
+        TextOperation prior = new TextOperation().retain(lastLine).insert("    // end\n").retain(before.length() - lastLine);
+        check(name + " with prior", before, op, prior, null);
+    }
+
+    /**
+     * クライアントと同じ形のパッチテキストから操作を作る。
+     * 変更後のテキストを渡すと合わない時に差分から作り直してしまうので、渡さずにパッチだけから作らせる。
+     */
+    private static TextOperation fromPatch(String before, String after) {
+        String patchText = dmp.patchToText(dmp.patchMake(before, after));
+        if (patchText.isEmpty()) {
+            return TextOperation.fromDiff(before, after);
+        }
+        TextOperation op = TextOperation.fromEdit(before, null, patchText);
+        if (op == null) {
+            throw new IllegalStateException("パッチから操作を作れません: " + quote(before) + " -> " + quote(after) + "\n" + patchText);
+        }
+        return op;
+    }
+
+    private static void expect(String name, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(name + ": " + quote(expected) + " になるはずが " + quote(actual) + " になりました");
+        }
+    }
+
+    /** 同じ文字が続きやすいように、少ない文字から作る（差分の取り方が1通りに決まらない場合を増やす） */
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append("aab \n".charAt(random.nextInt(5)));
+        }
+        return sb.toString();
+    }
+
+    /** 挿入・削除・置き換えを1〜3回行う */
+    private static String randomEdit(Random random, String text) {
+        StringBuilder sb = new StringBuilder(text);
+        int edits = 1 + random.nextInt(3);
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(sb.length() + 1);
+            int kind = random.nextInt(3);
+            if (kind != 0 && at < sb.length()) {
+                sb.delete(at, Math.min(sb.length(), at + 1 + random.nextInt(5)));
+            }
+            if (kind != 1) {
+                sb.insert(at, randomText(random, 1 + random.nextInt(4)).replace('a', 'x'));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\n", "\\n") + "\"";
+    }
+}
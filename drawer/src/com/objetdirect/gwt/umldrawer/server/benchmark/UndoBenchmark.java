@@ -0,0 +1,93 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import com.objetdirect.gwt.umlapi.server.dao.CanvasHistoryStore;
+import com.objetdirect.gwt.umlapi.server.dao.DriverAccessor;
+import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.server.dao.Dao;
+
+/**
+ * {@link Dao#undo(String, int)} の計測。
+ * Undoを N 回続けた状態（N = 1, 100, 1000）で、次のUndo 1回にかかる時間を表示する。
+ *
+ * 計測用の学生IDで edit_event に編集履歴を作り、クライアントと同じように
+ * Undoの結果を "Undo" イベントとして記録しながら続けてUndoする。終わったら計測用の行を消す。
+ * 設定されているDB（DriverAccessor）に接続して実行する。
+ *
+ * 使い方: java UndoBenchmark [学生ID]
+ */
+public class UndoBenchmark {
+
+	private static final int[] CHAIN_LENGTHS = { 1, 100, 1000 };
+
+	/** 各チェーン長で計測するUndoの回数 */
+	private static final int SAMPLES = 50;
+
+	private static final int EXERCISE_ID = 1;
+
+	public static void main(String[] args) throws SQLException {
+		String studentId = args.length > 0 ? args[0] : "undo-benchmark";
+		Dao dao = new Dao();
+		for (int chainLength : CHAIN_LENGTHS) {
+			deleteHistory(studentId);
+			// Undoで戻れるだけの編集履歴を作る
+			int edits = chainLength + SAMPLES + 1;
+			dao.registEditEvent(studentId, EXERCISE_ID, -1, "Start", "Start", null, -1, null, -1, -1,
+					null, null, null, 1, canvasUrl(0), 1, 0);
+			for (int i = 1; i <= edits; i++) {
+				dao.registEditEvent(studentId, EXERCISE_ID, -1, "ClassName", "Edit", null, i, null, -1, -1,
+						null, null, null, 1, canvasUrl(i), 1, i);
+			}
+			for (int i = 0; i < chainLength; i++) {
+				undo(dao, studentId);
+			}
+			long[] nanos = new long[SAMPLES];
+			for (int i = 0; i < SAMPLES; i++) {
+				long start = System.nanoTime();
+				undo(dao, studentId);
+				nanos[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(nanos);
+			System.out.printf("undo chain=%4d: median %.2f ms, p95 %.2f ms (1 query per undo)%n",
+					chainLength, nanos[SAMPLES / 2] / 1e6, nanos[SAMPLES * 95 / 100] / 1e6);
+		}
+		deleteHistory(studentId);
+	}
+
+	/**
+	 * クライアント（DrawerBase の Undo ボタン）と同じく、戻った先を "Undo" イベントとして記録する
+	 */
+	private static void undo(Dao dao, String studentId) {
+		EditEvent back = dao.undo(studentId, EXERCISE_ID);
+		if (back == null) {
+			throw new IllegalStateException("Undoできる履歴がありません");
+		}
+		dao.registEditEvent(studentId, EXERCISE_ID, -1, "" + back.getEditEventId(), "Undo", null, -1, null, -1, -1,
+				null, null, null, 1, back.getCanvasUrl(), 1, 0);
+	}
+
+	private static String canvasUrl(int classes) {
+		StringBuilder url = new StringBuilder();
+		for (int i = 0; i <= classes % 20; i++) {
+			url.append("<").append(i + 1).append(">]Class$(").append(i * 10).append(",").append(classes).append(")!Class").append(i).append("!!!;");
+		}
+		return Base64.getEncoder().encodeToString(url.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void deleteHistory(String studentId) throws SQLException {
+		try (Connection connection = DriverAccessor.getConn();
+				PreparedStatement stmt = connection.prepareStatement("delete from edit_event where student_id = ? and exercises_id = ?")) {
+			stmt.setString(1, studentId);
+			stmt.setInt(2, EXERCISE_ID);
+			stmt.executeUpdate();
+		}
+		// 消したキーフレームを差分の基準に使わないようにする
+		CanvasHistoryStore.getInstance().forget(studentId, EXERCISE_ID);
+	}
+}
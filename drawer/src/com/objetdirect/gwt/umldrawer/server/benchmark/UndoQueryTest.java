@@ -0,0 +1,255 @@
+package com.objetdirect.gwt.umldrawer.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dao.undo の1回のクエリ（UNDO_TARGET_CONDITION と UNDO_STATE_ID の入れ子）が、
+ * 以前のループ（max を取ってから Undo をたどり直す do/while と、その後の2回の参照）と
+ * 同じイベントに戻ることを、ランダムな編集・Undo の履歴で確かめる。
+ *
+ * edit_event の表をメモリ上に持ち、両方の手順をSQLの意味どおりに書き写して比べる。
+ * Undo は DrawerBase と同じく、以前の手順で戻った先を edit_event に入れて記録する。
+ * 戻れない時、以前の手順は空の "NONE" イベントを、今の手順は null を返すので、両方とも「戻れない」として比べる。
+ *
+ * 使い方: java UndoQueryTest [履歴の数] [1つの履歴のイベント数] [シード]
+ */
+public class UndoQueryTest {
+
+	private static final String STUDENT = "s1";
+	private static final String OTHER_STUDENT = "s2";
+	private static final int EXERCISE = 1;
+
+	public static void main(String[] args) {
+		int histories = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int length = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 12345L;
+		Random random = new Random(seed);
+
+		int undoNum = 0;
+		int noTargetNum = 0;
+		for (int h = 0; h < histories; h++) {
+			List<Row> table = new ArrayList<Row>();
+			add(table, STUDENT, "Start", null, true);
+			add(table, OTHER_STUDENT, "Start", null, true);
+			for (int i = 0; i < length; i++) {
+				String student = random.nextInt(5) == 0 ? OTHER_STUDENT : STUDENT;
+				int kind = random.nextInt(20);
+				if (kind < 6) {
+					Row old = oldUndo(table, student, EXERCISE);
+					Row current = newUndo(table, student, EXERCISE);
+					check(h, i, table, old, current);
+					undoNum++;
+					if (old == null) {
+						noTargetNum++;
+						continue;
+					}
+					// DrawerBase は戻った先のIDを edit_event に入れて Undo を記録する
+					add(table, student, "Undo", String.valueOf(old.id), true);
+				}
+				else if (kind < 9) {
+					add(table, student, "Create", null, random.nextBoolean());
+				}
+				else if (kind < 11) {
+					add(table, student, "Place", random.nextBoolean() ? "PlaceArtifacts" : "Place", true);
+				}
+				else if (kind < 12) {
+					add(table, student, "RemoveArtifacts", null, true);
+				}
+				else if (kind < 15) {
+					add(table, student, "Edit", null, random.nextInt(4) != 0);
+				}
+				else if (kind < 16) {
+					// 課題を開き直した
+					add(table, student, "Start", null, true);
+				}
+				else {
+					// Undo の対象にならないイベント
+					add(table, student, random.nextBoolean() ? "Select" : "Submit", null, random.nextBoolean());
+				}
+			}
+			Row old = oldUndo(table, STUDENT, EXERCISE);
+			check(h, length, table, old, newUndo(table, STUDENT, EXERCISE));
+			undoNum++;
+			if (old == null) {
+				noTargetNum++;
+			}
+		}
+		// 何も記録していない学生（以前は "NONE"、今は null）
+		List<Row> empty = new ArrayList<Row>();
+		check(-1, 0, empty, oldUndo(empty, STUDENT, EXERCISE), newUndo(empty, STUDENT, EXERCISE));
+
+		System.out.println(histories + " histories, " + undoNum + " undos compared (" + noTargetNum + " with nothing to undo)");
+		System.out.println("UndoQueryTest end");
+	}
+
+	/** edit_event の1行 */
+	private static class Row {
+		int id;
+		String studentId;
+		int exercisesId;
+		String eventType;
+		String editEvent;
+		boolean hasCanvasUrl;
+	}
+
+	private static void add(List<Row> table, String studentId, String eventType, String editEvent, boolean hasCanvasUrl) {
+		Row row = new Row();
+		row.id = table.size() + 1;
+		row.studentId = studentId;
+		row.exercisesId = EXERCISE;
+		row.eventType = eventType;
+		row.editEvent = editEvent;
+		row.hasCanvasUrl = hasCanvasUrl;
+		table.add(row);
+	}
+
+	private static void check(int history, int step, List<Row> table, Row old, Row current) {
+		Integer oldId = old != null ? old.id : null;
+		Integer currentId = current != null ? current.id : null;
+		if (oldId == null ? currentId != null : !oldId.equals(currentId)) {
+			StringBuilder dump = new StringBuilder();
+			for (Row row : table) {
+				dump.append("\n  ").append(row.id).append(' ').append(row.studentId).append(' ').append(row.eventType)
+						.append(' ').append(row.editEvent).append(row.hasCanvasUrl ? "" : " (canvas_url null)");
+			}
+			throw new IllegalStateException("履歴 " + history + " の " + step + " 番目: 以前の手順は " + oldId
+					+ "、今のクエリは " + currentId + " に戻ります" + dump);
+		}
+	}
+
+	// ---- 以前の Dao.undo ----
+
+	/** 以前の最初のクエリの条件（Start を含まない） */
+	private static boolean oldLatestCondition(Row row) {
+		return ((row.eventType.equals("Create") && row.hasCanvasUrl)
+				|| (row.eventType.equals("Place") && "PlaceArtifacts".equals(row.editEvent))
+				|| row.eventType.equals("RemoveArtifacts") || row.eventType.equals("Edit") || row.eventType.equals("Undo"))
+				&& row.hasCanvasUrl;
+	}
+
+	/** 以前のループとその後のクエリの条件（Start を含む） */
+	private static boolean oldTargetCondition(Row row) {
+		return (row.eventType.equals("Start") || oldLatestCondition(row)) && row.hasCanvasUrl;
+	}
+
+	/**
+	 * 以前の Dao.undo の手順。クエリが何も返さない時は前の行をそのまま使うところも含めて写す
+	 */
+	private static Row oldUndo(List<Row> table, String studentId, int exercisesId) {
+		// select max(edit_event_id) ...（無ければ rs.getInt が 0 を返す）
+		int editEventId = 0;
+		for (Row row : table) {
+			if (mine(row, studentId, exercisesId) && oldLatestCondition(row)) {
+				editEventId = Math.max(editEventId, row.id);
+			}
+		}
+
+		Row backEvent = none();
+		int guard = 0;
+		do {
+			if (backEvent.eventType.equals("Undo")) {
+				editEventId = Integer.parseInt(backEvent.editEvent);
+			}
+			Row found = maxAtOrBefore(table, studentId, exercisesId, editEventId);
+			if (found != null) {
+				backEvent = found;
+			}
+			if (++guard > table.size() + 1) {
+				throw new IllegalStateException("以前の手順が Undo をたどり終えません");
+			}
+		} while (backEvent.eventType.equals("Undo"));
+
+		Row found = maxAtOrBefore(table, studentId, exercisesId, backEvent.id - 1);
+		if (found != null) {
+			backEvent = found;
+		}
+		if (backEvent.eventType.equals("Undo")) {
+			Row pointed = byId(table, Integer.parseInt(backEvent.editEvent));
+			if (pointed != null) {
+				backEvent = pointed;
+			}
+		}
+		if (backEvent.eventType.equals("Start")) {
+			return null;
+		}
+		// 戻れない時の空の "NONE" イベントは、今の手順の null にあたる
+		return backEvent.eventType.equals("NONE") ? null : backEvent;
+	}
+
+	private static Row maxAtOrBefore(List<Row> table, String studentId, int exercisesId, int editEventId) {
+		Row max = null;
+		for (Row row : table) {
+			if (mine(row, studentId, exercisesId) && oldTargetCondition(row) && row.id <= editEventId) {
+				if (max == null || row.id > max.id) {
+					max = row;
+				}
+			}
+		}
+		return max;
+	}
+
+	private static Row none() {
+		Row row = new Row();
+		row.eventType = "NONE";
+		return row;
+	}
+
+	// ---- 今の Dao.undo（1回のクエリ） ----
+
+	/** UNDO_TARGET_CONDITION */
+	private static boolean undoTargetCondition(Row row) {
+		return row.hasCanvasUrl && (row.eventType.equals("Start") || row.eventType.equals("Create")
+				|| (row.eventType.equals("Place") && "PlaceArtifacts".equals(row.editEvent))
+				|| row.eventType.equals("RemoveArtifacts") || row.eventType.equals("Edit") || row.eventType.equals("Undo"));
+	}
+
+	/** UNDO_STATE_ID（行が無ければ null） */
+	private static Integer undoStateId(Row row) {
+		if (row == null) {
+			return null;
+		}
+		return row.eventType.equals("Undo") ? Integer.valueOf(Integer.parseInt(row.editEvent)) : Integer.valueOf(row.id);
+	}
+
+	/**
+	 * 今の Dao.undo のクエリ。スカラー副問い合わせが NULL になれば、外側の比較も NULL になり行を返さない
+	 */
+	private static Row newUndo(List<Row> table, String studentId, int exercisesId) {
+		Row latest = null;
+		for (Row row : table) {
+			if (mine(row, studentId, exercisesId) && !row.eventType.equals("Start") && undoTargetCondition(row)) {
+				if (latest == null || row.id > latest.id) {
+					latest = row;
+				}
+			}
+		}
+		Integer stateId = undoStateId(latest);
+		if (stateId == null) {
+			return null;
+		}
+		Row target = null;
+		for (Row row : table) {
+			if (mine(row, studentId, exercisesId) && undoTargetCondition(row) && row.id < stateId) {
+				if (target == null || row.id > target.id) {
+					target = row;
+				}
+			}
+		}
+		Integer targetId = undoStateId(target);
+		Row backEvent = targetId != null ? byId(table, targetId) : null;
+		if (backEvent == null || backEvent.eventType.equals("Start")) {
+			return null;
+		}
+		return backEvent;
+	}
+
+	private static boolean mine(Row row, String studentId, int exercisesId) {
+		return row.studentId.equals(studentId) && row.exercisesId == exercisesId;
+	}
+
+	private static Row byId(List<Row> table, int id) {
+		return id >= 1 && id <= table.size() ? table.get(id - 1) : null;
+	}
+}
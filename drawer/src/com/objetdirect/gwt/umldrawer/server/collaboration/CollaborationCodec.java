@@ -0,0 +1,227 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.objetdirect.gwt.umldrawer.client.beans.EditOperation;
+
+/**
+ * CollaborationWebSocket で送受信するメッセージの変換。
+ *
+ * 受信メッセージは JsonObject を経由せず一度で EditOperation に変換し、
+ * 配信メッセージは1回だけ文字列化して部屋の全員に同じ文字列を送る。
+ * 送信者向けの「自分の操作」フラグ付きメッセージは、その文字列の末尾に項目を足して作る。
+ */
+final class CollaborationCodec {
+
+    private static final Gson gson = new Gson();
+
+    /** 送信者向けメッセージに付ける項目 */
+    private static final String OWN_OPERATION_SUFFIX = ",\"isOwnOperation\":true}";
+
+    private CollaborationCodec() {
+    }
+
+    /**
+     * メッセージの action だけを読み取る。
+     * sync など中継するだけのメッセージで、キャンバスURL全体を木構造にしないため。
+     *
+     * @return action（無ければnull）
+     */
+    static String readAction(String message) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("action".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    return reader.nextString();
+                }
+                reader.skipValue();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * メッセージを EditOperation に変換（未知の項目は無視）
+     */
+    static EditOperation decode(String message) {
+        return gson.fromJson(message, EditOperation.class);
+    }
+
+    /**
+     * テキスト編集操作の配信メッセージ
+     */
+    static String encodeEditResponse(EditOperation operation) throws IOException {
+        StringWriter out = new StringWriter(128 + length(operation.getAfterText()) + length(operation.getPatchText()));
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("editOperationResponse");
+        writer.name("serverSequence").value(operation.getServerSequence());
+        writer.name("elementId").value(operation.getElementId());
+        writer.name("partId").value(operation.getPartId());
+        writer.name("afterText").value(operation.getAfterText());
+        writer.name("userId").value(operation.getUserId());
+        writer.name("patchText").value(operation.getPatchText());
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * 相対移動操作の配信メッセージ
+     */
+    static String encodeMoveDeltaResponse(EditOperation operation) throws IOException {
+        StringWriter out = new StringWriter(160);
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("moveOperationResponse");
+        writer.name("serverSequence").value(operation.getServerSequence());
+        writer.name("elementId").value(operation.getElementId());
+        writer.name("oldX").value(operation.getOldX());
+        writer.name("oldY").value(operation.getOldY());
+        writer.name("deltaX").value(operation.getDeltaX());
+        writer.name("deltaY").value(operation.getDeltaY());
+        writer.name("userId").value(operation.getUserId());
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * 絶対座標移動操作の配信メッセージ（位置表で採用された位置）
+     */
+    static String encodeMoveAbsoluteResponse(String elementId, PositionRegister.Position position) throws IOException {
+        StringWriter out = new StringWriter(160);
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("moveOperationResponse");
+        writer.name("elementId").value(elementId);
+        writer.name("newX").value(position.x);
+        writer.name("newY").value(position.y);
+        writer.name("timestamp").value(position.timestamp);
+        writer.name("counter").value(position.counter);
+        writer.name("clientId").value(position.clientId);
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * 途中から参加したクライアントに送る位置表。
+     * 1要素を [elementId, x, y, timestamp, counter, clientId] の配列にして項目名を繰り返さない
+     */
+    static String encodePositionSnapshot(List<Map.Entry<String, PositionRegister.Position>> entries) throws IOException {
+        StringWriter out = new StringWriter(48 + entries.size() * 56);
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("positionSnapshot");
+        writer.name("positions").beginArray();
+        for (Map.Entry<String, PositionRegister.Position> entry : entries) {
+            PositionRegister.Position position = entry.getValue();
+            writer.beginArray();
+            writer.value(entry.getKey());
+            writer.value(position.x);
+            writer.value(position.y);
+            writer.value(position.timestamp);
+            writer.value(position.counter);
+            writer.value(position.clientId);
+            writer.endArray();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * テキストの現在状態を送り直すメッセージ（保持範囲外の操作を断ったとき、途中から参加したとき）。
+     * 1つのテキストを [elementId, partId, text] の配列にし、serverSequence はその状態の時点のシーケンス番号
+     */
+    static String encodeTextSync(ExerciseOperationLog.Snapshot state) throws IOException {
+        StringWriter out = new StringWriter(64 + state.getStates().size() * 64);
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("textSync");
+        writer.name("serverSequence").value(state.getSequence());
+        writer.name("states").beginArray();
+        for (Map.Entry<String, String> entry : state.getStates().entrySet()) {
+            // 状態のキーは OperationManager.createStateKey の elementId:partId
+            String key = entry.getKey();
+            int separator = key.indexOf(':');
+            writer.beginArray();
+            writer.value(key.substring(0, separator));
+            writer.value(key.substring(separator + 1));
+            writer.value(entry.getValue());
+            writer.endArray();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * ドラッグ中の位置の配信メッセージ
+     */
+    static String encodeLiveMove(String elementId, int x, int y) throws IOException {
+        StringWriter out = new StringWriter(96);
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("action").value("liveMoveResponse");
+        writer.name("elementId").value(elementId);
+        writer.name("newX").value(x);
+        writer.name("newY").value(y);
+        writer.endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    /**
+     * UMLDSからソースコードの変更が届いたことを知らせるメッセージ
+     */
+    static String encodeSourceCodeChanged(long changeCount) {
+        return "{\"action\":\"sourceCodeChanged\",\"changeCount\":" + changeCount + "}";
+    }
+
+    /**
+     * キャンバス差分の配信メッセージ。受信した差分はそのまま埋め込み、解析し直さない。
+     */
+    static String encodeCanvasDelta(int version, String delta) {
+        return new StringBuilder(delta.length() + 48)
+                .append("{\"action\":\"canvasDelta\",\"version\":").append(version)
+                .append(",\"delta\":").append(delta).append('}')
+                .toString();
+    }
+
+    /**
+     * 部屋のキャンバス差分の現在の通し番号（参加時と、全体同期に応えられる人がいない時に送る）
+     */
+    static String encodeCanvasVersion(int version) {
+        return "{\"action\":\"canvasVersion\",\"version\":" + version + "}";
+    }
+
+    /**
+     * キャンバス差分の送信者に返す通し番号
+     */
+    static String encodeCanvasDeltaAck(int version) {
+        return "{\"action\":\"canvasDeltaAck\",\"version\":" + version + "}";
+    }
+
+    /**
+     * 配信メッセージから送信者向け（isOwnOperation付き）のメッセージを作る
+     */
+    static String markOwnOperation(String encoded) {
+        return encoded.substring(0, encoded.length() - 1) + OWN_OPERATION_SUFFIX;
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * 共同編集のバックグラウンドスレッドの後始末
+ * 
+ * Webアプリの停止・再配備時に、operation_log の書き込みスレッド（{@link OperationLogWriter}）、
+ * ドラッグ中の位置の配信スレッド（{@link CollaborationWebSocket} の liveMoveTicker）、
+ * ソースコードの変更の通知スレッド（{@link SourceCodeChangeNotifier}）を止める。
+ * 書き込み待ちの操作は止める前に書き込み、JVMのシャットダウンフックも外す。
+ */
+public class CollaborationContextListener implements ServletContextListener {
+
+    private static final Logger logger = Logger.getLogger(CollaborationContextListener.class.getName());
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        // スレッドは初めて使われた時に作られる
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        SourceCodeChangeNotifier.shutdown();
+        CollaborationWebSocket.stopLiveMoveTicker();
+        OperationLogWriter.shutdown();
+        logger.info("共同編集のバックグラウンドスレッドを止めました");
+    }
+}
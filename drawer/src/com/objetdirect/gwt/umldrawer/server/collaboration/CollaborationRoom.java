@@ -0,0 +1,251 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.websocket.Session;
+
+/**
+ * 1つのエクササイズ（課題）に参加しているセッションの集まり。
+ * ブロードキャストは同じ部屋のセッションにだけ届き、全体ロックは取らない。
+ *
+ * ドラッグ中の位置（liveMove）は要素ごとに最新の1件だけを持ち、{@link #flushLiveMoves} が呼ばれる
+ * tick ごとにまとめて配信する。何回送られても、1要素あたり1 tick に1件しか配信しない。
+ * ドロップ後の位置は {@link PositionRegister} に要素ごとの確定位置として持ち、それより古い移動は配信しない。
+ * 途中から参加したセッションには、この位置表をまとめて送る。
+ *
+ * 位置表と差分の通し番号は {@link State} に持ち、参加者がいなくなって部屋を閉じても一定時間残す。
+ */
+class CollaborationRoom {
+
+    /** エクササイズID */
+    private final int exerciseId;
+
+    /** 参加中のセッション (セッションID -> 送信キュー) */
+    private final Map<String, OutboundQueue> members = new ConcurrentHashMap<>();
+
+    /** ドラッグ中の位置 (elementId -> 最新の位置)。配信したものは取り除く */
+    private final Map<String, LiveMove> liveMoves = new HashMap<>();
+
+    /** 部屋を閉じても残す状態。liveMoves と位置表、差分の通し番号、配信の順序もこれで排他する */
+    private final State state;
+
+    CollaborationRoom(int exerciseId, State state) {
+        this.exerciseId = exerciseId;
+        this.state = state;
+    }
+
+    int getExerciseId() {
+        return exerciseId;
+    }
+
+    /**
+     * 参加する（部屋の作成・削除と同じ rooms.compute の中で呼ぶ）。
+     * 参加と同時にキャンバス差分の現在の通し番号を送り、以降に届く差分がその次の番号から始まるようにする
+     */
+    void join(Session session) {
+        synchronized (state) {
+            members.put(session.getId(), new OutboundQueue(session));
+            state.emptiedAt = 0;
+            sendTo(session, CollaborationCodec.encodeCanvasVersion(state.canvasVersion));
+        }
+    }
+
+    /**
+     * キャンバス差分の現在の通し番号を送る
+     */
+    void sendCanvasVersion(Session session) {
+        synchronized (state) {
+            sendTo(session, CollaborationCodec.encodeCanvasVersion(state.canvasVersion));
+        }
+    }
+
+    /**
+     * 退出する（部屋の作成・削除と同じ rooms.compute の中で呼ぶ）。最後の1人であれば状態に空になった時刻を記録する
+     */
+    void leave(Session session) {
+        members.remove(session.getId());
+        if (members.isEmpty()) {
+            state.emptiedAt = System.currentTimeMillis();
+        }
+    }
+
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    /**
+     * 特定のセッションにだけ送信
+     */
+    void sendTo(Session session, String message) {
+        OutboundQueue queue = members.get(session.getId());
+        if (queue != null) {
+            queue.send(message);
+        }
+    }
+
+    /**
+     * 部屋の全員に送信（exclude が指定されていればそのセッションを除く）
+     */
+    void broadcast(String message, Session exclude) {
+        broadcast(message, exclude != null ? exclude.getId() : null);
+    }
+
+    private void broadcast(String message, String excludeId) {
+        for (Map.Entry<String, OutboundQueue> entry : members.entrySet()) {
+            if (entry.getKey().equals(excludeId)) {
+                continue;
+            }
+            OutboundQueue queue = entry.getValue();
+            if (queue.getSession().isOpen()) {
+                queue.send(message);
+            }
+        }
+    }
+
+    /**
+     * キャンバス差分に通し番号を振って、送信者以外に配信し、送信者には番号だけを返す。
+     * 番号の採番と送信キューへの投入を部屋単位で直列化し、全員が番号順に受け取れるようにする。
+     */
+    int relayCanvasDelta(String delta, Session sender) {
+        synchronized (state) {
+            int version = ++state.canvasVersion;
+            broadcast(CollaborationCodec.encodeCanvasDelta(version, delta), sender);
+            sendTo(sender, CollaborationCodec.encodeCanvasDeltaAck(version));
+            return version;
+        }
+    }
+
+    /**
+     * ドラッグ中の位置を受け取る。同じ要素の未配信の位置は上書きする
+     */
+    void offerLiveMove(String elementId, int x, int y, Session sender) {
+        synchronized (state) {
+            liveMoves.put(elementId, new LiveMove(x, y, sender.getId()));
+        }
+    }
+
+    /**
+     * 未配信のドラッグ中の位置を、要素ごとに最新の1件だけ送信者以外に配信する
+     *
+     * @return 配信した要素の数
+     */
+    int flushLiveMoves() throws IOException {
+        synchronized (state) {
+            if (liveMoves.isEmpty()) {
+                return 0;
+            }
+            int count = 0;
+            for (Map.Entry<String, LiveMove> entry : liveMoves.entrySet()) {
+                LiveMove move = entry.getValue();
+                broadcast(CollaborationCodec.encodeLiveMove(entry.getKey(), move.x, move.y), move.senderId);
+                count++;
+            }
+            liveMoves.clear();
+            return count;
+        }
+    }
+
+    /**
+     * ドロップ後の移動を位置表と比べる。表の位置より後の移動なら表を更新して送信者以外に配信し、
+     * 同じ要素の未配信のドラッグ中の位置は捨てて、この移動より後に古い位置が届かないようにする。
+     * 古い移動は配信せず、表にある位置を全員に送り直して、送信者とドラッグ中の位置を受け取った人を戻させる。
+     *
+     * @return 採用されればtrue
+     */
+    boolean offerDroppedMove(String elementId, PositionRegister.Position position, Session sender) throws IOException {
+        synchronized (state) {
+            PositionRegister.Position current = state.positions.offer(elementId, position);
+            if (current != null) {
+                LiveMove pending = liveMoves.get(elementId);
+                if (pending != null && pending.senderId.equals(sender.getId())) {
+                    liveMoves.remove(elementId);
+                }
+                broadcast(CollaborationCodec.encodeMoveAbsoluteResponse(elementId, current), (String) null);
+                return false;
+            }
+            liveMoves.remove(elementId);
+            broadcast(CollaborationCodec.encodeMoveAbsoluteResponse(elementId, position), sender.getId());
+            return true;
+        }
+    }
+
+    /**
+     * 位置表をまとめて送る（途中から参加したセッション向け）。表が空なら何も送らない
+     *
+     * @return 送った要素の数
+     */
+    int sendPositionSnapshot(Session session) throws IOException {
+        synchronized (state) {
+            List<Map.Entry<String, PositionRegister.Position>> entries = state.positions.entries();
+            if (!entries.isEmpty()) {
+                sendTo(session, CollaborationCodec.encodePositionSnapshot(entries));
+            }
+            return entries.size();
+        }
+    }
+
+    /**
+     * 送信者以外の誰か1人にだけ送信（全体同期の依頼など、1人が応えれば足りるもの）
+     *
+     * @return 送信できればtrue
+     */
+    boolean sendToAnyOther(String message, Session exclude) {
+        for (Map.Entry<String, OutboundQueue> entry : members.entrySet()) {
+            if (entry.getKey().equals(exclude.getId())) {
+                continue;
+            }
+            OutboundQueue queue = entry.getValue();
+            if (queue.getSession().isOpen()) {
+                queue.send(message);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 参加者がいなくなって部屋を閉じても残す、エクササイズごとの状態。
+     * 次に開いた部屋に引き継ぎ、再読み込みなどですぐ戻った参加者の確定位置や差分の通し番号が最初からやり直しにならないようにする。
+     * 空のまま一定時間経ったものは CollaborationWebSocket が捨てる
+     */
+    static final class State {
+        /** キャンバス差分に振った最後の通し番号 */
+        private int canvasVersion;
+
+        /** 要素ごとの確定位置 */
+        private final PositionRegister positions = new PositionRegister();
+
+        /** 部屋が空になった時刻（ミリ秒）。参加者がいる間は0 */
+        private volatile long emptiedAt;
+
+        /**
+         * 空になってから ttlMillis 以上経っているか
+         */
+        boolean isExpired(long now, long ttlMillis) {
+            long emptied = emptiedAt;
+            return emptied != 0 && now - emptied >= ttlMillis;
+        }
+    }
+
+    /** ドラッグ中の位置 */
+    private static class LiveMove {
+        final int x;
+        final int y;
+        /** 送ってきたセッション（このセッションには配信しない） */
+        final String senderId;
+
+        LiveMove(int x, int y, String senderId) {
+            this.x = x;
+            this.y = y;
+            this.senderId = senderId;
+        }
+    }
+}
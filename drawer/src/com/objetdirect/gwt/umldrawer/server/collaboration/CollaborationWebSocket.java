@@ -1,12 +1,11 @@
 package com.objetdirect.gwt.umldrawer.server.collaboration;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.websocket.OnClose;
@@ -14,36 +13,110 @@ import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.Session;
+import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.objetdirect.gwt.umldrawer.client.beans.EditOperation;
-import com.objetdirect.gwt.umldrawer.server.dao.Dao;
-import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.DatabaseAccessorUMLDS;
 
 /**
  * WebSocketエンドポイント
- * クライアントからの編集操作を受信し、OT方式で処理して他のクライアントに配信
+ * クライアントからの編集操作を受信し、OT方式で処理して同じエクササイズのクライアントに配信
+ * 
+ * 接続はエクササイズごとの部屋（{@link CollaborationRoom}）に分けられ、
+ * 配信は各セッションの送信キュー経由で非同期に行う。
+ * ドラッグ中の位置（liveMove）は保存せず、部屋ごとに要素の最新位置だけを LIVE_MOVE_TICK_MS ごとに配信する。
+ * ドロップ後の位置は部屋の位置表で後勝ちに揃え、古い移動は配信しない。
+ * UMLDSからのソースコードの変更は {@link SourceCodeChangeNotifier} がまとめて、全ての部屋に知らせる。
  */
-@ServerEndpoint("/collaboration")
+@ServerEndpoint("/collaboration/{exerciseId}")
 public class CollaborationWebSocket {
     
     private static final Logger logger = Logger.getLogger(CollaborationWebSocket.class.getName());
-    private static final Set<Session> sessions = Collections.synchronizedSet(new HashSet<>());
-    private static final Gson gson = new Gson();
+    /** エクササイズごとの部屋 (exerciseId -> 部屋) */
+    private static final Map<Integer, CollaborationRoom> rooms = new ConcurrentHashMap<>();
+    /** 部屋を閉じても残すエクササイズごとの状態 (exerciseId -> 状態)。空のまま ROOM_STATE_TTL_MS 経てば捨てる */
+    private static final Map<Integer, CollaborationRoom.State> roomStates = new ConcurrentHashMap<>();
     private static final OperationManager operationManager = OperationManager.getInstance();
+    private static final OperationLogWriter logWriter = OperationLogWriter.getInstance();
+    
+    /** operation_logへの保存を行うか（負荷計測ハーネスでDBを切り離す場合のみfalse） */
+    public static volatile boolean persistOperations = true;
+    
+    /** UMLDSからのソースコードの変更を知らせるか（負荷計測ハーネスでUMLDSの受付を起動しない場合のみfalse） */
+    public static volatile boolean notifySourceCodeChanges = true;
+    
+    /** ドラッグ中の位置を配信する間隔（ミリ秒） */
+    static final long LIVE_MOVE_TICK_MS = 50;
+    
+    /** 部屋が空になってから、その状態（確定位置・差分の通し番号）を捨てるまでの時間 */
+    static final long ROOM_STATE_TTL_MS = TimeUnit.MINUTES.toMillis(30);
+    
+    /** 空になった部屋の状態を捨てるか調べる間隔 */
+    private static final long ROOM_STATE_SWEEP_MS = TimeUnit.MINUTES.toMillis(1);
+    
+    /** ドラッグ中の位置を、部屋ごとに tick 単位でまとめて配信するスレッド（空になった部屋の状態の掃除もこのスレッドで行う） */
+    private static final ScheduledExecutorService liveMoveTicker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-move-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    static {
+        liveMoveTicker.scheduleAtFixedRate(CollaborationWebSocket::flushLiveMoves,
+                LIVE_MOVE_TICK_MS, LIVE_MOVE_TICK_MS, TimeUnit.MILLISECONDS);
+        liveMoveTicker.scheduleWithFixedDelay(CollaborationWebSocket::expireRoomStates,
+                ROOM_STATE_SWEEP_MS, ROOM_STATE_SWEEP_MS, TimeUnit.MILLISECONDS);
+    }
     
     @OnOpen
-    public void onOpen(Session session) {
-        sessions.add(session);
-        logger.info("WebSocket接続が確立されました。セッションID: " + session.getId());
+    public void onOpen(Session session, @PathParam("exerciseId") String exerciseId) {
+        int id = Integer.parseInt(exerciseId);
+        session.getUserProperties().put("exerciseId", id);
+        // 参加は部屋の作成・削除と同じ compute の中で行い、onClose が消したばかりの部屋に入らないようにする
+        CollaborationRoom room = rooms.compute(id, (key, current) -> {
+            CollaborationRoom joined = current != null
+                    ? current
+                    : new CollaborationRoom(key, roomStates.computeIfAbsent(key, k -> new CollaborationRoom.State()));
+            joined.join(session);
+            return joined;
+        });
+        operationManager.registerClient(id, session.getId());
+        if (notifySourceCodeChanges) {
+            SourceCodeChangeNotifier.getInstance();
+        }
+        logger.info("WebSocket接続が確立されました。セッションID: " + session.getId() + ", エクササイズ: " + id);
+        
+        // 途中から参加した場合は、他の参加者が動かした要素の確定位置を送る
+        try {
+            int count = room.sendPositionSnapshot(session);
+            if (count > 0) {
+                logger.info("位置表を送信しました。セッションID: " + session.getId() + ", 要素数: " + count);
+            }
+        } catch (IOException e) {
+            logger.warning("位置表の送信エラー: " + e.getMessage());
+        }
+        
+        // テキストの現在状態とシーケンス番号も送り、最初の編集から履歴の保持範囲内に基づかせる
+        try {
+            ExerciseOperationLog.Snapshot state = operationManager.getCurrentState(id);
+            if (state.getSequence() > 0) {
+                room.sendTo(session, CollaborationCodec.encodeTextSync(state));
+            }
+        } catch (IOException e) {
+            logger.warning("テキスト状態の送信エラー: " + e.getMessage());
+        }
     }
     
     @OnClose
     public void onClose(Session session) {
-        sessions.remove(session);
+        Integer exerciseId = (Integer) session.getUserProperties().get("exerciseId");
+        if (exerciseId != null) {
+            rooms.computeIfPresent(exerciseId, (id, room) -> {
+                room.leave(session);
+                return room.isEmpty() ? null : room;
+            });
+        }
+        operationManager.releaseClient(session.getId());
         logger.info("WebSocket接続が切断されました。セッションID: " + session.getId());
     }
     
@@ -56,23 +129,46 @@ public class CollaborationWebSocket {
     @OnMessage
     public void onMessage(String message, Session session) {
         try {
-            JsonParser parser = new JsonParser();
-            JsonObject json = parser.parse(message).getAsJsonObject();
-            
-            String action = json.get("action").getAsString();
+            // 中継するだけのメッセージはactionだけを読み、本文は解析しない
+            String action = CollaborationCodec.readAction(message);
             
             if ("editOperation".equals(action)) {
-                handleEditOperation(json, session);
+                handleEditOperation(CollaborationCodec.decode(message), session);
             }
             else if ("moveOperation".equals(action)) {
                 // 絶対座標方式の移動操作（タイムスタンプベースのLWW）
-                handleMoveOperationAbsolute(json, session);
+                handleMoveOperationAbsolute(CollaborationCodec.decode(message), session);
+            }
+            else if ("liveMove".equals(action)) {
+                // ドラッグ中の位置: 保存せず、要素ごとに最新の位置だけを次の tick で配信する
+                EditOperation operation = CollaborationCodec.decode(message);
+                CollaborationRoom room = roomOf(session);
+                if (room != null) {
+                    room.offerLiveMove(operation.getElementId(), operation.getNewX(), operation.getNewY(), session);
+                }
             }
             else if ("sync".equals(action)) {
                 // キャンバス全体の同期: 他のクライアントにブロードキャスト
                 broadcastToOthers(message, session);
                 logger.info("syncメッセージをブロードキャストしました");
             }
+            else if ("canvasDelta".equals(action)) {
+                // 成果物単位のキャンバス差分: 通し番号を振って他のクライアントに配信
+                CollaborationRoom room = roomOf(session);
+                if (room != null) {
+                    int version = room.relayCanvasDelta(message, session);
+                    logger.fine("canvasDeltaを配信しました。version: " + version);
+                }
+            }
+            else if ("syncRequest".equals(action)) {
+                // 差分を取りこぼしたクライアントの全体同期依頼: 誰か1人に応えてもらう
+                CollaborationRoom room = roomOf(session);
+                if (room != null && !room.sendToAnyOther(message, session)) {
+                    // 応えられる人がいなければ手元のキャンバスが最新なので、現在の番号だけを返して待たせない
+                    room.sendCanvasVersion(session);
+                    logger.info("全体同期に応えられるクライアントがいません。セッションID: " + session.getId());
+                }
+            }
             else if ("textUpdate".equals(action)) {
                 // テキスト更新: 他のクライアントにブロードキャスト
                 broadcastToOthers(message, session);
@@ -94,38 +190,124 @@ public class CollaborationWebSocket {
     }
     
     /**
-     * 送信者以外の全クライアントにメッセージをブロードキャスト
-     * sync, textUpdate, applyPatch メッセージの配信に使用
+     * 空のまま ROOM_STATE_TTL_MS 経った部屋の状態を捨てる（liveMoveTicker から呼ばれる）
      */
-    private void broadcastToOthers(String message, Session senderSession) {
-        synchronized (sessions) {
-            for (Session session : sessions) {
-                if (session.isOpen() && !session.equals(senderSession)) {
-                    try {
-                        session.getBasicRemote().sendText(message);
-                    } catch (IOException e) {
-                        logger.warning("メッセージ送信エラー (セッション: " + session.getId() + "): " + e.getMessage());
-                    }
+    static int expireRoomStates() {
+        long now = System.currentTimeMillis();
+        int[] expired = new int[1];
+        for (Map.Entry<Integer, CollaborationRoom.State> entry : roomStates.entrySet()) {
+            CollaborationRoom.State state = entry.getValue();
+            if (!state.isExpired(now, ROOM_STATE_TTL_MS)) {
+                continue;
+            }
+            // onOpen と同じ compute の中で確かめ、参加と同時に捨てないようにする
+            rooms.compute(entry.getKey(), (id, room) -> {
+                if (room == null && state.isExpired(now, ROOM_STATE_TTL_MS) && roomStates.remove(id, state)) {
+                    expired[0]++;
+                }
+                return room;
+            });
+        }
+        if (expired[0] > 0) {
+            logger.info("空になった部屋の状態を捨てました。部屋数: " + expired[0]);
+        }
+        return expired[0];
+    }
+    
+    /**
+     * liveMoveTicker を止める（Webアプリの停止時に {@link CollaborationContextListener} から呼ばれる）
+     */
+    static void stopLiveMoveTicker() {
+        liveMoveTicker.shutdownNow();
+        try {
+            if (!liveMoveTicker.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warning("live-move-ticker が止まりません");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 全ての部屋の未配信のドラッグ中の位置を配信する（liveMoveTicker から呼ばれる）
+     */
+    private static void flushLiveMoves() {
+        for (CollaborationRoom room : rooms.values()) {
+            try {
+                int count = room.flushLiveMoves();
+                if (count > 0) {
+                    logger.fine("ドラッグ中の位置を配信しました。エクササイズ: " + room.getExerciseId() + ", 要素数: " + count);
                 }
+            } catch (Exception e) {
+                // 例外で定期実行が止まらないようにする
+                logger.warning("ドラッグ中の位置の配信エラー: " + e.getMessage());
             }
         }
     }
     
+    /**
+     * 全ての部屋の全員にメッセージを送る
+     *
+     * @return 送ったセッション数
+     */
+    static int pushToAllExercises(String message) {
+        int sessions = 0;
+        for (CollaborationRoom room : rooms.values()) {
+            room.broadcast(message, (Session) null);
+            sessions += room.size();
+        }
+        return sessions;
+    }
+    
+    /**
+     * 送信者と同じ部屋の、送信者以外のクライアントにメッセージをブロードキャスト
+     * sync, textUpdate, applyPatch メッセージの配信に使用
+     */
+    private void broadcastToOthers(String message, Session senderSession) {
+        CollaborationRoom room = roomOf(senderSession);
+        if (room != null) {
+            room.broadcast(message, senderSession);
+        }
+    }
+    
+    /**
+     * セッションが参加している部屋を取得
+     */
+    private CollaborationRoom roomOf(Session session) {
+        Integer exerciseId = (Integer) session.getUserProperties().get("exerciseId");
+        if (exerciseId == null) {
+            logger.warning("エクササイズが不明なセッションです: " + session.getId());
+            return null;
+        }
+        return rooms.get(exerciseId);
+    }
+    
     /**
      * 編集操作を処理
      */
-    private void handleEditOperation(JsonObject json, Session senderSession) {
+    private void handleEditOperation(EditOperation operation, Session senderSession) {
         try {
             // 操作タイプを確認
-            String operationType = json.has("operationType") ? json.get("operationType").getAsString() : "text_update";
-            
-            if ("move_delta".equals(operationType)) {
-                handleMoveOperation(json, senderSession);
+            if ("move_delta".equals(operation.getOperationType())) {
+                handleMoveOperation(operation, senderSession);
             } else {
                 // テキスト編集操作
-                EditOperation operation = parseEditOperation(json);
+                if (operation.getSessionId() == null) {
+                    operation.setSessionId(senderSession.getId());
+                }
+                operationManager.acknowledge(operation.getExerciseId(), senderSession.getId(),
+                        operation.getBasedOnServerSequence());
                 EditOperation processedOp = operationManager.processOperation(operation);
-                saveOperationToDatabase(processedOp);
+                if (processedOp == null) {
+                    // 履歴を切り捨てた範囲に基づく操作はトランスフォームできないので断り、現在状態を送り直す
+                    logger.info("保持範囲外の操作を断り、現在状態を送り直します。セッションID: " + senderSession.getId()
+                            + ", basedOn: " + operation.getBasedOnServerSequence());
+                    sendTextSync(operation.getExerciseId(), senderSession);
+                    return;
+                }
+                if (persistOperations) {
+                    saveOperationToDatabase(processedOp);
+                }
                 broadcastOperation(processedOp, senderSession);
             }
             
@@ -135,19 +317,31 @@ public class CollaborationWebSocket {
         }
     }
     
+    /**
+     * テキストの現在状態とその時点のサーバーシーケンス番号をクライアントに送る
+     */
+    private void sendTextSync(int exerciseId, Session session) throws IOException {
+        CollaborationRoom room = roomOf(session);
+        if (room != null) {
+            room.sendTo(session, CollaborationCodec.encodeTextSync(operationManager.getCurrentState(exerciseId)));
+        }
+    }
+    
     /**
      * 移動操作を処理
      */
-    private void handleMoveOperation(JsonObject json, Session senderSession) {
+    private void handleMoveOperation(EditOperation operation, Session senderSession) {
         try {
-            // JSONから移動操作を構築
-            EditOperation operation = parseMoveOperation(json);
+            operationManager.acknowledge(operation.getExerciseId(), senderSession.getId(),
+                    operation.getBasedOnServerSequence());
             
             // OperationManagerで処理（delta合成）
             EditOperation processedOp = operationManager.transformMoveOperation(operation);
             
             // DBに保存
-            saveMoveOperationToDatabase(processedOp);
+            if (persistOperations) {
+                saveMoveOperationToDatabase(processedOp);
+            }
             
             // 全クライアントに配信
             broadcastMoveOperation(processedOp, senderSession);
@@ -158,324 +352,98 @@ public class CollaborationWebSocket {
         }
     }
     
+
     /**
-     * JSONから移動操作を構築
+     * 移動操作をDBに保存（書き込みキューに積み、受信スレッドではDBを待たない）
      */
-    private EditOperation parseMoveOperation(JsonObject json) {
-        EditOperation op = new EditOperation();
-        
-        if (json.has("clientSequence")) {
-            op.setClientSequence(json.get("clientSequence").getAsInt());
-        }
-        if (json.has("basedOnServerSequence")) {
-            op.setBasedOnServerSequence(json.get("basedOnServerSequence").getAsInt());
-        }
-        if (json.has("userId")) {
-            op.setUserId(json.get("userId").getAsString());
-        }
-        if (json.has("elementId")) {
-            op.setElementId(json.get("elementId").getAsString());
-        }
-        op.setOperationType("move_delta");
-        
-        if (json.has("oldX")) {
-            op.setOldX(json.get("oldX").getAsInt());
-        }
-        if (json.has("oldY")) {
-            op.setOldY(json.get("oldY").getAsInt());
-        }
-        if (json.has("deltaX")) {
-            op.setDeltaX(json.get("deltaX").getAsInt());
-        }
-        if (json.has("deltaY")) {
-            op.setDeltaY(json.get("deltaY").getAsInt());
-        }
-        if (json.has("exerciseId")) {
-            op.setExerciseId(json.get("exerciseId").getAsInt());
-        }
-        if (json.has("timestamp")) {
-            op.setTimestamp(json.get("timestamp").getAsLong());
-        }
-        
-        return op;
+    private void saveMoveOperationToDatabase(EditOperation operation) {
+        logWriter.enqueue(operation);
+        saveSnapshotIfTaken(operation);
     }
     
     /**
-     * JSONからEditOperationを構築
+     * 全クライアントに移動操作を配信
      */
-    private EditOperation parseEditOperation(JsonObject json) {
-        EditOperation op = new EditOperation();
+    private void broadcastMoveOperation(EditOperation operation, Session senderSession) throws IOException {
+        // 配信メッセージは1回だけ文字列化し、部屋の全員で共有する
+        String jsonString = CollaborationCodec.encodeMoveDeltaResponse(operation);
         
-        if (json.has("clientSequence")) {
-            op.setClientSequence(json.get("clientSequence").getAsInt());
-        }
-        if (json.has("basedOnServerSequence")) {
-            op.setBasedOnServerSequence(json.get("basedOnServerSequence").getAsInt());
-        }
-        if (json.has("userId")) {
-            op.setUserId(json.get("userId").getAsString());
-        }
-        if (json.has("sessionId")) {
-            op.setSessionId(json.get("sessionId").getAsString());
-        }
-        if (json.has("elementId")) {
-            op.setElementId(json.get("elementId").getAsString());
-        }
-        if (json.has("partId")) {
-            op.setPartId(json.get("partId").getAsString());
-        }
-        if (json.has("operationType")) {
-            op.setOperationType(json.get("operationType").getAsString());
-        }
-        if (json.has("patchText")) {
-            op.setPatchText(json.get("patchText").getAsString());
-        }
-        if (json.has("beforeText")) {
-            op.setBeforeText(json.get("beforeText").getAsString());
-        }
-        if (json.has("afterText")) {
-            op.setAfterText(json.get("afterText").getAsString());
-        }
-        if (json.has("exerciseId")) {
-            op.setExerciseId(json.get("exerciseId").getAsInt());
-        }
-        if (json.has("timestamp")) {
-            op.setTimestamp(json.get("timestamp").getAsLong());
+        CollaborationRoom room = roomOf(senderSession);
+        if (room != null) {
+            room.broadcast(jsonString, senderSession);
+            // 送信者には「自分の操作」フラグを付与
+            room.sendTo(senderSession, CollaborationCodec.markOwnOperation(jsonString));
         }
         
-        return op;
+        logger.info("移動操作を全クライアントに配信しました。ServerSeq: " + operation.getServerSequence());
     }
     
     /**
-     * 移動操作をDBに保存
+     * 処理された操作をDBに保存（書き込みキューに積み、受信スレッドではDBを待たない）
      */
-    private void saveMoveOperationToDatabase(EditOperation operation) {
-        java.sql.Connection connection = null;
-        java.sql.PreparedStatement stmt = null;
-        
-        try {
-            Dao dao = new Dao();
-            connection = dao.createConnection();
-            
-            // operation_logテーブルに保存
-            String sql = "INSERT INTO operation_log " +
-                        "(user_id, exercise_id, element_id, operation_type, " +
-                        "old_x, old_y, delta_x, delta_y, " +
-                        "client_sequence, server_sequence, based_on_sequence, " +
-                        "timestamp, date) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
-            
-            stmt = connection.prepareStatement(sql);
-            stmt.setString(1, operation.getUserId());
-            stmt.setInt(2, operation.getExerciseId());
-            stmt.setString(3, operation.getElementId());
-            stmt.setString(4, operation.getOperationType());
-            stmt.setInt(5, operation.getOldX());
-            stmt.setInt(6, operation.getOldY());
-            stmt.setInt(7, operation.getDeltaX());
-            stmt.setInt(8, operation.getDeltaY());
-            stmt.setInt(9, operation.getClientSequence());
-            stmt.setInt(10, operation.getServerSequence());
-            stmt.setInt(11, operation.getBasedOnServerSequence());
-            stmt.setLong(12, operation.getTimestamp());
-            
-            stmt.executeUpdate();
-            
-            logger.info("移動操作をDBに保存しました。ServerSeq: " + operation.getServerSequence());
-            
-        } catch (Exception e) {
-            logger.severe("移動操作DB保存エラー: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            try {
-                if (stmt != null) stmt.close();
-                if (connection != null) connection.close();
-            } catch (Exception e) {
-                logger.warning("リソースクローズ失敗: " + e.getMessage());
-            }
-        }
+    private void saveOperationToDatabase(EditOperation operation) {
+        logWriter.enqueue(operation);
+        saveSnapshotIfTaken(operation);
     }
     
     /**
-     * 全クライアントに移動操作を配信
+     * この操作で状態スナップショットが取られていれば、再起動後の復元用に保存する
      */
-    private void broadcastMoveOperation(EditOperation operation, Session senderSession) {
-        JsonObject response = new JsonObject();
-        response.addProperty("action", "moveOperationResponse");
-        response.addProperty("serverSequence", operation.getServerSequence());
-        response.addProperty("elementId", operation.getElementId());
-        response.addProperty("oldX", operation.getOldX());
-        response.addProperty("oldY", operation.getOldY());
-        response.addProperty("deltaX", operation.getDeltaX());
-        response.addProperty("deltaY", operation.getDeltaY());
-        response.addProperty("userId", operation.getUserId());
-        
-        String jsonString = gson.toJson(response);
-        
-        synchronized (sessions) {
-            for (Session session : sessions) {
-                try {
-                    // 送信者には「自分の操作」フラグを付与
-                    if (session.equals(senderSession)) {
-                        JsonObject selfResponse = new JsonObject();
-                        selfResponse.addProperty("action", "moveOperationResponse");
-                        selfResponse.addProperty("serverSequence", operation.getServerSequence());
-                        selfResponse.addProperty("elementId", operation.getElementId());
-                        selfResponse.addProperty("oldX", operation.getOldX());
-                        selfResponse.addProperty("oldY", operation.getOldY());
-                        selfResponse.addProperty("deltaX", operation.getDeltaX());
-                        selfResponse.addProperty("deltaY", operation.getDeltaY());
-                        selfResponse.addProperty("userId", operation.getUserId());
-                        selfResponse.addProperty("isOwnOperation", true);
-                        session.getBasicRemote().sendText(gson.toJson(selfResponse));
-                    } else {
-                        session.getBasicRemote().sendText(jsonString);
-                    }
-                } catch (IOException e) {
-                    logger.warning("移動操作配信失敗: " + e.getMessage());
-                }
-            }
+    private void saveSnapshotIfTaken(EditOperation operation) {
+        int serverSeq = operation.getServerSequence();
+        if (serverSeq <= 0 || serverSeq % ExerciseOperationLog.SNAPSHOT_INTERVAL != 0) {
+            return;
         }
-        
-        logger.info("移動操作を全クライアントに配信しました。ServerSeq: " + operation.getServerSequence());
-    }
-    
-    /**
-     * 処理された操作をDBに保存
-     */
-    private void saveOperationToDatabase(EditOperation operation) {
-        java.sql.Connection connection = null;
-        java.sql.PreparedStatement stmt = null;
-        
-        try {
-            Dao dao = new Dao();
-            connection = dao.createConnection();
-            
-            // operation_logテーブルに保存
-            String sql = "INSERT INTO operation_log " +
-                        "(user_id, exercise_id, element_id, part_id, " +
-                        "operation_type, patch_text, before_text, after_text, " +
-                        "client_sequence, server_sequence, based_on_sequence, " +
-                        "timestamp, date) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
-            
-            stmt = connection.prepareStatement(sql);
-            stmt.setString(1, operation.getUserId());
-            stmt.setInt(2, operation.getExerciseId());
-            stmt.setString(3, operation.getElementId());
-            stmt.setString(4, operation.getPartId());
-            stmt.setString(5, operation.getOperationType());
-            stmt.setString(6, operation.getPatchText());
-            stmt.setString(7, operation.getBeforeText());
-            stmt.setString(8, operation.getAfterText());
-            stmt.setInt(9, operation.getClientSequence());
-            stmt.setInt(10, operation.getServerSequence());
-            stmt.setInt(11, operation.getBasedOnServerSequence());
-            stmt.setLong(12, operation.getTimestamp());
-            
-            stmt.executeUpdate();
-            
-            logger.info("操作をDBに保存しました。ServerSeq: " + operation.getServerSequence());
-            
-        } catch (Exception e) {
-            logger.severe("DB保存エラー: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            try {
-                if (stmt != null) stmt.close();
-                if (connection != null) connection.close();
-            } catch (Exception e) {
-                logger.warning("リソースクローズ失敗: " + e.getMessage());
-            }
+        ExerciseOperationLog.Snapshot snapshot = operationManager.getLatestSnapshot(operation.getExerciseId());
+        if (snapshot != null && snapshot.getSequence() == serverSeq) {
+            logWriter.enqueueSnapshot(snapshot);
         }
     }
     
     /**
      * 全クライアントに操作を配信
      */
-    private void broadcastOperation(EditOperation operation, Session senderSession) {
-        JsonObject response = new JsonObject();
-        response.addProperty("action", "editOperationResponse");
-        response.addProperty("serverSequence", operation.getServerSequence());
-        response.addProperty("elementId", operation.getElementId());
-        response.addProperty("partId", operation.getPartId());
-        response.addProperty("afterText", operation.getAfterText());
-        response.addProperty("userId", operation.getUserId());
-        response.addProperty("patchText", operation.getPatchText());
-        
-        String jsonString = gson.toJson(response);
+    private void broadcastOperation(EditOperation operation, Session senderSession) throws IOException {
+        // 配信メッセージは1回だけ文字列化し、部屋の全員で共有する
+        String jsonString = CollaborationCodec.encodeEditResponse(operation);
         
-        synchronized (sessions) {
-            for (Session session : sessions) {
-                try {
-                    // 送信者には「自分の操作」フラグを付与
-                    if (session.equals(senderSession)) {
-                        JsonObject selfResponse = new JsonObject();
-                        selfResponse.addProperty("action", "editOperationResponse");
-                        selfResponse.addProperty("serverSequence", operation.getServerSequence());
-                        selfResponse.addProperty("elementId", operation.getElementId());
-                        selfResponse.addProperty("partId", operation.getPartId());
-                        selfResponse.addProperty("afterText", operation.getAfterText());
-                        selfResponse.addProperty("userId", operation.getUserId());
-                        selfResponse.addProperty("patchText", operation.getPatchText());
-                        selfResponse.addProperty("isOwnOperation", true);
-                        session.getBasicRemote().sendText(gson.toJson(selfResponse));
-                    } else {
-                        session.getBasicRemote().sendText(jsonString);
-                    }
-                } catch (IOException e) {
-                    logger.warning("メッセージ送信失敗: " + e.getMessage());
-                }
-            }
+        CollaborationRoom room = roomOf(senderSession);
+        if (room != null) {
+            room.broadcast(jsonString, senderSession);
+            // 送信者には「自分の操作」フラグを付与
+            room.sendTo(senderSession, CollaborationCodec.markOwnOperation(jsonString));
         }
         
-        
         logger.info("操作を全クライアントに配信しました。ServerSeq: " + operation.getServerSequence());
     }
     
     /**
-     * 絶対座標方式の移動操作を処理（タイムスタンプベースのLWW）
+     * 絶対座標方式の移動操作を処理（ハイブリッド論理時計によるLWW）
+     * 部屋の位置表より古い移動は配信も保存もせず、確定位置を送り直す
      */
-    private void handleMoveOperationAbsolute(JsonObject json, Session senderSession) {
+    private void handleMoveOperationAbsolute(EditOperation operation, Session senderSession) {
         try {
-            String elementId = json.get("elementId").getAsString();
-            int oldX = json.get("oldX").getAsInt();
-            int oldY = json.get("oldY").getAsInt();
-            int newX = json.get("newX").getAsInt();
-            int newY = json.get("newY").getAsInt();
-            long timestamp = json.get("timestamp").getAsLong();
-            String userId = json.get("userId").getAsString();
-            String clientId = json.get("clientId").getAsString();
-            int exerciseId = json.get("exerciseId").getAsInt();
+            operation.setOperationType("move_absolute");
             
-            // データベースに保存（タイムスタンプも記録）
-            saveMoveOperationToDatabase(elementId, oldX, oldY, newX, newY, timestamp, userId, exerciseId);
-            
-            // 全クライアントにブロードキャスト（LWW方式でクライアント側が適用判断）
-            JsonObject response = new JsonObject();
-            response.addProperty("action", "moveOperationResponse");
-            response.addProperty("elementId", elementId);
-            response.addProperty("oldX", oldX);
-            response.addProperty("oldY", oldY);
-            response.addProperty("newX", newX);
-            response.addProperty("newY", newY);
-            response.addProperty("timestamp", timestamp);
-            response.addProperty("userId", userId);
-            response.addProperty("clientId", clientId);
-            
-            String jsonString = gson.toJson(response);
+            CollaborationRoom room = roomOf(senderSession);
+            if (room == null) {
+                return;
+            }
+            PositionRegister.Position position = new PositionRegister.Position(operation.getNewX(), operation.getNewY(),
+                    operation.getTimestamp(), operation.getCounter(), operation.getClientId());
+            if (!room.offerDroppedMove(operation.getElementId(), position, senderSession)) {
+                logger.fine("古い移動操作を破棄しました。Element: " + operation.getElementId()
+                        + ", Timestamp: " + operation.getTimestamp() + "." + operation.getCounter());
+                return;
+            }
             
-            synchronized (sessions) {
-                for (Session session : sessions) {
-                    try {
-                        session.getBasicRemote().sendText(jsonString);
-                    } catch (IOException e) {
-                        logger.warning("移動操作ブロードキャスト失敗: " + e.getMessage());
-                    }
-                }
+            // データベースに保存（タイムスタンプも記録）
+            if (persistOperations) {
+                saveMoveOperationToDatabase(operation);
             }
             
-            logger.info("移動操作をブロードキャストしました。Element: " + elementId + ", Timestamp: " + timestamp);
+            logger.info("移動操作をブロードキャストしました。Element: " + operation.getElementId()
+                    + ", Timestamp: " + operation.getTimestamp() + "." + operation.getCounter());
             
         } catch (Exception e) {
             logger.severe("移動操作処理エラー: " + e.getMessage());
@@ -483,44 +451,5 @@ public class CollaborationWebSocket {
         }
     }
     
-    /**
-     * 移動操作をデータベースに保存
-     */
-    private void saveMoveOperationToDatabase(String elementId, int oldX, int oldY, int newX, int newY, 
-                                            long timestamp, String userId, int exerciseId) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        
-        try {
-            DatabaseAccessorUMLDS dbAccessor = DatabaseAccessorUMLDS.getInstance();
-            conn = dbAccessor.createHikariConnection();
-            String sql = "INSERT INTO operation_log (element_id, operation_type, old_x, old_y, new_x, new_y, " +
-                        "timestamp, user_id, exercise_id) VALUES (?, 'move_absolute', ?, ?, ?, ?, ?, ?, ?)";
-            
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, elementId);
-            stmt.setInt(2, oldX);
-            stmt.setInt(3, oldY);
-            stmt.setInt(4, newX);
-            stmt.setInt(5, newY);
-            stmt.setLong(6, timestamp);
-            stmt.setString(7, userId);
-            stmt.setInt(8, exerciseId);
-            
-            int rows = stmt.executeUpdate();
-            logger.info("移動操作をDBに保存しました。Element: " + elementId + ", rows: " + rows);
-            
-        } catch (SQLException e) {
-            logger.severe("DB保存エラー: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            try {
-                if (stmt != null) stmt.close();
-                if (conn != null) conn.close();
-            } catch (SQLException e) {
-                logger.warning("DB接続クローズ失敗: " + e.getMessage());
-            }
-        }
-    }
 }
 
@@ -0,0 +1,287 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umldrawer.client.beans.EditOperation;
+
+/**
+ * 1つのエクササイズ（課題）に属する操作ログ。
+ * シーケンス番号の採番・操作履歴・現在のテキスト状態をまとめて保持する。
+ *
+ * 書き込みはこのインスタンスのモニタで直列化されるため（エクササイズ単位のシングルライター）、
+ * 別のエクササイズへの操作は互いにブロックせず並行に処理される。
+ *
+ * 操作履歴はサーバーシーケンス番号で直接引けるリングバッファで保持する。
+ * 接続中の全クライアントが確認済み（basedOnServerSequence 以下）の操作は
+ * トランスフォームに使われることがないため切り捨て、一定間隔で現在状態のスナップショットを残す。
+ * 切り捨てた範囲に基づく操作はトランスフォームできないので、{@link #getOperationsAfter} はnullを返す。
+ *
+ * サーバー再起動後は、最初に触れた時に {@link #restore} で operation_log から採番位置と現在状態を戻す
+ * （履歴そのものは戻さないので、戻した位置より前に基づく操作は保持範囲外になる）。
+ */
+class ExerciseOperationLog {
+
+    private static final Logger logger = Logger.getLogger(ExerciseOperationLog.class.getName());
+
+    /** リングバッファの初期容量（2のべき乗） */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** 保持する操作数の上限。確認の遅いクライアントがいても、これを超えた古い操作は捨てる */
+    static final int MAX_HISTORY = 8192;
+
+    /** この件数を超えたら確認済み操作の切り捨てを試みる */
+    private static final int COMPACT_THRESHOLD = 256;
+
+    /** 状態スナップショットを取る間隔（シーケンス数） */
+    static final int SNAPSHOT_INTERVAL = 500;
+
+    /** エクササイズID */
+    private final int exerciseId;
+
+    /** 最後に割り当てたサーバーシーケンス番号 */
+    private int lastSequence;
+
+    /** 操作履歴のリングバッファ */
+    private EditOperation[] buffer = new EditOperation[INITIAL_CAPACITY];
+
+    /** バッファ先頭の位置 */
+    private int head;
+
+    /** 保持している操作数 */
+    private int size;
+
+    /** バッファ先頭の操作のサーバーシーケンス番号 */
+    private int firstSequence = 1;
+
+    /** クライアントごとの確認済みシーケンス番号 (clientKey -> basedOnServerSequence) */
+    private final Map<String, Integer> acknowledged = new HashMap<>();
+
+    /** 現在のテキスト状態 (elementId:partId -> currentText) */
+    private final Map<String, String> states = new HashMap<>();
+
+    /** 最新の状態スナップショット */
+    private Snapshot latestSnapshot;
+
+    ExerciseOperationLog(int exerciseId) {
+        this.exerciseId = exerciseId;
+    }
+
+    int getExerciseId() {
+        return exerciseId;
+    }
+
+    /**
+     * 次のサーバーシーケンス番号を割り当てる
+     */
+    synchronized int nextSequence() {
+        return ++lastSequence;
+    }
+
+    /**
+     * 最後に割り当てたサーバーシーケンス番号を取得
+     */
+    synchronized int getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * 操作を履歴に追加。
+     * 操作はnextSequence()で採番した順に追加されること。
+     */
+    synchronized void append(EditOperation operation) {
+        if (size == buffer.length) {
+            if (size >= MAX_HISTORY) {
+                dropHead();
+            } else {
+                grow();
+            }
+        }
+        if (size == 0) {
+            firstSequence = operation.getServerSequence();
+        }
+        buffer[(head + size) & (buffer.length - 1)] = operation;
+        size++;
+
+        if (operation.getServerSequence() % SNAPSHOT_INTERVAL == 0) {
+            latestSnapshot = new Snapshot(exerciseId, operation.getServerSequence(), new HashMap<>(states));
+        }
+        if (size > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * 指定したシーケンス番号より後の操作を取得。
+     * バッファ上の位置を直接計算するため、コストは該当する操作数に比例する。
+     *
+     * @return 指定したシーケンス番号より後の操作。その一部がすでに切り捨てられている
+     *         （保持範囲より古いシーケンスに基づいている）場合はnull
+     */
+    synchronized List<EditOperation> getOperationsAfter(int basedOnSequence) {
+        if (basedOnSequence + 1 < firstSequence) {
+            logger.warning("保持範囲外のシーケンスに基づく操作です。exerciseId: " + exerciseId
+                    + ", basedOn: " + basedOnSequence + ", 保持先頭: " + firstSequence);
+            return null;
+        }
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+        int from = basedOnSequence + 1 - firstSequence;
+        List<EditOperation> concurrent = new ArrayList<>(Math.max(0, size - from));
+        for (int i = from; i < size; i++) {
+            concurrent.add(buffer[(head + i) & (buffer.length - 1)]);
+        }
+        return concurrent;
+    }
+
+    /**
+     * 操作履歴のコピーを取得
+     */
+    synchronized List<EditOperation> snapshotHistory() {
+        return getOperationsAfter(firstSequence - 1);
+    }
+
+    /**
+     * 保持している操作数を取得
+     */
+    synchronized int getHistorySize() {
+        return size;
+    }
+
+    /**
+     * クライアントの確認済みシーケンス番号を記録
+     */
+    synchronized void acknowledge(String clientKey, int basedOnSequence) {
+        Integer previous = acknowledged.get(clientKey);
+        if (previous == null || previous < basedOnSequence) {
+            acknowledged.put(clientKey, basedOnSequence);
+        }
+    }
+
+    /**
+     * 切断されたクライアントを確認対象から外す
+     */
+    synchronized boolean release(String clientKey) {
+        return acknowledged.remove(clientKey) != null;
+    }
+
+    /**
+     * 現在のテキストを取得
+     */
+    synchronized String getText(String stateKey) {
+        return states.getOrDefault(stateKey, "");
+    }
+
+    /**
+     * 現在のテキストを保持しているか
+     */
+    synchronized boolean hasText(String stateKey) {
+        return states.containsKey(stateKey);
+    }
+
+    /**
+     * 現在のテキストを更新
+     */
+    synchronized void putText(String stateKey, String text) {
+        states.put(stateKey, text);
+    }
+
+    /**
+     * 最後に割り当てたシーケンス番号の時点の現在状態を取得（保持範囲外の操作を断ったクライアントへの送り直し用）
+     */
+    synchronized Snapshot currentState() {
+        return new Snapshot(exerciseId, lastSequence, new HashMap<>(states));
+    }
+
+    /**
+     * 最新の状態スナップショットを取得（まだ無ければnull）
+     */
+    synchronized Snapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * operation_log から読み戻した採番位置と現在状態を設定する。
+     * 採番より前（このエクササイズの操作を受け付ける前）に呼ぶこと。
+     * 履歴は空のまま保持範囲を restoredSequence の次からにするので、それより前に基づく操作は
+     * {@link #getOperationsAfter} でnullになり、送信元のテキストを基準にせず断られる。
+     *
+     * @param restoredSequence 最後に割り当てられていたサーバーシーケンス番号
+     * @param restoredStates 現在のテキスト状態 (elementId:partId -> text)
+     */
+    synchronized void restore(int restoredSequence, Map<String, String> restoredStates) {
+        lastSequence = restoredSequence;
+        firstSequence = restoredSequence + 1;
+        states.putAll(restoredStates);
+        latestSnapshot = new Snapshot(exerciseId, restoredSequence, new HashMap<>(states));
+    }
+
+    /**
+     * 全クライアントが確認済みの操作を先頭から切り捨てる
+     */
+    private void compact() {
+        int minAcknowledged = lastSequence;
+        for (int seq : acknowledged.values()) {
+            if (seq < minAcknowledged) {
+                minAcknowledged = seq;
+            }
+        }
+        while (size > 0 && firstSequence <= minAcknowledged) {
+            dropHead();
+        }
+    }
+
+    private void dropHead() {
+        buffer[head] = null;
+        head = (head + 1) & (buffer.length - 1);
+        size--;
+        firstSequence++;
+    }
+
+    private void grow() {
+        EditOperation[] larger = new EditOperation[buffer.length * 2];
+        for (int i = 0; i < size; i++) {
+            larger[i] = buffer[(head + i) & (buffer.length - 1)];
+        }
+        buffer = larger;
+        head = 0;
+    }
+
+    /**
+     * ある時点のテキスト状態のスナップショット
+     */
+    static class Snapshot {
+
+        /** エクササイズID */
+        private final int exerciseId;
+
+        /** スナップショット時点のサーバーシーケンス番号 */
+        private final int sequence;
+
+        /** テキスト状態 (elementId:partId -> text) */
+        private final Map<String, String> states;
+
+        Snapshot(int exerciseId, int sequence, Map<String, String> states) {
+            this.exerciseId = exerciseId;
+            this.sequence = sequence;
+            this.states = Collections.unmodifiableMap(states);
+        }
+
+        int getExerciseId() {
+            return exerciseId;
+        }
+
+        int getSequence() {
+            return sequence;
+        }
+
+        Map<String, String> getStates() {
+            return states;
+        }
+    }
+}
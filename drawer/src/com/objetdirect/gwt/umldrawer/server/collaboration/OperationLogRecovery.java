@@ -0,0 +1,167 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.objetdirect.gwt.umldrawer.server.dao.Dao;
+
+/**
+ * operation_log から、エクササイズの採番位置（最後のサーバーシーケンス番号）と現在のテキスト状態を読み戻す。
+ *
+ * operation_snapshot に残した最新のスナップショットを読み、それより後の操作だけを
+ * idx_exercise_seq (exercise_id, server_sequence) の範囲読みでシーケンス順に重ねる。
+ * スナップショットが無ければ（またはテーブルが無ければ）そのエクササイズの操作を全て読む。
+ *
+ * operation_log への書き込みは非同期なので、異常終了した場合は最後の書き込み
+ * （{@link OperationLogWriter#FLUSH_INTERVAL_MS} 以内の操作）が失われ得る。
+ */
+final class OperationLogRecovery {
+
+    private static final Logger logger = Logger.getLogger(OperationLogRecovery.class.getName());
+
+    private static final Gson gson = new Gson();
+
+    private static final Type STATES_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+
+    private static final String SELECT_SNAPSHOT_SQL = "SELECT server_sequence, states FROM operation_snapshot " +
+            "WHERE exercise_id = ? ORDER BY server_sequence DESC LIMIT 1";
+
+    private static final String SELECT_TAIL_SQL = "SELECT server_sequence, operation_type, element_id, part_id, after_text " +
+            "FROM operation_log WHERE exercise_id = ? AND server_sequence > ? ORDER BY server_sequence";
+
+    private static final String INSERT_SNAPSHOT_SQL = "INSERT INTO operation_snapshot " +
+            "(exercise_id, server_sequence, states) VALUES (?, ?, ?)";
+
+    private static final String DELETE_OLD_SNAPSHOTS_SQL = "DELETE FROM operation_snapshot " +
+            "WHERE exercise_id = ? AND server_sequence < ?";
+
+    private OperationLogRecovery() {
+    }
+
+    /**
+     * 読み戻した結果
+     */
+    static class Recovered {
+
+        /** 読み戻したスナップショットのシーケンス番号（無ければ0） */
+        final int snapshotSequence;
+
+        /** 最後に割り当てられていたサーバーシーケンス番号（操作が無ければ0） */
+        final int lastSequence;
+
+        /** 現在のテキスト状態 (elementId:partId -> text) */
+        final Map<String, String> states;
+
+        /** スナップショットの後に重ねた操作数 */
+        final int replayedCount;
+
+        /** 読み戻しにかかった時間（ナノ秒） */
+        final long elapsedNanos;
+
+        Recovered(int snapshotSequence, int lastSequence, Map<String, String> states, int replayedCount, long elapsedNanos) {
+            this.snapshotSequence = snapshotSequence;
+            this.lastSequence = lastSequence;
+            this.states = states;
+            this.replayedCount = replayedCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** 操作1万件あたりの読み戻し時間（ミリ秒） */
+        double millisPer10k() {
+            return replayedCount == 0 ? 0 : elapsedNanos / 1e6 * 10000 / replayedCount;
+        }
+    }
+
+    /**
+     * エクササイズの採番位置と現在状態を読み戻す
+     */
+    static Recovered load(int exerciseId) throws SQLException {
+        long begin = System.nanoTime();
+        Dao dao = new Dao();
+        Connection connection = null;
+        try {
+            connection = dao.createConnection();
+            int snapshotSequence = 0;
+            Map<String, String> states = new HashMap<>();
+            try (PreparedStatement stmt = connection.prepareStatement(SELECT_SNAPSHOT_SQL)) {
+                stmt.setInt(1, exerciseId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        snapshotSequence = rs.getInt("server_sequence");
+                        Map<String, String> saved = gson.fromJson(rs.getString("states"), STATES_TYPE);
+                        if (saved != null) {
+                            states.putAll(saved);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                // スナップショットが使えなくても、操作を全て読めば戻せる
+                logger.warning("operation_snapshot を読めませんでした。全ての操作から復元します: " + e.getMessage());
+            }
+
+            int lastSequence = snapshotSequence;
+            int replayed = 0;
+            try (PreparedStatement stmt = connection.prepareStatement(SELECT_TAIL_SQL)) {
+                stmt.setInt(1, exerciseId);
+                stmt.setInt(2, snapshotSequence);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastSequence = rs.getInt("server_sequence");
+                        String type = rs.getString("operation_type");
+                        // 移動操作は採番だけ進め、テキスト状態は変えない
+                        if (type == null || !type.startsWith("move_")) {
+                            String afterText = rs.getString("after_text");
+                            states.put(OperationManager.createStateKey(rs.getString("element_id"), rs.getString("part_id")),
+                                    afterText != null ? afterText : "");
+                        }
+                        replayed++;
+                    }
+                }
+            }
+            return new Recovered(snapshotSequence, lastSequence, states, replayed, System.nanoTime() - begin);
+        } finally {
+            dao.closeConnection(connection);
+        }
+    }
+
+    /**
+     * スナップショットを保存し、それより古いスナップショットを消す
+     */
+    static void saveSnapshot(Connection connection, ExerciseOperationLog.Snapshot snapshot) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_SNAPSHOT_SQL)) {
+            stmt.setInt(1, snapshot.getExerciseId());
+            stmt.setInt(2, snapshot.getSequence());
+            stmt.setString(3, gson.toJson(snapshot.getStates()));
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(DELETE_OLD_SNAPSHOTS_SQL)) {
+            stmt.setInt(1, snapshot.getExerciseId());
+            stmt.setInt(2, snapshot.getSequence());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 指定したエクササイズを読み戻し、かかった時間を表示する（計測用）
+     *
+     * 使い方: java OperationLogRecovery exerciseId...
+     */
+    public static void main(String[] args) throws SQLException {
+        for (String arg : args) {
+            int exerciseId = Integer.parseInt(arg);
+            Recovered recovered = load(exerciseId);
+            System.out.printf("exercise %d: snapshot %d, %d ops replayed, lastSequence %d, %d states%n",
+                    exerciseId, recovered.snapshotSequence, recovered.replayedCount, recovered.lastSequence,
+                    recovered.states.size());
+            System.out.printf("  %.1f ms (%.1f ms per 10k ops)%n", recovered.elapsedNanos / 1e6, recovered.millisPer10k());
+        }
+    }
+}
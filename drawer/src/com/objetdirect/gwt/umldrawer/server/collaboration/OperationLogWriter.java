@@ -0,0 +1,409 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umldrawer.client.beans.EditOperation;
+import com.objetdirect.gwt.umldrawer.server.dao.Dao;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.DatabaseAccessorUMLDS;
+
+/**
+ * operation_log への非同期一括書き込みを行うライタ。
+ *
+ * WebSocketの受信スレッドは {@link #enqueue} で有界キューに積むだけで戻り、
+ * 専用スレッドが件数（{@link #BATCH_SIZE}）または時間（{@link #FLUSH_INTERVAL_MS}）で
+ * まとめてJDBCバッチとして書き込む。DriverAccessor の rewriteBatchedStatements により
+ * 複数行INSERTに書き換えられる。
+ *
+ * 再起動後の復元用の状態スナップショット（{@link #enqueueSnapshot}）も、同じスレッドで操作の後に書き込む。
+ *
+ * Webアプリの停止時は {@link CollaborationContextListener} が {@link #shutdown} を呼び、
+ * 書き込みスレッドを止めて残りを書き込み、シャットダウンフックを外す（再配備のたびにスレッドと古いクラスローダーが残らないように）。
+ */
+public class OperationLogWriter {
+
+    private static final Logger logger = Logger.getLogger(OperationLogWriter.class.getName());
+
+    /** キューの上限 */
+    static final int QUEUE_CAPACITY = 10000;
+
+    /** 1回の書き込みでまとめる最大件数 */
+    static final int BATCH_SIZE = 200;
+
+    /** キューに溜まった操作を書き込むまでの最大待ち時間 */
+    static final long FLUSH_INTERVAL_MS = 200;
+
+    /** キューが満杯のときに空きを待つ時間 */
+    private static final long OFFER_TIMEOUT_MS = 50;
+
+    /** 書き込みスレッドを止める時に待つ時間 */
+    private static final long STOP_TIMEOUT_MS = 10000;
+
+    private static final String INSERT_TEXT_SQL = "INSERT INTO operation_log " +
+            "(user_id, exercise_id, element_id, part_id, " +
+            "operation_type, patch_text, before_text, after_text, " +
+            "client_sequence, server_sequence, based_on_sequence, " +
+            "timestamp, date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
+
+    private static final String INSERT_MOVE_DELTA_SQL = "INSERT INTO operation_log " +
+            "(user_id, exercise_id, element_id, operation_type, " +
+            "old_x, old_y, delta_x, delta_y, " +
+            "client_sequence, server_sequence, based_on_sequence, " +
+            "timestamp, date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
+
+    private static final String INSERT_MOVE_ABSOLUTE_SQL = "INSERT INTO operation_log " +
+            "(element_id, operation_type, old_x, old_y, new_x, new_y, " +
+            "timestamp, user_id, exercise_id) VALUES (?, 'move_absolute', ?, ?, ?, ?, ?, ?, ?)";
+
+    private static OperationLogWriter instance;
+
+    private final BlockingQueue<EditOperation> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /** 書き込み待ちの状態スナップショット（SNAPSHOT_INTERVAL ごとにしか積まれないので上限は設けない） */
+    private final Queue<ExerciseOperationLog.Snapshot> snapshots = new ConcurrentLinkedQueue<>();
+
+    private final Thread worker;
+
+    private final Thread shutdownHook;
+
+    /** 書き込みスレッドが動き続けるか */
+    private volatile boolean running = true;
+
+    /**
+     * キューから取り出した操作を書き終えるまで持つロック。
+     * drainAndFlush はこれを取ることで、書き込みスレッドが集めている途中・書いている途中のバッチを待つ
+     */
+    private final Object writeLock = new Object();
+
+    /** 書き込んだ操作数 */
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    /** キュー満杯で破棄した操作数 */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /** 書き込み回数 */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /** 書き込み時間の合計（ナノ秒） */
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+
+    /** 直近の書き込み時間（ナノ秒） */
+    private volatile long lastFlushNanos;
+
+    private OperationLogWriter() {
+        worker = new Thread(this::run, "operation-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+        shutdownHook = new Thread(this::drainAndFlush, "operation-log-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * シングルトンインスタンスを取得
+     */
+    public static synchronized OperationLogWriter getInstance() {
+        if (instance == null) {
+            instance = new OperationLogWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * 書き込みスレッドを止め、残っている操作を書き込んでシャットダウンフックを外す（Webアプリの停止時に呼ぶ）。
+     * 以降に getInstance を呼ぶと新しいライタが作られる
+     */
+    static void shutdown() {
+        OperationLogWriter writer;
+        synchronized (OperationLogWriter.class) {
+            writer = instance;
+            instance = null;
+        }
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    private void stop() {
+        running = false;
+        try {
+            worker.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            logger.warning("operation_log の書き込みスレッドが止まりません。残りを書き込んで終了します");
+        }
+        drainAndFlush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVMの終了処理中（フックはすでに動いている）
+        }
+        logger.info("operation_log の書き込みスレッドを止めました。書き込み: " + writtenCount.get() + "件, 破棄: " + droppedCount.get() + "件");
+    }
+
+    /**
+     * 操作を書き込みキューに積む。
+     * キューが満杯のまま空かない場合は破棄して false を返す（受信スレッドは長く待たせない）。
+     */
+    public boolean enqueue(EditOperation operation) {
+        try {
+            if (queue.offer(operation, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long dropped = droppedCount.incrementAndGet();
+        logger.warning("operation_log の書き込みキューが満杯のため操作を破棄しました。累計: " + dropped);
+        return false;
+    }
+
+    /**
+     * 状態スナップショットを書き込み待ちにする。次の操作の書き込みと一緒に保存される
+     */
+    void enqueueSnapshot(ExerciseOperationLog.Snapshot snapshot) {
+        snapshots.offer(snapshot);
+    }
+
+    /** 書き込み待ちの操作数 */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** 書き込んだ操作数 */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /** キュー満杯で破棄した操作数 */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** 直近の書き込みにかかった時間（ミリ秒） */
+    public double getLastFlushLatencyMillis() {
+        return lastFlushNanos / 1e6;
+    }
+
+    /** 書き込み1回あたりの平均時間（ミリ秒） */
+    public double getAverageFlushLatencyMillis() {
+        long flushes = flushCount.get();
+        return flushes == 0 ? 0 : totalFlushNanos.get() / 1e6 / flushes;
+    }
+
+    private void run() {
+        List<EditOperation> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                EditOperation first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                synchronized (writeLock) {
+                    batch.add(first);
+                    try {
+                        // 件数が揃うか、最初の操作から一定時間経つまで待って集める
+                        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                        while (batch.size() < BATCH_SIZE) {
+                            queue.drainTo(batch, BATCH_SIZE - batch.size());
+                            long remaining = deadline - System.nanoTime();
+                            if (batch.size() >= BATCH_SIZE || remaining <= 0) {
+                                break;
+                            }
+                            EditOperation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                            if (next == null) {
+                                break;
+                            }
+                            batch.add(next);
+                        }
+                    } finally {
+                        // 集めている途中で割り込まれても、取り出した操作は書き込む
+                        flush(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.severe("operation_log 書き込みスレッドでエラー: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 終了時に残っている操作を書き込む。
+     * 書き込みスレッドが書いている途中のバッチがあれば、それを書き終えるまで待ってから残りを書く
+     */
+    private void drainAndFlush() {
+        synchronized (writeLock) {
+            List<EditOperation> batch = new ArrayList<>();
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                flush(batch);
+            } else if (!snapshots.isEmpty()) {
+                writeSnapshots();
+            }
+        }
+    }
+
+    /**
+     * 操作の種類ごとにJDBCバッチで書き込む
+     */
+    private void flush(List<EditOperation> batch) {
+        List<EditOperation> textOps = new ArrayList<>();
+        List<EditOperation> moveDeltaOps = new ArrayList<>();
+        List<EditOperation> moveAbsoluteOps = new ArrayList<>();
+        for (EditOperation op : batch) {
+            if ("move_absolute".equals(op.getOperationType())) {
+                moveAbsoluteOps.add(op);
+            } else if ("move_delta".equals(op.getOperationType())) {
+                moveDeltaOps.add(op);
+            } else {
+                textOps.add(op);
+            }
+        }
+
+        long begin = System.nanoTime();
+        if (!textOps.isEmpty() || !moveDeltaOps.isEmpty()) {
+            Dao dao = new Dao();
+            Connection connection = null;
+            try {
+                connection = dao.createConnection();
+                writeTextOperations(connection, textOps);
+                writeMoveDeltaOperations(connection, moveDeltaOps);
+            } catch (Exception e) {
+                logger.severe("DB一括保存エラー: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                dao.closeConnection(connection);
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            writeSnapshots();
+        }
+        if (!moveAbsoluteOps.isEmpty()) {
+            Connection connection = null;
+            try {
+                connection = DatabaseAccessorUMLDS.getInstance().createHikariConnection();
+                writeMoveAbsoluteOperations(connection, moveAbsoluteOps);
+            } catch (Exception e) {
+                logger.severe("移動操作の一括保存エラー: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                try {
+                    if (connection != null) connection.close();
+                } catch (SQLException e) {
+                    logger.warning("DB接続クローズ失敗: " + e.getMessage());
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        flushCount.incrementAndGet();
+        logger.fine("operation_log に " + batch.size() + " 件を書き込みました。"
+                + (elapsed / 1000000) + "ms, 残りキュー: " + queue.size());
+    }
+
+    private void writeSnapshots() {
+        Dao dao = new Dao();
+        Connection connection = null;
+        try {
+            connection = dao.createConnection();
+            ExerciseOperationLog.Snapshot snapshot;
+            while ((snapshot = snapshots.poll()) != null) {
+                OperationLogRecovery.saveSnapshot(connection, snapshot);
+            }
+        } catch (Exception e) {
+            logger.severe("状態スナップショットの保存エラー: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            dao.closeConnection(connection);
+        }
+    }
+
+    private void writeTextOperations(Connection connection, List<EditOperation> ops) throws SQLException {
+        if (ops.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_TEXT_SQL)) {
+            for (EditOperation operation : ops) {
+                stmt.setString(1, operation.getUserId());
+                stmt.setInt(2, operation.getExerciseId());
+                stmt.setString(3, operation.getElementId());
+                stmt.setString(4, operation.getPartId());
+                stmt.setString(5, operation.getOperationType());
+                stmt.setString(6, operation.getPatchText());
+                stmt.setString(7, operation.getBeforeText());
+                stmt.setString(8, operation.getAfterText());
+                stmt.setInt(9, operation.getClientSequence());
+                stmt.setInt(10, operation.getServerSequence());
+                stmt.setInt(11, operation.getBasedOnServerSequence());
+                stmt.setLong(12, operation.getTimestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            writtenCount.addAndGet(ops.size());
+        }
+    }
+
+    private void writeMoveDeltaOperations(Connection connection, List<EditOperation> ops) throws SQLException {
+        if (ops.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_MOVE_DELTA_SQL)) {
+            for (EditOperation operation : ops) {
+                stmt.setString(1, operation.getUserId());
+                stmt.setInt(2, operation.getExerciseId());
+                stmt.setString(3, operation.getElementId());
+                stmt.setString(4, operation.getOperationType());
+                stmt.setInt(5, operation.getOldX());
+                stmt.setInt(6, operation.getOldY());
+                stmt.setInt(7, operation.getDeltaX());
+                stmt.setInt(8, operation.getDeltaY());
+                stmt.setInt(9, operation.getClientSequence());
+                stmt.setInt(10, operation.getServerSequence());
+                stmt.setInt(11, operation.getBasedOnServerSequence());
+                stmt.setLong(12, operation.getTimestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            writtenCount.addAndGet(ops.size());
+        }
+    }
+
+    private void writeMoveAbsoluteOperations(Connection connection, List<EditOperation> ops) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_MOVE_ABSOLUTE_SQL)) {
+            for (EditOperation operation : ops) {
+                stmt.setString(1, operation.getElementId());
+                stmt.setInt(2, operation.getOldX());
+                stmt.setInt(3, operation.getOldY());
+                stmt.setInt(4, operation.getNewX());
+                stmt.setInt(5, operation.getNewY());
+                stmt.setLong(6, operation.getTimestamp());
+                stmt.setString(7, operation.getUserId());
+                stmt.setInt(8, operation.getExerciseId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            writtenCount.addAndGet(ops.size());
+        }
+    }
+}
@@ -1,33 +1,47 @@
 package com.objetdirect.gwt.umldrawer.server.collaboration;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch.Patch;
 
 import com.objetdirect.gwt.umldrawer.client.beans.EditOperation;
 
 /**
  * サーバー側で編集操作を管理し、Operational Transformation (OT) による
  * 同時編集の競合解決を行うマネージャークラス。
+ *
+ * 操作ログはエクササイズごとに {@link ExerciseOperationLog} へ分割されており、
+ * ロックもエクササイズ単位で取得する。ある課題の編集が混み合っていても
+ * 他の課題の編集は待たされない。
+ *
+ * 各クライアントの確認済みシーケンス番号を {@link #acknowledge} で受け取り、
+ * 全員が確認済みの操作は履歴から切り捨てる。切り捨てた範囲に基づく操作は受け付けず、
+ * 送信元には現在状態を送り直して全体を揃え直させる。
+ *
+ * サーバーの再起動後は、エクササイズに最初に触れた時（通常はクライアントの接続時）に
+ * {@link OperationLogRecovery} で operation_log から採番位置と現在状態を戻す。
+ * DBの読み込みはエクササイズのロックの外で行い、ログは復元が済んでから他のスレッドに見せる。
+ * 再起動前の履歴は戻さないので、戻したシーケンス番号より前に基づく操作は保持範囲外として断る。
  */
 public class OperationManager {
     
-    /** エクササイズごとの操作履歴を管理するマップ */
-    private final Map<Integer, List<EditOperation>> operationHistory;
-    
-    /** エクササイズごとのグローバルシーケンス番号カウンター */
-    private final Map<Integer, AtomicInteger> sequenceCounters;
+    private static final Logger logger = Logger.getLogger(OperationManager.class.getName());
     
-    /** エクササイズごとの現在のテキスト状態を管理 (elementId:partId -> currentText) */
-    private final Map<Integer, Map<String, String>> currentStates;
+    /** エクササイズごとの操作ログ (exerciseId -> 復元が済んだら完了するログ) */
+    private final Map<Integer, CompletableFuture<ExerciseOperationLog>> exerciseLogs;
     
     /** シングルトンインスタンス */
     private static OperationManager instance;
     
+    /** operation_logからの復元を行うか（負荷計測ハーネスでDBを切り離す場合のみfalse） */
+    public static volatile boolean recoverFromLog = true;
+    
     private OperationManager() {
-        this.operationHistory = new ConcurrentHashMap<>();
-        this.sequenceCounters = new ConcurrentHashMap<>();
-        this.currentStates = new ConcurrentHashMap<>();
+        this.exerciseLogs = new ConcurrentHashMap<>();
     }
     
     /**
@@ -46,141 +60,206 @@ public class OperationManager {
      * @param operation クライアントから送信された移動操作
      * @return サーバーで処理された操作（他のクライアントに配信すべきもの）
      */
-    public synchronized EditOperation transformMoveOperation(EditOperation operation) {
-        int exerciseId = operation.getExerciseId();
-        
-        // 初期化処理
-        initializeExercise(exerciseId);
-        
-        // グローバルシーケンス番号を割り当て
-        int serverSeq = sequenceCounters.get(exerciseId).incrementAndGet();
-        operation.setServerSequence(serverSeq);
+    public EditOperation transformMoveOperation(EditOperation operation) {
+        ExerciseOperationLog log = getExerciseLog(operation.getExerciseId());
         
-        // 操作履歴を取得
-        List<EditOperation> history = operationHistory.get(exerciseId);
-        
-        // OT方式: deltaは合成しない
-        // 各操作のdeltaをそのまま保持し、クライアント側で順次適用する
-        // これにより、すべてのユーザーの移動が正しく反映される
-        
-        // 操作履歴に追加
-        history.add(operation);
+        synchronized (log) {
+            // エクササイズ内のシーケンス番号を割り当て
+            int serverSeq = log.nextSequence();
+            operation.setServerSequence(serverSeq);
+            
+            // OT方式: deltaは合成しない
+            // 各操作のdeltaをそのまま保持し、クライアント側で順次適用する
+            // これにより、すべてのユーザーの移動が正しく反映される
+            
+            // 操作履歴に追加
+            log.append(operation);
+        }
         
         return operation;
     }
     
     /**
-     * 同じ要素に対する同時移動操作を取得
+     * 新しい編集操作を受信し、適切に処理する
+     * 
+     * @param operation クライアントから送信された編集操作
+     * @return サーバーで処理された操作（他のクライアントに配信すべきもの）。
+     *         操作が履歴の保持範囲より古いシーケンスに基づいていてトランスフォームできない場合はnull
+     *         （操作は適用も採番もしない。送信元には {@link #getCurrentState} で現在状態を送り直すこと）
      */
-    private List<EditOperation> getConcurrentMoveOperations(
-        List<EditOperation> history,
-        String elementId,
-        int basedOnSeq
-    ) {
-        List<EditOperation> concurrent = new ArrayList<>();
-        for (EditOperation op : history) {
-            if (op.getServerSequence() > basedOnSeq &&
-                "move_delta".equals(op.getOperationType()) &&
-                elementId.equals(op.getElementId())) {
-                concurrent.add(op);
+    public EditOperation processOperation(EditOperation operation) {
+        ExerciseOperationLog log = getExerciseLog(operation.getExerciseId());
+        
+        // 同じエクササイズの操作だけを直列化する
+        synchronized (log) {
+            // 操作履歴から、この操作が基づいているシーケンス以降の操作を取得
+            List<EditOperation> concurrentOps = log.getOperationsAfter(
+                operation.getBasedOnServerSequence()
+            );
+            if (concurrentOps == null) {
+                return null;
             }
+            
+            // エクササイズ内のシーケンス番号を割り当て
+            int serverSeq = log.nextSequence();
+            operation.setServerSequence(serverSeq);
+            
+            String stateKey = createStateKey(operation.getElementId(), operation.getPartId());
+            // サーバーがまだ知らない要素は、クライアントの変更前テキストを現在の状態とみなす
+            String currentText = log.hasText(stateKey) ? log.getText(stateKey) : nullToEmpty(operation.getBeforeText());
+            
+            // 同時に発生した操作に対してトランスフォームし、現在の状態に適用
+            EditOperation transformedOp = transformOperation(operation, concurrentOps, currentText);
+            log.putText(stateKey, transformedOp.getAfterText());
+            
+            // 操作履歴に追加
+            log.append(transformedOp);
+            
+            return transformedOp;
         }
-        return concurrent;
     }
     
     /**
-     * 新しい編集操作を受信し、適切に処理する
+     * クライアントが受信済みのサーバーシーケンス番号を記録する。
+     * 接続中の全クライアントの最小値以下の操作は、以降トランスフォームに使われないため破棄される。
      * 
-     * @param operation クライアントから送信された編集操作
-     * @return サーバーで処理された操作（他のクライアントに配信すべきもの）
+     * @param exerciseId エクササイズID
+     * @param clientKey クライアントの識別子（WebSocketセッションID）
+     * @param basedOnServerSequence クライアントが基づいているサーバーシーケンス番号
      */
-    public synchronized EditOperation processOperation(EditOperation operation) {
-        int exerciseId = operation.getExerciseId();
-        
-        // 初期化処理
-        initializeExercise(exerciseId);
-        
-        // グローバルシーケンス番号を割り当て
-        int serverSeq = sequenceCounters.get(exerciseId).incrementAndGet();
-        operation.setServerSequence(serverSeq);
-        
-        // 操作履歴から、この操作が基づいているシーケンス以降の操作を取得
-        List<EditOperation> history = operationHistory.get(exerciseId);
-        List<EditOperation> concurrentOps = getConcurrentOperations(
-            history, 
-            operation.getBasedOnServerSequence()
-        );
-        
-        // 同時に発生した操作がある場合、トランスフォームを適用
-        EditOperation transformedOp = operation;
-        if (!concurrentOps.isEmpty()) {
-            transformedOp = transformOperation(operation, concurrentOps);
-        }
-        
-        // 現在の状態を更新
-        String stateKey = createStateKey(operation.getElementId(), operation.getPartId());
-        Map<String, String> states = currentStates.get(exerciseId);
-        
-        String currentText = states.getOrDefault(stateKey, "");
-        String newText = applyPatch(currentText, transformedOp.getPatchText());
-        states.put(stateKey, newText);
-        
-        // トランスフォーム後のテキストを設定
-        transformedOp.setAfterText(newText);
-        
-        // 操作履歴に追加
-        history.add(transformedOp);
-        
-        return transformedOp;
+    public void acknowledge(int exerciseId, String clientKey, int basedOnServerSequence) {
+        getExerciseLog(exerciseId).acknowledge(clientKey, basedOnServerSequence);
+    }
+    
+    /**
+     * 接続したクライアントを登録する。
+     * まだ操作を送っていないクライアントのために、接続時点以降の履歴を保持させる。
+     */
+    public void registerClient(int exerciseId, String clientKey) {
+        ExerciseOperationLog log = getExerciseLog(exerciseId);
+        log.acknowledge(clientKey, log.getLastSequence());
     }
     
     /**
-     * エクササイズの初期化
+     * 切断したクライアントを確認済みシーケンスの集計対象から外す
      */
-    private void initializeExercise(int exerciseId) {
-        operationHistory.putIfAbsent(exerciseId, Collections.synchronizedList(new ArrayList<>()));
-        sequenceCounters.putIfAbsent(exerciseId, new AtomicInteger(0));
-        currentStates.putIfAbsent(exerciseId, new ConcurrentHashMap<>());
+    public void releaseClient(String clientKey) {
+        for (CompletableFuture<ExerciseOperationLog> loading : exerciseLogs.values()) {
+            ExerciseOperationLog log = loading.getNow(null);
+            if (log != null) {
+                log.release(clientKey);
+            }
+        }
     }
     
     /**
-     * 指定したシーケンス番号以降の操作を取得
+     * エクササイズの操作ログを取得（未作成なら作成し、operation_logから復元する）。
+     * 最初に触れたスレッドが復元し、同時に来た他のスレッドは復元が済むまで待つ
      */
-    private List<EditOperation> getConcurrentOperations(
-            List<EditOperation> history, 
-            int basedOnSequence) {
-        List<EditOperation> concurrent = new ArrayList<>();
-        for (EditOperation op : history) {
-            if (op.getServerSequence() > basedOnSequence) {
-                concurrent.add(op);
+    private ExerciseOperationLog getExerciseLog(int exerciseId) {
+        CompletableFuture<ExerciseOperationLog> loading = exerciseLogs.get(exerciseId);
+        if (loading == null) {
+            CompletableFuture<ExerciseOperationLog> created = new CompletableFuture<>();
+            loading = exerciseLogs.putIfAbsent(exerciseId, created);
+            if (loading == null) {
+                loading = created;
+                created.complete(recover(new ExerciseOperationLog(exerciseId)));
             }
         }
-        return concurrent;
+        return loading.join();
+    }
+    
+    /**
+     * 返す前の（他のスレッドからまだ見えない）ログに、operation_logから採番位置と現在状態を戻す。
+     * ログのロックを取らずに読むので、DBの待ち時間で他のエクササイズの操作や確認の記録を止めない。
+     */
+    private ExerciseOperationLog recover(ExerciseOperationLog log) {
+        if (!recoverFromLog) {
+            return log;
+        }
+        try {
+            OperationLogRecovery.Recovered recovered = OperationLogRecovery.load(log.getExerciseId());
+            log.restore(recovered.lastSequence, recovered.states);
+            logger.info("operation_logから復元しました。exerciseId: " + log.getExerciseId()
+                    + ", スナップショット: " + recovered.snapshotSequence
+                    + ", 再適用: " + recovered.replayedCount + "件"
+                    + ", serverSequence: " + recovered.lastSequence
+                    + ", " + String.format("%.1fms (1万件あたり %.1fms)", recovered.elapsedNanos / 1e6, recovered.millisPer10k()));
+        } catch (Exception e) {
+            // 復元できなくても編集は続けられるようにする（シーケンスは1から）
+            logger.severe("operation_logからの復元に失敗しました。exerciseId: " + log.getExerciseId() + ", " + e.getMessage());
+        }
+        return log;
+    }
+    
+    /**
+     * 復元が済んだ操作ログを取得（まだ無い、または復元中ならnull）
+     */
+    private ExerciseOperationLog findExerciseLog(int exerciseId) {
+        CompletableFuture<ExerciseOperationLog> loading = exerciseLogs.get(exerciseId);
+        return loading != null ? loading.getNow(null) : null;
+    }
+    
+    /**
+     * エクササイズの現在のテキスト状態と、その時点のサーバーシーケンス番号を取得
+     */
+    ExerciseOperationLog.Snapshot getCurrentState(int exerciseId) {
+        return getExerciseLog(exerciseId).currentState();
     }
     
     /**
-     * 操作をトランスフォームする
+     * 最新の状態スナップショットを取得（まだ無ければnull）
+     */
+    ExerciseOperationLog.Snapshot getLatestSnapshot(int exerciseId) {
+        ExerciseOperationLog log = findExerciseLog(exerciseId);
+        return log != null ? log.getLatestSnapshot() : null;
+    }
+    
+    /**
+     * 操作をトランスフォームし、現在のテキストに適用する
+     * 
+     * 返す操作の beforeText / afterText はサーバー上の適用前後のテキスト、
+     * patchText は適用前テキストに対するパッチに置き換えられる。
      * 
      * @param newOp 新しく受信した操作
      * @param concurrentOps 同時に発生していた操作のリスト
+     * @param currentText サーバー上の現在のテキスト
      * @return トランスフォーム後の操作
      */
     private EditOperation transformOperation(
             EditOperation newOp, 
-            List<EditOperation> concurrentOps) {
+            List<EditOperation> concurrentOps,
+            String currentText) {
         
         EditOperation transformed = cloneOperation(newOp);
         
-        // 同じ要素・同じ部分に対する操作のみをトランスフォーム対象とする
+        // 同じ要素・同じ部分に対する、他クライアントの操作のみをトランスフォーム対象とする
+        // （自分の操作は送信元ですでに変更前テキストに反映されている）
+        List<EditOperation> priorOps = new ArrayList<>();
         for (EditOperation concurrentOp : concurrentOps) {
-            if (isSameTarget(newOp, concurrentOp)) {
-                // パッチをトランスフォーム
-                // 注: 本格的なOTでは、操作の種類に応じて複雑なトランスフォームが必要
-                // ここでは簡易版として、パッチを再計算する
-                transformed = recomputePatch(transformed, concurrentOp);
+            if (isSameTarget(newOp, concurrentOp) && !isSameOrigin(newOp, concurrentOp)) {
+                priorOps.add(concurrentOp);
             }
         }
         
+        String baseText = priorOps.isEmpty() ? nullToEmpty(newOp.getBeforeText()) : currentText;
+        TextOperation textOp = recomputePatch(newOp, priorOps);
+        String newText;
+        if (textOp != null && textOp.getBaseLength() == baseText.length()) {
+            newText = textOp.apply(baseText);
+        } else {
+            // トランスフォームできない場合は、パッチを現在のテキストにあいまい適用する
+            newText = applyPatch(currentText, newOp.getPatchText());
+        }
+        
+        // 配信・履歴用に、サーバー上の適用前テキストに対するパッチを作り直す
+        TextOperation applied = (textOp != null && baseText.equals(currentText) && textOp.getBaseLength() == baseText.length())
+                ? textOp
+                : TextOperation.fromDiff(currentText, newText);
+        transformed.setBeforeText(currentText);
+        transformed.setAfterText(newText);
+        transformed.setPatchText(applied.toPatchText(currentText));
+        
         return transformed;
     }
     
@@ -192,12 +271,23 @@ public class OperationManager {
                op1.getPartId().equals(op2.getPartId());
     }
     
+    /**
+     * 同じクライアントから送られた操作かどうかをチェック
+     */
+    private boolean isSameOrigin(EditOperation op1, EditOperation op2) {
+        if (op1.getSessionId() != null) {
+            return op1.getSessionId().equals(op2.getSessionId());
+        }
+        return op1.getUserId() != null && op1.getUserId().equals(op2.getUserId());
+    }
+    
     /**
      * 操作をクローン
      */
     private EditOperation cloneOperation(EditOperation op) {
         EditOperation cloned = new EditOperation();
         cloned.setClientSequence(op.getClientSequence());
+        cloned.setServerSequence(op.getServerSequence());
         cloned.setUserId(op.getUserId());
         cloned.setSessionId(op.getSessionId());
         cloned.setElementId(op.getElementId());
@@ -214,69 +304,83 @@ public class OperationManager {
     
     /**
      * 先行する操作を考慮してパッチを再計算
+     * 
+     * @param newOp 新しく受信した操作（変更前テキストに対するパッチ）
+     * @param priorOps サーバーで先に適用された同じ編集対象の操作（シーケンス順）
+     * @return 最後の先行操作適用後のテキストに対する操作（変換できない場合はnull）
      */
-    private EditOperation recomputePatch(EditOperation newOp, EditOperation priorOp) {
-        // 先行操作適用後の状態を基準に、新しいパッチを計算
-        String baseText = priorOp.getAfterText();
-        String targetText = newOp.getAfterText();
-        
-        // TODO: diff-match-patchライブラリを使用した実装
-        // 実装例はOperationManager_patch_implementation.txtを参照
-        
-        EditOperation recomputed = cloneOperation(newOp);
-        
-        // 簡易実装: 先行操作の結果を基準テキストとして、
-        // 新しいパッチを再生成する必要がある
-        // 現状は元のパッチをそのまま使用（要改善）
-        
-        return recomputed;
+    private TextOperation recomputePatch(EditOperation newOp, List<EditOperation> priorOps) {
+        TextOperation op = TextOperation.fromEdit(newOp.getBeforeText(), newOp.getAfterText(), newOp.getPatchText());
+        if (op == null) {
+            return null;
+        }
+        try {
+            for (EditOperation priorOp : priorOps) {
+                // 先行操作の beforeText / patchText はサーバー上で適用したときのもの
+                TextOperation prior = TextOperation.fromEdit(
+                    priorOp.getBeforeText(), priorOp.getAfterText(), priorOp.getPatchText());
+                if (prior == null) {
+                    return null;
+                }
+                op = TextOperation.transform(op, prior);
+            }
+            return op;
+        } catch (IllegalArgumentException e) {
+            logger.warning("パッチのトランスフォームに失敗しました: " + e.getMessage());
+            return null;
+        }
     }
     
     /**
-     * パッチを適用してテキストを更新
-     * 注: この実装は簡易版。実際にはdiff-match-patchライブラリが必要
+     * パッチを適用してテキストを更新（位置がずれていても文脈で一致箇所を探して適用する）
      */
     private String applyPatch(String currentText, String patchText) {
-        // TODO: サーバー側でdiff-match-patchを使用してパッチを適用
-        // 現状は簡易実装として、パッチテキストをそのまま返す
-        return currentText;
+        if (patchText == null || patchText.isEmpty()) {
+            return currentText;
+        }
+        try {
+            DiffMatchPatch dmp = new DiffMatchPatch();
+            LinkedList<Patch> patches = new LinkedList<>(dmp.patchFromText(patchText));
+            return (String) dmp.patchApply(patches, currentText)[0];
+        } catch (IllegalArgumentException e) {
+            logger.warning("パッチの適用に失敗しました: " + e.getMessage());
+            return currentText;
+        }
+    }
+    
+    private static String nullToEmpty(String text) {
+        return text != null ? text : "";
     }
     
     /**
      * 状態管理用のキーを生成
      */
-    private String createStateKey(String elementId, String partId) {
+    static String createStateKey(String elementId, String partId) {
         return elementId + ":" + partId;
     }
     
     /**
-     * 特定のエクササイズの操作履歴を取得
+     * 特定のエクササイズの操作履歴を取得（切り捨てられていない範囲のみ）
      */
     public List<EditOperation> getHistory(int exerciseId) {
-        return new ArrayList<>(operationHistory.getOrDefault(
-            exerciseId, 
-            Collections.emptyList()
-        ));
+        ExerciseOperationLog log = findExerciseLog(exerciseId);
+        if (log == null) {
+            return new ArrayList<>();
+        }
+        return log.snapshotHistory();
     }
     
     /**
      * 特定の要素の現在のテキストを取得
      */
     public String getCurrentText(int exerciseId, String elementId, String partId) {
-        Map<String, String> states = currentStates.get(exerciseId);
-        if (states == null) {
-            return "";
-        }
-        String stateKey = createStateKey(elementId, partId);
-        return states.getOrDefault(stateKey, "");
+        return getExerciseLog(exerciseId).getText(createStateKey(elementId, partId));
     }
     
     /**
      * エクササイズの履歴をクリア（テスト用）
      */
     public void clearHistory(int exerciseId) {
-        operationHistory.remove(exerciseId);
-        sequenceCounters.remove(exerciseId);
-        currentStates.remove(exerciseId);
+        exerciseLogs.remove(exerciseId);
     }
 }
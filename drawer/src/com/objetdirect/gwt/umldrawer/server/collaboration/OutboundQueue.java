@@ -0,0 +1,131 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.logging.Logger;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * 1つのWebSocketセッションへの送信キュー。
+ *
+ * 送信は getAsyncRemote() で行い、送信中に来たメッセージは上限付きのキューに溜めて
+ * 完了通知を受けてから順に送る（非同期送信は同時に1件までしか出せないため）。
+ * キューが上限を超えた遅いクライアントは切断し、他のクライアントへの配信を妨げない。
+ */
+class OutboundQueue implements SendHandler {
+
+    private static final Logger logger = Logger.getLogger(OutboundQueue.class.getName());
+
+    /** 送信待ちメッセージの上限 */
+    static final int MAX_PENDING = 256;
+
+    private final Session session;
+
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+
+    /** 非同期送信が進行中か */
+    private boolean sending;
+
+    /** 切断済みか（以降の送信は捨てる） */
+    private boolean closed;
+
+    OutboundQueue(Session session) {
+        this.session = session;
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * メッセージを送信する（送信中ならキューに積んで即座に戻る）
+     *
+     * @return 送信またはキューへの追加ができた場合true
+     */
+    boolean send(String message) {
+        // 積むか切るかはロックの中で決め、ロックの外では決めた結果だけを見る
+        // （closed を読み直すと、他のスレッドが閉じたのを自分が閉じたと取り違える）
+        boolean drop;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (sending) {
+                if (pending.size() < MAX_PENDING) {
+                    pending.add(message);
+                    return true;
+                }
+                closed = true;
+                pending.clear();
+                drop = true;
+            } else {
+                sending = true;
+                drop = false;
+            }
+        }
+        if (drop) {
+            dropSlowConsumer();
+            return false;
+        }
+        sendAsync(message);
+        return true;
+    }
+
+    /**
+     * 非同期送信の完了通知。次のメッセージがあれば続けて送る
+     */
+    @Override
+    public void onResult(SendResult result) {
+        String next;
+        synchronized (this) {
+            if (!result.isOK()) {
+                closed = true;
+                sending = false;
+                pending.clear();
+                logger.warning("メッセージ送信失敗 (セッション: " + session.getId() + "): "
+                        + (result.getException() != null ? result.getException().getMessage() : ""));
+                return;
+            }
+            next = pending.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        sendAsync(next);
+    }
+
+    /**
+     * 送信待ちのメッセージ数
+     */
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void sendAsync(String message) {
+        try {
+            session.getAsyncRemote().sendText(message, this);
+        } catch (RuntimeException e) {
+            // セッションがすでに閉じている場合など
+            synchronized (this) {
+                closed = true;
+                sending = false;
+                pending.clear();
+            }
+            logger.warning("メッセージ送信エラー (セッション: " + session.getId() + "): " + e.getMessage());
+        }
+    }
+
+    private void dropSlowConsumer() {
+        logger.warning("送信待ちが上限を超えたため切断します。セッションID: " + session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "outbound queue overflow"));
+        } catch (IOException e) {
+            logger.warning("セッションのクローズに失敗: " + e.getMessage());
+        }
+    }
+}
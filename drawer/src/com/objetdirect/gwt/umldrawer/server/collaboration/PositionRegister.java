@@ -0,0 +1,86 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 1つの部屋の、要素ごとの確定位置（ドロップ後の絶対座標）の表。
+ *
+ * 位置はクライアントが振るハイブリッド論理時計 (timestamp, counter) と clientId の順で比べ、
+ * 後のものだけを残す (LWW)。クライアントは受け取った時計より後の値を振るので、
+ * 他人の移動を見てから動かした移動は、端末の時計がずれていても必ず後になる。
+ * 表はメモリ上にだけ持ち、部屋が閉じても {@link CollaborationRoom.State} として一定時間残す。
+ * 空のまま CollaborationWebSocket.ROOM_STATE_TTL_MS が経てば捨てる。
+ */
+final class PositionRegister {
+
+    /** 要素の位置 (elementId -> 位置) */
+    private final Map<String, Position> positions = new HashMap<>();
+
+    /**
+     * 表にある位置より後であれば表を更新する
+     *
+     * @return 採用されればnull、古ければ表にある位置
+     */
+    synchronized Position offer(String elementId, Position position) {
+        Position current = positions.get(elementId);
+        if (current != null && !position.isAfter(current)) {
+            return current;
+        }
+        positions.put(elementId, position);
+        return null;
+    }
+
+    /**
+     * 表の写し (elementId と位置の組)
+     */
+    synchronized List<Map.Entry<String, Position>> entries() {
+        List<Map.Entry<String, Position>> entries = new ArrayList<>(positions.size());
+        for (Map.Entry<String, Position> entry : positions.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        }
+        return entries;
+    }
+
+    synchronized int size() {
+        return positions.size();
+    }
+
+    /**
+     * 要素の位置と、それを決めた移動の時計
+     */
+    static final class Position {
+        final int x;
+        final int y;
+        /** ハイブリッド論理時計の物理時刻部分（ミリ秒） */
+        final long timestamp;
+        /** ハイブリッド論理時計の論理カウンタ部分 */
+        final int counter;
+        /** 移動したクライアント（時計が同じときの順序づけに使う） */
+        final String clientId;
+
+        Position(int x, int y, long timestamp, int counter, String clientId) {
+            this.x = x;
+            this.y = y;
+            this.timestamp = timestamp;
+            this.counter = counter;
+            this.clientId = clientId != null ? clientId : "";
+        }
+
+        /**
+         * other より後の移動か
+         */
+        boolean isAfter(Position other) {
+            if (timestamp != other.timestamp) {
+                return timestamp > other.timestamp;
+            }
+            if (counter != other.counter) {
+                return counter > other.counter;
+            }
+            return clientId.compareTo(other.clientId) > 0;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.objetdirect.gwt.umlapi.server.yamazaki.thread.SourceCodeChangeListener;
+import com.objetdirect.gwt.umlapi.server.yamazaki.thread.ThreadAcceptfromUMLDS;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.SavaUMLDSElements;
+
+/**
+ * UMLDSからのソースコードの変更を、接続中の図に WebSocket で知らせる。
+ *
+ * 変更は {@link #DEBOUNCE_MS} の間まとめ（保存が続いても {@link #MAX_DELAY_MS} は待たせない）、
+ * 全ての部屋に sourceCodeChanged を送ってから、UMLDSの内容を1回だけ読み直す。
+ * 受け取った図は自分の差分だけを取り直すので、クライアントが変更の有無を問い合わせ続ける必要はない。
+ *
+ * UMLDSの本文にはどの課題の変更かが含まれないので、課題ごとには分けずに全ての部屋に知らせる。
+ * Webアプリの停止時は {@link CollaborationContextListener} が {@link #shutdown} を呼んでスレッドを止める。
+ */
+class SourceCodeChangeNotifier implements SourceCodeChangeListener {
+
+    private static final Logger logger = Logger.getLogger(SourceCodeChangeNotifier.class.getName());
+
+    /** 最後の変更からこの時間だけ次の変更を待って、まとめて知らせる */
+    static final long DEBOUNCE_MS = 300;
+
+    /** 変更が続いても、最初の変更からこの時間までには知らせる */
+    static final long MAX_DELAY_MS = 2000;
+
+    private static SourceCodeChangeNotifier instance;
+
+    /** まとめている途中の変更（無ければnull） */
+    private Pending pending;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "source-change-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SourceCodeChangeNotifier() {
+        ThreadAcceptfromUMLDS.getInstance().addSourceCodeChangeListener(this);
+    }
+
+    /**
+     * シングルトンインスタンスを取得（初めて呼ばれた時にUMLDSの受付スレッドに登録する）
+     */
+    static synchronized SourceCodeChangeNotifier getInstance() {
+        if (instance == null) {
+            instance = new SourceCodeChangeNotifier();
+        }
+        return instance;
+    }
+
+    /**
+     * UMLDSの受付スレッドから外れ、通知のスレッドを止める（Webアプリの停止時に呼ぶ）。
+     * まとめている途中の変更は知らせない
+     */
+    static void shutdown() {
+        SourceCodeChangeNotifier notifier;
+        synchronized (SourceCodeChangeNotifier.class) {
+            notifier = instance;
+            instance = null;
+        }
+        if (notifier == null) {
+            return;
+        }
+        ThreadAcceptfromUMLDS.getInstance().removeSourceCodeChangeListener(notifier);
+        synchronized (notifier) {
+            // sourceCodeChanged と同じロックで止め、止めた後に予定を入れないようにする
+            notifier.scheduler.shutdownNow();
+            notifier.pending = null;
+        }
+        try {
+            if (!notifier.scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warning("source-change-notifier が止まりません");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * UMLDSの受付スレッドから呼ばれる。知らせる時刻を決め直すだけで、すぐに戻る
+     */
+    @Override
+    public synchronized void sourceCodeChanged(String message, long changeCount) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (pending == null) {
+            pending = new Pending(now);
+        } else {
+            pending.future.cancel(false);
+        }
+        pending.changeCount = changeCount;
+        long delay = Math.max(0, Math.min(DEBOUNCE_MS, pending.firstAt + MAX_DELAY_MS - now));
+        pending.future = scheduler.schedule(this::notifyChange, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * まとめた変更を知らせる
+     */
+    private void notifyChange() {
+        Pending change;
+        synchronized (this) {
+            change = pending;
+            pending = null;
+        }
+        if (change == null) {
+            return;
+        }
+        try {
+            int sessions = CollaborationWebSocket.pushToAllExercises(
+                    CollaborationCodec.encodeSourceCodeChanged(change.changeCount));
+            logger.info("ソースコードの変更を知らせました。変更回数: " + change.changeCount + ", セッション数: " + sessions);
+        } catch (Exception e) {
+            logger.warning("ソースコードの変更の通知エラー: " + e.getMessage());
+        }
+        try {
+            // UMLDSの内容をここで1回だけ読み直す。知らせを受けた図の差分の取り直しは、
+            // SavaUMLDSElements.getElements の排他でこの読み直しを待ち、読んだ内容を使い回す
+            if (!SavaUMLDSElements.preload()) {
+                logger.warning("UMLDSの内容を読み直せませんでした。変更回数: " + change.changeCount);
+            }
+        } catch (RuntimeException e) {
+            logger.warning("UMLDSの内容の読み直しエラー: " + e.getMessage());
+        }
+    }
+
+    /** まとめている途中の変更 */
+    private static class Pending {
+        /** 最初の変更を受け取った時刻 */
+        final long firstAt;
+        /** 最後に受け取った変更の回数 */
+        long changeCount;
+        /** 知らせる予定 */
+        ScheduledFuture<?> future;
+
+        Pending(long firstAt) {
+            this.firstAt = firstAt;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.objetdirect.gwt.umldrawer.server.collaboration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch.Diff;
+import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch.Patch;
+
+/**
+ * 文字単位のテキスト操作（保持 / 挿入 / 削除 の並び）。
+ * サーバー側でパッチを現在のテキストへ適用し、同時編集された操作に対して
+ * トランスフォーム（リベース）するために使う。
+ *
+ * 要素は Integer(正) = 保持文字数、Integer(負) = 削除文字数、String = 挿入文字列。
+ */
+public class TextOperation {
+
+    /** diff-match-patch はスレッドセーフではないため、スレッドごとに持つ */
+    private static final ThreadLocal<DiffMatchPatch> dmp = ThreadLocal.withInitial(DiffMatchPatch::new);
+
+    private final List<Object> components = new ArrayList<>();
+
+    /** 適用前テキストの長さ */
+    private int baseLength;
+
+    /** 適用後テキストの長さ */
+    private int targetLength;
+
+    int getBaseLength() {
+        return baseLength;
+    }
+
+    int getTargetLength() {
+        return targetLength;
+    }
+
+    public TextOperation retain(int n) {
+        if (n <= 0) {
+            return this;
+        }
+        baseLength += n;
+        targetLength += n;
+        int last = components.size() - 1;
+        if (last >= 0 && isRetain(components.get(last))) {
+            components.set(last, (Integer) components.get(last) + n);
+        } else {
+            components.add(n);
+        }
+        return this;
+    }
+
+    public TextOperation insert(String s) {
+        if (s == null || s.isEmpty()) {
+            return this;
+        }
+        targetLength += s.length();
+        int last = components.size() - 1;
+        if (last >= 0 && components.get(last) instanceof String) {
+            components.set(last, components.get(last) + s);
+        } else if (last >= 0 && isDelete(components.get(last))) {
+            // 削除の直前に挿入を置き、表現を一意にする
+            if (last > 0 && components.get(last - 1) instanceof String) {
+                components.set(last - 1, components.get(last - 1) + s);
+            } else {
+                components.add(last, s);
+            }
+        } else {
+            components.add(s);
+        }
+        return this;
+    }
+
+    public TextOperation delete(int n) {
+        if (n <= 0) {
+            return this;
+        }
+        baseLength += n;
+        int last = components.size() - 1;
+        if (last >= 0 && isDelete(components.get(last))) {
+            components.set(last, (Integer) components.get(last) - n);
+        } else {
+            components.add(-n);
+        }
+        return this;
+    }
+
+    /**
+     * テキストに操作を適用
+     *
+     * @throws IllegalArgumentException テキスト長が操作の前提と一致しない場合
+     */
+    public String apply(String text) {
+        if (text.length() != baseLength) {
+            throw new IllegalArgumentException("操作の基準長(" + baseLength + ")とテキスト長(" + text.length() + ")が一致しません");
+        }
+        StringBuilder sb = new StringBuilder(targetLength);
+        int index = 0;
+        for (Object c : components) {
+            if (c instanceof String) {
+                sb.append((String) c);
+            } else if (isRetain(c)) {
+                int n = (Integer) c;
+                sb.append(text, index, index + n);
+                index += n;
+            } else {
+                index -= (Integer) c;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 操作を diff-match-patch のパッチテキストに変換
+     *
+     * @param baseText 操作を適用する前のテキスト
+     */
+    String toPatchText(String baseText) {
+        LinkedList<Diff> diffs = new LinkedList<>();
+        int index = 0;
+        for (Object c : components) {
+            if (c instanceof String) {
+                diffs.add(new Diff(DiffMatchPatch.Operation.INSERT, (String) c));
+            } else if (isRetain(c)) {
+                int n = (Integer) c;
+                diffs.add(new Diff(DiffMatchPatch.Operation.EQUAL, baseText.substring(index, index + n)));
+                index += n;
+            } else {
+                int n = -(Integer) c;
+                diffs.add(new Diff(DiffMatchPatch.Operation.DELETE, baseText.substring(index, index + n)));
+                index += n;
+            }
+        }
+        DiffMatchPatch engine = dmp.get();
+        return engine.patchToText(engine.patchMake(baseText, diffs));
+    }
+
+    /**
+     * 先行する操作 prior を考慮して op をトランスフォームする。
+     * どちらも同じテキストを基準としていること。同じ位置への挿入は prior を先に置く。
+     *
+     * @return prior 適用後のテキストに対して op と同じ意図を持つ操作
+     * @throws IllegalArgumentException 2つの操作の基準長が一致しない場合
+     */
+    public static TextOperation transform(TextOperation op, TextOperation prior) {
+        return transform(op, prior, false);
+    }
+
+    /**
+     * transform の逆向き。prior を、同じテキストを基準とする op の適用後のテキストに合わせてトランスフォームする。
+     * 同じ位置への挿入は transform と同じく prior を先に置くので、
+     * prior の後に transform(op, prior) を適用しても、op の後に transformPrior(prior, op) を適用しても同じテキストになる。
+     *
+     * @return op 適用後のテキストに対して prior と同じ意図を持つ操作
+     * @throws IllegalArgumentException 2つの操作の基準長が一致しない場合
+     */
+    public static TextOperation transformPrior(TextOperation prior, TextOperation op) {
+        return transform(prior, op, true);
+    }
+
+    /**
+     * @param opFirst 同じ位置への挿入で op を先に置く場合はtrue（other を先に置く場合はfalse）
+     */
+    private static TextOperation transform(TextOperation op, TextOperation other, boolean opFirst) {
+        if (op.baseLength != other.baseLength) {
+            throw new IllegalArgumentException("基準長が一致しないためトランスフォームできません");
+        }
+        TextOperation result = new TextOperation();
+        List<Object> ops1 = op.components;
+        List<Object> ops2 = other.components;
+        int i1 = 0;
+        int i2 = 0;
+        Object c1 = i1 < ops1.size() ? ops1.get(i1++) : null;
+        Object c2 = i2 < ops2.size() ? ops2.get(i2++) : null;
+
+        while (c1 != null || c2 != null) {
+            if (opFirst && c1 instanceof String) {
+                result.insert((String) c1);
+                c1 = i1 < ops1.size() ? ops1.get(i1++) : null;
+                continue;
+            }
+            if (c2 instanceof String) {
+                result.retain(((String) c2).length());
+                c2 = i2 < ops2.size() ? ops2.get(i2++) : null;
+                continue;
+            }
+            if (c1 instanceof String) {
+                result.insert((String) c1);
+                c1 = i1 < ops1.size() ? ops1.get(i1++) : null;
+                continue;
+            }
+            if (c1 == null || c2 == null) {
+                throw new IllegalArgumentException("操作の長さが一致しません");
+            }
+
+            int n1 = Math.abs((Integer) c1);
+            int n2 = Math.abs((Integer) c2);
+            int min = Math.min(n1, n2);
+            if (isRetain(c1) && isRetain(c2)) {
+                result.retain(min);
+            } else if (isDelete(c1) && isRetain(c2)) {
+                result.delete(min);
+            }
+            // retain/delete, delete/delete: other側で消えているので何もしない
+
+            c1 = n1 > min ? (Object) (isRetain(c1) ? n1 - min : -(n1 - min))
+                    : (i1 < ops1.size() ? ops1.get(i1++) : null);
+            c2 = n2 > min ? (Object) (isRetain(c2) ? n2 - min : -(n2 - min))
+                    : (i2 < ops2.size() ? ops2.get(i2++) : null);
+        }
+        return result;
+    }
+
+    /**
+     * 2つのテキストの差分から操作を生成
+     */
+    public static TextOperation fromDiff(String before, String after) {
+        TextOperation op = new TextOperation();
+        for (Diff diff : dmp.get().diffMain(before, after, false)) {
+            switch (diff.operation) {
+                case EQUAL:
+                    op.retain(diff.text.length());
+                    break;
+                case INSERT:
+                    op.insert(diff.text);
+                    break;
+                case DELETE:
+                    op.delete(diff.text.length());
+                    break;
+            }
+        }
+        return op;
+    }
+
+    /**
+     * パッチテキストから操作を生成。
+     * パッチが beforeText に対して正確に当たり afterText を生成する場合のみ採用し、
+     * それ以外（パッチ無し・破損・不整合）は beforeText と afterText の差分から生成する。
+     *
+     * @return 操作（beforeText / afterText も無く生成できない場合はnull）
+     */
+    public static TextOperation fromEdit(String beforeText, String afterText, String patchText) {
+        if (beforeText != null && patchText != null && !patchText.isEmpty()) {
+            try {
+                TextOperation op = fromPatches(dmp.get().patchFromText(patchText), beforeText);
+                if (op != null && (afterText == null || afterText.equals(op.apply(beforeText)))) {
+                    return op;
+                }
+            } catch (IllegalArgumentException e) {
+                // パッチが基準テキストと合わない場合は差分から作り直す
+            }
+        }
+        if (beforeText != null && afterText != null) {
+            return fromDiff(beforeText, afterText);
+        }
+        return null;
+    }
+
+    /**
+     * patchMake で作られたパッチ列を操作に変換。
+     * 後続パッチの start1 と文脈は先行パッチ適用後のテキストの座標・内容なので（同じ文字が続くテキストでは、
+     * 文脈が一意になるまで広げられて先行パッチの範囲と重なることもある）、パッチを順にテキストへそのまま当てて、
+     * 残った文字が元のテキストのどの位置かから操作を作る。
+     *
+     * @return 操作（パッチの位置・文脈・削除する文字がテキストと合わない場合はnull）
+     */
+    private static TextOperation fromPatches(List<Patch> patches, String baseText) {
+        StringBuilder text = new StringBuilder(baseText);
+        // 今のテキストの1文字ごとの、元のテキストでの位置（挿入された文字は -1）
+        List<Integer> origins = new ArrayList<>(baseText.length());
+        for (int i = 0; i < baseText.length(); i++) {
+            origins.add(i);
+        }
+        for (Patch patch : patches) {
+            int index = patch.start1;
+            if (index < 0 || index > text.length()) {
+                return null;
+            }
+            for (Diff diff : patch.diffs) {
+                int n = diff.text.length();
+                if (diff.operation == DiffMatchPatch.Operation.INSERT) {
+                    text.insert(index, diff.text);
+                    origins.addAll(index, Collections.nCopies(n, -1));
+                    index += n;
+                    continue;
+                }
+                if (index + n > text.length() || !diff.text.contentEquals(text.subSequence(index, index + n))) {
+                    return null;
+                }
+                if (diff.operation == DiffMatchPatch.Operation.DELETE) {
+                    text.delete(index, index + n);
+                    origins.subList(index, index + n).clear();
+                } else {
+                    index += n;
+                }
+            }
+        }
+
+        TextOperation op = new TextOperation();
+        int next = 0;
+        for (int i = 0; i < origins.size(); i++) {
+            int origin = origins.get(i);
+            if (origin < 0) {
+                op.insert(String.valueOf(text.charAt(i)));
+            } else {
+                op.delete(origin - next);
+                op.retain(1);
+                next = origin + 1;
+            }
+        }
+        op.delete(baseText.length() - next);
+        return op;
+    }
+
+    private static boolean isRetain(Object c) {
+        return c instanceof Integer && (Integer) c > 0;
+    }
+
+    private static boolean isDelete(Object c) {
+        return c instanceof Integer && (Integer) c < 0;
+    }
+}
@@ -16,6 +16,7 @@ import com.objetdirect.gwt.umlapi.client.artifacts.RelationLinkArtifact.Relation
 import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
 import com.objetdirect.gwt.umlapi.client.umlcomponents.UMLClassAttribute;
 import com.objetdirect.gwt.umldrawer.client.beans.EditEvent;
+import com.objetdirect.gwt.umldrawer.server.ParsedDiagramCache;
 import com.objetdirect.gwt.umldrawer.server.dao.Dao;
 
 public class DiagramEvaluater {
@@ -25,14 +26,14 @@ public class DiagramEvaluater {
 	public static void main(String[] args) {
 		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
 		Dao dao = new Dao();
-		DiagramParser dp = new DiagramParser();
+		ParsedDiagramCache cache = ParsedDiagramCache.getInstance();
 		int exerciseId = 14;
 		//int exerciseId = 14;
 		//List<EditEvent> eList = dao.getEditEventListForReplay("tanaka", 10);
 		//List<EditEvent> eList = dao.getAnswer(24);
 		//answer = dp.fromURL( eList.get( eList.size()-1 ).getCanvasUrl(), false );
 		if ( dao.getAnswer(exerciseId) != null ){
-			answer = dp.fromURL( dao.getAnswer(exerciseId), false );
+			answer = cache.getArtifacts( dao.base64ToString(dao.getAnswer(exerciseId)) );
 		}
 		else {
 			System.out.println("No answer.");
@@ -53,8 +54,7 @@ public class DiagramEvaluater {
 				continue;
 			}
 
-			dp = new DiagramParser();// ここ大事
-			student = dp.fromURL( eList2.get( eList2.size()-1 ).getCanvasUrl(), false );
+			student = cache.getArtifacts( dao.base64ToString(eList2.get( eList2.size()-1 ).getCanvasUrl()) );
 
 			//解答に存在するクラスに対応する学生のクラスを見つけ、対応表を作る
 			Map<Integer, Integer> correspondElement = new HashMap<Integer, Integer>();
@@ -104,133 +104,106 @@ public class DiagramEvaluater {
 	public static Map<Integer, Integer> getCorrespondElement(
 			List<UMLArtifact> ans, List<UMLArtifact> stud) {
 		Map<Integer, Integer> ce = new HashMap<Integer, Integer>();
-		Map<Integer, Map<Integer, Double>> scoreMap = makeScoreMap(ans, stud);
-		//printScoreMap(scoreMap);
+		List<ClassArtifact> ansClasses = getClassArtifacts(ans);
+		List<ClassArtifact> studClasses = getClassArtifacts(stud);
+		double[][] scoreMatrix = makeScoreMatrix(ansClasses, studClasses);
 		//----------------------------------------
-		int maxIdx1 = -1, maxIdx2 = -1;
-		double maxVal = 10;
+		//スコアの高い組から順に対応させる（しきい値 0.4）
 		double t = 0.4;
-		while(maxVal >= t){
-			maxVal=0;
-			for(Entry<Integer, Map<Integer, Double>> e1 : scoreMap.entrySet()){
-				for(Entry<Integer, Double> e2 : scoreMap.get(e1.getKey()).entrySet()){
-					if ( e2.getValue() >maxVal ) {
-						maxVal = e2.getValue();
-						maxIdx1 = e1.getKey();
-						maxIdx2 = e2.getKey();
-					}
-				}
+		int[] pair = GreedyMatcher.match(scoreMatrix, t);
+		for(int i = 0; i < pair.length; i++){
+			if(pair[i] >= 0){
+				ce.put(ansClasses.get(i).getId(), studClasses.get(pair[i]).getId());
 			}
-			if(maxVal >= t){
-				//System.out.println("To CE "+maxIdx1+" : "+ maxIdx2 +"=>"+scoreMap.get(maxIdx1).get(maxIdx2));
-				ce.put(maxIdx1, maxIdx2);
-				for(Entry<Integer, Map<Integer, Double>> e1 : scoreMap.entrySet()){
-					for(Entry<Integer, Double> e2 : e1.getValue().entrySet()){
-						if ( e1.getKey() == maxIdx1 || e2.getKey() == maxIdx2) {
-							e2.setValue(-1.0);
-						}
-					}
-				}
-			}//if(maxVal > t)
-		}//while(maxVal > t)
+		}
 
 		//		//------------対応する実体が抽出できた-------------------
 
 		//------------対応する関連を抽出する---------------------
+		//学生の関連を両端のクラスの組で引けるようにしておく（同じ組の関連が複数あれば後のものを使う）
+		Map<Long, Integer> studRelationByEnds = new HashMap<Long, Integer>();
+		for(UMLArtifact s : stud){
+			if(s instanceof ClassRelationLinkArtifact) {
+				int sRightId = ((ClassRelationLinkArtifact) (s)).getRightClassArtifact().getId();
+				int sLeftId = ((ClassRelationLinkArtifact) (s)).getLeftClassArtifact().getId();
+				studRelationByEnds.put(relationEndsKey(sRightId, sLeftId), s.getId());
+			}
+		}
 		for(UMLArtifact a : ans){
-			String  type = a.toURL().split("\\$")[0];
-			if(type.equals("ClassRelationLink")) {
+			if(a instanceof ClassRelationLinkArtifact) {
 				int aRightId = ((ClassRelationLinkArtifact) (a)).getRightClassArtifact().getId();
 				int aLeftId = ((ClassRelationLinkArtifact) (a)).getLeftClassArtifact().getId();
-				for(UMLArtifact s : stud){
-					String  sType = s.toURL().split("\\$")[0];
-					if(sType.equals("ClassRelationLink")) {
-						int sRightId = ((ClassRelationLinkArtifact) (s)).getRightClassArtifact().getId();
-						int sLeftId = ((ClassRelationLinkArtifact) (s)).getLeftClassArtifact().getId();
-						if(ce != null && ce.containsKey(aRightId) && ce.containsKey(aLeftId) && ce.containsKey(aRightId) && ce.containsKey(aLeftId) ){
-							if( ( ce.get(aRightId) ==  sRightId && ce.get(aLeftId) == sLeftId)
-									|| ( ce.get(aRightId) == sLeftId && ce.get(aLeftId) == sRightId) ){
-								ce.put(a.getId(), s.getId());
-							}//if( (aRightId == sRightId && aLeftId == sLeftId) || (aRightId == sLeftId && aLeftId == sRightId) )
-						}//if(ce != null && ce.containsKey(aRightId) && ce.containsKey(aLeftId) && ce.containsKey(aRightId) && ce.containsKey(aLeftId) )
-					}//if(sType.equals("ClassRelationLink"))
-				}//for(UMLArtifact s : stud)
-			}//if(type.equals("ClassRelationLink"))
+				if(ce.containsKey(aRightId) && ce.containsKey(aLeftId)){
+					//両端のクラスに対応する学生のクラスを結ぶ関連（向きは問わない）
+					Integer sId = studRelationByEnds.get(relationEndsKey(ce.get(aRightId), ce.get(aLeftId)));
+					if(sId != null){
+						ce.put(a.getId(), sId);
+					}
+				}
+			}//if(a instanceof ClassRelationLinkArtifact)
 		}//for(UMLArtifact a : ans)
 
 		return ce;
 	}
 
-	private static Map<Integer, Map<Integer, Double>> makeScoreMap(List<UMLArtifact> ans, List<UMLArtifact> stud){
-		Map<Integer, Map<Integer, Double>> sm = new LinkedHashMap<Integer, Map<Integer, Double>>();
-		for(UMLArtifact a : ans){
-			String  type = a.toURL().split("\\$")[0];
-			if(type.equals("Class")){
-				sm.put(a.getId(), new LinkedHashMap<Integer, Double>());
-				for(UMLArtifact s : stud){
-					String  ts = s.toURL().split("\\$")[0];
-					if(ts.equals("Class")){
-						sm.get(a.getId()).put(s.getId(), compareClass( (ClassArtifact) a, (ClassArtifact) s) );
-					}//if(type.equals("Class"))
-				}//for(UMLArtifact s : stud)
-			}//if(type.equals("Class"))
-		}//for(UMLArtifact a : ans)
+	/** 関連の両端のクラスIDの組（順序は問わない） */
+	private static long relationEndsKey(int id1, int id2){
+		int min = Math.min(id1, id2);
+		int max = Math.max(id1, id2);
+		return ((long) min << 32) | (max & 0xffffffffL);
+	}
 
+	private static List<ClassArtifact> getClassArtifacts(List<UMLArtifact> artifacts){
+		List<ClassArtifact> classes = new ArrayList<ClassArtifact>();
+		for(UMLArtifact artifact : artifacts){
+			if(artifact instanceof ClassArtifact){
+				classes.add((ClassArtifact) artifact);
+			}
+		}
+		return classes;
+	}
+
+	/** 解答のクラス（行）×学生のクラス（列）の類似度 */
+	private static double[][] makeScoreMatrix(List<ClassArtifact> ans, List<ClassArtifact> stud){
+		double[][] sm = new double[ans.size()][stud.size()];
+		for(int i = 0; i < ans.size(); i++){
+			for(int j = 0; j < stud.size(); j++){
+				sm[i][j] = compareClass(ans.get(i), stud.get(j));
+			}
+		}
 		return sm;
 	}
 
 	private static double compareClass(ClassArtifact a, ClassArtifact s) {
-		Map<Integer, Double> result= new LinkedHashMap<Integer, Double>();
-		Map<Integer, Map<Integer, Double>> am = new LinkedHashMap<Integer, Map<Integer, Double>>();
+		List<UMLClassAttribute> ansAttributes = a.getAttributes();
+		List<UMLClassAttribute> stuAttributes = s.getAttributes();
+		double[][] am = new double[ansAttributes.size()][stuAttributes.size()];
 		LevensteinDistance ld = new LevensteinDistance();
-		int i = 0;
-		for(UMLClassAttribute ansAttr : a.getAttributes()){
-			am.put(i, new LinkedHashMap<Integer, Double>());
-			int j = 0;
-			 for(UMLClassAttribute stuAttr : s.getAttributes()){
-//				am.get(i).put(j, (double) ld.getDistance(Normalizer.normalize(ansAttr.getName(), Normalizer.Form.NFKC), Normalizer.normalize(stuAttr.getName(), Normalizer.Form.NFKC)));
-				am.get(i).put(j, getDistanceScore(ansAttr.getName(), "@", stuAttr.getName()));
+		for(int i = 0; i < ansAttributes.size(); i++){
+			UMLClassAttribute ansAttr = ansAttributes.get(i);
+			for(int j = 0; j < stuAttributes.size(); j++){
+				UMLClassAttribute stuAttr = stuAttributes.get(j);
+//				am[i][j] = (double) ld.getDistance(Normalizer.normalize(ansAttr.getName(), Normalizer.Form.NFKC), Normalizer.normalize(stuAttr.getName(), Normalizer.Form.NFKC));
+				am[i][j] = getDistanceScore(ansAttr.getName(), "@", stuAttr.getName());
 
 								System.out.println(ansAttr.getName()+": "+stuAttr.getName());   ///
 								System.out.println(ld.getDistance(ansAttr.getName(), stuAttr.getName()));  ///
-				j++;
 			}//for(UMLClassAttribute stuAttr : s.getAttributes())
-			i++;
 		}//for(UMLClassAttribute ansAttr : a.getAttributes())
-		//printScoreMap(am);
 
 
-		///対応する属性の組をなんちゃって貪欲法で見つける
-		int maxIdx1 = -1, maxIdx2 = -1;
-		double maxVal = 10;
+		///対応する属性の組を貪欲法で見つける（しきい値 0.3）
 		double t = 0.3;
 //		System.out.println();
 		
 		//比較する2つの単語
 		System.out.println(a.getName()+", "+s.getName() );    
-		while(maxVal >= t){
-			maxVal=0;
-			for(Entry<Integer, Map<Integer, Double>> e1 : am.entrySet()){
-				for(Entry<Integer, Double> e2 : am.get(e1.getKey()).entrySet()){
-					if ( e2.getValue() >maxVal ) {
-						maxVal = e2.getValue();
-						maxIdx1 = e1.getKey();
-						maxIdx2 = e2.getKey();
-					}
-				}
+		int matchedAttributeNum = 0;
+		for(int col : GreedyMatcher.match(am, t)){
+			if(col >= 0){
+				matchedAttributeNum++;
 			}
-			if(maxVal >= t){
-				//System.out.println(a.getAttributes().get(maxIdx1).getName()+", "+s.getAttributes().get(maxIdx2).getName()+" : "+am.get(maxIdx1).get(maxIdx2));
-				result.put(maxIdx1, maxVal);//対応する属性の組を結果に格納
-				for(Entry<Integer, Map<Integer, Double>> e1 : am.entrySet()){
-					for(Entry<Integer, Double> e2 : e1.getValue().entrySet()){
-						if ( e1.getKey() == maxIdx1 || e2.getKey() == maxIdx2) {
-							e2.setValue(-1.0);
-						}
-					}
-				}
-			}//if(maxVal > t)
-		}//while(maxVal > t)
+		}
 
 		//クラス名の対応を見る
 		double nameDistance = 0;
@@ -253,7 +226,7 @@ public class DiagramEvaluater {
 			System.out.println("nameSim="+r);
 		}
 		else{
-			r = ( (double)result.size()/(double)a.getAttributes().size() )*6.0/10.0 + nameDistance*4.0/10.0;
+			r = ( (double)matchedAttributeNum/(double)a.getAttributes().size() )*6.0/10.0 + nameDistance*4.0/10.0;
 			System.out.println("else r="+r);
 		}
 		return r;
@@ -0,0 +1,93 @@
+package com.objetdirect.gwt.umldrawer.server.evaluater;
+
+import java.util.Arrays;
+
+/**
+ * スコア行列から、スコアの高い組から順に1対1の対応を決める（貪欲法）。
+ *
+ * 「行列全体から最大の組を探して対応させ、その行と列を消す」を繰り返すのと同じ結果になる。
+ * 同じスコアの組は、行、列の番号が小さい方を先に取る。
+ * しきい値以上の組だけをヒープに積んで順に取り出すので、n×m の行列で O(nm log(nm)) で済む。
+ */
+public class GreedyMatcher {
+
+	private GreedyMatcher() {
+	}
+
+	/**
+	 * @param score 行×列のスコア（各行の長さは同じ）
+	 * @param threshold これ未満のスコアの組は対応させない（0より大きい値）
+	 * @return 行ごとに対応する列の番号（対応が無い行は -1）
+	 */
+	public static int[] match(double[][] score, double threshold) {
+		int rows = score.length;
+		int[] rowToCol = new int[rows];
+		Arrays.fill(rowToCol, -1);
+		if (rows == 0) {
+			return rowToCol;
+		}
+		int cols = score[0].length;
+		boolean[] colUsed = new boolean[cols];
+
+		// しきい値以上の組を、行優先の通し番号 (i * cols + j) でヒープに積む
+		int[] heap = new int[rows * cols];
+		int size = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				if (score[i][j] >= threshold) {
+					heap[size++] = i * cols + j;
+				}
+			}
+		}
+		for (int k = size / 2 - 1; k >= 0; k--) {
+			siftDown(heap, k, size, score, cols);
+		}
+
+		int matched = 0;
+		int maxMatches = Math.min(rows, cols);
+		while (size > 0 && matched < maxMatches) {
+			int top = heap[0];
+			heap[0] = heap[--size];
+			siftDown(heap, 0, size, score, cols);
+			int i = top / cols;
+			int j = top % cols;
+			// 行か列が既に使われている組は読み飛ばす
+			if (rowToCol[i] >= 0 || colUsed[j]) {
+				continue;
+			}
+			rowToCol[i] = j;
+			colUsed[j] = true;
+			matched++;
+		}
+		return rowToCol;
+	}
+
+	/** 組 a を組 b より先に取り出すか（スコアが高い順、同点なら通し番号が小さい順） */
+	private static boolean precedes(int a, int b, double[][] score, int cols) {
+		double sa = score[a / cols][a % cols];
+		double sb = score[b / cols][b % cols];
+		if (sa != sb) {
+			return sa > sb;
+		}
+		return a < b;
+	}
+
+	private static void siftDown(int[] heap, int k, int size, double[][] score, int cols) {
+		int item = heap[k];
+		while (true) {
+			int child = 2 * k + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && precedes(heap[child + 1], heap[child], score, cols)) {
+				child++;
+			}
+			if (!precedes(heap[child], item, score, cols)) {
+				break;
+			}
+			heap[k] = heap[child];
+			k = child;
+		}
+		heap[k] = item;
+	}
+}
@@ -12,6 +12,7 @@ import com.objetdirect.gwt.umlapi.client.artifacts.UMLArtifact;
 import com.objetdirect.gwt.umldrawer.client.helpers.SimilarityManager;
 import com.objetdirect.gwt.umldrawer.client.saito.SimService;
 import com.objetdirect.gwt.umldrawer.server.AnalysisServiceImpl;
+import com.objetdirect.gwt.umldrawer.server.ParsedDiagramCache;
 import com.objetdirect.gwt.umldrawer.server.dao.Dao;
 
 public class SimServiceImpl extends RemoteServiceServlet implements SimService {
@@ -20,17 +21,17 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
 	public Map<String,Map<String,String>> urlToCompare(String studentId, int exerciseId) {
 //		System.out.println("urlToCompare");
 		Dao dao = new Dao();
-		AnalysisServiceImpl asi = new AnalysisServiceImpl();
 		SimilarityManager sm = new SimilarityManager();
 		com.objetdirect.gwt.umlapi.server.dao.Dao apiDao = new com.objetdirect.gwt.umlapi.server.dao.Dao();
 	
 		Map<String,Map<String,String>> sendSimMap = new HashMap<String,Map<String,String>>();
 		
 		//クラス図のURLを使えるように変換
+		ParsedDiagramCache cache = ParsedDiagramCache.getInstance();
 		String encodeStudentUrl = dao.base64ToString(dao.getStudent(studentId, exerciseId));
 		String encodeAnswerUrl = dao.base64ToString(dao.getAnswer(exerciseId));
-		StudentElements studentE = new StudentElements(encodeStudentUrl);
-		AnswerElements answerE = new AnswerElements(encodeAnswerUrl);
+		StudentElements studentE = cache.getStudentElements(encodeStudentUrl);
+		AnswerElements answerE = cache.getAnswerElements(encodeAnswerUrl);
 		
 		//色を変えるときにクライアント側で必要なMap作り
 		SimElements sim = new SimElements();
@@ -41,8 +42,8 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
 		sendSimMap.put("不一致",simMisMatchMap);
 		
 		//類似度登録 CSall RSall    CDSは「SELECT*((RSall+CSall)/2)AS CDS　FROM similarity WHERE 〇〇」を使ってください
-		List<UMLArtifact>diaList1 = asi.fromURL(encodeStudentUrl);
-	    List<UMLArtifact>diaList2 = asi.fromURL(encodeAnswerUrl);
+		List<UMLArtifact>diaList1 = cache.getArtifacts(encodeStudentUrl);
+	    List<UMLArtifact>diaList2 = cache.getArtifacts(encodeAnswerUrl);
 	    
 //	    double cds = sm.getSimilarity(diaList1, diaList2);
 //	    System.out.println("CDS::"+cds);
@@ -82,10 +83,11 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
 		Map<String,Map<String,String>> sendSimMap = new HashMap<String,Map<String,String>>();
 		
 		//クラス図のURLを使えるように変換
+		ParsedDiagramCache cache = ParsedDiagramCache.getInstance();
 		String encodeStudentUrl = dao.base64ToString(dao.getStudent(studentId, exerciseId));
 		String encodeAnswerUrl = dao.base64ToString(dao.getAnswer(exerciseId));
-		StudentElements studentE = new StudentElements(encodeStudentUrl);
-		AnswerElements answerE = new AnswerElements(encodeAnswerUrl);
+		StudentElements studentE = cache.getStudentElements(encodeStudentUrl);
+		AnswerElements answerE = cache.getAnswerElements(encodeAnswerUrl);
 		
 		//色を変えるときにクライアント側で必要なMap作り
 		SimElements sim = new SimElements();
@@ -125,10 +127,11 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
 		Dao dao = new Dao();
 	
 		//クラス図のURLを使えるように変換
+		ParsedDiagramCache cache = ParsedDiagramCache.getInstance();
 		String encodeStudentUrl = dao.base64ToString(dao.getStudent(studentId, exerciseId));
 		String encodeAnswerUrl = dao.base64ToString(dao.getAnswer(exerciseId));
-		StudentElements studentE = new StudentElements(encodeStudentUrl);
-		AnswerElements answerE = new AnswerElements(encodeAnswerUrl);
+		StudentElements studentE = cache.getStudentElements(encodeStudentUrl);
+		AnswerElements answerE = cache.getAnswerElements(encodeAnswerUrl);
 		
 		//色を変えるときにクライアント側で必要なMap作り
 		SimElements sim = new SimElements();
@@ -275,7 +278,6 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
     @Override
     public double getSim(String studentId, int exerciseId) {
     	Dao dao = new Dao();
-		AnalysisServiceImpl asi = new AnalysisServiceImpl();
 		SimilarityManager sm = new SimilarityManager();
 		com.objetdirect.gwt.umlapi.server.dao.Dao apiDao = new com.objetdirect.gwt.umlapi.server.dao.Dao();
 	
@@ -283,14 +285,15 @@ public class SimServiceImpl extends RemoteServiceServlet implements SimService {
 		Map<String,Map<String,String>> sendSimMap = new HashMap<String,Map<String,String>>();
 		
 		//クラス図のURLを使えるように変換
+		ParsedDiagramCache cache = ParsedDiagramCache.getInstance();
 		String encodeStudentUrl = dao.base64ToString(dao.getStudent(studentId, exerciseId));
 		String encodeAnswerUrl = dao.base64ToString(dao.getAnswer(exerciseId));
-		StudentElements studentE = new StudentElements(encodeStudentUrl);
-		AnswerElements answerE = new AnswerElements(encodeAnswerUrl);
+		StudentElements studentE = cache.getStudentElements(encodeStudentUrl);
+		AnswerElements answerE = cache.getAnswerElements(encodeAnswerUrl);
 		
 		//類似度登録 CSall RSal
-		List<UMLArtifact>diaList1 = asi.fromURL(encodeStudentUrl);
-	    List<UMLArtifact>diaList2 = asi.fromURL(encodeAnswerUrl);
+		List<UMLArtifact>diaList1 = cache.getArtifacts(encodeStudentUrl);
+	    List<UMLArtifact>diaList2 = cache.getArtifacts(encodeAnswerUrl);
 			    
 		double cs = sm.getClassSimilarity(diaList1, diaList2);    
 		double rs = sm.getRelationSimilarity(diaList1, diaList2);
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.IGetElements;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.ElementsMaps;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.IElements;
 
 
@@ -46,6 +47,17 @@ public class StudentElements implements IGetElements {
 //		showDatabaseData();
 	}
 
+	/**
+	 * 解析済みの要素の複製（チェックで要素のフラグが書き換わるので、使い回す時はこれを渡す）
+	 */
+	public StudentElements(StudentElements parsed)
+	{
+		artifactIdMap.putAll(parsed.artifactIdMap);
+		classObjectMap = ElementsMaps.copy(parsed.classObjectMap);
+		fieldObjectMap = ElementsMaps.copyLists(parsed.fieldObjectMap);
+		methodObjectMap = ElementsMaps.copyLists(parsed.methodObjectMap);
+	}
+
 	public void showDatabaseData(){
 		System.out.println("");
 		System.out.println("-----成果物-----");
@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.google.appengine.repackaged.org.apache.commons.codec.binary.Base64;
+import com.objetdirect.gwt.umlapi.server.dao.CanvasHistoryStore;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.Class_IElemetns;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.Field_IElements;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.IElements;
@@ -247,7 +248,7 @@ public class Dao_kifu6
 			while(rs.next())
 			{
 				// codeDB = new String(Base64.getDecoder().decode(rs.getString(1)));
-				codeDB = base64ToString(rs.getString(1));
+				codeDB = base64ToString(CanvasHistoryStore.getInstance().resolve(con, rs.getString(1)));
 			}
 			daokifu6.closeConnection(con);
 
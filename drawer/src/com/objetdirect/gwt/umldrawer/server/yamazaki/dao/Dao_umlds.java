@@ -121,6 +121,95 @@ public class Dao_umlds {
 		return classObjectMap;
 	}
 
+	/**
+	 * クラス・フィールド・メソッド・パラメータを、1つのコネクションでテーブルごとに1回ずつ読む。
+	 * クラスごとに getFieldtable / getMethodtable を呼び、さらにメソッドごとにパラメータを読むのと同じ内容になる。
+	 * フィールドとメソッドは、フィールド・メソッドが無いクラスにも空のリストを入れる。
+	 *
+	 * @return 読めなかった時は false（渡したマップは途中までの内容になる）
+	 */
+	public boolean loadAll(HashMap<String, IElements> classObjectMap,
+			HashMap<String, List<IElements>> fieldObjectMap,
+			HashMap<String, List<IElements>> methodObjectMap)
+	{
+		Connection con = daoumlds.createHikariConnection();
+		if(con == null)
+		{
+			return false;
+		}
+		try {
+			Statement statement = con.createStatement();
+
+			// class_num からクラス名へ
+			HashMap<Integer, String> classNameMap = new HashMap<Integer, String>();
+			ResultSet rs = statement.executeQuery("select class_num, class_name, class_access from class;");
+			while(rs.next())
+			{
+				String class_name = rs.getString("class_name");
+				classNameMap.put(rs.getInt("class_num"), class_name);
+				classObjectMap.put(class_name, new Class_IElemetns(rs.getInt("class_access"), class_name));
+				fieldObjectMap.put(class_name, new ArrayList<IElements>());
+				methodObjectMap.put(class_name, new ArrayList<IElements>());
+			}
+			rs.close();
+
+			rs = statement.executeQuery("select class_num, field_access, field_name, field_type from field;");
+			while(rs.next())
+			{
+				List<IElements> fieldList = fieldObjectMap.get(classNameMap.get(rs.getInt("class_num")));
+				if(fieldList != null)
+				{
+					String field_type = transestring.returnTranseType(rs.getString("field_type"));
+					fieldList.add(new Field_IElements(rs.getInt("field_access"), rs.getString("field_name"), field_type));
+				}
+			}
+			rs.close();
+
+			// パラメータは method_num ごとに、名前と型を同じ順で並べる
+			HashMap<Integer, List<String>> paraNameMap = new HashMap<Integer, List<String>>();
+			HashMap<Integer, List<String>> paraTypeMap = new HashMap<Integer, List<String>>();
+			rs = statement.executeQuery("select method_num, para_name, para_type from m_parameta;");
+			while(rs.next())
+			{
+				int method_num = rs.getInt("method_num");
+				List<String> paraNameList = paraNameMap.get(method_num);
+				if(paraNameList == null)
+				{
+					paraNameList = new ArrayList<String>();
+					paraNameMap.put(method_num, paraNameList);
+					paraTypeMap.put(method_num, new ArrayList<String>());
+				}
+				paraNameList.add(rs.getString("para_name"));
+				paraTypeMap.get(method_num).add(transestring.returnTranseType(rs.getString("para_type")));
+			}
+			rs.close();
+
+			rs = statement.executeQuery("select method_num, class_num, method_access, method_name, returnvalue from method;");
+			while(rs.next())
+			{
+				List<IElements> methodList = methodObjectMap.get(classNameMap.get(rs.getInt("class_num")));
+				if(methodList != null)
+				{
+					int method_num = rs.getInt("method_num");
+					List<String> paraNameList = paraNameMap.get(method_num);
+					List<String> paraTypeList = paraTypeMap.get(method_num);
+					String returnvalue = transestring.returnTranseType(rs.getString("returnvalue"));
+					methodList.add(new Method_IElements(rs.getInt("method_access"), rs.getString("method_name"), returnvalue,
+							paraNameList != null ? paraNameList : new ArrayList<String>(),
+							paraTypeList != null ? paraTypeList : new ArrayList<String>()));
+				}
+			}
+			rs.close();
+			statement.close();
+			return true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			daoumlds.closeConnection(con);
+		}
+	}
+
 	public List<IElements> getFieldtable(String className)
 	{
 		//select * from field,class where class.class_num = field.class_num and class.class_name = "Test2";
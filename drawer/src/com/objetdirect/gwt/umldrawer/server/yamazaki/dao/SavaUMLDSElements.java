@@ -3,33 +3,87 @@ package com.objetdirect.gwt.umldrawer.server.yamazaki.dao;
 import java.util.HashMap;
 import java.util.List;
 
+import com.objetdirect.gwt.umlapi.server.yamazaki.thread.ThreadAcceptfromUMLDS;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.ElementsMaps;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.IElements;
 
 
 
 public class SavaUMLDSElements implements IGetElements{
 
+	/** 最後に読んだUMLDSの内容と、その時の ThreadAcceptfromUMLDS の変更回数 */
+	private static SavaUMLDSElements loaded = null;
+	private static long loadedChangeCount = -1;
+
 	private HashMap<String, IElements> classObjectMap = new HashMap<String, IElements>();
 	private HashMap<String, List<IElements>> fieldObjectMap = new HashMap<String, List<IElements>>();
 	private HashMap<String, List<IElements>> methodObjectMap = new HashMap<String, List<IElements>>();
 
+	/** テーブルを最後まで読めたか（読めなかった内容は使い回さない） */
+	private boolean complete;
+
 	Dao_umlds dao = new Dao_umlds();
 
+	/**
+	 * UMLDSのテーブルを読む。クラスごと・メソッドごとに問い合わせず、テーブルごとに1回ずつ読む
+	 */
 	public SavaUMLDSElements()
 	{
+		complete = dao.loadAll(classObjectMap, fieldObjectMap, methodObjectMap);
 
-		String codeDB = dao.getDatabaseElements();
-
+//		showDatabaseData();
+	}
 
-		classObjectMap = dao.getClasstable();
+	private SavaUMLDSElements(SavaUMLDSElements loaded)
+	{
+		classObjectMap = ElementsMaps.copy(loaded.classObjectMap);
+		fieldObjectMap = ElementsMaps.copyLists(loaded.fieldObjectMap);
+		methodObjectMap = ElementsMaps.copyLists(loaded.methodObjectMap);
+		complete = loaded.complete;
+	}
 
-		for(String className : classObjectMap.keySet())
+	/**
+	 * UMLDSの内容を返す。UMLDSからソースコードの変更が届くまでは、前に読んだ内容を使い回す。
+	 * チェックで要素のフラグが書き換わるので、呼ぶたびに複製を返す
+	 */
+	public static synchronized SavaUMLDSElements getElements()
+	{
+		SavaUMLDSElements elements = load();
+		if(elements != loaded)
 		{
-			fieldObjectMap.put(className,dao.getFieldtable(className));
-			methodObjectMap.put(className,dao.getMethodtable(className));
+			return elements;
 		}
+		return new SavaUMLDSElements(loaded);
+	}
 
-//		showDatabaseData();
+	/**
+	 * ソースコードの変更が届いていれば、UMLDSの内容を読み直しておく（変更の通知を送る前に1回だけ呼ぶ）
+	 *
+	 * @return 最後まで読めた内容があれば true
+	 */
+	public static synchronized boolean preload()
+	{
+		return load() == loaded;
+	}
+
+	/**
+	 * 前に読んだ内容が古ければ読み直す。最後まで読めなかった時は、覚えずにその内容を返す
+	 */
+	private static SavaUMLDSElements load()
+	{
+		// 読む前の変更回数で覚える（読んでいる間に変更が届いたら、次の呼び出しで読み直す）
+		long changeCount = ThreadAcceptfromUMLDS.getInstance().getChangeCount();
+		if(loaded == null || loadedChangeCount != changeCount)
+		{
+			SavaUMLDSElements elements = new SavaUMLDSElements();
+			if(!elements.complete)
+			{
+				return elements;
+			}
+			loaded = elements;
+			loadedChangeCount = changeCount;
+		}
+		return loaded;
 	}
 
 	public void showDatabaseData()
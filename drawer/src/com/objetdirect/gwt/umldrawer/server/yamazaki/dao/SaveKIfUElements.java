@@ -3,6 +3,7 @@ package com.objetdirect.gwt.umldrawer.server.yamazaki.dao;
 import java.util.HashMap;
 import java.util.List;
 
+import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.ElementsMaps;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.elements.IElements;
 
 
@@ -15,9 +16,19 @@ public class SaveKIfUElements implements IGetElements {
 
 	public SaveKIfUElements(String student_id,int exercise_id)
 	{
-		Dao_kifu6 dao = new Dao_kifu6(student_id,exercise_id);
-		String codeDB = dao.getDatabaseElements();
+		this(new Dao_kifu6(student_id,exercise_id));
+	}
+
+	private SaveKIfUElements(Dao_kifu6 dao)
+	{
+		this(dao, dao.getDatabaseElements());
+	}
 
+	/**
+	 * 取得済みの図（デコード済み）を dao の分割メソッドで要素に分ける
+	 */
+	public SaveKIfUElements(Dao_kifu6 dao, String codeDB)
+	{
 		if(!codeDB.equals(null))
 		{
 			System.out.println("DBCode:" + codeDB);
@@ -63,6 +74,17 @@ public class SaveKIfUElements implements IGetElements {
 //		showDatabaseData();
 	}
 
+	/**
+	 * 解析済みの要素の複製（チェックで要素のフラグが書き換わるので、使い回す時はこれを渡す）
+	 */
+	public SaveKIfUElements(SaveKIfUElements parsed)
+	{
+		artifactIdMap.putAll(parsed.artifactIdMap);
+		classObjectMap = ElementsMaps.copy(parsed.classObjectMap);
+		fieldObjectMap = ElementsMaps.copyLists(parsed.fieldObjectMap);
+		methodObjectMap = ElementsMaps.copyLists(parsed.methodObjectMap);
+	}
+
 	public void showDatabaseData()
 	{
 		System.out.println("");
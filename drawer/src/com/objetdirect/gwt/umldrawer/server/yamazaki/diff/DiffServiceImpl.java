@@ -6,6 +6,8 @@ import java.util.Map;
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.objetdirect.gwt.umlapi.client.helpers.Session;
 import com.objetdirect.gwt.umldrawer.client.yamazaki.diffservice.DiffService;
+import com.objetdirect.gwt.umldrawer.server.ParsedDiagramCache;
+import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.Dao_kifu6;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.SavaUMLDSElements;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.dao.SaveKIfUElements;
 import com.objetdirect.gwt.umldrawer.server.yamazaki.difference.DiffElements;
@@ -18,10 +20,12 @@ public class DiffServiceImpl extends RemoteServiceServlet  implements DiffServic
 		Map<String,Map<String,String>> sendDiffMap = new HashMap<String,Map<String,String>>();
 
 		System.out.println("DiffServiceImpl:" + Session.studentId);
-		SaveKIfUElements kifu = new SaveKIfUElements(student_id,exercise_id);
+		// 図が前回から変わっていなければ、解析済みの要素をそのまま使う
+		Dao_kifu6 dao = new Dao_kifu6(student_id,exercise_id);
+		SaveKIfUElements kifu = ParsedDiagramCache.getInstance().getKifuElements(dao.getDatabaseElements(), dao);
 		
-		System.out.println("SavaUMLDSElements umlds = new SavaUMLDSElements();");
-		SavaUMLDSElements umlds = new SavaUMLDSElements();
+		// UMLDSの内容はソースコードの変更が届くまで使い回す
+		SavaUMLDSElements umlds = SavaUMLDSElements.getElements();
 
 		System.out.println("DiffElements diff = new DiffElements();");
 		DiffElements diff = new DiffElements();
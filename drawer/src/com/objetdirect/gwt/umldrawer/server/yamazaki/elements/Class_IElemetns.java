@@ -93,4 +93,9 @@ public class Class_IElemetns extends ElementsBoolean implements IElements {
 		// TODO 自動生成されたメソッド・スタブ
 		return null;
 	}
+
+	@Override
+	public IElements copy() {
+		return new Class_IElemetns(access, className);
+	}
 }
@@ -0,0 +1,40 @@
+package com.objetdirect.gwt.umldrawer.server.yamazaki.elements;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 要素のマップの複製。
+ * 差分チェック・類似度チェックは要素のフラグ（changeNamebool など）を書き換えるので、
+ * 解析済みの要素を使い回す時は、チェックごとにここで複製したものを渡す。
+ */
+public class ElementsMaps {
+
+	private ElementsMaps() {
+	}
+
+	public static HashMap<String, IElements> copy(HashMap<String, IElements> elementMap) {
+		HashMap<String, IElements> copied = new HashMap<String, IElements>();
+		for (Map.Entry<String, IElements> entry : elementMap.entrySet()) {
+			copied.put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().copy());
+		}
+		return copied;
+	}
+
+	public static HashMap<String, List<IElements>> copyLists(HashMap<String, List<IElements>> elementListMap) {
+		HashMap<String, List<IElements>> copied = new HashMap<String, List<IElements>>();
+		for (Map.Entry<String, List<IElements>> entry : elementListMap.entrySet()) {
+			List<IElements> list = null;
+			if (entry.getValue() != null) {
+				list = new ArrayList<IElements>(entry.getValue().size());
+				for (IElements element : entry.getValue()) {
+					list.add(element == null ? null : element.copy());
+				}
+			}
+			copied.put(entry.getKey(), list);
+		}
+		return copied;
+	}
+}
@@ -97,4 +97,8 @@ public class Field_IElements extends ElementsBoolean implements IElements {
 		return null;
 	}
 
+	@Override
+	public IElements copy() {
+		return new Field_IElements(access, fieldName, fieldType);
+	}
 }
@@ -19,4 +19,7 @@ public interface IElements {
 	boolean getTypebool();
 	boolean getNamebool();
 	boolean getAccessbool();
+
+	/** フラグを立てていない状態の複製（解析済みの要素を使い回す時に、チェックで書き換わらないようにする） */
+	IElements copy();
 }
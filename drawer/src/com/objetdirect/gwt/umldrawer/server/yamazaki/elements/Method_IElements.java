@@ -130,4 +130,16 @@ public class Method_IElements extends ElementsBoolean implements IElements {
 		// TODO 自動生成されたメソッド・スタブ
 		return this.parametarList;
 	}
+
+	@Override
+	public IElements copy() {
+		List<String> paraName = new ArrayList<String>();
+		List<String> paraType = new ArrayList<String>();
+		for(MethodParametar parametar : parametarList)
+		{
+			paraName.add(parametar.getName());
+			paraType.add(parametar.getType());
+		}
+		return new Method_IElements(access, mehotdName, returnType, paraName, paraType);
+	}
 }